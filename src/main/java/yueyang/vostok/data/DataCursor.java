@@ -0,0 +1,143 @@
+package yueyang.vostok.data;
+
+import yueyang.vostok.data.exception.VKExceptionTranslator;
+import yueyang.vostok.util.VKAssert;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 实体查询的流式游标：逐行读取、逐行映射，内存占用与结果集大小无关。
+ *
+ * <p>游标持有连接直到关闭：遍历到末尾或读取失败时自动关闭，提前结束遍历必须显式调用 {@link #close()}
+ * （推荐 try-with-resources）。通过 {@link #stream()} 得到的 Stream 关闭时同样关闭游标。
+ */
+public final class DataCursor<T> implements Iterator<T>, AutoCloseable {
+    /**
+     * 将结果集当前行映射为对象。
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final String sql;
+    private final ResultSet resultSet;
+    private final RowMapper<T> mapper;
+    private final DataResult.CloseHandler closeHandler;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    /** 已调用 rs.next() 且当前行尚未被 next() 取走。 */
+    private boolean pending;
+    private long rows;
+
+    public DataCursor(String sql, ResultSet resultSet, RowMapper<T> mapper, DataResult.CloseHandler closeHandler) {
+        VKAssert.notBlank(sql, "SQL is blank");
+        VKAssert.notNull(resultSet, "ResultSet is null");
+        VKAssert.notNull(mapper, "RowMapper is null");
+        VKAssert.notNull(closeHandler, "CloseHandler is null");
+        this.sql = sql;
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+        this.closeHandler = closeHandler;
+    }
+
+    /**
+     * 是否还有下一行；到达末尾时自动关闭底层资源。
+     */
+    @Override
+    public boolean hasNext() {
+        if (pending) {
+            return true;
+        }
+        if (closed.get()) {
+            return false;
+        }
+        try {
+            pending = resultSet.next();
+        } catch (SQLException e) {
+            throw fail(e);
+        }
+        if (!pending) {
+            close();
+        }
+        return pending;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("DataCursor exhausted");
+        }
+        pending = false;
+        try {
+            T row = mapper.map(resultSet);
+            rows++;
+            return row;
+        } catch (SQLException e) {
+            throw fail(e);
+        }
+    }
+
+    /** 已读取的行数。 */
+    public long rowCount() {
+        return rows;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 以顺序 Stream 形式遍历剩余行；Stream 关闭时关闭游标。
+     */
+    public Stream<T> stream() {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        closeInternal(null, true);
+    }
+
+    private RuntimeException fail(SQLException e) {
+        RuntimeException translated = VKExceptionTranslator.translate(sql, e);
+        try {
+            closeInternal(translated, false);
+        } catch (RuntimeException closeEx) {
+            translated.addSuppressed(closeEx);
+        }
+        return translated;
+    }
+
+    private void closeInternal(Throwable error, boolean throwOnCloseError) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        pending = false;
+        try {
+            closeHandler.onClose(error);
+        } catch (SQLException e) {
+            if (throwOnCloseError) {
+                throw VKExceptionTranslator.translate(sql, e);
+            }
+            if (error != null) {
+                error.addSuppressed(e);
+            }
+        } catch (RuntimeException e) {
+            if (throwOnCloseError) {
+                throw e;
+            }
+            if (error != null) {
+                error.addSuppressed(e);
+            }
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package yueyang.vostok.data;
 
 import yueyang.vostok.data.config.VKBatchFailStrategy;
+import yueyang.vostok.data.config.VKReplicaBalance;
 import yueyang.vostok.data.dialect.VKDialectType;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Vostok 数据源与连接池配置。
@@ -48,7 +52,7 @@ public class VKDataConfig {
     private long idleTimeoutMs = 0;
     /** 连接泄露检测阈值（毫秒），<=0 表示不检测 */
     private long leakDetectMs = 0;
-    /** 预编译 SQL 缓存大小（每个连接） */
+    /** 预编译语句 LRU 缓存大小（每个物理连接，0 关闭） */
     private int statementCacheSize = 50;
     /** SQL 模板缓存大小（每个数据源） */
     private int sqlTemplateCacheSize = 200;
@@ -82,6 +86,8 @@ public class VKDataConfig {
     private long txTimeoutMs = 0;
     /** 非事务 SQL 超时（毫秒，<=0 不限制） */
     private long queryTimeoutMs = 0;
+    /** 流式查询每次从数据库取回的行数（方言可覆盖，如 MySQL 逐行流式） */
+    private int streamFetchSize = 1000;
     /** 是否开启字段加密 */
     private boolean fieldEncryptionEnabled = false;
     /** 字段加密默认 keyId */
@@ -92,6 +98,16 @@ public class VKDataConfig {
     private DataSource externalDataSource;
     /** 关闭 Data 模块时是否关闭 externalDataSource（默认 false） */
     private boolean closeExternalDataSource = false;
+    /** 只读副本组（仅使用连接与连接池参数，SQL 行为沿用主库配置） */
+    private List<VKDataConfig> replicas = new ArrayList<>();
+    /** 只读副本选择策略 */
+    private VKReplicaBalance replicaBalance = VKReplicaBalance.ROUND_ROBIN;
+    /** 写入后同一线程读主库的粘滞窗口（毫秒，<=0 关闭） */
+    private long replicaStickyMs = 1000;
+    /** 副本连续连接失败多少次后摘除 */
+    private int replicaEjectThreshold = 3;
+    /** 副本摘除时长（毫秒），到期后重新参与选择 */
+    private long replicaEjectMs = 30000;
 
     
     public String getUrl() {
@@ -487,6 +503,15 @@ public class VKDataConfig {
         return this;
     }
 
+    public int getStreamFetchSize() {
+        return streamFetchSize;
+    }
+
+    public VKDataConfig streamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+        return this;
+    }
+
     public boolean isFieldEncryptionEnabled() {
         return fieldEncryptionEnabled;
     }
@@ -531,4 +556,61 @@ public class VKDataConfig {
         this.closeExternalDataSource = closeExternalDataSource;
         return this;
     }
+
+    public List<VKDataConfig> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    public VKDataConfig replicas(VKDataConfig... replicas) {
+        this.replicas = new ArrayList<>();
+        if (replicas != null) {
+            for (VKDataConfig replica : replicas) {
+                addReplica(replica);
+            }
+        }
+        return this;
+    }
+
+    public VKDataConfig addReplica(VKDataConfig replica) {
+        if (replica != null) {
+            this.replicas.add(replica);
+        }
+        return this;
+    }
+
+    public VKReplicaBalance getReplicaBalance() {
+        return replicaBalance;
+    }
+
+    public VKDataConfig replicaBalance(VKReplicaBalance replicaBalance) {
+        this.replicaBalance = replicaBalance;
+        return this;
+    }
+
+    public long getReplicaStickyMs() {
+        return replicaStickyMs;
+    }
+
+    public VKDataConfig replicaStickyMs(long replicaStickyMs) {
+        this.replicaStickyMs = replicaStickyMs;
+        return this;
+    }
+
+    public int getReplicaEjectThreshold() {
+        return replicaEjectThreshold;
+    }
+
+    public VKDataConfig replicaEjectThreshold(int replicaEjectThreshold) {
+        this.replicaEjectThreshold = replicaEjectThreshold;
+        return this;
+    }
+
+    public long getReplicaEjectMs() {
+        return replicaEjectMs;
+    }
+
+    public VKDataConfig replicaEjectMs(long replicaEjectMs) {
+        this.replicaEjectMs = replicaEjectMs;
+        return this;
+    }
 }
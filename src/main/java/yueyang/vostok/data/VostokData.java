@@ -17,12 +17,15 @@ import yueyang.vostok.data.migrate.VKCryptoMigrateResult;
 import yueyang.vostok.data.pool.VKPoolMetrics;
 import yueyang.vostok.data.plugin.VKInterceptor;
 import yueyang.vostok.data.query.VKAggregate;
+import yueyang.vostok.data.query.VKPage;
 import yueyang.vostok.data.query.VKQuery;
 import yueyang.vostok.util.scan.VKScanner;
 import yueyang.vostok.util.VKAssert;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Vostok 数据入口。
@@ -217,10 +220,48 @@ public class VostokData {
         return VostokCrudOps.query(entityClass, query);
     }
 
+    /**
+     * 流式查询，返回逐行映射的游标；提前结束遍历时必须关闭。query 为 null 时遍历全表。
+     *
+     * <p>fetchSize 由方言决定：MySQL 逐行流式，PostgreSQL 在只读事务中按 streamFetchSize 分批取回。
+     */
+    public static <T> DataCursor<T> queryCursor(Class<T> entityClass, VKQuery query) {
+        return VostokCrudOps.queryCursor(entityClass, query);
+    }
+
+    /**
+     * 流式查询，返回顺序 Stream，需在 try-with-resources 中使用。
+     */
+    public static <T> Stream<T> queryStream(Class<T> entityClass, VKQuery query) {
+        return VostokCrudOps.queryStream(entityClass, query);
+    }
+
+    /**
+     * 流式查询，逐行回调并返回处理的行数，结束后自动释放连接。
+     */
+    public static <T> long queryEach(Class<T> entityClass, VKQuery query, Consumer<? super T> action) {
+        return VostokCrudOps.queryEach(entityClass, query, action);
+    }
+
     public static <T> List<T> queryColumns(Class<T> entityClass, VKQuery query, String... fields) {
         return VostokCrudOps.queryColumns(entityClass, query, fields);
     }
 
+    /**
+     * 键集（seek）分页查询：query.limit 为每页行数，游标通过 {@link VKQuery#seek(String)} 传入，
+     * 返回本页数据与下一页游标；深分页耗时与页码无关。
+     */
+    public static <T> VKPage<T> queryPage(Class<T> entityClass, VKQuery query) {
+        return VostokCrudOps.queryPage(entityClass, query);
+    }
+
+    /**
+     * 键集分页查询指定列，排序键字段（含主键）总会被查询。
+     */
+    public static <T> VKPage<T> queryColumnsPage(Class<T> entityClass, VKQuery query, String... fields) {
+        return VostokCrudOps.queryColumnsPage(entityClass, query, fields);
+    }
+
     public static List<Object[]> aggregate(Class<?> entityClass, VKQuery query, VKAggregate... aggregates) {
         return VostokCrudOps.aggregate(entityClass, query, aggregates);
     }
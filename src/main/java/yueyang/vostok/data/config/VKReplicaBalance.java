@@ -0,0 +1,15 @@
+package yueyang.vostok.data.config;
+
+/**
+ * 只读副本选择策略。
+ */
+public enum VKReplicaBalance {
+    /**
+     * 在可用副本间轮询。
+     */
+    ROUND_ROBIN,
+    /**
+     * 选择活动连接数最少的可用副本（外部数据源无法统计时退化为轮询）。
+     */
+    LEAST_ACTIVE
+}
@@ -3,6 +3,7 @@ package yueyang.vostok.data.core;
 import yueyang.vostok.data.ds.VKDataSourceHolder;
 import yueyang.vostok.data.ds.VKDataSourceRegistry;
 import yueyang.vostok.data.meta.MetaRegistry;
+import yueyang.vostok.data.pool.VKDataSource;
 import yueyang.vostok.data.pool.VKPoolMetrics;
 
 import java.util.ArrayList;
@@ -19,8 +20,11 @@ public final class VostokAdminOps {
         VostokInternal.ensureInit();
         List<VKPoolMetrics> list = new ArrayList<>();
         for (VKDataSourceHolder holder : VKDataSourceRegistry.allHolders().values()) {
-            list.add(new VKPoolMetrics(holder.getName(), holder.getDataSource().getTotalCount(),
-                    holder.getDataSource().getActiveCount(), holder.getDataSource().getIdleCount()));
+            VKDataSource ds = holder.getDataSource();
+            list.add(new VKPoolMetrics(holder.getName(), ds.getTotalCount(), ds.getActiveCount(), ds.getIdleCount(),
+                    ds.getStatementCacheHits(), ds.getStatementCacheMisses()));
+            // 只读副本紧随主库，名称为 {数据源}-replica-{序号}
+            list.addAll(holder.getReadRouter().poolMetrics());
         }
         return list;
     }
@@ -31,21 +35,37 @@ public final class VostokAdminOps {
         sb.append("Vostok Report\n");
         sb.append("EntityCount: ").append(MetaRegistry.size()).append("\n");
         sb.append("MetaLastRefreshAt: ").append(MetaRegistry.getLastRefreshAt()).append("\n");
-        for (VKPoolMetrics m : poolMetrics()) {
-            sb.append("DataSource:").append(m.getName())
-                    .append(" total=").append(m.getTotal())
-                    .append(" active=").append(m.getActive())
-                    .append(" idle=").append(m.getIdle())
+        for (VKDataSourceHolder holder : VKDataSourceRegistry.allHolders().values()) {
+            VKDataSource ds = holder.getDataSource();
+            sb.append("DataSource:").append(holder.getName())
+                    .append(" total=").append(ds.getTotalCount())
+                    .append(" active=").append(ds.getActiveCount())
+                    .append(" idle=").append(ds.getIdleCount())
                     .append("\n");
-            VKDataSourceHolder holder = VKDataSourceRegistry.get(m.getName());
+            long hits = ds.getStatementCacheHits();
+            if (hits >= 0) {
+                long misses = ds.getStatementCacheMisses();
+                long lookups = hits + misses;
+                sb.append("  StatementCache: hits=").append(hits)
+                        .append(" misses=").append(misses)
+                        .append(" hitRate=").append(lookups == 0 ? "0.00" : String.format("%.2f", hits * 100.0 / lookups))
+                        .append("%\n");
+            }
+            for (VKPoolMetrics m : holder.getReadRouter().poolMetrics()) {
+                sb.append("  Replica:").append(m.getName())
+                        .append(" total=").append(m.getTotal())
+                        .append(" active=").append(m.getActive())
+                        .append(" idle=").append(m.getIdle())
+                        .append("\n");
+            }
             var cache = MetaRegistry.getTemplateCache(holder.getName());
             sb.append("  SqlTemplateCacheSize: ").append(cache.size())
                     .append("/").append(cache.getMaxSize()).append("\n");
-            String leak = holder.getDataSource().getLastLeakStack();
+            String leak = ds.getLastLeakStack();
             if (leak != null && !leak.isBlank()) {
                 sb.append("  LeakStack:\n").append(leak).append("\n");
             }
-            sb.append(VostokInternal.buildSqlMetricsReport(m.getName()));
+            sb.append(VostokInternal.buildSqlMetricsReport(holder.getName()));
         }
         return sb.toString();
     }
@@ -1,5 +1,6 @@
 package yueyang.vostok.data.core;
 
+import yueyang.vostok.data.DataCursor;
 import yueyang.vostok.data.exception.VKErrorCode;
 import yueyang.vostok.data.exception.VKException;
 import yueyang.vostok.data.exception.VKExceptionTranslator;
@@ -14,9 +15,11 @@ import yueyang.vostok.data.query.VKAggregate;
 import yueyang.vostok.data.query.VKCondition;
 import yueyang.vostok.data.query.VKConditionGroup;
 import yueyang.vostok.data.query.VKOperator;
+import yueyang.vostok.data.query.VKPage;
 import yueyang.vostok.data.query.VKQuery;
 import yueyang.vostok.data.sql.SqlAndParams;
 import yueyang.vostok.data.sql.SqlBuilder;
+import yueyang.vostok.data.sql.SqlKeyset;
 import yueyang.vostok.data.sql.SqlTemplate;
 import yueyang.vostok.data.sql.SqlTemplateType;
 import yueyang.vostok.data.tx.VKTransactionManager;
@@ -26,6 +29,8 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * CRUD / 查询相关操作。
@@ -312,6 +317,40 @@ public final class VostokCrudOps {
         return VostokInternal.executeQueryList(meta, sp);
     }
 
+    /**
+     * 流式查询：返回逐行映射的游标，调用方必须关闭（遍历到末尾时自动关闭）。
+     *
+     * <p>query 为 null 时遍历全表（仍过滤逻辑删除记录）。
+     */
+    public static <T> DataCursor<T> queryCursor(Class<T> entityClass, VKQuery query) {
+        VostokInternal.ensureInit();
+        VKAssert.notNull(entityClass, "Entity class is null");
+        EntityMeta meta = MetaRegistry.get(entityClass);
+        validateEncryptedQuery(meta, query);
+        SqlAndParams sp = SqlBuilder.buildSelect(meta, query, VostokInternal.currentDialect());
+        return VostokInternal.executeQueryCursor(meta, meta.getFields(), sp);
+    }
+
+    /**
+     * 流式查询：返回顺序 Stream，需在 try-with-resources 中使用以释放连接。
+     */
+    public static <T> Stream<T> queryStream(Class<T> entityClass, VKQuery query) {
+        return VostokCrudOps.<T>queryCursor(entityClass, query).stream();
+    }
+
+    /**
+     * 流式查询：逐行回调，返回处理的行数；回调抛出异常时关闭游标并原样抛出。
+     */
+    public static <T> long queryEach(Class<T> entityClass, VKQuery query, Consumer<? super T> action) {
+        VKAssert.notNull(action, "Row consumer is null");
+        try (DataCursor<T> cursor = queryCursor(entityClass, query)) {
+            while (cursor.hasNext()) {
+                action.accept(cursor.next());
+            }
+            return cursor.rowCount();
+        }
+    }
+
     public static <T> List<T> queryColumns(Class<T> entityClass, VKQuery query, String... fields) {
         VostokInternal.ensureInit();
         VKAssert.notNull(entityClass, "Entity class is null");
@@ -329,12 +368,75 @@ public final class VostokCrudOps {
 
         SqlAndParams sp = SqlBuilder.buildSelect(meta, projection, query, VostokInternal.currentDialect());
         try {
-            return VostokInternal.currentExecutor().queryList(meta, projection, sp.getSql(), sp.getParams());
+            return VostokInternal.read(executor -> executor.queryList(meta, projection, sp.getSql(), sp.getParams()));
         } catch (SQLException e) {
             throw VKExceptionTranslator.translate(sp.getSql(), e);
         }
     }
 
+    /**
+     * 键集分页查询：query.limit 为每页行数，游标通过 {@link VKQuery#seek(String)} 传入（未调用或 null 为第一页）。
+     *
+     * <p>多取一行判断是否还有下一页，下一页游标由本页最后一行的排序字段值生成。
+     */
+    public static <T> VKPage<T> queryPage(Class<T> entityClass, VKQuery query) {
+        VostokInternal.ensureInit();
+        VKAssert.notNull(entityClass, "Entity class is null");
+        EntityMeta meta = MetaRegistry.get(entityClass);
+        validateEncryptedQuery(meta, query);
+        return keysetPage(meta, meta.getFields(), query);
+    }
+
+    /**
+     * 键集分页查询指定列；排序键字段（含主键）未在 fields 中时自动加入投影，用于生成下一页游标。
+     */
+    public static <T> VKPage<T> queryColumnsPage(Class<T> entityClass, VKQuery query, String... fields) {
+        VostokInternal.ensureInit();
+        VKAssert.notNull(entityClass, "Entity class is null");
+        VKAssert.notNull(fields, "Fields is null");
+        VKAssert.isTrue(fields.length > 0, "Fields is empty");
+
+        EntityMeta meta = MetaRegistry.get(entityClass);
+        validateEncryptedQuery(meta, query);
+        List<FieldMeta> projection = new ArrayList<>();
+        for (String field : fields) {
+            FieldMeta fm = meta.getFieldByName(field);
+            VKAssert.notNull(fm, "Unknown field: " + field);
+            projection.add(fm);
+        }
+        return keysetPage(meta, projection, query);
+    }
+
+    private static <T> VKPage<T> keysetPage(EntityMeta meta, List<FieldMeta> projection, VKQuery query) {
+        VKAssert.notNull(query, "Query is null");
+        Integer limit = query.getLimit();
+        VKAssert.isTrue(limit != null && limit > 0, "Keyset page requires limit > 0");
+
+        SqlKeyset keyset = SqlKeyset.of(meta, query);
+        List<FieldMeta> columns = projection;
+        for (FieldMeta key : keyset.getFields()) {
+            if (!columns.contains(key)) {
+                if (columns == projection) {
+                    columns = new ArrayList<>(projection);
+                }
+                columns.add(key);
+            }
+        }
+        List<FieldMeta> selected = columns;
+        SqlAndParams sp = SqlBuilder.buildKeysetSelect(meta, selected, query, keyset, VostokInternal.currentDialect(), limit + 1);
+        List<T> rows;
+        try {
+            rows = VostokInternal.read(executor -> executor.queryList(meta, selected, sp.getSql(), sp.getParams()));
+        } catch (SQLException e) {
+            throw VKExceptionTranslator.translate(sp.getSql(), e);
+        }
+        if (rows.size() <= limit) {
+            return new VKPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new VKPage<>(items, keyset.encode(items.get(limit - 1)));
+    }
+
     public static List<Object[]> aggregate(Class<?> entityClass, VKQuery query, VKAggregate... aggregates) {
         VostokInternal.ensureInit();
         VKAssert.notNull(entityClass, "Entity class is null");
@@ -344,7 +446,7 @@ public final class VostokCrudOps {
         validateEncryptedQuery(meta, query);
         SqlAndParams sp = SqlBuilder.buildSelect(meta, query, VostokInternal.currentDialect());
         try {
-            return VostokInternal.currentExecutor().queryRows(sp.getSql(), sp.getParams());
+            return VostokInternal.read(executor -> executor.queryRows(sp.getSql(), sp.getParams()));
         } catch (SQLException e) {
             throw VKExceptionTranslator.translate(sp.getSql(), e);
         }
@@ -357,7 +459,7 @@ public final class VostokCrudOps {
         validateEncryptedQuery(meta, query);
         SqlAndParams sp = SqlBuilder.buildCount(meta, query, VostokInternal.currentDialect());
         try {
-            Object value = VostokInternal.currentExecutor().queryScalar(sp.getSql(), sp.getParams());
+            Object value = VostokInternal.read(executor -> executor.queryScalar(sp.getSql(), sp.getParams()));
             if (value instanceof Number) {
                 return ((Number) value).longValue();
             }
@@ -1,11 +1,13 @@
 package yueyang.vostok.data.core;
 
+import yueyang.vostok.data.DataCursor;
 import yueyang.vostok.data.DataResult;
 import yueyang.vostok.data.config.VKBatchFailStrategy;
 import yueyang.vostok.data.VKDataConfig;
 import yueyang.vostok.data.dialect.VKDialect;
 import yueyang.vostok.data.ds.VKDataSourceHolder;
 import yueyang.vostok.data.ds.VKDataSourceRegistry;
+import yueyang.vostok.data.ds.VKReadRouter;
 import yueyang.vostok.data.exception.VKException;
 import yueyang.vostok.data.exception.VKExceptionTranslator;
 import yueyang.vostok.data.jdbc.JdbcExecutor;
@@ -51,9 +53,20 @@ final class VostokInternal {
         VKAssert.isTrue(cfg.getRetryBackoffMaxMs() >= 0, "retryBackoffMaxMs must be >= 0");
         VKAssert.isTrue(cfg.getTxTimeoutMs() >= 0, "txTimeoutMs must be >= 0");
         VKAssert.isTrue(cfg.getQueryTimeoutMs() >= 0, "queryTimeoutMs must be >= 0");
+        VKAssert.isTrue(cfg.getStreamFetchSize() > 0, "streamFetchSize must be > 0");
         if (cfg.isFieldEncryptionEnabled()) {
             VKAssert.notBlank(cfg.getDefaultEncryptionKeyId(), "defaultEncryptionKeyId is blank");
         }
+        if (!cfg.getReplicas().isEmpty()) {
+            VKAssert.notNull(cfg.getReplicaBalance(), "replicaBalance is null");
+            VKAssert.isTrue(cfg.getReplicaEjectThreshold() > 0, "replicaEjectThreshold must be > 0");
+            VKAssert.isTrue(cfg.getReplicaEjectMs() >= 0, "replicaEjectMs must be >= 0");
+            for (VKDataConfig replica : cfg.getReplicas()) {
+                VKAssert.isTrue(replica != cfg, "Replica config must not be the primary config");
+                VKAssert.isTrue(replica.getReplicas().isEmpty(), "Replica config must not declare replicas");
+                validateConfig(replica);
+            }
+        }
     }
 
     static void ensureInit() {
@@ -101,8 +114,20 @@ final class VostokInternal {
         return (name == null) ? VKDataSourceRegistry.getDefault() : VKDataSourceRegistry.get(name);
     }
 
+    /**
+     * 主库执行器。经此执行的语句按写处理，开启当前线程的 read-your-writes 粘滞窗口。
+     */
     static JdbcExecutor currentExecutor() {
-        return currentHolder().getExecutor();
+        VKDataSourceHolder holder = currentHolder();
+        holder.getReadRouter().markWrite();
+        return holder.getExecutor();
+    }
+
+    /**
+     * 执行读操作：事务外按读写分离路由到副本，事务内、粘滞窗口内或无可用副本时走主库。
+     */
+    static <R> R read(VKReadRouter.ReadCall<R> call) throws SQLException {
+        return currentHolder().getReadRouter().read(call);
     }
 
     static SqlTemplateCache currentTemplateCache() {
@@ -157,7 +182,7 @@ final class VostokInternal {
     @SuppressWarnings("unchecked")
     static <T> T executeQueryOne(EntityMeta meta, SqlAndParams sp) {
         try {
-            return (T) currentExecutor().queryOne(meta, sp.getSql(), sp.getParams());
+            return (T) read(executor -> executor.queryOne(meta, sp.getSql(), sp.getParams()));
         } catch (SQLException e) {
             throw VKExceptionTranslator.translate(sp.getSql(), e);
         }
@@ -166,7 +191,16 @@ final class VostokInternal {
     @SuppressWarnings("unchecked")
     static <T> List<T> executeQueryList(EntityMeta meta, SqlAndParams sp) {
         try {
-            return (List<T>) currentExecutor().queryList(meta, sp.getSql(), sp.getParams());
+            return (List<T>) read(executor -> executor.queryList(meta, sp.getSql(), sp.getParams()));
+        } catch (SQLException e) {
+            throw VKExceptionTranslator.translate(sp.getSql(), e);
+        }
+    }
+
+    static <T> DataCursor<T> executeQueryCursor(EntityMeta meta, List<FieldMeta> projection, SqlAndParams sp) {
+        try {
+            VKDialect dialect = currentDialect();
+            return read(executor -> executor.queryCursor(meta, projection, sp.getSql(), sp.getParams(), dialect));
         } catch (SQLException e) {
             throw VKExceptionTranslator.translate(sp.getSql(), e);
         }
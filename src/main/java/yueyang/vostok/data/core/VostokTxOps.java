@@ -2,6 +2,10 @@ package yueyang.vostok.data.core;
 
 import yueyang.vostok.data.config.VKTxIsolation;
 import yueyang.vostok.data.config.VKTxPropagation;
+import yueyang.vostok.data.ds.VKDataSourceHolder;
+import yueyang.vostok.data.ds.VKReadRouter;
+import yueyang.vostok.data.exception.VKTxException;
+import yueyang.vostok.data.pool.VKDataSource;
 import yueyang.vostok.data.tx.VKTransactionManager;
 import yueyang.vostok.util.VKAssert;
 
@@ -31,6 +35,9 @@ public final class VostokTxOps {
             started = true;
             action.run();
             VKTransactionManager.commit();
+            if (!readOnly) {
+                VostokInternal.currentHolder().getReadRouter().markWrite();
+            }
         } catch (RuntimeException e) {
             if (started) {
                 VKTransactionManager.rollbackCurrent();
@@ -56,6 +63,9 @@ public final class VostokTxOps {
             started = true;
             T result = supplier.get();
             VKTransactionManager.commit();
+            if (!readOnly) {
+                VostokInternal.currentHolder().getReadRouter().markWrite();
+            }
             return result;
         } catch (RuntimeException e) {
             if (started) {
@@ -77,18 +87,37 @@ public final class VostokTxOps {
         VostokInternal.ensureInit();
         VKAssert.notNull(propagation, "TxPropagation is null");
         VKAssert.notNull(isolation, "TxIsolation is null");
+        VKDataSourceHolder holder = VostokInternal.currentHolder();
+        boolean savepointEnabled = VostokInternal.currentConfig().isSavepointEnabled();
+        if (readOnly && (propagation == VKTxPropagation.REQUIRED || propagation == VKTxPropagation.REQUIRES_NEW)) {
+            // 只读事务优先在副本上开启；副本连接失败计入健康状态后回退主库
+            VKReadRouter router = holder.getReadRouter();
+            VKDataSource replica = router.readOnlyTxDataSource();
+            if (replica != null) {
+                try {
+                    begin(replica, propagation, isolation, true, savepointEnabled);
+                    return;
+                } catch (VKTxException e) {
+                    router.reportFailure(replica, e);
+                }
+            }
+        }
+        begin(holder.getDataSource(), propagation, isolation, readOnly, savepointEnabled);
+    }
+
+    private static void begin(VKDataSource dataSource, VKTxPropagation propagation, VKTxIsolation isolation,
+                              boolean readOnly, boolean savepointEnabled) {
         if (propagation == VKTxPropagation.REQUIRES_NEW) {
-            VKTransactionManager.beginRequiresNew(VostokInternal.currentHolder().getDataSource(), isolation, readOnly,
-                    VostokInternal.currentConfig().isSavepointEnabled());
+            VKTransactionManager.beginRequiresNew(dataSource, isolation, readOnly, savepointEnabled);
         } else {
-            VKTransactionManager.beginRequired(VostokInternal.currentHolder().getDataSource(), isolation, readOnly, propagation,
-                    VostokInternal.currentConfig().isSavepointEnabled());
+            VKTransactionManager.beginRequired(dataSource, isolation, readOnly, propagation, savepointEnabled);
         }
     }
 
     public static void commitTx() {
         VostokInternal.ensureInit();
         VKTransactionManager.commit();
+        VostokInternal.currentHolder().getReadRouter().markWrite();
     }
 
     public static void rollbackTx() {
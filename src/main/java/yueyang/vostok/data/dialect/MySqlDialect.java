@@ -24,4 +24,20 @@ public class MySqlDialect implements VKDialect {
         VKAssert.isTrue(offset != null && offset >= 0, "Offset must be >= 0");
         sb.append(" LIMIT 18446744073709551615 OFFSET ").append(offset);
     }
+
+    /**
+     * MySQL Connector/J 仅在 fetchSize 为 Integer.MIN_VALUE 时逐行流式读取，否则一次性缓存整个结果集。
+     */
+    @Override
+    public int streamFetchSize(int configured) {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * MySQL 支持行值比较，且可利用联合索引做范围扫描。
+     */
+    @Override
+    public boolean supportsRowValueComparison() {
+        return true;
+    }
 }
@@ -21,4 +21,20 @@ public class PostgreSqlDialect implements VKDialect {
             sb.append(" OFFSET ").append(offset);
         }
     }
+
+    /**
+     * PostgreSQL 驱动只有在关闭自动提交时才按 fetchSize 使用游标分批取回，否则一次性读完结果集。
+     */
+    @Override
+    public boolean streamRequiresTransaction() {
+        return true;
+    }
+
+    /**
+     * PostgreSQL 行值比较按字典序逐列比较，可利用联合索引做范围扫描。
+     */
+    @Override
+    public boolean supportsRowValueComparison() {
+        return true;
+    }
 }
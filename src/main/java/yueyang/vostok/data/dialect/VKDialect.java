@@ -8,4 +8,25 @@ public interface VKDialect {
      * 将分页语句追加到 SQL。
      */
     void appendLimitOffset(StringBuilder sb, Integer limit, Integer offset);
+
+    /**
+     * 流式查询使用的 fetchSize，默认按配置值分批取回。
+     */
+    default int streamFetchSize(int configured) {
+        return configured;
+    }
+
+    /**
+     * 流式查询是否需要在关闭自动提交的事务中执行（驱动只在事务内使用服务端游标时返回 true）。
+     */
+    default boolean streamRequiresTransaction() {
+        return false;
+    }
+
+    /**
+     * 是否支持行值比较 {@code (a, b) > (?, ?)}；不支持时键集分页展开为 OR 条件。
+     */
+    default boolean supportsRowValueComparison() {
+        return false;
+    }
 }
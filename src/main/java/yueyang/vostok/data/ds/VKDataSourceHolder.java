@@ -21,6 +21,7 @@ public class VKDataSourceHolder {
     private final VKSqlMetrics sqlMetrics;
     private final VKRetryPolicy retryPolicy;
     private final VKDialect dialect;
+    private final VKReadRouter readRouter;
 
     public VKDataSourceHolder(String name, VKDataConfig config) {
         this.name = name;
@@ -31,6 +32,12 @@ public class VKDataSourceHolder {
         this.retryPolicy = new VKRetryPolicy(config);
         this.dialect = VKDialectManager.resolve(config);
         this.executor = new JdbcExecutor(dataSource, sqlLogger, sqlMetrics, retryPolicy);
+        try {
+            this.readRouter = new VKReadRouter(name, config, executor, sqlLogger, sqlMetrics, retryPolicy);
+        } catch (RuntimeException e) {
+            dataSource.close();
+            throw e;
+        }
     }
 
     
@@ -71,8 +78,16 @@ public class VKDataSourceHolder {
     public VKDialect getDialect() {
         return dialect;
     }
+
+    /**
+     * 读写分离路由；未配置副本时所有读写均走主库。
+     */
+    public VKReadRouter getReadRouter() {
+        return readRouter;
+    }
     
     public void close() {
+        readRouter.close();
         dataSource.close();
     }
 }
@@ -0,0 +1,264 @@
+package yueyang.vostok.data.ds;
+
+import yueyang.vostok.Vostok;
+import yueyang.vostok.data.VKDataConfig;
+import yueyang.vostok.data.config.VKReplicaBalance;
+import yueyang.vostok.data.jdbc.JdbcExecutor;
+import yueyang.vostok.data.jdbc.VKRetryPolicy;
+import yueyang.vostok.data.jdbc.VKSqlLogger;
+import yueyang.vostok.data.jdbc.VKSqlMetrics;
+import yueyang.vostok.data.pool.VKDataSource;
+import yueyang.vostok.data.pool.VKPoolMetrics;
+import yueyang.vostok.data.tx.VKTransactionManager;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由：为主库维护只读副本组，按事务状态、写后粘滞窗口与副本健康状况选择读执行器。
+ *
+ * <ul>
+ *   <li>事务内的读沿用事务连接（主库）；只读事务可整体落在副本上（见 {@link #readOnlyTxDataSource()}）。</li>
+ *   <li>同一线程写入后 {@code replicaStickyMs} 内的读走主库，保证 read-your-writes。</li>
+ *   <li>非事务读在可用副本间按 ROUND_ROBIN / LEAST_ACTIVE 选择；无可用副本时回退主库。</li>
+ *   <li>副本读因连接类异常失败时在主库上重做一次；连续失败 {@code replicaEjectThreshold} 次后摘除
+ *       {@code replicaEjectMs}，到期后重新参与选择，首次成功即恢复，再次失败立即重新摘除。</li>
+ * </ul>
+ */
+public final class VKReadRouter {
+    /**
+     * 在选定执行器上执行的读操作。
+     */
+    @FunctionalInterface
+    public interface ReadCall<R> {
+        R call(JdbcExecutor executor) throws SQLException;
+    }
+
+    private static final long NO_WRITE = Long.MIN_VALUE;
+
+    private final JdbcExecutor primary;
+    private final Replica[] replicas;
+    private final VKReplicaBalance balance;
+    private final long stickyNanos;
+    private final int ejectThreshold;
+    private final long ejectNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    /** 当前线程最近一次写操作的 nanoTime。 */
+    private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[]{NO_WRITE});
+
+    VKReadRouter(String name, VKDataConfig config, JdbcExecutor primary, VKSqlLogger sqlLogger,
+                 VKSqlMetrics sqlMetrics, VKRetryPolicy retryPolicy) {
+        this.primary = primary;
+        this.balance = config.getReplicaBalance() == null ? VKReplicaBalance.ROUND_ROBIN : config.getReplicaBalance();
+        this.stickyNanos = Math.max(0L, config.getReplicaStickyMs()) * 1_000_000L;
+        this.ejectThreshold = Math.max(1, config.getReplicaEjectThreshold());
+        this.ejectNanos = Math.max(0L, config.getReplicaEjectMs()) * 1_000_000L;
+        List<VKDataConfig> replicaConfigs = config.getReplicas();
+        this.replicas = new Replica[replicaConfigs.size()];
+        try {
+            for (int i = 0; i < replicas.length; i++) {
+                VKDataSource ds = new VKDataSource(replicaConfigs.get(i));
+                // 副本只提供连接，SQL 行为、日志与指标沿用主库
+                JdbcExecutor executor = new JdbcExecutor(ds, config, sqlLogger, sqlMetrics, retryPolicy);
+                replicas[i] = new Replica(name + "-replica-" + i, ds, executor);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public boolean hasReplicas() {
+        return replicas.length > 0;
+    }
+
+    /**
+     * 记录当前线程的写操作，开启 read-your-writes 粘滞窗口。
+     */
+    public void markWrite() {
+        if (replicas.length > 0 && stickyNanos > 0) {
+            lastWrite.get()[0] = System.nanoTime();
+        }
+    }
+
+    /**
+     * 在选定的执行器上执行读操作；副本连接失败时记录健康状态并在主库上重做。
+     */
+    public <R> R read(ReadCall<R> call) throws SQLException {
+        Replica replica = pick();
+        if (replica == null) {
+            return call.call(primary);
+        }
+        R result;
+        try {
+            result = call.call(replica.executor);
+        } catch (SQLException e) {
+            if (!isConnectionFailure(e)) {
+                throw e;
+            }
+            onFailure(replica, e);
+            return call.call(primary);
+        }
+        onSuccess(replica);
+        return result;
+    }
+
+    /**
+     * 只读事务可使用的副本数据源；事务嵌套、粘滞窗口内或无可用副本时返回 null（使用主库）。
+     */
+    public VKDataSource readOnlyTxDataSource() {
+        Replica replica = pick();
+        return replica == null ? null : replica.dataSource;
+    }
+
+    /**
+     * 只读事务在副本上开启失败时调用，连接类失败计入健康状态（调用方随后回退主库）。
+     */
+    public void reportFailure(VKDataSource dataSource, Throwable error) {
+        if (!isConnectionFailure(error)) {
+            return;
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource == dataSource) {
+                onFailure(replica, error);
+                return;
+            }
+        }
+    }
+
+    /** 当前未被摘除的副本数。 */
+    public int availableReplicas() {
+        long now = System.nanoTime();
+        int n = 0;
+        for (Replica replica : replicas) {
+            if (replica.available(now)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public List<VKPoolMetrics> poolMetrics() {
+        List<VKPoolMetrics> list = new ArrayList<>(replicas.length);
+        for (Replica replica : replicas) {
+            VKDataSource ds = replica.dataSource;
+            list.add(new VKPoolMetrics(replica.name, ds.getTotalCount(), ds.getActiveCount(), ds.getIdleCount(),
+                    ds.getStatementCacheHits(), ds.getStatementCacheMisses()));
+        }
+        return list;
+    }
+
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica != null) {
+                try {
+                    replica.dataSource.close();
+                } catch (RuntimeException e) {
+                    Vostok.Log.warn("Failed to close replica " + replica.name + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Replica pick() {
+        int n = replicas.length;
+        if (n == 0 || VKTransactionManager.inTransaction() || inStickyWindow()) {
+            return null;
+        }
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        Replica best = null;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas[(start + i) % n];
+            if (!replica.available(now)) {
+                continue;
+            }
+            if (balance == VKReplicaBalance.ROUND_ROBIN) {
+                return replica;
+            }
+            int active = Math.max(0, replica.dataSource.getActiveCount());
+            if (active < bestActive) {
+                best = replica;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    private boolean inStickyWindow() {
+        if (stickyNanos <= 0) {
+            return false;
+        }
+        long last = lastWrite.get()[0];
+        return last != NO_WRITE && System.nanoTime() - last < stickyNanos;
+    }
+
+    private void onSuccess(Replica replica) {
+        if (replica.failures.get() != 0) {
+            replica.failures.set(0);
+        }
+        if (replica.ejected) {
+            replica.ejected = false;
+            Vostok.Log.info("Replica recovered: " + replica.name);
+        }
+    }
+
+    private void onFailure(Replica replica, Throwable error) {
+        int failures = replica.failures.incrementAndGet();
+        if (failures < ejectThreshold) {
+            return;
+        }
+        replica.ejectedUntil = System.nanoTime() + ejectNanos;
+        if (!replica.ejected) {
+            replica.ejected = true;
+            Vostok.Log.warn("Replica ejected: " + replica.name + ", failures=" + failures
+                    + ", err=" + (error == null ? null : error.getMessage()));
+        }
+    }
+
+    /**
+     * 是否为连接类异常（建连失败、连接断开）；SQL 本身的错误在主库上同样会失败，不计入副本健康。
+     */
+    static boolean isConnectionFailure(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final VKDataSource dataSource;
+        private final JdbcExecutor executor;
+        /** 连续连接失败次数，成功后清零。 */
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile boolean ejected;
+        private volatile long ejectedUntil;
+
+        private Replica(String name, VKDataSource dataSource, JdbcExecutor executor) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.executor = executor;
+        }
+
+        private boolean available(long now) {
+            return !ejected || now - ejectedUntil >= 0;
+        }
+    }
+}
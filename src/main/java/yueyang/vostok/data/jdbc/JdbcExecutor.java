@@ -1,12 +1,15 @@
 package yueyang.vostok.data.jdbc;
 
+import yueyang.vostok.data.DataCursor;
 import yueyang.vostok.data.DataResult;
+import yueyang.vostok.data.VKDataConfig;
 import yueyang.vostok.data.meta.EntityMeta;
+import yueyang.vostok.data.meta.EntityRowMapper;
 import yueyang.vostok.data.meta.FieldMeta;
 import yueyang.vostok.data.plugin.VKInterceptor;
 import yueyang.vostok.data.plugin.VKInterceptorRegistry;
 import yueyang.vostok.data.pool.VKDataSource;
-import yueyang.vostok.data.core.VKFieldCrypto;
+import yueyang.vostok.data.dialect.VKDialect;
 import yueyang.vostok.data.tx.VKTransactionManager;
 import yueyang.vostok.data.type.VKTypeMapper;
 
@@ -20,12 +23,20 @@ import java.util.List;
 
 public class JdbcExecutor {
     private final VKDataSource dataSource;
+    /** SQL 行为配置（超时、字段解密、流式 fetchSize），只读副本执行器沿用主库配置。 */
+    private final VKDataConfig config;
     private final VKSqlLogger sqlLogger;
     private final VKSqlMetrics sqlMetrics;
     private final VKRetryPolicy retryPolicy;
 
     public JdbcExecutor(VKDataSource dataSource, VKSqlLogger sqlLogger, VKSqlMetrics sqlMetrics, VKRetryPolicy retryPolicy) {
+        this(dataSource, dataSource.getConfig(), sqlLogger, sqlMetrics, retryPolicy);
+    }
+
+    public JdbcExecutor(VKDataSource dataSource, VKDataConfig config, VKSqlLogger sqlLogger, VKSqlMetrics sqlMetrics,
+                        VKRetryPolicy retryPolicy) {
         this.dataSource = dataSource;
+        this.config = config;
         this.sqlLogger = sqlLogger;
         this.sqlMetrics = sqlMetrics;
         this.retryPolicy = retryPolicy;
@@ -290,8 +301,8 @@ public class JdbcExecutor {
                         if (!rs.next()) {
                             return null;
                         }
-                        int[] indexes = resolveColumnIndexes(rs, meta.getFields());
-                        return mapRow(meta, meta.getFields(), rs, indexes);
+                        EntityRowMapper mapper = meta.rowMapper(meta.getFields());
+                        return mapRow(mapper, rs, mapper.ordinals(rs));
                     }
                 } finally {
                     holder.closeIfNeeded();
@@ -311,8 +322,8 @@ public class JdbcExecutor {
                         success = true;
                         return null;
                     }
-                    int[] indexes = resolveColumnIndexes(rs, meta.getFields());
-                    T row = mapRow(meta, meta.getFields(), rs, indexes);
+                    EntityRowMapper mapper = meta.rowMapper(meta.getFields());
+                    T row = mapRow(mapper, rs, mapper.ordinals(rs));
                     success = true;
                     return row;
                 }
@@ -493,6 +504,176 @@ public class JdbcExecutor {
         }
     }
 
+    /**
+     * 执行实体查询并返回流式游标，逐行映射，不在内存中累积结果。
+     *
+     * <p>说明：
+     * <ul>
+     *   <li>fetchSize 取自方言（MySQL 为 Integer.MIN_VALUE 逐行流式），驱动不接受时退回配置值。</li>
+     *   <li>方言要求事务游标（PostgreSQL）且当前不在事务中时，游标期间临时关闭自动提交并设为只读，关闭时提交并恢复。</li>
+     *   <li>仅在“建游标”阶段参与重试，游标迭代阶段不重试。</li>
+     * </ul>
+     */
+    public <T> DataCursor<T> queryCursor(EntityMeta meta, List<FieldMeta> projection, String sql, Object[] params,
+                                         VKDialect dialect) throws SQLException {
+        return withRetry(sql, params, () -> openCursor(meta, projection, sql, params, dialect));
+    }
+
+    private <T> DataCursor<T> openCursor(EntityMeta meta, List<FieldMeta> projection, String sql, Object[] params,
+                                         VKDialect dialect) throws SQLException {
+        final boolean monitor = isMonitoringEnabled();
+        final long start = monitor ? System.currentTimeMillis() : 0L;
+        if (monitor) {
+            sqlLogger.logSql(sql, params);
+            before(sql, params);
+        }
+
+        ConnectionHolder holder = getConnection();
+        Connection conn = holder.conn;
+        boolean cursorTx = dialect != null && dialect.streamRequiresTransaction() && !holder.inTx;
+        boolean oldAutoCommit = true;
+        boolean oldReadOnly = false;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            if (cursorTx) {
+                oldAutoCommit = conn.getAutoCommit();
+                oldReadOnly = conn.isReadOnly();
+                conn.setAutoCommit(false);
+                conn.setReadOnly(true);
+            }
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            applyQueryTimeout(ps);
+            applyStreamFetchSize(ps, dialect);
+            bindParams(ps, params);
+            rs = ps.executeQuery();
+            EntityRowMapper mapper = meta.rowMapper(projection);
+            int[] ordinals = mapper.ordinals(rs);
+
+            ResultSet finalRs = rs;
+            PreparedStatement finalPs = ps;
+            boolean finalCursorTx = cursorTx;
+            boolean restoreAutoCommit = oldAutoCommit;
+            boolean restoreReadOnly = oldReadOnly;
+            return new DataCursor<T>(sql, finalRs, r -> mapRow(mapper, r, ordinals), error -> {
+                SQLException closeError = closeQuietly(finalRs, null);
+                closeError = closeQuietly(finalPs, closeError);
+                if (finalCursorTx) {
+                    closeError = endCursorTx(conn, restoreAutoCommit, restoreReadOnly, closeError);
+                }
+                try {
+                    holder.closeIfNeeded();
+                } catch (SQLException e) {
+                    closeError = merge(closeError, e);
+                }
+
+                if (monitor) {
+                    Throwable finalError = error;
+                    if (closeError != null) {
+                        if (finalError == null) {
+                            finalError = closeError;
+                        } else {
+                            finalError.addSuppressed(closeError);
+                        }
+                    }
+                    long cost = System.currentTimeMillis() - start;
+                    sqlLogger.logSlow(sql, params, cost);
+                    sqlMetrics.record(sql, params, cost);
+                    after(sql, params, cost, finalError == null, finalError);
+                }
+
+                if (closeError != null) {
+                    throw closeError;
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            // 参数绑定、映射器初始化抛出的运行时异常同样要回滚游标事务、恢复连接状态并归还连接
+            SQLException acc = e instanceof SQLException ? (SQLException) e : new SQLException(e);
+            if (rs != null) {
+                closeQuietly(rs, acc);
+            }
+            if (ps != null) {
+                closeQuietly(ps, acc);
+            }
+            if (cursorTx) {
+                endCursorTx(conn, oldAutoCommit, oldReadOnly, acc);
+            }
+            try {
+                holder.closeIfNeeded();
+            } catch (SQLException closeEx) {
+                acc.addSuppressed(closeEx);
+            }
+            if (acc != e) {
+                for (Throwable suppressed : acc.getSuppressed()) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+
+            if (monitor) {
+                long cost = System.currentTimeMillis() - start;
+                sqlLogger.logSlow(sql, params, cost);
+                sqlMetrics.record(sql, params, cost);
+                after(sql, params, cost, false, e);
+            }
+            throw e;
+        }
+    }
+
+    private void applyStreamFetchSize(PreparedStatement ps, VKDialect dialect) throws SQLException {
+        int configured = config.getStreamFetchSize();
+        int fetchSize = dialect == null ? configured : dialect.streamFetchSize(configured);
+        try {
+            ps.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            // 兼容模式的驱动（如 H2 的 MySQL 模式）不接受负值，退回配置值分批取回
+            if (fetchSize == configured) {
+                throw e;
+            }
+            ps.setFetchSize(configured);
+        }
+    }
+
+    /**
+     * 结束游标专用的只读事务并恢复连接状态，错误合并到 acc 返回。
+     */
+    private static SQLException endCursorTx(Connection conn, boolean autoCommit, boolean readOnly, SQLException acc) {
+        try {
+            if (acc == null) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            acc = merge(acc, e);
+        }
+        try {
+            conn.setAutoCommit(autoCommit);
+            conn.setReadOnly(readOnly);
+        } catch (SQLException e) {
+            acc = merge(acc, e);
+        }
+        return acc;
+    }
+
+    private static SQLException closeQuietly(AutoCloseable resource, SQLException acc) {
+        try {
+            resource.close();
+        } catch (SQLException e) {
+            return merge(acc, e);
+        } catch (Exception e) {
+            return merge(acc, new SQLException("Failed to close " + resource.getClass().getSimpleName(), e));
+        }
+        return acc;
+    }
+
+    private static SQLException merge(SQLException acc, SQLException e) {
+        if (acc == null) {
+            return e;
+        }
+        acc.addSuppressed(e);
+        return acc;
+    }
+
     public List<Object[]> queryRows(String sql, Object[] params) throws SQLException {
         return withRetry(sql, params, () -> {
             if (!isMonitoringEnabled()) {
@@ -676,7 +857,7 @@ public class JdbcExecutor {
             timeoutMs = VKTransactionManager.remainingTimeoutMs();
         }
         if (timeoutMs <= 0) {
-            timeoutMs = dataSource.getConfig().getQueryTimeoutMs();
+            timeoutMs = config.getQueryTimeoutMs();
         }
         if (timeoutMs > 0) {
             int sec = (int) Math.max(1, (timeoutMs + 999) / 1000);
@@ -685,15 +866,15 @@ public class JdbcExecutor {
     }
 
     /**
-     * 将 ResultSet 映射为实体列表。
+     * 将 ResultSet 映射为实体列表，列序号与映射器均来自 EntityMeta 上缓存的编译结果。
      */
-    @SuppressWarnings("unchecked")
     private <T> List<T> mapRows(EntityMeta meta, List<FieldMeta> projection, ResultSet rs) throws SQLException {
         List<T> list = new ArrayList<>();
         try {
-            int[] indexes = resolveColumnIndexes(rs, projection);
+            EntityRowMapper mapper = meta.rowMapper(projection);
+            int[] ordinals = mapper.ordinals(rs);
             while (rs.next()) {
-                list.add(mapRow(meta, projection, rs, indexes));
+                list.add(mapRow(mapper, rs, ordinals));
             }
         } catch (Exception e) {
             throw new SQLException("Failed to map result set", e);
@@ -702,34 +883,8 @@ public class JdbcExecutor {
     }
 
     @SuppressWarnings("unchecked")
-    private <T> T mapRow(EntityMeta meta, List<FieldMeta> projection, ResultSet rs, int[] indexes) throws SQLException {
-        try {
-            Object obj = meta.getEntityClass().getDeclaredConstructor().newInstance();
-            for (int i = 0; i < projection.size(); i++) {
-                FieldMeta field = projection.get(i);
-                Object value = rs.getObject(indexes[i]);
-                value = VKFieldCrypto.decryptRead(field, value, dataSource.getConfig());
-                Object mapped = VKTypeMapper.fromJdbc(value, field.getField().getType());
-                field.setValue(obj, mapped);
-            }
-            return (T) obj;
-        } catch (Exception e) {
-            throw new SQLException("Failed to map result set", e);
-        }
-    }
-
-    private int[] resolveColumnIndexes(ResultSet rs, List<FieldMeta> projection) throws SQLException {
-        int size = projection.size();
-        int[] indexes = new int[size];
-        for (int i = 0; i < size; i++) {
-            String column = projection.get(i).getColumnName();
-            try {
-                indexes[i] = rs.findColumn(column);
-            } catch (SQLException ignore) {
-                indexes[i] = i + 1;
-            }
-        }
-        return indexes;
+    private <T> T mapRow(EntityRowMapper mapper, ResultSet rs, int[] ordinals) throws SQLException {
+        return (T) mapper.map(rs, ordinals, config);
     }
 
     private void before(String sql, Object[] params) {
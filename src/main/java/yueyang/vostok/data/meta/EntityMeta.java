@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 实体类的元数据快照（不可变），包含表名、主键、所有字段及特殊字段（版本、逻辑删除）的元数据。
@@ -19,6 +20,8 @@ public class EntityMeta {
     private final FieldMeta versionField;
     /** 逻辑删除标志字段，不存在时为 null。 */
     private final FieldMeta logicDeleteField;
+    /** 按投影缓存的编译行映射器，key 为投影字段列表（FieldMeta 按引用比较）。 */
+    private final Map<List<FieldMeta>, EntityRowMapper> rowMappers = new ConcurrentHashMap<>();
 
     public EntityMeta(Class<?> entityClass, String tableName, FieldMeta idField, List<FieldMeta> fields) {
         this.entityClass = entityClass;
@@ -75,4 +78,16 @@ public class EntityMeta {
     public FieldMeta getLogicDeleteField() {
         return logicDeleteField;
     }
+
+    /**
+     * 获取投影对应的编译行映射器，首次调用时编译并缓存；projection 为 null 时使用全部字段。
+     */
+    public EntityRowMapper rowMapper(List<FieldMeta> projection) {
+        List<FieldMeta> key = projection == null ? fields : projection;
+        EntityRowMapper mapper = rowMappers.get(key);
+        if (mapper != null) {
+            return mapper;
+        }
+        return rowMappers.computeIfAbsent(List.copyOf(key), k -> new EntityRowMapper(entityClass, k));
+    }
 }
@@ -0,0 +1,278 @@
+package yueyang.vostok.data.meta;
+
+import yueyang.vostok.data.VKDataConfig;
+import yueyang.vostok.data.core.VKFieldCrypto;
+import yueyang.vostok.data.type.VKTypeMapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 按（实体, 投影）编译的结果集行映射器，由 {@link EntityMeta#rowMapper(List)} 创建并缓存。
+ *
+ * <ul>
+ *   <li>实例化使用无参构造器的 MethodHandle，不再每行 getDeclaredConstructor + 反射 newInstance。</li>
+ *   <li>int / long / double / boolean（含包装类型）与 String 字段使用对应的类型化 getter，
+ *       原始类型字段以 invokeExact 直接写入，不经过装箱。</li>
+ *   <li>加密字段与其他类型（日期、BigDecimal、枚举等）仍走
+ *       getObject → {@link VKFieldCrypto#decryptRead} → {@link VKTypeMapper#fromJdbc}，语义不变。</li>
+ *   <li>列序号按结果集形状（列标签序列）解析一次后缓存，不再每次查询逐列 findColumn。</li>
+ * </ul>
+ *
+ * <p>原始类型字段读到 NULL 时保留字段默认值。
+ */
+public final class EntityRowMapper {
+    /** 单个投影最多缓存的结果集形状数，超出时淘汰最早的形状。 */
+    private static final int MAX_SHAPES = 8;
+    private static final MethodType CTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final int GENERIC = 0;
+    private static final int STRING = 1;
+    private static final int INT = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int BOOLEAN = 5;
+    private static final int BOXED_INT = 6;
+    private static final int BOXED_LONG = 7;
+    private static final int BOXED_DOUBLE = 8;
+    private static final int BOXED_BOOLEAN = 9;
+
+    private final Class<?> entityClass;
+    private final FieldMeta[] fields;
+    private final int[] kinds;
+    private final MethodHandle[] setters;
+    /** 无参构造器句柄，实体没有可访问的无参构造器时为 null（映射时抛出原始反射异常）。 */
+    private final MethodHandle constructor;
+    /** 已解析的结果集形状，写时复制。 */
+    private volatile Shape[] shapes = new Shape[0];
+
+    EntityRowMapper(Class<?> entityClass, List<FieldMeta> projection) {
+        this.entityClass = entityClass;
+        int size = projection.size();
+        this.fields = projection.toArray(new FieldMeta[0]);
+        this.kinds = new int[size];
+        this.setters = new MethodHandle[size];
+        for (int i = 0; i < size; i++) {
+            compileColumn(i, fields[i]);
+        }
+        this.constructor = compileConstructor(entityClass);
+    }
+
+    /**
+     * 解析投影字段在结果集中的列序号（1 起），同一形状的结果集直接复用缓存。
+     *
+     * <p>列按标签忽略大小写匹配，未找到时按投影位置兜底（与 findColumn 失败时的旧行为一致）。
+     */
+    public int[] ordinals(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        if (md == null) {
+            return resolveByFindColumn(rs);
+        }
+        int count = md.getColumnCount();
+        Shape[] current = shapes;
+        for (Shape shape : current) {
+            if (shape.matches(md, count)) {
+                return shape.ordinals;
+            }
+        }
+        String[] labels = new String[count];
+        for (int j = 0; j < count; j++) {
+            labels[j] = md.getColumnLabel(j + 1);
+        }
+        Shape shape = new Shape(labels, resolve(labels));
+        int keep = Math.min(current.length, MAX_SHAPES - 1);
+        Shape[] next = new Shape[keep + 1];
+        System.arraycopy(current, current.length - keep, next, 0, keep);
+        next[keep] = shape;
+        shapes = next;
+        return shape.ordinals;
+    }
+
+    /**
+     * 将结果集当前行映射为实体对象。
+     *
+     * @param rs       已定位到目标行的结果集
+     * @param ordinals {@link #ordinals(ResultSet)} 返回的列序号
+     * @param config   数据配置（字段解密使用）
+     */
+    public Object map(ResultSet rs, int[] ordinals, VKDataConfig config) throws SQLException {
+        try {
+            Object obj = constructor != null
+                    ? (Object) constructor.invokeExact()
+                    : entityClass.getDeclaredConstructor().newInstance();
+            for (int i = 0; i < fields.length; i++) {
+                readColumn(i, rs, ordinals[i], obj, config);
+            }
+            return obj;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Failed to map result set", e);
+        }
+    }
+
+    private void readColumn(int i, ResultSet rs, int idx, Object target, VKDataConfig config) throws Throwable {
+        MethodHandle setter = setters[i];
+        switch (kinds[i]) {
+            case STRING -> setter.invokeExact(target, (Object) rs.getString(idx));
+            case INT -> {
+                int v = rs.getInt(idx);
+                if (!rs.wasNull()) {
+                    setter.invokeExact(target, v);
+                }
+            }
+            case LONG -> {
+                long v = rs.getLong(idx);
+                if (!rs.wasNull()) {
+                    setter.invokeExact(target, v);
+                }
+            }
+            case DOUBLE -> {
+                double v = rs.getDouble(idx);
+                if (!rs.wasNull()) {
+                    setter.invokeExact(target, v);
+                }
+            }
+            case BOOLEAN -> {
+                boolean v = rs.getBoolean(idx);
+                if (!rs.wasNull()) {
+                    setter.invokeExact(target, v);
+                }
+            }
+            case BOXED_INT -> {
+                int v = rs.getInt(idx);
+                setter.invokeExact(target, rs.wasNull() ? null : (Object) Integer.valueOf(v));
+            }
+            case BOXED_LONG -> {
+                long v = rs.getLong(idx);
+                setter.invokeExact(target, rs.wasNull() ? null : (Object) Long.valueOf(v));
+            }
+            case BOXED_DOUBLE -> {
+                double v = rs.getDouble(idx);
+                setter.invokeExact(target, rs.wasNull() ? null : (Object) Double.valueOf(v));
+            }
+            case BOXED_BOOLEAN -> {
+                boolean v = rs.getBoolean(idx);
+                setter.invokeExact(target, rs.wasNull() ? null : (Object) Boolean.valueOf(v));
+            }
+            default -> {
+                FieldMeta field = fields[i];
+                Object value = VKFieldCrypto.decryptRead(field, rs.getObject(idx), config);
+                field.setValue(target, VKTypeMapper.fromJdbc(value, field.getField().getType()));
+            }
+        }
+    }
+
+    private void compileColumn(int i, FieldMeta field) {
+        MethodHandle setter = field.getSetter();
+        Class<?> type = field.getField().getType();
+        int kind = field.isEncrypted() || setter == null ? GENERIC : kindOf(type);
+        kinds[i] = kind;
+        if (kind == GENERIC) {
+            return;
+        }
+        MethodType target = type.isPrimitive()
+                ? MethodType.methodType(void.class, Object.class, type)
+                : OBJECT_SETTER;
+        setters[i] = setter.asType(target);
+    }
+
+    private static int kindOf(Class<?> type) {
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == int.class) {
+            return INT;
+        }
+        if (type == long.class) {
+            return LONG;
+        }
+        if (type == double.class) {
+            return DOUBLE;
+        }
+        if (type == boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == Integer.class) {
+            return BOXED_INT;
+        }
+        if (type == Long.class) {
+            return BOXED_LONG;
+        }
+        if (type == Double.class) {
+            return BOXED_DOUBLE;
+        }
+        if (type == Boolean.class) {
+            return BOXED_BOOLEAN;
+        }
+        return GENERIC;
+    }
+
+    private static MethodHandle compileConstructor(Class<?> type) {
+        try {
+            Constructor<?> ctor = type.getDeclaredConstructor();
+            ctor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(ctor).asType(CTOR_TYPE);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private int[] resolve(String[] labels) {
+        int[] ordinals = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String column = fields[i].getColumnName();
+            ordinals[i] = i + 1;
+            for (int j = 0; j < labels.length; j++) {
+                if (column.equalsIgnoreCase(labels[j])) {
+                    ordinals[i] = j + 1;
+                    break;
+                }
+            }
+        }
+        return ordinals;
+    }
+
+    private int[] resolveByFindColumn(ResultSet rs) {
+        int[] ordinals = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                ordinals[i] = rs.findColumn(fields[i].getColumnName());
+            } catch (SQLException ignore) {
+                ordinals[i] = i + 1;
+            }
+        }
+        return ordinals;
+    }
+
+    /** 结果集形状：列标签序列及其对应的投影列序号。 */
+    private static final class Shape {
+        private final String[] labels;
+        private final int[] ordinals;
+
+        private Shape(String[] labels, int[] ordinals) {
+            this.labels = labels;
+            this.ordinals = ordinals;
+        }
+
+        private boolean matches(ResultSetMetaData md, int count) throws SQLException {
+            if (labels.length != count) {
+                return false;
+            }
+            for (int j = 0; j < count; j++) {
+                if (!Objects.equals(labels[j], md.getColumnLabel(j + 1))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
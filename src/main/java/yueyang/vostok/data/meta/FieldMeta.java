@@ -176,6 +176,16 @@ public class FieldMeta {
         return unique;
     }
 
+    /** 字段读取句柄，无法 unreflect 时为 null；供编译后的绑定器使用。 */
+    public MethodHandle getGetter() {
+        return getter;
+    }
+
+    /** 字段写入句柄，无法 unreflect（如 final 字段）时为 null；供编译后的行映射器使用。 */
+    public MethodHandle getSetter() {
+        return setter;
+    }
+
     public Object getValue(Object obj) {
         try {
             if (getter != null) {
@@ -14,8 +14,12 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class VKConnectionPool {
+    /** SQLState 08001：无法建立连接，供重试策略与只读副本健康检测识别。 */
+    private static final String CONNECTION_FAILURE_STATE = "08001";
+
     private final VKDataConfig config;
     private final ConcurrentLinkedQueue<PooledEntry> idleQueue;
     private final AtomicInteger idleCount = new AtomicInteger(0);
@@ -28,6 +32,8 @@ public class VKConnectionPool {
     private final ThreadLocal<PooledEntry> localCache = new ThreadLocal<>();
     private final ConcurrentHashMap<Thread, PooledEntry> localCacheMap = new ConcurrentHashMap<>();
     private final Semaphore permits;
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
     private final boolean localCacheEnabled;
     private volatile String lastLeakStack;
     private volatile boolean closed;
@@ -124,7 +130,7 @@ public class VKConnectionPool {
                     }
                 }
                 permits.release();
-                throw new SQLException("Failed to create connection");
+                throw new SQLException("Failed to create connection", CONNECTION_FAILURE_STATE);
             }
 
             permits.release();
@@ -212,7 +218,7 @@ public class VKConnectionPool {
             if (created != null) {
                 return created;
             }
-            throw new SQLException("Failed to create connection");
+            throw new SQLException("Failed to create connection", CONNECTION_FAILURE_STATE);
         }
         return conn;
     }
@@ -279,7 +285,8 @@ public class VKConnectionPool {
         try {
             Connection conn = DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword());
             defaults.put(conn, captureDefaults(conn));
-            states.put(conn, new ConnectionState());
+            int cacheSize = config.getStatementCacheSize();
+            states.put(conn, new ConnectionState(cacheSize > 0 ? new VKStatementCache(cacheSize) : null));
             totalCount.incrementAndGet();
             return conn;
         } catch (SQLException e) {
@@ -329,10 +336,39 @@ public class VKConnectionPool {
         return Math.max(0, active);
     }
 
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * 物理连接的语句缓存；未启用或连接已物理关闭时返回 null。
+     */
+    VKStatementCache statementCache(Connection conn) {
+        ConnectionState state = states.get(conn);
+        return state == null ? null : state.statements;
+    }
+
+    void recordStatementCache(boolean hit) {
+        if (hit) {
+            statementCacheHits.increment();
+        } else {
+            statementCacheMisses.increment();
+        }
+    }
+
     private void closeSilently(Connection conn) {
         if (conn == null) {
             return;
         }
+        ConnectionState state = states.get(conn);
+        if (state != null && state.statements != null) {
+            // 语句缓存随物理连接重置
+            state.statements.close();
+        }
         try {
             conn.close();
         } catch (SQLException ignore) {
@@ -501,15 +537,17 @@ public class VKConnectionPool {
         private volatile boolean autoCommitDirty;
         private volatile boolean readOnlyDirty;
         private volatile boolean isolationDirty;
+        private final VKStatementCache statements;
 
-        private ConnectionState() {
-            this(false, false, false);
+        private ConnectionState(VKStatementCache statements) {
+            this.statements = statements;
         }
 
         private ConnectionState(boolean autoCommitDirty, boolean readOnlyDirty, boolean isolationDirty) {
             this.autoCommitDirty = autoCommitDirty;
             this.readOnlyDirty = readOnlyDirty;
             this.isolationDirty = isolationDirty;
+            this.statements = null;
         }
 
         private void reset() {
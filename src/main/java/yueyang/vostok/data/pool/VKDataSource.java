@@ -29,7 +29,7 @@ public class VKDataSource {
     public Connection getConnection() throws SQLException {
         if (pool != null) {
             Connection raw = pool.borrow();
-            return VKPooledConnection.wrap(raw, pool, pool.getConfig().getStatementCacheSize());
+            return VKPooledConnection.wrap(raw, pool);
         }
         return externalDataSource.getConnection();
     }
@@ -55,6 +55,22 @@ public class VKDataSource {
         return pool.getTotalCount();
     }
 
+    /** 语句缓存命中次数，外部数据源返回 -1。 */
+    public long getStatementCacheHits() {
+        if (pool == null) {
+            return -1;
+        }
+        return pool.getStatementCacheHits();
+    }
+
+    /** 语句缓存未命中次数，外部数据源返回 -1。 */
+    public long getStatementCacheMisses() {
+        if (pool == null) {
+            return -1;
+        }
+        return pool.getStatementCacheMisses();
+    }
+
     public void close() {
         if (pool != null) {
             pool.close();
@@ -8,12 +8,20 @@ public class VKPoolMetrics {
     private final int total;
     private final int active;
     private final int idle;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
 
     public VKPoolMetrics(String name, int total, int active, int idle) {
+        this(name, total, active, idle, 0L, 0L);
+    }
+
+    public VKPoolMetrics(String name, int total, int active, int idle, long statementCacheHits, long statementCacheMisses) {
         this.name = name;
         this.total = total;
         this.active = active;
         this.idle = idle;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
     }
 
     
@@ -35,4 +43,25 @@ public class VKPoolMetrics {
     public int getIdle() {
         return idle;
     }
+
+    /** 语句缓存命中次数（外部数据源为 -1）。 */
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    /** 语句缓存未命中次数（外部数据源为 -1）。 */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    /**
+     * 语句缓存命中率（0~1），尚无 prepareStatement 调用或外部数据源时为 0。
+     */
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        if (statementCacheHits < 0 || lookups <= 0) {
+            return 0D;
+        }
+        return (double) statementCacheHits / lookups;
+    }
 }
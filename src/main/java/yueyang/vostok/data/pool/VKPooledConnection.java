@@ -6,20 +6,28 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * 借出连接的代理：close() 归还连接池；prepareStatement 优先复用物理连接上缓存的语句（见 {@link VKStatementCache}）。
+ *
+ * <p>本次借出期间未关闭的缓存语句在连接归还时逻辑关闭。
+ */
 public final class VKPooledConnection implements InvocationHandler {
     private final Connection target;
     private final VKConnectionPool pool;
     private final long checkoutAt;
     private final StackTraceElement[] checkoutStack;
-    private final int statementCacheSize;
-    private final Map<String, PreparedStatement> statementCache;
+    /** 物理连接的语句缓存，statementCacheSize 为 0 时为 null。 */
+    private final VKStatementCache statementCache;
+    /** 本次借出期间打开的缓存语句。 */
+    private final List<VKPooledStatement> openStatements = new ArrayList<>();
+    private Connection proxy;
     private volatile boolean returned;
 
-    private VKPooledConnection(Connection target, VKConnectionPool pool, long checkoutAt, int statementCacheSize) {
+    private VKPooledConnection(Connection target, VKConnectionPool pool, long checkoutAt) {
         this.target = target;
         this.pool = pool;
         this.checkoutAt = checkoutAt;
@@ -28,33 +36,17 @@ public final class VKPooledConnection implements InvocationHandler {
         } else {
             this.checkoutStack = null;
         }
-        this.statementCacheSize = Math.max(0, statementCacheSize);
-        if (this.statementCacheSize > 0) {
-            this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
-                    if (size() > VKPooledConnection.this.statementCacheSize) {
-                        closeSilently(eldest.getValue());
-                        return true;
-                    }
-                    return false;
-                }
-            };
-        } else {
-            this.statementCache = new LinkedHashMap<>();
-        }
+        this.statementCache = pool.statementCache(target);
     }
 
     public static Connection wrap(Connection target, VKConnectionPool pool) {
-        return wrap(target, pool, 0);
-    }
-
-    public static Connection wrap(Connection target, VKConnectionPool pool, int statementCacheSize) {
-        return (Connection) Proxy.newProxyInstance(
+        VKPooledConnection handler = new VKPooledConnection(target, pool, System.currentTimeMillis());
+        handler.proxy = (Connection) Proxy.newProxyInstance(
                 VKPooledConnection.class.getClassLoader(),
                 new Class[]{Connection.class},
-                new VKPooledConnection(target, pool, System.currentTimeMillis(), statementCacheSize)
+                handler
         );
+        return handler.proxy;
     }
 
     @Override
@@ -63,7 +55,7 @@ public final class VKPooledConnection implements InvocationHandler {
         if ("close".equals(name)) {
             if (!returned) {
                 returned = true;
-                closeStatementCache();
+                closeOpenStatements();
                 pool.release(target, checkoutAt, checkoutStack);
             }
             return null;
@@ -75,11 +67,9 @@ public final class VKPooledConnection implements InvocationHandler {
         } else if ("setTransactionIsolation".equals(name) && args != null && args.length == 1) {
             pool.markIsolationDirty(target);
         }
-        if ("prepareStatement".equals(name) && args != null && args.length >= 1 && args[0] instanceof String) {
-            PreparedStatement cached = getOrCreatePreparedStatement(method, args);
-            if (cached != null) {
-                return cached;
-            }
+        if (statementCache != null && !returned && "prepareStatement".equals(name)
+                && args != null && args.length >= 1 && args[0] instanceof String) {
+            return prepareCached(method, args);
         }
 
         try {
@@ -89,69 +79,64 @@ public final class VKPooledConnection implements InvocationHandler {
         }
     }
 
-    private PreparedStatement getOrCreatePreparedStatement(Method method, Object[] args) throws SQLException {
-        if (statementCacheSize <= 0) {
-            return null;
+    void statementClosed(VKPooledStatement statement) {
+        synchronized (openStatements) {
+            openStatements.remove(statement);
         }
-        String sql = String.valueOf(args[0]);
-        String key = buildKey(method, args, sql);
-        synchronized (statementCache) {
-            PreparedStatement ps = statementCache.get(key);
-            if (ps != null) {
-                if (ps.isClosed()) {
-                    statementCache.remove(key);
-                } else {
-                    ps.clearParameters();
-                    return ps;
-                }
-            }
-        }
-        PreparedStatement created;
-        try {
-            created = (PreparedStatement) method.invoke(target, args);
-        } catch (InvocationTargetException | IllegalAccessException e) {
-            Throwable cause = e instanceof InvocationTargetException ? ((InvocationTargetException) e).getTargetException() : e;
-            if (cause instanceof SQLException) {
-                throw (SQLException) cause;
+    }
+
+    private PreparedStatement prepareCached(Method method, Object[] args) throws Throwable {
+        String key = buildKey(args);
+        PreparedStatement ps = statementCache.take(key);
+        pool.recordStatementCache(ps != null);
+        if (ps == null) {
+            try {
+                ps = (PreparedStatement) method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
             }
-            throw new SQLException("Failed to create PreparedStatement", cause);
         }
-        synchronized (statementCache) {
-            statementCache.put(key, created);
+        VKPooledStatement statement = new VKPooledStatement(key, ps, statementCache, this, proxy);
+        synchronized (openStatements) {
+            openStatements.add(statement);
         }
-        return created;
+        return statement.proxy();
     }
 
-    private String buildKey(Method method, Object[] args, String sql) {
+    /**
+     * 缓存键：SQL 加上其余 prepareStatement 参数（生成主键模式、结果集类型与并发模式、主键列名等）。
+     */
+    private static String buildKey(Object[] args) {
+        String sql = (String) args[0];
         if (args.length == 1) {
             return sql;
         }
-        if (args.length == 2 && args[1] instanceof Integer) {
-            return sql + "|gen=" + args[1];
-        }
-        return method.getName() + ":" + sql + ":" + args.length;
-    }
-
-    private void closeSilently(PreparedStatement ps) {
-        if (ps == null) {
-            return;
-        }
-        try {
-            ps.close();
-        } catch (SQLException ignore) {
-            // ignore
+        StringBuilder sb = new StringBuilder(sql.length() + 16).append(sql);
+        for (int i = 1; i < args.length; i++) {
+            Object arg = args[i];
+            sb.append('|');
+            if (arg instanceof int[]) {
+                sb.append(Arrays.toString((int[]) arg));
+            } else if (arg instanceof Object[]) {
+                sb.append(Arrays.toString((Object[]) arg));
+            } else {
+                sb.append(arg);
+            }
         }
+        return sb.toString();
     }
 
-    private void closeStatementCache() {
-        if (statementCacheSize <= 0) {
-            return;
-        }
-        synchronized (statementCache) {
-            for (PreparedStatement ps : statementCache.values()) {
-                closeSilently(ps);
+    private void closeOpenStatements() {
+        List<VKPooledStatement> open;
+        synchronized (openStatements) {
+            if (openStatements.isEmpty()) {
+                return;
             }
-            statementCache.clear();
+            open = new ArrayList<>(openStatements);
+            openStatements.clear();
+        }
+        for (VKPooledStatement statement : open) {
+            statement.release();
         }
     }
 }
@@ -0,0 +1,149 @@
+package yueyang.vostok.data.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * 可缓存 PreparedStatement 的代理：close() 为逻辑关闭，重置参数与语句级设置后归还到物理连接的语句缓存。
+ *
+ * <p>queryTimeout / fetchSize / maxRows 在归还时恢复；其他不易恢复的语句级设置（如 fetchDirection、cursorName）
+ * 被修改过的语句不再复用，直接物理关闭。
+ */
+final class VKPooledStatement implements InvocationHandler {
+    /** 修改后无法可靠恢复的设置，调用过即放弃复用。 */
+    private static final Set<String> NON_REUSABLE = Set.of(
+            "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing", "setCursorName",
+            "setPoolable", "closeOnCompletion");
+
+    private final String key;
+    private final PreparedStatement target;
+    private final VKStatementCache cache;
+    private final VKPooledConnection owner;
+    private final Connection connection;
+    private boolean closed;
+    private boolean reusable = true;
+    private boolean batchDirty;
+    private boolean timeoutDirty;
+    private boolean maxRowsDirty;
+    private boolean fetchSizeDirty;
+    private int defaultFetchSize;
+    /** 最近一次返回的结果集，逻辑关闭时一并关闭（与物理关闭语义一致）。 */
+    private ResultSet lastResult;
+
+    VKPooledStatement(String key, PreparedStatement target, VKStatementCache cache,
+                      VKPooledConnection owner, Connection connection) {
+        this.key = key;
+        this.target = target;
+        this.cache = cache;
+        this.owner = owner;
+        this.connection = connection;
+    }
+
+    PreparedStatement proxy() {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                VKPooledStatement.class.getClassLoader(),
+                new Class[]{PreparedStatement.class},
+                this
+        );
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "close":
+                owner.statementClosed(this);
+                release();
+                return null;
+            case "isClosed":
+                return closed || target.isClosed();
+            case "getConnection":
+                return connection;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                break;
+        }
+        if (closed) {
+            throw new SQLException("PreparedStatement is closed");
+        }
+        switch (name) {
+            case "addBatch" -> batchDirty = true;
+            case "setQueryTimeout" -> timeoutDirty = true;
+            case "setMaxRows", "setLargeMaxRows" -> maxRowsDirty = true;
+            case "setFetchSize" -> {
+                if (!fetchSizeDirty) {
+                    defaultFetchSize = target.getFetchSize();
+                    fetchSizeDirty = true;
+                }
+            }
+            default -> {
+                if (NON_REUSABLE.contains(name)) {
+                    reusable = false;
+                }
+            }
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+        if (result instanceof ResultSet) {
+            lastResult = (ResultSet) result;
+        }
+        return result;
+    }
+
+    /**
+     * 逻辑关闭：重置成功则归还缓存，否则物理关闭。
+     */
+    void release() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (reusable && reset() && cache.offer(key, target)) {
+            return;
+        }
+        VKStatementCache.closeSilently(target);
+    }
+
+    private boolean reset() {
+        try {
+            if (lastResult != null && !lastResult.isClosed()) {
+                lastResult.close();
+            }
+            lastResult = null;
+            if (target.isClosed()) {
+                return false;
+            }
+            target.clearParameters();
+            if (batchDirty) {
+                target.clearBatch();
+            }
+            if (timeoutDirty) {
+                target.setQueryTimeout(0);
+            }
+            if (maxRowsDirty) {
+                target.setMaxRows(0);
+            }
+            if (fetchSizeDirty) {
+                target.setFetchSize(defaultFetchSize);
+            }
+            target.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package yueyang.vostok.data.pool;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 物理连接级的 PreparedStatement LRU 缓存，生命周期与物理连接一致（物理关闭时清空）。
+ *
+ * <p>语句以"借出 / 归还"方式使用：{@link #take(String)} 从缓存中移除并返回空闲语句，
+ * 调用方逻辑关闭时经 {@link #offer(String, PreparedStatement)} 放回；同一 SQL 并发使用时
+ * 各自持有独立语句，归还时已有同键空闲语句则关闭多余的一条。容量只计空闲语句，超出时关闭最久未用的语句。
+ */
+final class VKStatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> idle;
+    private boolean closed;
+
+    VKStatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.idle = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > VKStatementCache.this.maxSize) {
+                    closeSilently(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 借出缓存中的空闲语句；未命中或语句已失效时返回 null。
+     */
+    synchronized PreparedStatement take(String key) {
+        PreparedStatement ps = idle.remove(key);
+        if (ps == null) {
+            return null;
+        }
+        try {
+            if (!ps.isClosed()) {
+                return ps;
+            }
+        } catch (SQLException ignore) {
+            // fall through
+        }
+        closeSilently(ps);
+        return null;
+    }
+
+    /**
+     * 归还语句；缓存已关闭或已有同键空闲语句时返回 false，由调用方关闭该语句。
+     */
+    synchronized boolean offer(String key, PreparedStatement ps) {
+        if (closed || idle.containsKey(key)) {
+            return false;
+        }
+        idle.put(key, ps);
+        return true;
+    }
+
+    synchronized int size() {
+        return idle.size();
+    }
+
+    /**
+     * 物理连接关闭前调用：关闭全部空闲语句，之后归还的语句直接关闭。
+     */
+    synchronized void close() {
+        closed = true;
+        for (PreparedStatement ps : idle.values()) {
+            closeSilently(ps);
+        }
+        idle.clear();
+    }
+
+    static void closeSilently(PreparedStatement ps) {
+        if (ps == null) {
+            return;
+        }
+        try {
+            ps.close();
+        } catch (SQLException ignore) {
+            // ignore
+        }
+    }
+}
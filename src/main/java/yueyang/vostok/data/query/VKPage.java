@@ -0,0 +1,37 @@
+package yueyang.vostok.data.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 键集分页结果：本页数据 + 下一页游标（没有更多数据时为 null）。
+ */
+public class VKPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public VKPage(List<T> items, String nextCursor) {
+        this.items = items == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(items));
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * 下一页游标，传给 {@link VKQuery#seek(String)} 获取下一页；最后一页为 null。
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
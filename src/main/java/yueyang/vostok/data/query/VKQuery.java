@@ -12,6 +12,10 @@ public class VKQuery {
     private final List<VKAggregate> aggregates = new ArrayList<>();
     private Integer limit;
     private Integer offset;
+    /** 是否启用键集（seek）分页。 */
+    private boolean seek;
+    /** 键集分页游标，null 表示第一页。 */
+    private String seekCursor;
 
     public VKQuery() {
     }
@@ -56,6 +60,18 @@ public class VKQuery {
         return this;
     }
 
+    /**
+     * 启用键集（seek）分页：按上一页最后一行的排序字段值定位，不再使用 OFFSET。
+     *
+     * <p>cursor 为上一页 {@link VKPage#getNextCursor()} 返回的不透明游标，null 表示第一页；
+     * 排序字段末尾自动补充主键保证顺序唯一，与 offset / groupBy / 聚合互斥。
+     */
+    public VKQuery seek(String cursor) {
+        this.seek = true;
+        this.seekCursor = cursor;
+        return this;
+    }
+
     public VKQuery groupBy(String... fields) {
         if (fields != null) {
             for (String f : fields) {
@@ -119,4 +135,12 @@ public class VKQuery {
     public Integer getOffset() {
         return offset;
     }
+
+    public boolean isSeek() {
+        return seek;
+    }
+
+    public String getSeekCursor() {
+        return seekCursor;
+    }
 }
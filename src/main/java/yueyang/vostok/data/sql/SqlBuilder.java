@@ -109,6 +109,9 @@ public final class SqlBuilder {
     }
 
     public static SqlAndParams buildSelect(EntityMeta meta, List<FieldMeta> projection, VKQuery query, VKDialect dialect) {
+        if (query != null && query.isSeek()) {
+            return buildKeysetSelect(meta, projection, query, SqlKeyset.of(meta, query), dialect, query.getLimit());
+        }
         StringBuilder sb = new StringBuilder();
         List<Object> params = new ArrayList<>();
 
@@ -124,6 +127,29 @@ public final class SqlBuilder {
         return new SqlAndParams(sb.toString(), params.toArray());
     }
 
+    /**
+     * 键集分页查询：查询条件后追加游标定位条件，按排序键（含主键兜底）排序，只取 limit 行，不使用 OFFSET。
+     *
+     * @param limit 取回行数；分页接口传入 pageSize + 1 用于判断是否还有下一页
+     */
+    public static SqlAndParams buildKeysetSelect(EntityMeta meta, List<FieldMeta> projection, VKQuery query,
+                                                 SqlKeyset keyset, VKDialect dialect, Integer limit) {
+        StringBuilder sb = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        sb.append("SELECT ").append(selectColumns(projection)).append(" FROM ").append(meta.getTableName());
+
+        String seekPredicate = null;
+        List<Object> seekParams = new ArrayList<>();
+        if (query.getSeekCursor() != null) {
+            seekPredicate = keyset.predicate(keyset.decode(query.getSeekCursor()), dialect, seekParams);
+        }
+        appendWhere(meta, query, sb, params, seekPredicate, seekParams);
+        sb.append(" ORDER BY ").append(keyset.orderBy());
+        dialect.appendLimitOffset(sb, limit, null);
+
+        return new SqlAndParams(sb.toString(), params.toArray());
+    }
+
     public static SqlAndParams buildCount(EntityMeta meta, VKQuery query) {
         return buildCount(meta, query, VKDialectManager.getDialect());
     }
@@ -181,9 +207,17 @@ public final class SqlBuilder {
     }
 
     private static void appendWhere(EntityMeta meta, VKQuery query, StringBuilder sb, List<Object> params) {
+        appendWhere(meta, query, sb, params, null, null);
+    }
+
+    /**
+     * extraPredicate 非 null 时作为最后一个 AND 条件追加（键集分页定位条件），其参数排在查询条件参数之后。
+     */
+    private static void appendWhere(EntityMeta meta, VKQuery query, StringBuilder sb, List<Object> params,
+                                    String extraPredicate, List<Object> extraParams) {
         FieldMeta ld = meta.getLogicDeleteField();
         boolean hasGroups = query != null && !query.getGroups().isEmpty();
-        if (ld == null && !hasGroups) {
+        if (ld == null && !hasGroups && extraPredicate == null) {
             return;
         }
         sb.append(" WHERE ");
@@ -198,6 +232,10 @@ public final class SqlBuilder {
                 groupJoiner.add(buildGroup(meta, group, params));
             }
         }
+        if (extraPredicate != null) {
+            groupJoiner.add("(" + extraPredicate + ")");
+            params.addAll(extraParams);
+        }
         sb.append(groupJoiner);
     }
 
@@ -0,0 +1,251 @@
+package yueyang.vostok.data.sql;
+
+import yueyang.vostok.data.dialect.VKDialect;
+import yueyang.vostok.data.exception.VKArgumentException;
+import yueyang.vostok.data.meta.EntityMeta;
+import yueyang.vostok.data.meta.FieldMeta;
+import yueyang.vostok.data.query.VKOrder;
+import yueyang.vostok.data.query.VKQuery;
+import yueyang.vostok.util.VKAssert;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 键集（seek）分页的排序键：查询的排序字段，末尾自动补充主键保证顺序唯一。
+ *
+ * <p>游标为 Base64URL 编码的不透明字符串，内含排序签名（字段名 + 方向）与上一页最后一行的排序字段值，
+ * 排序变化后旧游标会被拒绝。排序字段值不能为 NULL，且不能是加密字段。
+ *
+ * <p>定位条件：
+ * <ul>
+ *   <li>单个排序字段：{@code a > ?}</li>
+ *   <li>方向一致且方言支持行值比较：{@code (a, b) > (?, ?)}</li>
+ *   <li>其他情况展开为 {@code (a > ?) OR (a = ? AND b > ?)}</li>
+ * </ul>
+ */
+public final class SqlKeyset {
+    private static final String VERSION = "k1";
+
+    private final List<FieldMeta> fields;
+    private final boolean[] asc;
+
+    private SqlKeyset(List<FieldMeta> fields, boolean[] asc) {
+        this.fields = fields;
+        this.asc = asc;
+    }
+
+    /**
+     * 由查询的排序字段构建排序键；未按主键排序时追加主键（方向与最后一个排序字段一致，无排序时升序）。
+     */
+    public static SqlKeyset of(EntityMeta meta, VKQuery query) {
+        VKAssert.notNull(query, "Query is null");
+        VKAssert.isTrue(query.getOffset() == null, "Keyset pagination does not support offset");
+        VKAssert.isTrue(query.getGroupBy().isEmpty() && query.getAggregates().isEmpty(),
+                "Keyset pagination does not support groupBy or aggregates");
+
+        List<FieldMeta> fields = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+        for (VKOrder order : query.getOrders()) {
+            FieldMeta fm = meta.getFieldByName(order.getField());
+            VKAssert.notNull(fm, "Unknown field: " + order.getField());
+            VKAssert.isTrue(!fm.isEncrypted(), "Encrypted field cannot be used as keyset: " + order.getField());
+            VKAssert.isTrue(!fields.contains(fm), "Duplicate keyset field: " + order.getField());
+            checkType(fm);
+            fields.add(fm);
+            directions.add(order.isAsc());
+        }
+        FieldMeta id = meta.getIdField();
+        if (!fields.contains(id)) {
+            checkType(id);
+            fields.add(id);
+            directions.add(directions.isEmpty() || directions.get(directions.size() - 1));
+        }
+        boolean[] asc = new boolean[directions.size()];
+        for (int i = 0; i < asc.length; i++) {
+            asc[i] = directions.get(i);
+        }
+        return new SqlKeyset(Collections.unmodifiableList(fields), asc);
+    }
+
+    /** 排序键字段（含追加的主键）。 */
+    public List<FieldMeta> getFields() {
+        return fields;
+    }
+
+    /** ORDER BY 子句内容，如 {@code age ASC, id ASC}。 */
+    String orderBy() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (int i = 0; i < fields.size(); i++) {
+            joiner.add(fields.get(i).getColumnName() + (asc[i] ? " ASC" : " DESC"));
+        }
+        return joiner.toString();
+    }
+
+    /**
+     * 生成"位于游标之后"的定位条件，参数按占位符顺序追加到 params。
+     */
+    String predicate(Object[] values, VKDialect dialect, List<Object> params) {
+        int n = fields.size();
+        if (n == 1) {
+            params.add(values[0]);
+            return fields.get(0).getColumnName() + op(0) + "?";
+        }
+        if (sameDirection() && dialect.supportsRowValueComparison()) {
+            StringJoiner columns = new StringJoiner(", ", "(", ")");
+            StringJoiner holders = new StringJoiner(", ", "(", ")");
+            for (int i = 0; i < n; i++) {
+                columns.add(fields.get(i).getColumnName());
+                holders.add("?");
+                params.add(values[i]);
+            }
+            return columns + op(0) + holders;
+        }
+        StringJoiner or = new StringJoiner(" OR ", "(", ")");
+        for (int i = 0; i < n; i++) {
+            StringJoiner and = new StringJoiner(" AND ", "(", ")");
+            for (int j = 0; j < i; j++) {
+                and.add(fields.get(j).getColumnName() + " = ?");
+                params.add(values[j]);
+            }
+            and.add(fields.get(i).getColumnName() + op(i) + "?");
+            params.add(values[i]);
+            or.add(and.toString());
+        }
+        return or.toString();
+    }
+
+    /**
+     * 以行对象的排序字段值生成游标。
+     */
+    public String encode(Object row) {
+        StringBuilder sb = new StringBuilder();
+        token(sb, VERSION);
+        for (int i = 0; i < fields.size(); i++) {
+            FieldMeta fm = fields.get(i);
+            Object value = fm.getValue(row);
+            if (value == null) {
+                throw new VKArgumentException("Keyset field value is null: " + fm.getField().getName());
+            }
+            token(sb, fm.getField().getName());
+            token(sb, asc[i] ? "A" : "D");
+            token(sb, value instanceof Enum ? ((Enum<?>) value).name() : value.toString());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标为排序字段值（已按字段类型还原）；签名与当前排序不一致时抛出异常。
+     */
+    public Object[] decode(String cursor) {
+        VKAssert.notBlank(cursor, "Keyset cursor is blank");
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new VKArgumentException("Invalid keyset cursor", e);
+        }
+        List<String> tokens = new ArrayList<>();
+        int pos = 0;
+        while (pos < text.length()) {
+            int colon = text.indexOf(':', pos);
+            int len;
+            try {
+                len = colon < 0 ? -1 : Integer.parseInt(text.substring(pos, colon));
+            } catch (NumberFormatException e) {
+                len = -1;
+            }
+            if (len < 0 || colon + 1 + len > text.length()) {
+                throw new VKArgumentException("Invalid keyset cursor");
+            }
+            tokens.add(text.substring(colon + 1, colon + 1 + len));
+            pos = colon + 1 + len;
+        }
+        if (tokens.size() != 1 + fields.size() * 3 || !VERSION.equals(tokens.get(0))) {
+            throw new VKArgumentException("Keyset cursor does not match query order");
+        }
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            FieldMeta fm = fields.get(i);
+            int t = 1 + i * 3;
+            if (!fm.getField().getName().equals(tokens.get(t)) || !(asc[i] ? "A" : "D").equals(tokens.get(t + 1))) {
+                throw new VKArgumentException("Keyset cursor does not match query order");
+            }
+            try {
+                values[i] = parse(fm.getField().getType(), tokens.get(t + 2));
+            } catch (RuntimeException e) {
+                throw new VKArgumentException("Invalid keyset cursor value for field: " + fm.getField().getName(), e);
+            }
+        }
+        return values;
+    }
+
+    private boolean sameDirection() {
+        for (boolean a : asc) {
+            if (a != asc[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String op(int i) {
+        return asc[i] ? " > " : " < ";
+    }
+
+    private static void token(StringBuilder sb, String value) {
+        sb.append(value.length()).append(':').append(value);
+    }
+
+    private static void checkType(FieldMeta fm) {
+        Class<?> type = fm.getField().getType();
+        boolean supported = type == String.class || type.isEnum()
+                || type == Long.class || type == long.class || type == Integer.class || type == int.class
+                || type == Short.class || type == short.class || type == Boolean.class || type == boolean.class
+                || type == Double.class || type == double.class || type == Float.class || type == float.class
+                || type == BigDecimal.class || type == LocalDate.class || type == LocalDateTime.class;
+        VKAssert.isTrue(supported, "Unsupported keyset field type: " + fm.getField().getName() + " (" + type.getName() + ")");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(Class<?> type, String text) {
+        if (type == String.class) {
+            return text;
+        }
+        if (type == Long.class || type == long.class) {
+            return Long.parseLong(text);
+        }
+        if (type == Integer.class || type == int.class) {
+            return Integer.parseInt(text);
+        }
+        if (type == Short.class || type == short.class) {
+            return Short.parseShort(text);
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.parseBoolean(text);
+        }
+        if (type == Double.class || type == double.class) {
+            return Double.parseDouble(text);
+        }
+        if (type == Float.class || type == float.class) {
+            return Float.parseFloat(text);
+        }
+        if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        }
+        return Enum.valueOf((Class<? extends Enum>) type, text);
+    }
+}
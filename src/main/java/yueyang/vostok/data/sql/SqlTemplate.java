@@ -5,6 +5,9 @@ import yueyang.vostok.data.core.VKFieldCrypto;
 import yueyang.vostok.data.meta.FieldMeta;
 import yueyang.vostok.util.VKAssert;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,8 +23,13 @@ import java.util.List;
  *       若存在 afterIdParams（SELECT_BY_ID 逻辑删除过滤），追加于 id 之后。</li>
  *   <li>{@link #getStaticParams}：用于 SELECT_ALL，返回静态过滤参数（逻辑删除 normalValue）。</li>
  * </ul>
+ *
+ * <p>bindEntity 在构造时编译：字段读取句柄统一适配为 {@code (Object)Object} 后以 invokeExact 调用，
+ * 参数个数预先确定，绑定时直接填充定长数组。
  */
 public class SqlTemplate {
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+
     private final String sql;
     /** SET 子句对应的字段列表（INSERT / UPDATE），不含 id 和版本字段。 */
     private final List<FieldMeta> fields;
@@ -45,6 +53,13 @@ public class SqlTemplate {
     private final boolean appendId;
     /** true 时调用 bindEntity 会抛出异常，通过 bindId / getStaticParams 取参数。 */
     private final boolean idOnly;
+    /** 编译后的 bindEntity 字段及其读取句柄（句柄为 null 时回退 FieldMeta.getValue）。 */
+    private final FieldMeta[] bindFields;
+    private final MethodHandle[] bindGetters;
+    private final MethodHandle idGetter;
+    private final MethodHandle versionGetter;
+    /** bindEntity 生成的参数个数。 */
+    private final int bindSize;
 
     /**
      * 兼容旧签名的构造器（无版本字段、无逻辑删除）。
@@ -77,6 +92,15 @@ public class SqlTemplate {
         this.afterIdParams = afterIdParams;
         this.appendId = appendId;
         this.idOnly = idOnly;
+        this.bindFields = fields == null ? new FieldMeta[0] : fields.toArray(new FieldMeta[0]);
+        this.bindGetters = new MethodHandle[bindFields.length];
+        for (int i = 0; i < bindFields.length; i++) {
+            bindGetters[i] = compileGetter(bindFields[i]);
+        }
+        boolean bindId = appendId && idField != null;
+        this.idGetter = bindId ? compileGetter(idField) : null;
+        this.versionGetter = bindId && versionField != null ? compileGetter(versionField) : null;
+        this.bindSize = bindFields.length + (bindId ? 1 : 0) + (bindId && versionField != null ? 1 : 0);
     }
 
     public String getSql() {
@@ -103,28 +127,30 @@ public class SqlTemplate {
         if (idOnly) {
             throw new IllegalStateException("Template is id-only");
         }
-        List<Object> params = new ArrayList<>();
-        for (FieldMeta field : fields) {
-            Object raw = field.getValue(entity);
+        Object[] params = new Object[bindSize];
+        int n = 0;
+        for (int i = 0; i < bindFields.length; i++) {
+            FieldMeta field = bindFields[i];
+            Object raw = read(field, bindGetters[i], entity);
             // INSERT：版本字段为 null 时自动初始化为 0
-            if (field.isVersion() && raw == null) {
+            if (raw == null && field.isVersion()) {
                 raw = initVersionZero(field);
             }
             // INSERT：逻辑删除字段为 null 时自动初始化为 normalValue
-            if (field.isLogicDelete() && raw == null) {
+            if (raw == null && field.isLogicDelete()) {
                 raw = field.getNormalValue();
             }
-            params.add(VKFieldCrypto.encryptWrite(field, raw, config));
+            params[n++] = VKFieldCrypto.encryptWrite(field, raw, config);
         }
         if (appendId && idField != null) {
             // UPDATE：追加主键值（WHERE id = ?）
-            params.add(idField.getValue(entity));
+            params[n++] = read(idField, idGetter, entity);
             // UPDATE with version：追加旧版本值（WHERE ... AND version = ?）
             if (versionField != null) {
-                params.add(versionField.getValue(entity));
+                params[n++] = read(versionField, versionGetter, entity);
             }
         }
-        return params.toArray();
+        return params;
     }
 
     /**
@@ -164,6 +190,30 @@ public class SqlTemplate {
         return afterIdParams != null ? afterIdParams.clone() : new Object[0];
     }
 
+    private static MethodHandle compileGetter(FieldMeta field) {
+        MethodHandle getter = field.getGetter();
+        return getter == null ? null : getter.asType(OBJECT_GETTER);
+    }
+
+    /**
+     * 通过编译句柄读取字段；句柄缺失或实体类型与句柄不匹配时回退 FieldMeta.getValue，保持原有异常语义。
+     * 其他异常与 Error 原样抛出。
+     */
+    private static Object read(FieldMeta field, MethodHandle getter, Object entity) {
+        if (getter != null) {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (ClassCastException | WrongMethodTypeException e) {
+                // fallback to FieldMeta
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to read field: " + field.getField().getName(), e);
+            }
+        }
+        return field.getValue(entity);
+    }
+
     /**
      * 根据字段类型初始化版本字段的零值（Long→0L，Integer→0）。
      */
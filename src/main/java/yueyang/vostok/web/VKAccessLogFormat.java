@@ -0,0 +1,11 @@
+package yueyang.vostok.web;
+
+/**
+ * 结构化访问日志的输出格式，见 {@link VKWebConfig#accessLogFormat(VKAccessLogFormat)}。
+ */
+public enum VKAccessLogFormat {
+    /** 单行文本：时间 IP "方法 路径" 状态 字节数 耗时 route=.. trace=..。 */
+    TEXT,
+    /** JSON Lines：每行一个 JSON 对象，便于日志采集端直接解析。 */
+    JSON
+}
@@ -0,0 +1,11 @@
+package yueyang.vostok.web;
+
+/**
+ * 新连接分配到 reactor 的策略，见 {@link VKWebConfig#reactorAssignment(VKReactorAssignment)}。
+ */
+public enum VKReactorAssignment {
+    /** 依次轮转（默认）。 */
+    ROUND_ROBIN,
+    /** 选择当前连接数最少的 reactor，长连接（WebSocket/SSE）分布不均时更均衡。 */
+    LEAST_CONNECTIONS
+}
@@ -0,0 +1,12 @@
+package yueyang.vostok.web;
+
+/**
+ * 流式请求体处理器标记接口。
+ *
+ * 以该类型注册的路由在请求头解析完成后立即派发到 worker，不等待请求体到齐：
+ * handler 通过 {@code req.bodyStream()} / {@code req.bodyPublisher()} / {@code req.multipartReader()}
+ * 边收边处理，reactor 按消费速度暂停或恢复读取，内存占用上限为 streamingBodyBufferBytes。
+ */
+@FunctionalInterface
+public interface VKStreamingHandler extends VKHandler {
+}
@@ -1,5 +1,6 @@
 package yueyang.vostok.web;
 
+import yueyang.vostok.log.VKLogSinkConfig;
 import yueyang.vostok.web.spi.VKWebServerFactory;
 import yueyang.vostok.web.tls.VKTlsConfig;
 
@@ -9,6 +10,9 @@ import yueyang.vostok.web.tls.VKTlsConfig;
 public final class VKWebConfig {
     private int port = 8080;
     private int ioThreads = 1;
+    /** 监听 socket 数量，大于 1 时以 SO_REUSEPORT 绑定同一端口，由内核在各 acceptor 间分摊新连接。 */
+    private int acceptorThreads = 1;
+    private VKReactorAssignment reactorAssignment = VKReactorAssignment.ROUND_ROBIN;
     private int workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
     private int backlog = 1024;
     private int readBufferSize = 16 * 1024;
@@ -17,9 +21,26 @@ public final class VKWebConfig {
     private int keepAliveTimeoutMs = 30_000;
     private int maxConnections = 10_000;
     private int readTimeoutMs = 15_000;
+    /** 待发送数据持续无写出进展的最长时间，超时视为客户端停止读取并关闭连接。 */
+    private int writeTimeoutMs = 30_000;
+    /** SSE 连接无事件时发送注释心跳的间隔，0 表示不发送。 */
+    private int sseHeartbeatIntervalMs = 15_000;
+    /** SSE 主题为断线重连保留的最近事件数，0 表示不保留。 */
+    private int sseReplayBufferSize = 256;
+    /** 单个 SSE 连接已入队未写出的事件字节上限，超过时主题广播丢弃新事件。 */
+    private int sseMaxPendingBytes = 1024 * 1024;
     private int workerQueueSize = 10_000;
+    /** 请求派发策略，默认固定线程池。 */
+    private VKWorkerMode workerMode = VKWorkerMode.POOL;
     private boolean accessLogEnabled = true;
     private int accessLogQueueSize = 8_192;
+    /** 结构化访问日志：请求字段写入预分配环形缓冲，由日志线程批量格式化。 */
+    private boolean accessLogStructured = false;
+    private VKAccessLogFormat accessLogFormat = VKAccessLogFormat.TEXT;
+    /** 结构化模式下每次写入 VostokLog 的最大行数。 */
+    private int accessLogBatchSize = 256;
+    /** 访问日志 logger 的 sink 覆盖配置（滚动、fsync 等），null 时使用默认配置。 */
+    private VKLogSinkConfig accessLogSink;
     private boolean rateLimitLogEnabled = true;
     private boolean multipartEnabled = true;
     private String multipartTempDir = System.getProperty("java.io.tmpdir") + "/vostok-upload";
@@ -27,6 +48,14 @@ public final class VKWebConfig {
     private int multipartMaxParts = 128;
     private long multipartMaxFileSizeBytes = 16L * 1024 * 1024;
     private long multipartMaxTotalBytes = 32L * 1024 * 1024;
+    /** 流式上传（VKStreamingHandler 路由）允许的最大请求体，不受 maxBodyBytes 限制。 */
+    private long streamingMaxBodyBytes = 4L * 1024 * 1024 * 1024;
+    /** 流式上传每连接缓冲的高水位，超过后暂停读取直到 handler 消费到一半以下。 */
+    private int streamingBodyBufferBytes = 256 * 1024;
+    /** 流式响应每连接待发送数据的高水位，超过后写出器阻塞直到排空到一半以下。 */
+    private int streamingResponseHighWaterBytes = 256 * 1024;
+    /** 流式响应写出器因背压阻塞的最长时间，超时视为慢客户端并关闭连接。 */
+    private int streamingResponseWriteTimeoutMs = 30_000;
     private int rateLimitCleanupIntervalMs = 60_000;
     private boolean websocketEnabled = true;
     private int websocketMaxFramePayloadBytes = 1024 * 1024;
@@ -36,6 +65,10 @@ public final class VKWebConfig {
     private int websocketPingIntervalMs = 30_000;
     private int websocketPongTimeoutMs = 10_000;
     private int websocketIdleTimeoutMs = 120_000;
+    /** 是否启用 HTTP/2（TLS 下经 ALPN 协商 h2，明文下支持 prior-knowledge h2c）。 */
+    private boolean http2Enabled = false;
+    private int http2MaxConcurrentStreams = 256;
+    private int http2InitialWindowSize = 1024 * 1024;
     /** TLS 配置，null 表示明文 HTTP。 */
     private VKTlsConfig tlsConfig;
     /** 自定义 Web 引擎工厂，null 时回退到内建 NIO 实现。 */
@@ -59,6 +92,26 @@ public final class VKWebConfig {
         return this;
     }
 
+    public int getAcceptorThreads() {
+        return acceptorThreads;
+    }
+
+    public VKWebConfig acceptorThreads(int acceptorThreads) {
+        this.acceptorThreads = Math.max(1, acceptorThreads);
+        return this;
+    }
+
+    public VKReactorAssignment getReactorAssignment() {
+        return reactorAssignment;
+    }
+
+    public VKWebConfig reactorAssignment(VKReactorAssignment reactorAssignment) {
+        if (reactorAssignment != null) {
+            this.reactorAssignment = reactorAssignment;
+        }
+        return this;
+    }
+
     public int getWorkerThreads() {
         return workerThreads;
     }
@@ -131,6 +184,53 @@ public final class VKWebConfig {
         return this;
     }
 
+    public int getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+
+    public VKWebConfig writeTimeoutMs(int writeTimeoutMs) {
+        this.writeTimeoutMs = Math.max(1000, writeTimeoutMs);
+        return this;
+    }
+
+    public int getSseHeartbeatIntervalMs() {
+        return sseHeartbeatIntervalMs;
+    }
+
+    public VKWebConfig sseHeartbeatIntervalMs(int sseHeartbeatIntervalMs) {
+        this.sseHeartbeatIntervalMs = sseHeartbeatIntervalMs <= 0 ? 0 : Math.max(1000, sseHeartbeatIntervalMs);
+        return this;
+    }
+
+    public int getSseReplayBufferSize() {
+        return sseReplayBufferSize;
+    }
+
+    public VKWebConfig sseReplayBufferSize(int sseReplayBufferSize) {
+        this.sseReplayBufferSize = Math.max(0, sseReplayBufferSize);
+        return this;
+    }
+
+    public int getSseMaxPendingBytes() {
+        return sseMaxPendingBytes;
+    }
+
+    public VKWebConfig sseMaxPendingBytes(int sseMaxPendingBytes) {
+        this.sseMaxPendingBytes = Math.max(4096, sseMaxPendingBytes);
+        return this;
+    }
+
+    public VKWorkerMode getWorkerMode() {
+        return workerMode;
+    }
+
+    public VKWebConfig workerMode(VKWorkerMode workerMode) {
+        if (workerMode != null) {
+            this.workerMode = workerMode;
+        }
+        return this;
+    }
+
     public int getWorkerQueueSize() {
         return workerQueueSize;
     }
@@ -158,6 +258,50 @@ public final class VKWebConfig {
         return this;
     }
 
+    public boolean isAccessLogStructured() {
+        return accessLogStructured;
+    }
+
+    /**
+     * 启用结构化访问日志：请求线程只把状态码、字节数、耗时等定长字段写入预分配的环形缓冲（容量取
+     * accessLogQueueSize 向上对齐到 2 的幂），不拼接字符串；日志线程按批格式化为文本或 JSON 行后写入 VostokLog。
+     */
+    public VKWebConfig accessLogStructured(boolean accessLogStructured) {
+        this.accessLogStructured = accessLogStructured;
+        return this;
+    }
+
+    public VKAccessLogFormat getAccessLogFormat() {
+        return accessLogFormat;
+    }
+
+    public VKWebConfig accessLogFormat(VKAccessLogFormat accessLogFormat) {
+        this.accessLogFormat = accessLogFormat == null ? VKAccessLogFormat.TEXT : accessLogFormat;
+        return this;
+    }
+
+    public int getAccessLogBatchSize() {
+        return accessLogBatchSize;
+    }
+
+    public VKWebConfig accessLogBatchSize(int accessLogBatchSize) {
+        this.accessLogBatchSize = Math.max(1, accessLogBatchSize);
+        return this;
+    }
+
+    public VKLogSinkConfig getAccessLogSink() {
+        return accessLogSink;
+    }
+
+    /**
+     * 访问日志 logger（web-access）的 sink 配置，用于指定滚动周期、文件大小、fsync 策略等；
+     * 未设置 filePrefix 时沿用 "access"。
+     */
+    public VKWebConfig accessLogSink(VKLogSinkConfig accessLogSink) {
+        this.accessLogSink = accessLogSink;
+        return this;
+    }
+
     public boolean isRateLimitLogEnabled() {
         return rateLimitLogEnabled;
     }
@@ -223,6 +367,42 @@ public final class VKWebConfig {
         return this;
     }
 
+    public long getStreamingMaxBodyBytes() {
+        return streamingMaxBodyBytes;
+    }
+
+    public VKWebConfig streamingMaxBodyBytes(long streamingMaxBodyBytes) {
+        this.streamingMaxBodyBytes = Math.max(1024L, streamingMaxBodyBytes);
+        return this;
+    }
+
+    public int getStreamingBodyBufferBytes() {
+        return streamingBodyBufferBytes;
+    }
+
+    public VKWebConfig streamingBodyBufferBytes(int streamingBodyBufferBytes) {
+        this.streamingBodyBufferBytes = Math.max(4096, streamingBodyBufferBytes);
+        return this;
+    }
+
+    public int getStreamingResponseHighWaterBytes() {
+        return streamingResponseHighWaterBytes;
+    }
+
+    public VKWebConfig streamingResponseHighWaterBytes(int streamingResponseHighWaterBytes) {
+        this.streamingResponseHighWaterBytes = Math.max(16 * 1024, streamingResponseHighWaterBytes);
+        return this;
+    }
+
+    public int getStreamingResponseWriteTimeoutMs() {
+        return streamingResponseWriteTimeoutMs;
+    }
+
+    public VKWebConfig streamingResponseWriteTimeoutMs(int streamingResponseWriteTimeoutMs) {
+        this.streamingResponseWriteTimeoutMs = Math.max(100, streamingResponseWriteTimeoutMs);
+        return this;
+    }
+
     public int getRateLimitCleanupIntervalMs() {
         return rateLimitCleanupIntervalMs;
     }
@@ -304,6 +484,34 @@ public final class VKWebConfig {
         return this;
     }
 
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public VKWebConfig http2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+        return this;
+    }
+
+    public int getHttp2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    public VKWebConfig http2MaxConcurrentStreams(int http2MaxConcurrentStreams) {
+        this.http2MaxConcurrentStreams = Math.max(1, http2MaxConcurrentStreams);
+        return this;
+    }
+
+    public int getHttp2InitialWindowSize() {
+        return http2InitialWindowSize;
+    }
+
+    /** 每个流（及连接）的接收窗口大小，不小于协议默认值 65535。 */
+    public VKWebConfig http2InitialWindowSize(int http2InitialWindowSize) {
+        this.http2InitialWindowSize = Math.max(65_535, http2InitialWindowSize);
+        return this;
+    }
+
     /** 获取 TLS 配置，null 表示明文 HTTP。 */
     public VKTlsConfig getTlsConfig() {
         return tlsConfig;
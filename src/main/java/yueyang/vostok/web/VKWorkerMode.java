@@ -0,0 +1,18 @@
+package yueyang.vostok.web;
+
+/**
+ * HTTP 请求派发策略，见 {@link VKWebConfig#workerMode(VKWorkerMode)}。
+ */
+public enum VKWorkerMode {
+    /** 固定大小线程池 + 有界队列（默认）。 */
+    POOL,
+    /** ForkJoinPool 工作窃取，适合 CPU 密集、耗时短的 handler，减少队列交接开销。 */
+    FORK_JOIN,
+    /**
+     * 在连接所属的 reactor 线程中直接执行 handler，无线程切换。
+     * 仅适用于完全非阻塞的 handler；流式请求/响应仍交给后备线程池执行。
+     */
+    INLINE,
+    /** 每个请求一个虚拟线程（JDK 21+），适合阻塞于 JDBC/外部 HTTP 的 handler；JVM 不支持时回退为 POOL。 */
+    VIRTUAL
+}
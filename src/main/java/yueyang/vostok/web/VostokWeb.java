@@ -9,16 +9,23 @@ import yueyang.vostok.web.middleware.VKCorsMiddleware;
 import yueyang.vostok.web.middleware.VKGzipConfig;
 import yueyang.vostok.web.middleware.VKGzipMiddleware;
 import yueyang.vostok.web.middleware.VKMiddleware;
+import yueyang.vostok.web.middleware.VKResponseCacheConfig;
+import yueyang.vostok.web.middleware.VKResponseCacheMiddleware;
 import yueyang.vostok.web.mvc.VKMvcConfig;
 import yueyang.vostok.web.mvc.VKMvcControllerRegistry;
 import yueyang.vostok.web.rate.VKRateLimitConfig;
 import yueyang.vostok.web.spi.VKWebRuntimeSupport;
 import yueyang.vostok.web.spi.VKWebServerEngine;
 import yueyang.vostok.web.spi.VKWebServerFactory;
+import yueyang.vostok.web.http.VKRequest;
 import yueyang.vostok.web.sse.VKSseHandler;
+import yueyang.vostok.web.sse.VKSseHub;
 import yueyang.vostok.web.websocket.VKWebSocketConfig;
 import yueyang.vostok.web.websocket.VKWebSocketHandler;
 
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
 /**
  * Vostok Web 公共 API 入口类。
  *
@@ -110,6 +117,26 @@ public class VostokWeb {
         return runtime.wsRegistry().broadcastRoomAndGroupBinary(path, room, group, data);
     }
 
+    // ---- SSE Topic ----
+
+    /** 向 SSE 主题发布仅含 data 的事件，返回投递的订阅者数。 */
+    public static int ssePublish(String topic, String data) {
+        ensureInitializedStatic();
+        return runtime.sseHub().publish(topic, data);
+    }
+
+    /** 向 SSE 主题发布带 event 名的事件，返回投递的订阅者数。 */
+    public static int ssePublish(String topic, String event, String data) {
+        ensureInitializedStatic();
+        return runtime.sseHub().publish(topic, event, data);
+    }
+
+    /** SSE 主题中心，可在自定义 SSE handler 中调用 subscribe 订阅主题。 */
+    public static VKSseHub sseHub() {
+        ensureInitializedStatic();
+        return runtime.sseHub();
+    }
+
     // ---- Instance API ----
 
     public VostokWeb get(String path, VKHandler handler) {
@@ -124,6 +151,16 @@ public class VostokWeb {
         return this;
     }
 
+    /**
+     * 注册流式上传路由：请求头到达即派发，handler 通过 req.bodyStream()/multipartReader() 边收边处理，
+     * 请求体大小受 streamingMaxBodyBytes 约束。
+     */
+    public VostokWeb postStream(String path, VKStreamingHandler handler) {
+        ensureInitialized();
+        runtime.addRoute("POST", path, handler);
+        return this;
+    }
+
     public VostokWeb route(String method, String path, VKHandler handler) {
         ensureInitialized();
         runtime.addRoute(method, path, handler);
@@ -224,6 +261,26 @@ public class VostokWeb {
         return this;
     }
 
+    /**
+     * 注册订阅固定主题的 SSE 端点；重连请求按 Last-Event-ID 补发错过的事件。
+     */
+    public VostokWeb sseTopic(String path, String topic) {
+        return sseTopic(path, req -> topic);
+    }
+
+    /**
+     * 注册 SSE 端点，主题由请求决定（如路径参数 /rooms/{id}/events）。
+     */
+    public VostokWeb sseTopic(String path, Function<VKRequest, String> topicResolver) {
+        ensureInitialized();
+        VKSseHub hub = runtime.sseHub();
+        runtime.addRoute("GET", path, (req, res) -> {
+            String topic = topicResolver.apply(req);
+            res.sseResponse(emitter -> hub.subscribe(topic, req, emitter));
+        });
+        return this;
+    }
+
     /** 注册 Gzip 压缩中间件（使用默认配置：minBytes=256，压缩 text/ 和 application/json）。 */
     public VostokWeb gzip() {
         return use(new VKGzipMiddleware());
@@ -234,6 +291,14 @@ public class VostokWeb {
         return use(new VKGzipMiddleware(config));
     }
 
+    /**
+     * 注册响应缓存中间件，缓存 config 中登记的 GET 路由的响应。
+     * 在 gzip() 之前注册时缓存压缩后的响应体。
+     */
+    public VostokWeb responseCache(VKResponseCacheConfig config) {
+        return use(new VKResponseCacheMiddleware(config));
+    }
+
     /** 注册 CORS 中间件（允许所有来源的默认配置）。 */
     public VostokWeb cors() {
         return use(new VKCorsMiddleware());
@@ -268,8 +333,24 @@ public class VostokWeb {
         return this;
     }
 
+    /** 注册内置 Prometheus 抓取端点 GET /actuator/prometheus。 */
+    public VostokWeb prometheus() {
+        return prometheus("/actuator/prometheus");
+    }
+
+    /** 注册自定义路径的 Prometheus 抓取端点。 */
+    public VostokWeb prometheus(String path) {
+        ensureInitialized();
+        runtime.addRoute("GET", path, (req, res) -> res.status(200)
+                .header("Content-Type", "text/plain; version=0.0.4; charset=utf-8")
+                .body(runtime.metrics().toPrometheusText().getBytes(StandardCharsets.UTF_8)));
+        return this;
+    }
+
     private void startInternal() {
         ensureInitialized();
+        // 启动前把路由编译为不可变前缀树，之后注册的路由会触发重新编译
+        runtime.router().freeze();
         engine.start();
     }
 
@@ -1,16 +1,42 @@
 package yueyang.vostok.web.asset;
 
 import yueyang.vostok.web.VKHandler;
+import yueyang.vostok.web.http.VKAcceptEncoding;
+import yueyang.vostok.web.http.VKFileRegion;
+import yueyang.vostok.web.http.VKHttpRange;
 import yueyang.vostok.web.http.VKRequest;
 import yueyang.vostok.web.http.VKResponse;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * 静态资源处理器。
+ *
+ * - 小文件（不超过 SMALL_FILE_LIMIT）按 etag 内存映射并缓存，热点资源直接从映射缓冲写出
+ * - 大文件以 res.file() 交给 reactor，明文连接下走 FileChannel.transferTo 零拷贝
+ * - 支持 Range / If-Range，单区间返回 206，多区间返回 multipart/byteranges
+ * - 元数据每 META_CHECK_INTERVAL_MS 才重新 stat 一次，期间的请求不触碰文件系统；(size, mtime) 变化后整体替换缓存项与映射
+ * - 存在不旧于原文件的 .br / .gz 预压缩文件时，按 Accept-Encoding q 值直接发送对应变体（Range 请求仍返回原文件）
+ *
+ * 限制：映射缓冲与磁盘文件共享页面，就地截断或改写的文件在下一次元数据检查之前仍从旧映射写出，
+ * 可能读到不完整内容（截断时访问映射区会触发 SIGBUS）。发布静态资源应写入临时文件后原子 rename 替换，
+ * rename 不影响已映射的旧文件，下一次检查即切换到新文件。
+ */
 public final class VKStaticHandler implements VKHandler {
     private static final long SMALL_FILE_LIMIT = 64L * 1024L;
+    private static final long META_CHECK_INTERVAL_MS = 1000L;
 
     private final Path baseDir;
     private final String urlPrefix;
@@ -43,57 +69,155 @@ public final class VKStaticHandler implements VKHandler {
             return;
         }
 
-        if (Files.isDirectory(target)) {
-            target = target.resolve("index.html");
-        }
-        if (!Files.exists(target) || !Files.isRegularFile(target)) {
-            res.status(404).text("Not Found");
-            return;
-        }
-
         try {
-            CacheEntry meta = loadMeta(target);
+            CacheEntry meta = cache.get(target);
+            long now = System.currentTimeMillis();
+            if (meta == null || now - meta.checkedAtMs >= META_CHECK_INTERVAL_MS) {
+                Path file = Files.isDirectory(target) ? target.resolve("index.html") : target;
+                if (!Files.isRegularFile(file)) {
+                    cache.remove(target);
+                    res.status(404).text("Not Found");
+                    return;
+                }
+                meta = loadMeta(target, file, now);
+            }
+
             res.header("ETag", meta.etag);
+            res.header("Accept-Ranges", "bytes");
             if (meta.contentType != null && !meta.contentType.isEmpty()) {
                 res.header("Content-Type", meta.contentType);
             }
+            if (meta.br != null || meta.gzip != null) {
+                res.header("Vary", "Accept-Encoding");
+            }
 
-            String inm = req.header("if-none-match");
-            if (inm != null && inm.equals(meta.etag)) {
+            // 弱比较：压缩变体下发的是 W/ 形式的 ETag
+            if (VKAcceptEncoding.etagMatches(req.header("if-none-match"), meta.etag)) {
                 res.status(304).body(new byte[0]);
                 return;
             }
 
+            String range = req.header("range");
+            if (range != null && ifRangeMatches(req.header("if-range"), meta)) {
+                List<long[]> ranges = VKHttpRange.parse(range, meta.size);
+                if (ranges != null) {
+                    if (ranges.isEmpty()) {
+                        res.status(416)
+                                .header("Content-Range", "bytes */" + meta.size)
+                                .body(new byte[0]);
+                    } else if (ranges.size() == 1) {
+                        writeSingleRange(res, meta, ranges.get(0));
+                    } else {
+                        writeMultiRange(res, meta, ranges);
+                    }
+                    return;
+                }
+            }
+
+            Variant variant = selectVariant(req.header("accept-encoding"), meta);
+            if (variant != null) {
+                res.header("Content-Encoding", variant.coding)
+                        .header("ETag", VKAcceptEncoding.weakEtag(meta.etag));
+                if (variant.size <= SMALL_FILE_LIMIT) {
+                    res.body(variant.mapped());
+                } else {
+                    res.file(variant.file, variant.size);
+                }
+                return;
+            }
+
             if (meta.size <= SMALL_FILE_LIMIT) {
-                res.body(Files.readAllBytes(target));
+                res.body(meta.mapped());
             } else {
-                res.file(target, meta.size);
+                res.file(meta.file, meta.size);
             }
         } catch (Exception e) {
             res.status(500).text("Internal Server Error");
         }
     }
 
-    private CacheEntry loadMeta(Path target) throws Exception {
-        FileTime mtime = Files.getLastModifiedTime(target);
-        long size = Files.size(target);
+    private Variant selectVariant(String acceptEncoding, CacheEntry meta) {
+        if (meta.br == null && meta.gzip == null) {
+            return null;
+        }
+        String coding = VKAcceptEncoding.select(acceptEncoding,
+                meta.br == null ? null : "br", meta.gzip == null ? null : "gzip");
+        if (coding == null) {
+            return null;
+        }
+        return "br".equals(coding) ? meta.br : meta.gzip;
+    }
+
+    /** If-Range 缺省或与当前 etag 一致时才按 Range 响应，否则返回完整内容。 */
+    private boolean ifRangeMatches(String ifRange, CacheEntry meta) {
+        return ifRange == null || ifRange.trim().equals(meta.etag);
+    }
+
+    private void writeSingleRange(VKResponse res, CacheEntry meta, long[] range) throws IOException {
+        long len = range[1] - range[0] + 1;
+        res.status(206).header("Content-Range", VKHttpRange.contentRange(range[0], range[1], meta.size));
+        if (meta.size <= SMALL_FILE_LIMIT) {
+            res.body(meta.mapped().slice((int) range[0], (int) len));
+        } else {
+            res.file(meta.file, range[0], len);
+        }
+    }
+
+    private void writeMultiRange(VKResponse res, CacheEntry meta, List<long[]> ranges) {
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong())
+                + Long.toHexString(System.nanoTime());
+        String partType = meta.contentType == null || meta.contentType.isEmpty()
+                ? "application/octet-stream" : meta.contentType;
+        List<VKFileRegion> regions = new ArrayList<>(ranges.size() + 1);
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] r = ranges.get(i);
+            String partHead = (i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + "Content-Type: " + partType + "\r\n"
+                    + "Content-Range: " + VKHttpRange.contentRange(r[0], r[1], meta.size) + "\r\n\r\n";
+            regions.add(new VKFileRegion(partHead.getBytes(StandardCharsets.US_ASCII), r[0], r[1] - r[0] + 1));
+        }
+        regions.add(new VKFileRegion(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII), 0, 0));
+        res.status(206)
+                .header("Content-Type", "multipart/byteranges; boundary=" + boundary)
+                .fileRegions(meta.file, regions);
+    }
+
+    private CacheEntry loadMeta(Path target, Path file, long now) throws Exception {
+        FileTime mtime = Files.getLastModifiedTime(file);
+        long size = Files.size(file);
 
         CacheEntry cached = cache.get(target);
-        if (cached != null && cached.mtimeMs == mtime.toMillis() && cached.size == size) {
+        if (cached != null && cached.file.equals(file)
+                && cached.mtimeMs == mtime.toMillis() && cached.size == size) {
+            // 预压缩文件可能在原文件之后生成或更新，随元数据一起复查
+            cached.br = Variant.refresh(cached.br, sibling(file, ".br", "br", cached.mtimeMs));
+            cached.gzip = Variant.refresh(cached.gzip, sibling(file, ".gz", "gzip", cached.mtimeMs));
+            cached.checkedAtMs = now;
             return cached;
         }
 
-        String ct = cached == null ? detectContentType(target) : cached.contentType;
-        if (ct == null || ct.isEmpty()) {
-            ct = detectContentType(target);
+        String ct = cached == null ? detectContentType(file) : cached.contentType;
+        if (ct == null || ct.isEmpty() || (cached != null && !cached.file.equals(file))) {
+            ct = detectContentType(file);
         }
         String etag = buildEtag(mtime.toMillis(), size);
 
-        CacheEntry fresh = new CacheEntry(mtime.toMillis(), size, ct, etag);
+        CacheEntry fresh = new CacheEntry(file, mtime.toMillis(), size, ct, etag, now,
+                sibling(file, ".br", "br", mtime.toMillis()),
+                sibling(file, ".gz", "gzip", mtime.toMillis()));
         cache.put(target, fresh);
         return fresh;
     }
 
+    /** 查找预压缩文件；比原文件旧的视为过期，不使用。 */
+    private Variant sibling(Path file, String suffix, String coding, long mtimeMs) throws IOException {
+        Path p = file.resolveSibling(file.getFileName() + suffix);
+        if (!Files.isRegularFile(p) || Files.getLastModifiedTime(p).toMillis() < mtimeMs) {
+            return null;
+        }
+        return new Variant(p, Files.size(p), Files.getLastModifiedTime(p).toMillis(), coding);
+    }
+
     private String buildEtag(long mtimeMs, long size) {
         return "\"" + Long.toHexString(mtimeMs) + '-' + Long.toHexString(size) + "\"";
     }
@@ -118,16 +242,86 @@ public final class VKStaticHandler implements VKHandler {
     }
 
     private static final class CacheEntry {
+        final Path file;
         final long mtimeMs;
         final long size;
         final String contentType;
         final String etag;
+        volatile long checkedAtMs;
+        /** 预压缩变体，不存在时为 null。 */
+        volatile Variant br;
+        volatile Variant gzip;
+        /** 小文件的只读内存映射，随 etag（mtime + size）变化整体替换，首次访问时建立。 */
+        private volatile MappedByteBuffer mapped;
 
-        CacheEntry(long mtimeMs, long size, String contentType, String etag) {
+        CacheEntry(Path file, long mtimeMs, long size, String contentType, String etag, long checkedAtMs,
+                   Variant br, Variant gzip) {
+            this.file = file;
             this.mtimeMs = mtimeMs;
             this.size = size;
             this.contentType = contentType;
             this.etag = etag;
+            this.checkedAtMs = checkedAtMs;
+            this.br = br;
+            this.gzip = gzip;
+        }
+
+        ByteBuffer mapped() throws IOException {
+            MappedByteBuffer m = mapped;
+            if (m == null) {
+                synchronized (this) {
+                    m = mapped;
+                    if (m == null) {
+                        m = mapReadOnly(file, size);
+                        mapped = m;
+                    }
+                }
+            }
+            return m.duplicate();
+        }
+    }
+
+    /** 磁盘上的预压缩文件（file.br / file.gz），随所属 CacheEntry 一起按 etag 替换。 */
+    private static final class Variant {
+        final Path file;
+        final long size;
+        final long mtimeMs;
+        final String coding;
+        private volatile MappedByteBuffer mapped;
+
+        Variant(Path file, long size, long mtimeMs, String coding) {
+            this.file = file;
+            this.size = size;
+            this.mtimeMs = mtimeMs;
+            this.coding = coding;
+        }
+
+        /** 文件未变化时沿用旧实例，保留已建立的内存映射。 */
+        static Variant refresh(Variant old, Variant fresh) {
+            if (old != null && fresh != null && old.size == fresh.size && old.mtimeMs == fresh.mtimeMs) {
+                return old;
+            }
+            return fresh;
+        }
+
+        ByteBuffer mapped() throws IOException {
+            MappedByteBuffer m = mapped;
+            if (m == null) {
+                synchronized (this) {
+                    m = mapped;
+                    if (m == null) {
+                        m = mapReadOnly(file, size);
+                        mapped = m;
+                    }
+                }
+            }
+            return m.duplicate();
+        }
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path file, long size) throws IOException {
+        try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+            return fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
         }
     }
 }
@@ -3,10 +3,12 @@ package yueyang.vostok.web.core;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 final class VKAccessLogger {
     private final ArrayBlockingQueue<String> queue;
     private final AtomicLong dropped = new AtomicLong();
+    private final LongAdder droppedTotal = new LongAdder();
     private volatile boolean running;
     private Thread worker;
 
@@ -42,9 +44,14 @@ final class VKAccessLogger {
         }
         if (!queue.offer(line)) {
             dropped.incrementAndGet();
+            droppedTotal.increment();
         }
     }
 
+    long droppedTotal() {
+        return droppedTotal.sum();
+    }
+
     private void runLoop() {
         while (running || !queue.isEmpty()) {
             try {
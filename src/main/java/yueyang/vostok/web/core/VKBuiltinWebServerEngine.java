@@ -1,7 +1,10 @@
 package yueyang.vostok.web.core;
 
+import yueyang.vostok.web.VKReactorAssignment;
 import yueyang.vostok.web.VKWebConfig;
 import yueyang.vostok.web.http.VKHttpParser;
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.spi.VKWebDispatchResult;
 import yueyang.vostok.web.spi.VKWebRuntimeSupport;
 import yueyang.vostok.web.spi.VKWebServerEngine;
 import yueyang.vostok.web.util.VKBufferPool;
@@ -9,9 +12,12 @@ import yueyang.vostok.web.util.VKBufferPool;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -27,19 +33,61 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
 
     private volatile boolean started;
     private volatile boolean accepting;
-    private ServerSocketChannel serverChannel;
-    private Thread acceptorThread;
-    private VKReactor[] reactors;
+    /** 监听 socket；启用 SO_REUSEPORT 时每个 acceptor 一个，绑定同一端口。 */
+    private ServerSocketChannel[] serverChannels;
+    private Thread[] acceptorThreads;
+    private volatile VKReactor[] reactors;
     private VKWorkerPool workers;
     private VKBufferPool bufferPool;
     private VKAccessLogger accessLogger;
+    private VKStructuredAccessLogger structuredAccessLogger;
     private int boundPort;
-    private int rr;
 
     public VKBuiltinWebServerEngine(VKWebConfig config, VKWebRuntimeSupport runtime) {
         this.config = config == null ? new VKWebConfig() : config;
         this.runtime = runtime == null ? new VKWebRuntimeSupport(this.config) : runtime;
         this.runtime.metrics().setActiveConnectionsSupplier(activeConnections::get);
+        this.runtime.metrics().setTlsBufferPoolSuppliers(this::tlsBufferPoolHits, this::tlsBufferPoolMisses);
+        this.runtime.metrics().setReactorStatsSupplier(this::reactorStats);
+    }
+
+    private List<VKMetrics.ReactorStats> reactorStats() {
+        VKReactor[] rs = reactors;
+        List<VKMetrics.ReactorStats> out = new ArrayList<>();
+        if (rs != null) {
+            for (VKReactor r : rs) {
+                if (r != null) {
+                    out.add(new VKMetrics.ReactorStats(r.index(), r.connectionCount(), r.acceptedCount()));
+                }
+            }
+        }
+        return out;
+    }
+
+    private long tlsBufferPoolHits() {
+        VKReactor[] rs = reactors;
+        long n = 0;
+        if (rs != null) {
+            for (VKReactor r : rs) {
+                if (r != null) {
+                    n += r.tlsBufferPoolHits();
+                }
+            }
+        }
+        return n;
+    }
+
+    private long tlsBufferPoolMisses() {
+        VKReactor[] rs = reactors;
+        long n = 0;
+        if (rs != null) {
+            for (VKReactor r : rs) {
+                if (r != null) {
+                    n += r.tlsBufferPoolMisses();
+                }
+            }
+        }
+        return n;
     }
 
     public VKWebRuntimeSupport runtime() {
@@ -52,17 +100,28 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
             return;
         }
         try {
-            VKWebLogSupport.ensureLoggersReady();
-            serverChannel = ServerSocketChannel.open();
-            serverChannel.configureBlocking(true);
-            serverChannel.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
-            boundPort = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+            VKWebLogSupport.ensureLoggersReady(config.getAccessLogSink(),
+                    config.isAccessLogEnabled() && config.isAccessLogStructured());
+            serverChannels = openServerChannels();
+            boundPort = ((InetSocketAddress) serverChannels[0].getLocalAddress()).getPort();
 
-            workers = new VKWorkerPool(config.getWorkerThreads(), config.getWorkerQueueSize());
+            workers = new VKWorkerPool(config.getWorkerMode(), config.getWorkerThreads(),
+                    config.getWorkerQueueSize());
+            VKWorkerPool pool = workers;
+            runtime.metrics().setWorkerQueueSuppliers(pool::queueDepth, pool::queuedTasks, pool::queueWaitNs);
+            runtime.metrics().setWorkerPoolInfo(pool.mode().name(), pool::activeCount);
             bufferPool = new VKBufferPool(config.getReadBufferSize(), 1024);
-            if (config.isAccessLogEnabled()) {
-                accessLogger = new VKAccessLogger(config.getAccessLogQueueSize());
-                accessLogger.start();
+            if (config.isAccessLogEnabled() && config.isAccessLogStructured()) {
+                VKStructuredAccessLogger structured = new VKStructuredAccessLogger(config.getAccessLogQueueSize(),
+                        config.getAccessLogBatchSize(), config.getAccessLogFormat());
+                structured.start();
+                structuredAccessLogger = structured;
+                runtime.metrics().setAccessLogDroppedSupplier(structured::dropped);
+            } else if (config.isAccessLogEnabled()) {
+                VKAccessLogger logger = new VKAccessLogger(config.getAccessLogQueueSize());
+                logger.start();
+                accessLogger = logger;
+                runtime.metrics().setAccessLogDroppedSupplier(logger::droppedTotal);
             }
 
             SSLContext sslContext = buildSslContext();
@@ -70,7 +129,7 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
             reactors = new VKReactor[ioThreads];
             for (int i = 0; i < ioThreads; i++) {
                 Selector selector = Selector.open();
-                reactors[i] = new VKReactor(this, runtime, selector, workers,
+                reactors[i] = new VKReactor(i, this, runtime, selector, workers,
                         new VKHttpParser(config.getMaxHeaderBytes(), config.getMaxBodyBytes()),
                         bufferPool, config, sslContext);
                 Thread thread = new Thread(reactors[i], "vostok-web-reactor-" + i);
@@ -78,8 +137,16 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
             }
 
             accepting = true;
-            acceptorThread = new Thread(this::acceptLoop, "vostok-web-acceptor");
-            acceptorThread.start();
+            int acceptors = serverChannels.length;
+            runtime.metrics().setAcceptorCount(acceptors);
+            acceptorThreads = new Thread[acceptors];
+            for (int i = 0; i < acceptors; i++) {
+                ServerSocketChannel channel = serverChannels[i];
+                VKReactor[] group = reactorGroup(i, acceptors);
+                String name = acceptors == 1 ? "vostok-web-acceptor" : "vostok-web-acceptor-" + i;
+                acceptorThreads[i] = new Thread(() -> acceptLoop(channel, group), name);
+                acceptorThreads[i].start();
+            }
             started = true;
         } catch (IOException e) {
             cleanup();
@@ -94,8 +161,12 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
         }
         started = false;
         accepting = false;
-        if (acceptorThread != null) {
-            acceptorThread.interrupt();
+        if (acceptorThreads != null) {
+            for (Thread t : acceptorThreads) {
+                if (t != null) {
+                    t.interrupt();
+                }
+            }
         }
         if (reactors != null) {
             for (VKReactor reactor : reactors) {
@@ -133,10 +204,19 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
         return config.isAccessLogEnabled();
     }
 
-    void logAccess(String line) {
+    void logAccess(VKRequest req, int status, long bytes, VKWebDispatchResult result) {
+        VKStructuredAccessLogger structured = structuredAccessLogger;
+        if (structured != null) {
+            structured.record(System.currentTimeMillis(), req.method(), req.path(), result.route(), status, bytes,
+                    result.costNs(), req.remoteAddress(), req.traceId());
+            return;
+        }
         VKAccessLogger logger = accessLogger;
         if (logger != null) {
-            logger.offer(line);
+            String ip = req.remoteAddress() == null ? "-" : req.remoteAddress().getAddress().getHostAddress();
+            String traceId = req.traceId() == null ? "-" : req.traceId();
+            logger.offer(ip + " \"" + req.method() + " " + req.path() + "\" " + status + " " + bytes + " "
+                    + result.costMs() + "ms trace=" + traceId);
         }
     }
 
@@ -159,7 +239,87 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
         }
     }
 
-    private void acceptLoop() {
+    /**
+     * 打开监听 socket。acceptorThreads 大于 1 且平台支持 SO_REUSEPORT 时打开多个绑定同一端口的 socket，
+     * 由内核按四元组哈希分摊新连接，消除单 acceptor 在连接风暴下的瓶颈；不支持时退化为单个 socket。
+     */
+    private ServerSocketChannel[] openServerChannels() throws IOException {
+        int wanted = Math.max(1, config.getAcceptorThreads());
+        ServerSocketChannel first = ServerSocketChannel.open();
+        boolean reusePort = wanted > 1 && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        List<ServerSocketChannel> channels = new ArrayList<>();
+        try {
+            if (reusePort) {
+                first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            first.configureBlocking(true);
+            first.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+            channels.add(first);
+            // 端口为 0 时后续 socket 必须绑定到首个 socket 实际分配的端口
+            int port = ((InetSocketAddress) first.getLocalAddress()).getPort();
+            for (int i = 1; reusePort && i < wanted; i++) {
+                ServerSocketChannel ch = ServerSocketChannel.open();
+                channels.add(ch);
+                ch.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                ch.configureBlocking(true);
+                ch.bind(new InetSocketAddress(port), config.getBacklog());
+            }
+        } catch (IOException e) {
+            for (ServerSocketChannel ch : channels) {
+                try {
+                    ch.close();
+                } catch (IOException ignore) {
+                }
+            }
+            first.close();
+            throw e;
+        }
+        return channels.toArray(new ServerSocketChannel[0]);
+    }
+
+    /**
+     * 第 i 个 acceptor 负责的 reactor 组：reactor 按编号对 acceptor 数取模分组，
+     * 使同一连接的 accept 与后续 I/O 固定在一小组线程上；reactor 少于 acceptor 时多个 acceptor 共享。
+     */
+    private VKReactor[] reactorGroup(int acceptor, int acceptors) {
+        VKReactor[] all = reactors;
+        if (acceptors == 1) {
+            return all;
+        }
+        if (all.length < acceptors) {
+            return new VKReactor[]{all[acceptor % all.length]};
+        }
+        List<VKReactor> group = new ArrayList<>();
+        for (int i = acceptor; i < all.length; i += acceptors) {
+            group.add(all[i]);
+        }
+        return group.toArray(new VKReactor[0]);
+    }
+
+    private VKReactor pickReactor(VKReactor[] group, int seq) {
+        if (group.length == 1) {
+            return group[0];
+        }
+        if (config.getReactorAssignment() != VKReactorAssignment.LEAST_CONNECTIONS) {
+            return group[Math.floorMod(seq, group.length)];
+        }
+        // 从轮转位置开始扫描，连接数相同时避免总是落到同一个 reactor
+        int start = Math.floorMod(seq, group.length);
+        VKReactor best = group[start];
+        int bestCount = best.connectionCount();
+        for (int k = 1; k < group.length && bestCount > 0; k++) {
+            VKReactor r = group[(start + k) % group.length];
+            int c = r.connectionCount();
+            if (c < bestCount) {
+                best = r;
+                bestCount = c;
+            }
+        }
+        return best;
+    }
+
+    private void acceptLoop(ServerSocketChannel serverChannel, VKReactor[] group) {
+        int seq = 0;
         while (accepting) {
             try {
                 SocketChannel channel = serverChannel.accept();
@@ -174,8 +334,7 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
                     continue;
                 }
                 channel.configureBlocking(false);
-                VKReactor reactor = reactors[rr++ % reactors.length];
-                reactor.register(channel);
+                pickReactor(group, seq++).register(channel);
             } catch (IOException e) {
                 if (!accepting) {
                     break;
@@ -185,11 +344,14 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
     }
 
     private void cleanup() {
-        try {
-            if (serverChannel != null) {
-                serverChannel.close();
+        if (serverChannels != null) {
+            for (ServerSocketChannel ch : serverChannels) {
+                try {
+                    ch.close();
+                } catch (IOException ignore) {
+                }
             }
-        } catch (IOException ignore) {
+            serverChannels = null;
         }
         if (workers != null) {
             workers.shutdown();
@@ -199,5 +361,9 @@ public final class VKBuiltinWebServerEngine implements VKWebServerEngine {
             accessLogger.stop();
             accessLogger = null;
         }
+        if (structuredAccessLogger != null) {
+            structuredAccessLogger.stop();
+            structuredAccessLogger = null;
+        }
     }
 }
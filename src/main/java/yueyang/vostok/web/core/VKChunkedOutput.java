@@ -0,0 +1,188 @@
+package yueyang.vostok.web.core;
+
+import yueyang.vostok.web.http.VKResponseStream;
+import yueyang.vostok.web.util.VKBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP/1.1 流式响应体的连接侧实现。
+ *
+ * 写出器（worker 线程）把数据写入从缓冲池借出的 ByteBuffer，缓冲前部预留分块头空间、尾部预留 CRLF，
+ * 写满后原地补齐 "size\r\n...\r\n" 帧并作为一个 VKOutbound 投递给连接，因此每个分块只有一次数据拷贝。
+ * reactor 写完分块后调用 {@link #onWritten(ByteBuffer, int)} 归还缓冲并扣减待发送字节数；
+ * 待发送字节数达到高水位时写出器阻塞，排空到一半以下再继续。
+ */
+final class VKChunkedOutput extends VKResponseStream {
+    /** 分块头最长为 8 位十六进制长度 + CRLF。 */
+    private static final int HEAD_RESERVE = 10;
+    private static final int TAIL_RESERVE = 2;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final VKReactor.VKConn conn;
+    private final VKBufferPool pool;
+    private final boolean chunked;
+    private final long highWaterMark;
+    private final long lowWaterMark;
+    private final long writeTimeoutMs;
+
+    private ByteBuffer current;
+    private long written;
+    private boolean closed;
+    /** 已投递但尚未写入 socket 的字节数，由 reactor 线程扣减。 */
+    private long pending;
+    private IOException failure;
+
+    VKChunkedOutput(VKReactor.VKConn conn, VKBufferPool pool, boolean chunked, long highWaterMark,
+                    long writeTimeoutMs) {
+        this.conn = conn;
+        this.pool = pool;
+        this.chunked = chunked;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = highWaterMark / 2;
+        this.writeTimeoutMs = writeTimeoutMs;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (current == null) {
+                current = pool.acquire();
+                current.position(chunked ? HEAD_RESERVE : 0);
+            }
+            int room = current.capacity() - (chunked ? TAIL_RESERVE : 0) - current.position();
+            int n = Math.min(room, len);
+            current.put(b, off, n);
+            off += n;
+            len -= n;
+            written += n;
+            if (n == room) {
+                sendCurrent();
+            }
+        }
+    }
+
+    @Override
+    public long bytesWritten() {
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /** 把已缓冲的数据作为一个分块立即投递。 */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (current != null) {
+            sendCurrent();
+        }
+    }
+
+    /** 投递剩余数据与结束块；不关闭连接，连接是否复用由调用方决定。 */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        if (chunked) {
+            conn.enqueueResponse(VKReactor.VKOutbound.fromHeadBytes(LAST_CHUNK), false);
+        }
+    }
+
+    /** 写出器异常终止：归还未投递的缓冲，后续写入失败。 */
+    void abort() {
+        closed = true;
+        if (current != null) {
+            pool.release(current);
+            current = null;
+        }
+    }
+
+    /** 连接关闭时由 reactor 调用，唤醒阻塞中的写出器。 */
+    synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    /** 分块已写入 socket（或随连接关闭被丢弃）：归还缓冲并在低于低水位时唤醒写出器。 */
+    void onWritten(ByteBuffer pooled, int n) {
+        pool.release(pooled);
+        synchronized (this) {
+            pending -= n;
+            if (pending <= lowWaterMark) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void sendCurrent() throws IOException {
+        ByteBuffer buf = current;
+        current = null;
+        int end = buf.position();
+        int start = 0;
+        if (chunked) {
+            int dataLen = end - HEAD_RESERVE;
+            byte[] head = (Integer.toHexString(dataLen) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            start = HEAD_RESERVE - head.length;
+            buf.put(start, head);
+            buf.put(CRLF);
+            end = buf.position();
+        }
+        try {
+            awaitCapacity();
+        } catch (IOException e) {
+            pool.release(buf);
+            throw e;
+        }
+        // 以 [start, end) 切片投递，数组偏移保持为 0 以便原缓冲归还池中复用
+        buf.limit(end).position(start);
+        ByteBuffer frame = buf.slice();
+        synchronized (this) {
+            pending += frame.remaining();
+        }
+        conn.enqueueChunk(frame, buf, this);
+    }
+
+    private synchronized void awaitCapacity() throws IOException {
+        long deadline = System.currentTimeMillis() + writeTimeoutMs;
+        while (pending >= highWaterMark && failure == null) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                throw new IOException("Response stream write timed out");
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing response", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Response stream closed");
+        }
+        IOException f;
+        synchronized (this) {
+            f = failure;
+        }
+        if (f != null) {
+            throw f;
+        }
+    }
+}
@@ -1,67 +1,127 @@
 package yueyang.vostok.web.core;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+/**
+ * 单线程哈希时间轮，只在所属 reactor 线程内访问。
+ *
+ * 每个目标持有一个常驻的 {@link Timeout} 节点，节点以侵入式双向链表挂在槽位上：
+ * - 推迟截止时间（连接有活动时最常见）只改写字段，不移动节点，到期扫描时再按新截止时间重新挂入；
+ * - 提前截止时间或首次调度时摘下并重新挂入，均为 O(1)，不分配对象、不留下失效条目。
+ * 每个 tick 只扫描对应槽位上的节点，空闲连接数量不影响 tick 的开销。
+ */
 final class VKHashedWheelTimer<T> {
     private final long tickMs;
-    private final List<ArrayDeque<TimerEntry<T>>> wheel;
-    private final AtomicLong tokenSeq = new AtomicLong(1);
-    private long baseTimeMs;
+    private final int mask;
+    /** 槽位链表头；最后一个位置是正在处理的槽位（扫描期间摘出的节点）。 */
+    private final Timeout<T>[] heads;
+    private final int processing;
+    private final long baseTimeMs;
+    /** 下一个待处理的 tick。 */
     private long currentTick;
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     VKHashedWheelTimer(long tickMs, int slots, long nowMs) {
-        this.tickMs = Math.max(100, tickMs);
+        this.tickMs = Math.max(10, tickMs);
         int size = normalizeSlots(Math.max(16, slots));
-        this.wheel = new ArrayList<>(size);
-        for (int i = 0; i < size; i++) {
-            wheel.add(new ArrayDeque<>());
-        }
+        this.mask = size - 1;
+        this.heads = (Timeout<T>[]) new Timeout[size + 1];
+        this.processing = size;
         this.baseTimeMs = nowMs;
         this.currentTick = 0;
     }
 
-    long schedule(T target, long deadlineMs) {
-        long token = tokenSeq.getAndIncrement();
-        add(new TimerEntry<>(target, token, deadlineMs));
-        return token;
+    /**
+     * 设置节点的截止时间。已挂入且新截止时间不早于原值时只更新字段（惰性推迟）。
+     */
+    void schedule(Timeout<T> timeout, long deadlineMs) {
+        if (timeout.slot >= 0) {
+            if (deadlineMs >= timeout.deadlineMs) {
+                timeout.deadlineMs = deadlineMs;
+                return;
+            }
+            unlink(timeout);
+        }
+        timeout.deadlineMs = deadlineMs;
+        link(timeout);
     }
 
-    void pollExpired(long nowMs, Consumer<TimerEntry<T>> expiredConsumer) {
-        long endTick = tickOf(nowMs);
-        while (currentTick <= endTick) {
-            int slot = (int) (currentTick & (wheel.size() - 1));
-            ArrayDeque<TimerEntry<T>> bucket = wheel.get(slot);
-            int round = bucket.size();
-            for (int i = 0; i < round; i++) {
-                TimerEntry<T> entry = bucket.pollFirst();
-                if (entry == null) {
-                    break;
-                }
-                if (entry.deadlineMs <= nowMs) {
-                    expiredConsumer.accept(entry);
+    /** 取消节点；未挂入时无操作。 */
+    void cancel(Timeout<T> timeout) {
+        if (timeout.slot >= 0) {
+            unlink(timeout);
+        }
+    }
+
+    /**
+     * 推进到 nowMs，对截止时间已到的节点调用 expired（调用前节点已摘下，回调内可重新调度）；
+     * 因惰性推迟而尚未到期的节点按新截止时间重新挂入。
+     */
+    void pollExpired(long nowMs, Consumer<T> expired) {
+        // 只处理已完整经过的 tick，其中节点的截止时间都不晚于 nowMs
+        long endTick = nowMs <= baseTimeMs ? 0 : (nowMs - baseTimeMs) / tickMs;
+        if (endTick < currentTick) {
+            return;
+        }
+        // 长时间未推进（如系统时间跳变）时每个槽位最多扫描一遍
+        long startTick = Math.max(currentTick, endTick - mask);
+        currentTick = endTick + 1;
+        for (long tick = startTick; tick <= endTick; tick++) {
+            int slot = (int) (tick & mask);
+            Timeout<T> head = heads[slot];
+            if (head == null) {
+                continue;
+            }
+            heads[slot] = null;
+            for (Timeout<T> t = head; t != null; t = t.next) {
+                t.slot = processing;
+            }
+            heads[processing] = head;
+            Timeout<T> t;
+            while ((t = heads[processing]) != null) {
+                unlink(t);
+                if (t.deadlineMs <= nowMs) {
+                    expired.accept(t.target);
                 } else {
-                    add(entry);
+                    link(t);
                 }
             }
-            currentTick++;
         }
     }
 
-    private void add(TimerEntry<T> entry) {
-        long tick = tickOf(entry.deadlineMs);
-        int slot = (int) (tick & (wheel.size() - 1));
-        wheel.get(slot).addLast(entry);
+    private void link(Timeout<T> t) {
+        long tick = Math.max(tickOf(t.deadlineMs), currentTick);
+        int slot = (int) (tick & mask);
+        Timeout<T> head = heads[slot];
+        t.prev = null;
+        t.next = head;
+        if (head != null) {
+            head.prev = t;
+        }
+        heads[slot] = t;
+        t.slot = slot;
+    }
+
+    private void unlink(Timeout<T> t) {
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            heads[t.slot] = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.slot = -1;
     }
 
     private long tickOf(long timeMs) {
         if (timeMs <= baseTimeMs) {
             return 0;
         }
-        return (timeMs - baseTimeMs) / tickMs;
+        // 向上取整：节点只在截止时间所在 tick 结束后被扫描，不会提前触发
+        return (timeMs - baseTimeMs + tickMs - 1) / tickMs;
     }
 
     private int normalizeSlots(int s) {
@@ -72,15 +132,17 @@ final class VKHashedWheelTimer<T> {
         return n;
     }
 
-    static final class TimerEntry<T> {
+    /** 目标常驻的时间轮节点。 */
+    static final class Timeout<T> {
         final T target;
-        final long token;
-        final long deadlineMs;
+        private long deadlineMs;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        /** 所在槽位，-1 表示未挂入。 */
+        private int slot = -1;
 
-        TimerEntry(T target, long token, long deadlineMs) {
+        Timeout(T target) {
             this.target = target;
-            this.token = token;
-            this.deadlineMs = deadlineMs;
         }
     }
 }
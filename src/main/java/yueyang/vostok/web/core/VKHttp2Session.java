@@ -0,0 +1,993 @@
+package yueyang.vostok.web.core;
+
+import yueyang.vostok.web.VKWebConfig;
+import yueyang.vostok.web.http.VKFileRegion;
+import yueyang.vostok.web.http.VKMultipartParseException;
+import yueyang.vostok.web.http.VKMultipartStreamDecoder;
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.http.VKResponse;
+import yueyang.vostok.web.http2.VKHpackDecoder;
+import yueyang.vostok.web.http2.VKHpackEncoder;
+import yueyang.vostok.web.http2.VKHttp2Exception;
+import yueyang.vostok.web.http2.VKHttp2Frames;
+import yueyang.vostok.web.spi.VKWebDispatchResult;
+import yueyang.vostok.web.spi.VKWebHttpDispatcher;
+import yueyang.vostok.web.spi.VKWebRuntimeSupport;
+import yueyang.vostok.web.sse.VKSseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 单条 HTTP/2 连接的会话状态机（RFC 9113）。
+ *
+ * 由 VKConn 在识别到连接前言（明文 prior-knowledge 或 TLS ALPN 协商为 h2）后创建，
+ * 所有方法只在所属 reactor 线程内执行；worker 线程处理完请求后通过 reactor.execute() 投递回来。
+ *
+ * 职责：
+ * - 帧解析、SETTINGS/PING/GOAWAY/WINDOW_UPDATE 等连接级控制
+ * - HPACK 解码请求头、编码响应头
+ * - 每个流独立派发到 VKWebHttpDispatcher，一条连接可并发承载多个请求
+ * - 双向流量控制：接收侧按半窗口补发 WINDOW_UPDATE，发送侧按连接/流窗口轮转输出 DATA
+ *
+ * 输出背压：DATA 帧只在连接写队列空闲时生成，每轮最多 OUTPUT_BUDGET 字节，
+ * 写队列排空后由 VKConn 回调 produceMore() 继续生产，避免大文件一次性读入内存。
+ */
+final class VKHttp2Session {
+    private static final int OUTPUT_BUDGET = 256 * 1024;
+    private static final int HEADER_TABLE_SIZE = 4096;
+    private static final Set<String> CONNECTION_HEADERS =
+            Set.of("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+
+    private final VKReactor.VKConn conn;
+    private final VKReactor reactor;
+    private final VKWebRuntimeSupport runtime;
+    private final VKWorkerPool workers;
+    private final VKWebConfig config;
+    private final VKHpackDecoder decoder = new VKHpackDecoder(HEADER_TABLE_SIZE);
+    private final Map<Integer, Stream> streams = new HashMap<>();
+    private final ArrayDeque<Stream> sendQueue = new ArrayDeque<>();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    private final byte[] fileScratch = new byte[VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE];
+
+    private final int localInitialWindow;
+    private final int maxConcurrentStreams;
+
+    private int peerInitialWindow = VKHttp2Frames.DEFAULT_WINDOW_SIZE;
+    private int peerMaxFrameSize = VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE;
+    private long connSendWindow = VKHttp2Frames.DEFAULT_WINDOW_SIZE;
+    private long connRecvWindow;
+
+    private boolean settingsReceived;
+    private int lastStreamId;
+    private boolean goAwaySent;
+    private boolean goAwayReceived;
+
+    /** 正在等待 CONTINUATION 的流 ID，0 表示当前不在头部块中间。 */
+    private int continuationStreamId;
+    private int continuationFlags;
+    private ByteArrayOutputStream continuationBlock;
+
+    VKHttp2Session(VKReactor.VKConn conn, VKReactor reactor, VKWebRuntimeSupport runtime,
+                   VKWorkerPool workers, VKWebConfig config) {
+        this.conn = conn;
+        this.reactor = reactor;
+        this.runtime = runtime;
+        this.workers = workers;
+        this.config = config;
+        this.localInitialWindow = config.getHttp2InitialWindowSize();
+        this.maxConcurrentStreams = config.getHttp2MaxConcurrentStreams();
+        this.connRecvWindow = VKHttp2Frames.DEFAULT_WINDOW_SIZE;
+    }
+
+    /**
+     * 发送服务端连接前言：SETTINGS + 将连接级接收窗口扩大到与流初始窗口一致。
+     */
+    void start() {
+        VKHttp2Frames.writeSettings(out, new int[]{
+                VKHttp2Frames.SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams,
+                VKHttp2Frames.SETTINGS_INITIAL_WINDOW_SIZE, localInitialWindow,
+                VKHttp2Frames.SETTINGS_MAX_HEADER_LIST_SIZE, config.getMaxHeaderBytes()
+        });
+        if (localInitialWindow > VKHttp2Frames.DEFAULT_WINDOW_SIZE) {
+            VKHttp2Frames.writeWindowUpdate(out, 0, localInitialWindow - VKHttp2Frames.DEFAULT_WINDOW_SIZE);
+            connRecvWindow = localInitialWindow;
+        }
+        flushOutput();
+    }
+
+    /**
+     * 解析 buf[0, len) 中的完整帧。
+     *
+     * @return 已消费字节数，不完整的尾帧留待下次读事件
+     */
+    int onData(byte[] buf, int len) {
+        int pos = 0;
+        try {
+            while (len - pos >= VKHttp2Frames.FRAME_HEADER_LENGTH) {
+                int length = ((buf[pos] & 0xFF) << 16) | ((buf[pos + 1] & 0xFF) << 8) | (buf[pos + 2] & 0xFF);
+                if (length > VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "Frame too large");
+                }
+                if (len - pos < VKHttp2Frames.FRAME_HEADER_LENGTH + length) {
+                    break;
+                }
+                int type = buf[pos + 3] & 0xFF;
+                int flags = buf[pos + 4] & 0xFF;
+                int streamId = VKHttp2Frames.readInt(buf, pos + 5) & 0x7FFFFFFF;
+                handleFrame(type, flags, streamId, buf, pos + VKHttp2Frames.FRAME_HEADER_LENGTH, length);
+                pos += VKHttp2Frames.FRAME_HEADER_LENGTH + length;
+                if (goAwaySent) {
+                    // 连接级错误后不再解析剩余输入
+                    pos = len;
+                    break;
+                }
+            }
+        } catch (VKHttp2Exception e) {
+            connectionError(e.errorCode());
+            pos = len;
+        }
+        flushOutput();
+        return pos;
+    }
+
+    /** 是否仍有未结束的流（连接空闲超时判定用）。 */
+    boolean hasOpenStreams() {
+        return !streams.isEmpty();
+    }
+
+    /**
+     * 写队列排空时由 VKConn 回调，继续输出被背压暂停的 DATA。
+     *
+     * @return true 表示产生了新的输出
+     */
+    boolean produceMore() {
+        if (sendQueue.isEmpty()) {
+            return false;
+        }
+        writePendingData();
+        return flushOutput();
+    }
+
+    /** 空闲超时：发送 GOAWAY(NO_ERROR) 后关闭连接。 */
+    void goAway() {
+        connectionError(VKHttp2Frames.ERR_NO_ERROR);
+    }
+
+    /** 连接关闭时释放所有流持有的资源。 */
+    void onClose() {
+        for (Stream s : streams.values()) {
+            s.release();
+        }
+        streams.clear();
+        sendQueue.clear();
+    }
+
+    // -----------------------------------------------------------------------
+    // 帧处理
+    // -----------------------------------------------------------------------
+
+    private void handleFrame(int type, int flags, int streamId, byte[] buf, int off, int len) {
+        if (continuationStreamId != 0
+                && (type != VKHttp2Frames.TYPE_CONTINUATION || streamId != continuationStreamId)) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Expected CONTINUATION");
+        }
+        if (!settingsReceived && type != VKHttp2Frames.TYPE_SETTINGS) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Preface must start with SETTINGS");
+        }
+        switch (type) {
+            case VKHttp2Frames.TYPE_DATA -> onDataFrame(flags, streamId, buf, off, len);
+            case VKHttp2Frames.TYPE_HEADERS -> onHeadersFrame(flags, streamId, buf, off, len);
+            case VKHttp2Frames.TYPE_PRIORITY -> {
+                if (streamId == 0) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "PRIORITY on stream 0");
+                }
+                if (len != 5) {
+                    resetStream(streamId, VKHttp2Frames.ERR_FRAME_SIZE);
+                }
+            }
+            case VKHttp2Frames.TYPE_RST_STREAM -> onRstStream(streamId, buf, off, len);
+            case VKHttp2Frames.TYPE_SETTINGS -> onSettings(flags, streamId, buf, off, len);
+            case VKHttp2Frames.TYPE_PUSH_PROMISE ->
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Client sent PUSH_PROMISE");
+            case VKHttp2Frames.TYPE_PING -> {
+                if (streamId != 0) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "PING on stream");
+                }
+                if (len != 8) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "Bad PING length");
+                }
+                if ((flags & VKHttp2Frames.FLAG_ACK) == 0) {
+                    VKHttp2Frames.writePingAck(out, buf, off);
+                }
+            }
+            case VKHttp2Frames.TYPE_GOAWAY -> {
+                if (streamId != 0) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "GOAWAY on stream");
+                }
+                goAwayReceived = true;
+                if (streams.isEmpty()) {
+                    conn.closeAfterWrite();
+                }
+            }
+            case VKHttp2Frames.TYPE_WINDOW_UPDATE -> onWindowUpdate(streamId, buf, off, len);
+            case VKHttp2Frames.TYPE_CONTINUATION -> onContinuation(flags, streamId, buf, off, len);
+            default -> {
+                // 未知帧类型按 RFC 要求忽略
+            }
+        }
+    }
+
+    private void onSettings(int flags, int streamId, byte[] buf, int off, int len) {
+        if (streamId != 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "SETTINGS on stream");
+        }
+        if ((flags & VKHttp2Frames.FLAG_ACK) != 0) {
+            if (len != 0) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "SETTINGS ACK with payload");
+            }
+            return;
+        }
+        if (len % 6 != 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "Bad SETTINGS length");
+        }
+        settingsReceived = true;
+        for (int p = off; p < off + len; p += 6) {
+            int id = ((buf[p] & 0xFF) << 8) | (buf[p + 1] & 0xFF);
+            int value = VKHttp2Frames.readInt(buf, p + 2);
+            switch (id) {
+                case VKHttp2Frames.SETTINGS_ENABLE_PUSH -> {
+                    if (value != 0 && value != 1) {
+                        throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Bad ENABLE_PUSH");
+                    }
+                }
+                case VKHttp2Frames.SETTINGS_INITIAL_WINDOW_SIZE -> {
+                    if (value < 0) {
+                        throw new VKHttp2Exception(VKHttp2Frames.ERR_FLOW_CONTROL, "Bad INITIAL_WINDOW_SIZE");
+                    }
+                    int delta = value - peerInitialWindow;
+                    peerInitialWindow = value;
+                    for (Stream s : streams.values()) {
+                        s.sendWindow += delta;
+                        if (s.sendWindow > VKHttp2Frames.MAX_WINDOW_SIZE) {
+                            throw new VKHttp2Exception(VKHttp2Frames.ERR_FLOW_CONTROL, "Window overflow");
+                        }
+                    }
+                }
+                case VKHttp2Frames.SETTINGS_MAX_FRAME_SIZE -> {
+                    if (value < VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF) {
+                        throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Bad MAX_FRAME_SIZE");
+                    }
+                    peerMaxFrameSize = value;
+                }
+                default -> {
+                    // HEADER_TABLE_SIZE：编码器不使用动态表，无需处理；其余参数对服务端无影响
+                }
+            }
+        }
+        VKHttp2Frames.writeSettingsAck(out);
+        writePendingData();
+    }
+
+    private void onWindowUpdate(int streamId, byte[] buf, int off, int len) {
+        if (len != 4) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "Bad WINDOW_UPDATE length");
+        }
+        int increment = VKHttp2Frames.readInt(buf, off) & 0x7FFFFFFF;
+        if (streamId == 0) {
+            if (increment == 0) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Zero WINDOW_UPDATE");
+            }
+            connSendWindow += increment;
+            if (connSendWindow > VKHttp2Frames.MAX_WINDOW_SIZE) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_FLOW_CONTROL, "Window overflow");
+            }
+        } else {
+            Stream s = streams.get(streamId);
+            if (s == null) {
+                return;
+            }
+            if (increment == 0) {
+                resetStream(streamId, VKHttp2Frames.ERR_PROTOCOL);
+                return;
+            }
+            s.sendWindow += increment;
+            if (s.sendWindow > VKHttp2Frames.MAX_WINDOW_SIZE) {
+                resetStream(streamId, VKHttp2Frames.ERR_FLOW_CONTROL);
+                return;
+            }
+        }
+        writePendingData();
+    }
+
+    private void onRstStream(int streamId, byte[] buf, int off, int len) {
+        if (streamId == 0 || streamId > lastStreamId) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "RST_STREAM on idle stream");
+        }
+        if (len != 4) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_FRAME_SIZE, "Bad RST_STREAM length");
+        }
+        Stream s = streams.remove(streamId);
+        if (s != null) {
+            s.abort();
+            sendQueue.remove(s);
+            s.queued = false;
+        }
+        maybeFinishGoAway();
+    }
+
+    private void onHeadersFrame(int flags, int streamId, byte[] buf, int off, int len) {
+        if (streamId == 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "HEADERS on stream 0");
+        }
+        int start = off;
+        int end = off + len;
+        if ((flags & VKHttp2Frames.FLAG_PADDED) != 0) {
+            if (len < 1) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Bad padding");
+            }
+            int pad = buf[start] & 0xFF;
+            start++;
+            end -= pad;
+        }
+        if ((flags & VKHttp2Frames.FLAG_PRIORITY) != 0) {
+            start += 5;
+        }
+        if (start > end) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Bad padding");
+        }
+        if ((flags & VKHttp2Frames.FLAG_END_HEADERS) != 0) {
+            onHeaderBlock(streamId, flags, buf, start, end - start);
+            return;
+        }
+        continuationStreamId = streamId;
+        continuationFlags = flags;
+        continuationBlock = new ByteArrayOutputStream(Math.max(256, (end - start) * 2));
+        continuationBlock.write(buf, start, end - start);
+    }
+
+    private void onContinuation(int flags, int streamId, byte[] buf, int off, int len) {
+        if (continuationStreamId == 0 || streamId != continuationStreamId) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Unexpected CONTINUATION");
+        }
+        continuationBlock.write(buf, off, len);
+        if (continuationBlock.size() > config.getMaxHeaderBytes() * 4) {
+            // 头部块远超上限，直接按 ENHANCE_YOUR_CALM 终止，防止 CONTINUATION 洪泛
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_ENHANCE_YOUR_CALM, "Header block too large");
+        }
+        if ((flags & VKHttp2Frames.FLAG_END_HEADERS) != 0) {
+            byte[] block = continuationBlock.toByteArray();
+            int headerFlags = continuationFlags;
+            continuationStreamId = 0;
+            continuationBlock = null;
+            onHeaderBlock(streamId, headerFlags, block, 0, block.length);
+        }
+    }
+
+    private void onHeaderBlock(int streamId, int flags, byte[] buf, int off, int len) {
+        Map<String, String> headers = new HashMap<>();
+        String[] pseudo = new String[4];
+        // 超过上限的头部不再交给 collectHeader，避免重复索引在同名值上反复拼接（HPACK 炸弹）
+        long listSize = decoder.decode(buf, off, len, config.getMaxHeaderBytes(),
+                (name, value) -> collectHeader(headers, pseudo, name, value));
+        boolean endStream = (flags & VKHttp2Frames.FLAG_END_STREAM) != 0;
+
+        Stream existing = streams.get(streamId);
+        if (existing != null || streamId <= lastStreamId) {
+            // 已存在的流上再次收到 HEADERS 视为 trailers，必须携带 END_STREAM
+            if (existing == null) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_STREAM_CLOSED, "HEADERS on closed stream");
+            }
+            if (!endStream || existing.remoteClosed) {
+                resetStream(streamId, VKHttp2Frames.ERR_PROTOCOL);
+                return;
+            }
+            existing.remoteClosed = true;
+            onRequestComplete(existing);
+            return;
+        }
+        if ((streamId & 1) == 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Even stream id from client");
+        }
+        lastStreamId = streamId;
+        if (goAwaySent) {
+            return;
+        }
+        if (streams.size() >= maxConcurrentStreams) {
+            VKHttp2Frames.writeRstStream(out, streamId, VKHttp2Frames.ERR_REFUSED_STREAM);
+            return;
+        }
+        if (listSize > config.getMaxHeaderBytes()) {
+            // 头部只收集了一部分，不做伪头部校验，直接以 431 结束该流
+            Stream s = new Stream(streamId, peerInitialWindow, localInitialWindow);
+            streams.put(streamId, s);
+            s.method = pseudo[0];
+            s.remoteClosed = endStream;
+            respondError(s, 431, "Header too large");
+            return;
+        }
+        String method = pseudo[0];
+        String rawPath = pseudo[1];
+        if (method == null || rawPath == null || rawPath.isEmpty() || pseudo[3] != null) {
+            // pseudo[3] 记录了非法头（大写名称或连接专属头），按流错误处理
+            VKHttp2Frames.writeRstStream(out, streamId, VKHttp2Frames.ERR_PROTOCOL);
+            return;
+        }
+        if (pseudo[2] != null && !headers.containsKey("host")) {
+            headers.put("host", pseudo[2]);
+        }
+
+        Stream s = new Stream(streamId, peerInitialWindow, localInitialWindow);
+        streams.put(streamId, s);
+        s.method = method;
+        int q = rawPath.indexOf('?');
+        s.path = q >= 0 ? rawPath.substring(0, q) : rawPath;
+        s.query = q >= 0 && q + 1 < rawPath.length() ? rawPath.substring(q + 1) : "";
+        s.headers = headers;
+        s.remoteClosed = endStream;
+
+        String cl = headers.get("content-length");
+        if (cl != null) {
+            try {
+                if (Long.parseLong(cl.trim()) > config.getMaxBodyBytes()) {
+                    respondError(s, 413, "Body too large");
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                respondError(s, 400, "Invalid content-length");
+                return;
+            }
+        }
+        if (endStream) {
+            onRequestComplete(s);
+        }
+    }
+
+    /**
+     * 汇总解码出的头部：伪头部放入 pseudo[0..2]（method/path/authority），
+     * 普通头按 HTTP/1 解析器的语义合并同名值；cookie 按 RFC 9113 8.2.3 以 "; " 拼接。
+     */
+    private void collectHeader(Map<String, String> headers, String[] pseudo, String name, String value) {
+        if (name.startsWith(":")) {
+            switch (name) {
+                case ":method" -> pseudo[0] = value;
+                case ":path" -> pseudo[1] = value;
+                case ":authority" -> pseudo[2] = value;
+                case ":scheme" -> {
+                }
+                default -> pseudo[3] = name;
+            }
+            return;
+        }
+        if (CONNECTION_HEADERS.contains(name) || !name.equals(name.toLowerCase(Locale.ROOT))) {
+            pseudo[3] = name;
+            return;
+        }
+        if ("te".equals(name) && !"trailers".equalsIgnoreCase(value)) {
+            pseudo[3] = name;
+            return;
+        }
+        String existing = headers.get(name);
+        if (existing == null) {
+            headers.put(name, value);
+        } else {
+            headers.put(name, existing + ("cookie".equals(name) ? "; " : ", ") + value);
+        }
+    }
+
+    private void onDataFrame(int flags, int streamId, byte[] buf, int off, int len) {
+        if (streamId == 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "DATA on stream 0");
+        }
+        connRecvWindow -= len;
+        if (connRecvWindow < 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_FLOW_CONTROL, "Connection window exceeded");
+        }
+        if (connRecvWindow < localInitialWindow / 2) {
+            int inc = (int) (Math.max(localInitialWindow, VKHttp2Frames.DEFAULT_WINDOW_SIZE) - connRecvWindow);
+            VKHttp2Frames.writeWindowUpdate(out, 0, inc);
+            connRecvWindow += inc;
+        }
+
+        int start = off;
+        int end = off + len;
+        if ((flags & VKHttp2Frames.FLAG_PADDED) != 0) {
+            if (len < 1 || (buf[start] & 0xFF) >= len) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "Bad padding");
+            }
+            end -= buf[start] & 0xFF;
+            start++;
+        }
+
+        Stream s = streams.get(streamId);
+        if (s == null) {
+            if (streamId > lastStreamId) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_PROTOCOL, "DATA on idle stream");
+            }
+            // 已关闭/已重置的流：连接窗口已记账，数据直接丢弃
+            return;
+        }
+        if (s.remoteClosed) {
+            resetStream(streamId, VKHttp2Frames.ERR_STREAM_CLOSED);
+            return;
+        }
+        s.recvWindow -= len;
+        if (s.recvWindow < 0) {
+            resetStream(streamId, VKHttp2Frames.ERR_FLOW_CONTROL);
+            return;
+        }
+        boolean endStream = (flags & VKHttp2Frames.FLAG_END_STREAM) != 0;
+        if (!s.discardBody) {
+            int n = end - start;
+            if (s.body.size() + (long) n > config.getMaxBodyBytes()) {
+                s.discardBody = true;
+                s.body = new ByteArrayOutputStream(0);
+                respondError(s, 413, "Body too large");
+                return;
+            } else {
+                s.body.write(buf, start, n);
+            }
+        }
+        if (endStream) {
+            s.remoteClosed = true;
+            onRequestComplete(s);
+            return;
+        }
+        if (s.recvWindow < localInitialWindow / 2) {
+            int inc = localInitialWindow - s.recvWindow;
+            VKHttp2Frames.writeWindowUpdate(out, streamId, inc);
+            s.recvWindow += inc;
+        }
+    }
+
+    // -----------------------------------------------------------------------
+    // 请求派发与响应
+    // -----------------------------------------------------------------------
+
+    private void onRequestComplete(Stream s) {
+        if (s.responded) {
+            // 已提前响应（413 等）：请求侧到此结束即可回收流
+            maybeCloseStream(s);
+            return;
+        }
+        byte[] body = s.body.toByteArray();
+        s.body = null;
+        VKRequest req = new VKRequest(s.method, s.path, s.query, "HTTP/2.0", s.headers, body, true,
+                conn.remoteAddress());
+        if (config.isMultipartEnabled() && req.isMultipart() && body.length > 0) {
+            if (!applyMultipart(s, req, body)) {
+                return;
+            }
+        }
+        boolean accepted = workers.submit(() -> {
+            VKWebDispatchResult result;
+            try {
+                VKWebHttpDispatcher.ensureTraceId(req, new VKResponse());
+                result = runtime.dispatchHttp(req);
+                if (result.response().isStreaming()) {
+                    // HTTP/2 数据帧按流控窗口由 reactor 分片发送，流式响应体先在 worker 中收集完整
+                    result.response().bufferStreamingBody();
+                }
+            } catch (Throwable t) {
+                reactor.execute(() -> {
+                    if (isLive(s)) {
+                        respondError(s, 500, "Internal Server Error");
+                        flushOutput();
+                    }
+                });
+                return;
+            }
+            reactor.execute(() -> onResponse(s, req, result));
+        });
+        if (!accepted) {
+            respondError(s, 503, "Service Unavailable");
+        }
+    }
+
+    private boolean applyMultipart(Stream s, VKRequest req, byte[] body) {
+        String boundary = VKReactor.VKConn.extractBoundary(req.header("content-type"));
+        if (boundary == null || boundary.isEmpty()) {
+            respondError(s, 400, "Invalid multipart boundary");
+            return false;
+        }
+        if (body.length > config.getMultipartMaxTotalBytes()) {
+            respondError(s, 413, "Body too large");
+            return false;
+        }
+        VKMultipartStreamDecoder mp = new VKMultipartStreamDecoder(boundary, config);
+        try {
+            mp.feed(body, 0, body.length);
+            mp.finish();
+            req.applyMultipart(mp.result());
+            return true;
+        } catch (VKMultipartParseException e) {
+            mp.abort();
+            respondError(s, e.status(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void onResponse(Stream s, VKRequest req, VKWebDispatchResult result) {
+        VKResponse res = result.response();
+        if (!isLive(s)) {
+            return;
+        }
+        if (res.isSse()) {
+            startSse(s, res);
+            flushOutput();
+            return;
+        }
+        if (res.headers().get("X-Trace-Id") == null && req.traceId() != null) {
+            res.header("X-Trace-Id", req.traceId());
+        }
+        long bytes = writeResponse(s, res);
+        runtime.recordRequest(req, result);
+        conn.logAccess(req, res.status(), bytes, result);
+        flushOutput();
+    }
+
+    /**
+     * 写出响应头并把响应体挂到流的待发送队列。
+     *
+     * @return 响应体字节数（访问日志用）
+     */
+    private long writeResponse(Stream s, VKResponse res) {
+        s.responded = true;
+        FileChannel file = null;
+        if (res.isFile()) {
+            try {
+                file = FileChannel.open(res.filePath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                res = new VKResponse().status(404).text("Not Found");
+            }
+        }
+        long contentLength = file != null ? Math.max(0, res.fileLength()) : res.bodyLength();
+        boolean hasBody = contentLength > 0;
+        writeHeaders(s, res, contentLength, !hasBody);
+        if (!hasBody) {
+            if (file != null) {
+                closeQuietly(file);
+            }
+            closeLocal(s);
+            return 0;
+        }
+        if (file == null) {
+            ByteBuffer buffer = res.bodyBuffer();
+            s.segments.addLast(buffer != null ? buffer : ByteBuffer.wrap(res.body()));
+        } else if (res.fileRegions() == null) {
+            s.file = file;
+            s.segments.addLast(new long[]{res.fileOffset(), res.fileOffset() + contentLength});
+        } else {
+            s.file = file;
+            for (VKFileRegion r : res.fileRegions()) {
+                if (r.prefix().length > 0) {
+                    s.segments.addLast(ByteBuffer.wrap(r.prefix()));
+                }
+                if (r.length() > 0) {
+                    s.segments.addLast(new long[]{r.offset(), r.offset() + r.length()});
+                }
+            }
+        }
+        s.endAfterPending = true;
+        enqueueSend(s);
+        return contentLength;
+    }
+
+    private void writeHeaders(Stream s, VKResponse res, long contentLength, boolean endStream) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+        VKHpackEncoder.encodeStatus(block, res.status());
+        boolean hasContentLength = false;
+        for (Map.Entry<String, String> e : res.headers().entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) {
+                continue;
+            }
+            String name = e.getKey().toLowerCase(Locale.ROOT);
+            if (CONNECTION_HEADERS.contains(name)) {
+                continue;
+            }
+            if ("content-length".equals(name)) {
+                if (contentLength < 0) {
+                    continue;
+                }
+                hasContentLength = true;
+            }
+            VKHpackEncoder.encodeHeader(block, name, e.getValue());
+        }
+        for (String cookie : res.setCookies()) {
+            if (cookie != null && !cookie.isEmpty()) {
+                VKHpackEncoder.encodeHeader(block, "set-cookie", cookie);
+            }
+        }
+        if (!hasContentLength && contentLength >= 0) {
+            VKHpackEncoder.encodeHeader(block, "content-length", Long.toString(contentLength));
+        }
+        VKHttp2Frames.writeHeaders(out, s.id, block.toByteArray(), peerMaxFrameSize, endStream);
+    }
+
+    /**
+     * SSE over HTTP/2：响应头不带 END_STREAM，后续事件作为 DATA 帧推送，emitter.close() 时结束流。
+     */
+    private void startSse(Stream s, VKResponse res) {
+        s.responded = true;
+        writeHeaders(s, res, -1, false);
+        VKSseEmitter emitter = new VKSseEmitter(
+                bytes -> pushSse(s, ByteBuffer.wrap(bytes)),
+                () -> reactor.execute(() -> {
+                    if (isLive(s) && !s.endAfterPending) {
+                        s.endAfterPending = true;
+                        enqueueSend(s);
+                        flushOutput();
+                    }
+                }),
+                encoded -> pushSse(s, encoded),
+                null
+        );
+        s.sse = emitter;
+        Consumer<VKSseEmitter> consumer = res.sseConsumer();
+        try {
+            consumer.accept(emitter);
+        } catch (Throwable t) {
+            emitter.markClosed();
+            resetStream(s.id, VKHttp2Frames.ERR_INTERNAL);
+        }
+    }
+
+    /** 把 SSE 事件作为 DATA 段追加到流上；共享的编码缓冲按段引用，写出时不拷贝。 */
+    private boolean pushSse(Stream s, ByteBuffer encoded) {
+        reactor.execute(() -> {
+            if (isLive(s) && !s.endAfterPending) {
+                s.segments.addLast(encoded.duplicate());
+                enqueueSend(s);
+                flushOutput();
+            }
+        });
+        return true;
+    }
+
+    private void respondError(Stream s, int status, String msg) {
+        if (s.responded) {
+            return;
+        }
+        writeResponse(s, new VKResponse().status(status).text(msg == null ? "" : msg));
+    }
+
+    // -----------------------------------------------------------------------
+    // 输出与流量控制
+    // -----------------------------------------------------------------------
+
+    private void enqueueSend(Stream s) {
+        if (!s.queued) {
+            s.queued = true;
+            sendQueue.addLast(s);
+        }
+        if (conn.outboundIdle()) {
+            writePendingData();
+        }
+    }
+
+    /**
+     * 按流轮转、每次一帧地输出 DATA，直至窗口耗尽、预算用完或所有流都已发完。
+     */
+    private void writePendingData() {
+        int budget = OUTPUT_BUDGET;
+        boolean progress = true;
+        while (progress && budget > 0 && connSendWindow > 0 && !sendQueue.isEmpty()) {
+            progress = false;
+            int n = sendQueue.size();
+            for (int i = 0; i < n && budget > 0; i++) {
+                Stream s = sendQueue.pollFirst();
+                if (streams.get(s.id) != s) {
+                    // 流已被重置或关闭（可能发生在本轮其他流的写出过程中），不再发送
+                    s.queued = false;
+                    continue;
+                }
+                int written = writeOneFrame(s, budget);
+                if (written > 0) {
+                    budget -= written;
+                    progress = true;
+                } else if (written == 0 && s.localClosed) {
+                    progress = true;
+                }
+                if (s.localClosed || !s.hasPending()) {
+                    s.queued = false;
+                } else {
+                    sendQueue.addLast(s);
+                }
+            }
+        }
+    }
+
+    /**
+     * 为流输出一个 DATA 帧。
+     *
+     * @return 写出的负载字节数；0 表示仅写了空的 END_STREAM 帧或被窗口阻塞
+     */
+    private int writeOneFrame(Stream s, int budget) {
+        int max = (int) Math.min(Math.min(budget, fileScratch.length), Math.min(connSendWindow, s.sendWindow));
+        Object seg = s.segments.peekFirst();
+        if (seg == null) {
+            if (s.endAfterPending && !s.localClosed) {
+                VKHttp2Frames.writeData(out, s.id, fileScratch, 0, 0, true);
+                closeLocal(s);
+            }
+            return 0;
+        }
+        if (max <= 0) {
+            return 0;
+        }
+        int n;
+        boolean segDone;
+        if (seg instanceof ByteBuffer buf) {
+            n = Math.min(max, buf.remaining());
+            buf.get(fileScratch, 0, n);
+            segDone = !buf.hasRemaining();
+        } else {
+            long[] region = (long[]) seg;
+            int want = (int) Math.min(max, region[1] - region[0]);
+            try {
+                n = s.file.read(ByteBuffer.wrap(fileScratch, 0, want), region[0]);
+            } catch (IOException e) {
+                n = -1;
+            }
+            if (n <= 0) {
+                // 文件被截断或读取失败：已发出的 content-length 无法兑现，只能重置流
+                resetStream(s.id, VKHttp2Frames.ERR_INTERNAL);
+                return 0;
+            }
+            region[0] += n;
+            segDone = region[0] >= region[1];
+        }
+        if (segDone) {
+            s.segments.pollFirst();
+        }
+        boolean last = segDone && s.segments.isEmpty() && s.endAfterPending;
+        VKHttp2Frames.writeData(out, s.id, fileScratch, 0, n, last);
+        consumeWindow(s, n);
+        if (last) {
+            closeLocal(s);
+        }
+        return n;
+    }
+
+    private void consumeWindow(Stream s, int n) {
+        connSendWindow -= n;
+        s.sendWindow -= n;
+    }
+
+    /** 本端已发送 END_STREAM。 */
+    private void closeLocal(Stream s) {
+        s.localClosed = true;
+        maybeCloseStream(s);
+    }
+
+    private void maybeCloseStream(Stream s) {
+        if (!s.localClosed) {
+            return;
+        }
+        if (!s.remoteClosed) {
+            // 响应已完整发出但请求体尚未收完（如提前返回 413），通知对端停止发送
+            VKHttp2Frames.writeRstStream(out, s.id, VKHttp2Frames.ERR_NO_ERROR);
+        }
+        streams.remove(s.id);
+        s.release();
+        maybeFinishGoAway();
+    }
+
+    private void resetStream(int streamId, int errorCode) {
+        VKHttp2Frames.writeRstStream(out, streamId, errorCode);
+        Stream s = streams.remove(streamId);
+        if (s != null) {
+            s.abort();
+            sendQueue.remove(s);
+            s.queued = false;
+        }
+        maybeFinishGoAway();
+    }
+
+    private void maybeFinishGoAway() {
+        if (goAwayReceived && streams.isEmpty()) {
+            flushOutput();
+            conn.closeAfterWrite();
+        }
+    }
+
+    private void connectionError(int errorCode) {
+        if (goAwaySent) {
+            return;
+        }
+        goAwaySent = true;
+        VKHttp2Frames.writeGoAway(out, lastStreamId, errorCode);
+        flushOutput();
+        conn.closeAfterWrite();
+    }
+
+    private boolean isLive(Stream s) {
+        return !conn.isClosed() && streams.get(s.id) == s;
+    }
+
+    private boolean flushOutput() {
+        if (out.size() == 0) {
+            return false;
+        }
+        byte[] bytes = out.toByteArray();
+        out.reset();
+        conn.enqueueResponse(VKReactor.VKOutbound.fromHeadBytes(bytes), false);
+        return true;
+    }
+
+    // -----------------------------------------------------------------------
+    // Stream
+    // -----------------------------------------------------------------------
+
+    private static final class Stream {
+        final int id;
+        long sendWindow;
+        int recvWindow;
+
+        String method;
+        String path;
+        String query;
+        Map<String, String> headers;
+        ByteArrayOutputStream body = new ByteArrayOutputStream(0);
+        boolean discardBody;
+
+        boolean remoteClosed;
+        boolean localClosed;
+        boolean responded;
+        boolean queued;
+
+        /**
+         * 待发送输出段，按顺序为 ByteBuffer（内存数据）或 long[]{pos, end}（file 中的区间）；
+         * endAfterPending 表示全部发完后附带 END_STREAM。
+         */
+        final ArrayDeque<Object> segments = new ArrayDeque<>(2);
+        FileChannel file;
+        boolean endAfterPending;
+        VKSseEmitter sse;
+
+        Stream(int id, int sendWindow, int recvWindow) {
+            this.id = id;
+            this.sendWindow = sendWindow;
+            this.recvWindow = recvWindow;
+        }
+
+        boolean hasPending() {
+            return !segments.isEmpty() || (endAfterPending && !localClosed);
+        }
+
+        /** 流被重置：丢弃未发送的输出段并视为两端均已关闭，之后不会再被加入发送队列。 */
+        void abort() {
+            segments.clear();
+            endAfterPending = false;
+            localClosed = true;
+            remoteClosed = true;
+            release();
+        }
+
+        void release() {
+            if (file != null) {
+                closeQuietly(file);
+                file = null;
+            }
+            if (sse != null) {
+                sse.markClosed();
+            }
+        }
+    }
+
+    private static void closeQuietly(FileChannel file) {
+        try {
+            file.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package yueyang.vostok.web.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的 HDR 风格延迟直方图（微秒精度）。
+ *
+ * 桶布局为"对数-线性"：值小于 32us 时每 1us 一个桶；之后每个 2 的幂区间再等分为 16 个子桶，
+ * 因此任意分位值的相对误差不超过 1/16（约 6%）。覆盖 0 ~ 2^40us（约 12 天），超出部分归入最后一个桶。
+ *
+ * 写入只做一次数组下标计算与一次 CAS 自增，不加锁、不分配；
+ * 读取时由 {@link #snapshot()} 单次扫描所有桶得到 count/p50/p90/p99/max，只分配一个结果对象。
+ */
+public final class VKLatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+    static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0L);
+
+    /** 记录一次耗时（纳秒）。 */
+    public void recordNanos(long nanos) {
+        recordMicros(Math.max(0L, nanos) / 1_000L);
+    }
+
+    /** 记录一次耗时（微秒）。 */
+    public void recordMicros(long micros) {
+        long v = Math.max(0L, micros);
+        buckets.incrementAndGet(indexOf(v));
+        count.increment();
+        sumMicros.add(v);
+        maxMicros.accumulate(v);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 生成一致性较弱的快照：各桶在扫描期间仍可能被并发写入，
+     * 分位值以扫描到的桶总数为准，与 count() 可能有极小偏差，这对监控展示足够。
+     */
+    public Snapshot snapshot() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0);
+        }
+        long t50 = rank(total, 0.50);
+        long t90 = rank(total, 0.90);
+        long t99 = rank(total, 0.99);
+        long p50 = -1, p90 = -1, p99 = -1;
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT && p99 < 0; i++) {
+            long c = buckets.get(i);
+            if (c == 0) {
+                continue;
+            }
+            seen += c;
+            if (p50 < 0 && seen >= t50) {
+                p50 = highestEquivalent(i);
+            }
+            if (p90 < 0 && seen >= t90) {
+                p90 = highestEquivalent(i);
+            }
+            if (seen >= t99) {
+                p99 = highestEquivalent(i);
+            }
+        }
+        long max = maxMicros.get();
+        // 桶上界是估算值，不应超过真实最大值
+        return new Snapshot(total, sumMicros.sum(), Math.min(p50, max), Math.min(p90, max), Math.min(p99, max), max);
+    }
+
+    private static long rank(long total, double quantile) {
+        return Math.max(1L, (long) Math.ceil(total * quantile));
+    }
+
+    static int indexOf(long micros) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros | 1L);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = Math.max(0, magnitude - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKET_COUNT + (int) (micros >>> shift);
+    }
+
+    /** 桶内可表示的最大值（微秒），用作分位估计。 */
+    static long highestEquivalent(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long sub = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图快照，时间单位为微秒。
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long sumMicros;
+        private final long p50Micros;
+        private final long p90Micros;
+        private final long p99Micros;
+        private final long maxMicros;
+
+        Snapshot(long count, long sumMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sumMicros() {
+            return sumMicros;
+        }
+
+        public long p50Micros() {
+            return p50Micros;
+        }
+
+        public long p90Micros() {
+            return p90Micros;
+        }
+
+        public long p99Micros() {
+            return p99Micros;
+        }
+
+        public long maxMicros() {
+            return maxMicros;
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package yueyang.vostok.web.core;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 /**
  * Web 服务器运行时指标收集类。
  *
  * 由 VKWebServer 持有单例，VKReactor 在每次请求完成后更新计数。
- * 提供两个内置端点的 JSON 序列化方法：
+ * 提供三个内置端点的序列化方法：
  * - toHealthJson: /actuator/health 响应
  * - toMetricsJson: /actuator/metrics 响应
+ * - toPrometheusText: /actuator/prometheus 响应（Prometheus 文本格式 0.0.4）
+ *
+ * 延迟按"路由模板 + 方法 + 状态码类别"分桶记录到无锁直方图（VKLatencyHistogram），
+ * 路由模板来自 VKRouteMatch，未匹配的请求统一归入 UNMATCHED_ROUTE，避免扫描流量撑爆维度。
  *
  * 所有计数器均为原子操作，线程安全。
  */
@@ -21,12 +33,52 @@ public final class VKMetrics {
     /** 历史总响应时间（纳秒），用于计算平均响应时间。 */
     final AtomicLong totalResponseNs = new AtomicLong();
 
+    /** 未匹配任何路由的请求使用的路由标签。 */
+    public static final String UNMATCHED_ROUTE = "<unmatched>";
+    /** 方法维度固定为以下取值，其余方法统一记为 OTHER，保证维度有界。 */
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS", "OTHER"};
+    /** 状态码类别：1xx ~ 5xx。 */
+    private static final int STATUS_CLASSES = 5;
+
+    /** 全部请求的延迟直方图。 */
+    private final VKLatencyHistogram latency = new VKLatencyHistogram();
+    /** 路由模板 → 该路由按方法/状态类别分桶的直方图。 */
+    private final ConcurrentHashMap<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+    /** 网络层收发字节数，由各 reactor 线程并发累加，使用 LongAdder 分散竞争。 */
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    /** WebSocket 慢消费者处理计数：DROP 丢弃的帧、COALESCE 撤回的帧、DISCONNECT 关闭的连接。 */
+    private final LongAdder wsDroppedFrames = new LongAdder();
+    private final LongAdder wsCoalescedFrames = new LongAdder();
+    private final LongAdder wsSlowConsumerCloses = new LongAdder();
+    /** 各类超时关闭的连接数，按 TimeoutType 下标存放。 */
+    private final LongAdder[] timeouts = adders(TimeoutType.values().length);
+
     /**
      * 当前活跃连接数的动态回调，由 VKWebServer 注入。
      * 使用 IntSupplier 而非快照，确保每次查询都是实时值。
      */
     private volatile IntSupplier activeConnectionsSupplier;
 
+    /** TLS 直接缓冲池命中/未命中次数的动态回调，由内建引擎汇总各 reactor 的缓冲池。 */
+    private volatile LongSupplier tlsBufferPoolHitsSupplier;
+    private volatile LongSupplier tlsBufferPoolMissesSupplier;
+
+    /** Worker 队列深度、已出队任务数与累计排队时间（纳秒）的动态回调。 */
+    private volatile IntSupplier workerQueueDepthSupplier;
+    private volatile LongSupplier workerQueuedTasksSupplier;
+    private volatile LongSupplier workerQueueWaitNsSupplier;
+    /** 实际生效的派发模式与正在执行的任务数。 */
+    private volatile String workerMode = "POOL";
+    private volatile IntSupplier workerActiveSupplier;
+    /** 各 reactor 的连接数与累计分配连接数，由内建引擎注入。 */
+    private volatile Supplier<List<ReactorStats>> reactorStatsSupplier;
+    /** SSE 主题统计，由运行时注入 VKSseHub。 */
+    private volatile Supplier<List<SseTopicStats>> sseTopicStatsSupplier;
+    /** 访问日志因队列/环形缓冲已满而丢弃的记录数，由内建引擎注入。 */
+    private volatile LongSupplier accessLogDroppedSupplier;
+    private volatile int acceptorCount = 1;
+
     /**
      * 注入活跃连接数获取器，由 VKWebServer 在初始化时调用。
      */
@@ -34,8 +86,62 @@ public final class VKMetrics {
         this.activeConnectionsSupplier = supplier;
     }
 
+    /**
+     * 注入 TLS 缓冲池命中/未命中计数获取器，由内建引擎在初始化时调用。
+     */
+    public void setTlsBufferPoolSuppliers(LongSupplier hits, LongSupplier misses) {
+        this.tlsBufferPoolHitsSupplier = hits;
+        this.tlsBufferPoolMissesSupplier = misses;
+    }
+
+    /**
+     * 注入 Worker 队列统计获取器，由内建引擎在初始化时调用。
+     */
+    public void setWorkerQueueSuppliers(IntSupplier depth, LongSupplier queuedTasks, LongSupplier queueWaitNs) {
+        this.workerQueueDepthSupplier = depth;
+        this.workerQueuedTasksSupplier = queuedTasks;
+        this.workerQueueWaitNsSupplier = queueWaitNs;
+    }
+
+    /**
+     * 注入 per-reactor 连接统计获取器，由内建引擎在初始化时调用。
+     */
+    public void setReactorStatsSupplier(Supplier<List<ReactorStats>> supplier) {
+        this.reactorStatsSupplier = supplier;
+    }
+
+    /**
+     * 注入 SSE 主题统计获取器。
+     */
+    public void setSseTopicStatsSupplier(Supplier<List<SseTopicStats>> supplier) {
+        this.sseTopicStatsSupplier = supplier;
+    }
+
+    /**
+     * 注入访问日志丢弃计数获取器，由内建引擎在启动访问日志时调用。
+     */
+    public void setAccessLogDroppedSupplier(LongSupplier supplier) {
+        this.accessLogDroppedSupplier = supplier;
+    }
+
+    /** 设置实际监听 socket（acceptor）数量。 */
+    public void setAcceptorCount(int acceptorCount) {
+        this.acceptorCount = Math.max(1, acceptorCount);
+    }
+
+    /**
+     * 注入派发模式与活跃任务数获取器，由内建引擎在初始化时调用。
+     */
+    public void setWorkerPoolInfo(String mode, IntSupplier active) {
+        if (mode != null) {
+            this.workerMode = mode;
+        }
+        this.workerActiveSupplier = active;
+    }
+
     /**
      * 对外暴露的请求指标写入口，便于第三方 Web Engine 复用同一套 metrics 模型。
+     * 不带路由信息，只计入总量与全局直方图。
      */
     public void recordRequest(long nanos, boolean error) {
         totalRequests.incrementAndGet();
@@ -43,6 +149,68 @@ public final class VKMetrics {
         if (error) {
             totalErrors.incrementAndGet();
         }
+        latency.recordNanos(nanos);
+    }
+
+    /**
+     * 带路由维度的请求指标写入口。
+     *
+     * @param method HTTP 方法
+     * @param route  路由模板（VKRouteMatch.routePattern），null 表示未匹配
+     * @param status 响应状态码
+     */
+    public void recordRequest(String method, String route, int status, long nanos, boolean error) {
+        recordRequest(nanos, error);
+        String key = route == null ? UNMATCHED_ROUTE : route;
+        RouteStats stats = routeStats.get(key);
+        if (stats == null) {
+            stats = routeStats.computeIfAbsent(key, RouteStats::new);
+        }
+        int statusClass = Math.min(STATUS_CLASSES, Math.max(1, status / 100)) - 1;
+        stats.histogram(methodIndex(method), statusClass).recordNanos(nanos);
+    }
+
+    /** 累加从网络读取的字节数。 */
+    public void recordBytesIn(long bytes) {
+        if (bytes > 0) {
+            bytesIn.add(bytes);
+        }
+    }
+
+    /** 累加写出到网络的字节数。 */
+    public void recordBytesOut(long bytes) {
+        if (bytes > 0) {
+            bytesOut.add(bytes);
+        }
+    }
+
+    /** 累加慢消费者策略丢弃的 WebSocket 帧数。 */
+    public void recordWsDropped(long frames) {
+        if (frames > 0) {
+            wsDroppedFrames.add(frames);
+        }
+    }
+
+    /** 累加 COALESCE 策略撤回的排队帧数。 */
+    public void recordWsCoalesced(long frames) {
+        if (frames > 0) {
+            wsCoalescedFrames.add(frames);
+        }
+    }
+
+    /** 记录一次因待发送队列超限而关闭的 WebSocket 连接。 */
+    public void recordWsSlowConsumerClose() {
+        wsSlowConsumerCloses.increment();
+    }
+
+    /** 记录一次超时（连接被关闭或返回 408）。 */
+    public void recordTimeout(TimeoutType type) {
+        timeouts[type.ordinal()].increment();
+    }
+
+    /** 获取指定类型的累计超时次数。 */
+    public long getTimeouts(TimeoutType type) {
+        return timeouts[type.ordinal()].sum();
     }
 
     /** 获取历史总请求数。 */
@@ -66,6 +234,111 @@ public final class VKMetrics {
         return s == null ? 0 : s.getAsInt();
     }
 
+    /** 获取 TLS 缓冲池命中次数（明文模式或第三方引擎为 0）。 */
+    public long getTlsBufferPoolHits() {
+        LongSupplier s = tlsBufferPoolHitsSupplier;
+        return s == null ? 0L : s.getAsLong();
+    }
+
+    /** 获取 TLS 缓冲池未命中次数（未命中时新建缓冲）。 */
+    public long getTlsBufferPoolMisses() {
+        LongSupplier s = tlsBufferPoolMissesSupplier;
+        return s == null ? 0L : s.getAsLong();
+    }
+
+    /** 获取累计读取字节数。 */
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    /** 获取累计写出字节数。 */
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getWsDroppedFrames() {
+        return wsDroppedFrames.sum();
+    }
+
+    public long getWsCoalescedFrames() {
+        return wsCoalescedFrames.sum();
+    }
+
+    public long getWsSlowConsumerCloses() {
+        return wsSlowConsumerCloses.sum();
+    }
+
+    /** 获取访问日志丢弃的记录数（未启用访问日志时为 0）。 */
+    public long getAccessLogDropped() {
+        LongSupplier s = accessLogDroppedSupplier;
+        return s == null ? 0L : s.getAsLong();
+    }
+
+    /** 获取 Worker 队列当前深度。 */
+    public int getWorkerQueueDepth() {
+        IntSupplier s = workerQueueDepthSupplier;
+        return s == null ? 0 : s.getAsInt();
+    }
+
+    /** 获取实际监听 socket（acceptor）数量。 */
+    public int getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    /** 获取各 reactor 的连接统计，未注入时为空列表。 */
+    public List<ReactorStats> getReactorStats() {
+        Supplier<List<ReactorStats>> s = reactorStatsSupplier;
+        return s == null ? List.of() : s.get();
+    }
+
+    /** 获取各 SSE 主题的统计，未注入时为空列表。 */
+    public List<SseTopicStats> getSseTopicStats() {
+        Supplier<List<SseTopicStats>> s = sseTopicStatsSupplier;
+        return s == null ? List.of() : s.get();
+    }
+
+    /** 获取实际生效的派发模式（POOL/FORK_JOIN/INLINE/VIRTUAL）。 */
+    public String getWorkerMode() {
+        return workerMode;
+    }
+
+    /** 获取正在执行的请求任务数。 */
+    public int getWorkerActive() {
+        IntSupplier s = workerActiveSupplier;
+        return s == null ? 0 : s.getAsInt();
+    }
+
+    /** 获取经 Worker 队列调度的任务总数。 */
+    public long getWorkerQueuedTasks() {
+        LongSupplier s = workerQueuedTasksSupplier;
+        return s == null ? 0L : s.getAsLong();
+    }
+
+    /** 获取 Worker 队列累计排队时间（纳秒）。 */
+    public long getWorkerQueueWaitNs() {
+        LongSupplier s = workerQueueWaitNsSupplier;
+        return s == null ? 0L : s.getAsLong();
+    }
+
+    /** 全部请求的延迟快照。 */
+    public VKLatencyHistogram.Snapshot latencySnapshot() {
+        return latency.snapshot();
+    }
+
+    /**
+     * 指定路由/方法/状态类别的延迟快照，未产生过请求时返回 null。
+     *
+     * @param statusClass 状态类别 1~5（对应 1xx~5xx）
+     */
+    public VKLatencyHistogram.Snapshot routeSnapshot(String route, String method, int statusClass) {
+        RouteStats stats = routeStats.get(route == null ? UNMATCHED_ROUTE : route);
+        if (stats == null || statusClass < 1 || statusClass > STATUS_CLASSES) {
+            return null;
+        }
+        VKLatencyHistogram h = stats.peek(methodIndex(method), statusClass - 1);
+        return h == null ? null : h.snapshot();
+    }
+
     /**
      * 计算平均响应时间（毫秒）。
      * totalRequests 为 0 时返回 0.0，避免除零。
@@ -88,13 +361,401 @@ public final class VKMetrics {
 
     /**
      * 序列化为 /actuator/metrics 端点的 JSON 响应。
-     * 格式：{"requests":1000,"errors":2,"activeConnections":42,"avgResponseMs":5.2}
+     * 格式：{"requests":1000,"errors":2,"activeConnections":42,"avgResponseMs":5.2,
+     * "tlsBufferPoolHits":980,"tlsBufferPoolMisses":20,"bytesIn":..,"bytesOut":..,
+     * "workerMode":"POOL","workerActive":3,"workerQueueDepth":0,"workerQueueWaitAvgMs":0.1,
+     * "wsDroppedFrames":0,"wsCoalescedFrames":0,"wsSlowConsumerCloses":0,"accessLogDropped":0,
+     * "timeouts":{"read":0,"write":0,"keepAlive":12,"wsIdle":0,"wsPong":0},
+     * "acceptors":2,"reactors":[{"id":0,"connections":12,"accepted":340},...],
+     * "sseTopics":[{"topic":"news","subscribers":3,"published":10,"dropped":0,"replayed":4},...],
+     * "latency":{"count":..,"p50Ms":..,"p90Ms":..,"p99Ms":..,"maxMs":..},
+     * "routes":[{"route":"/users/{id}","method":"GET","status":"2xx","count":..,"p50Ms":..,...}]}
      */
     public String toMetricsJson() {
-        return "{\"requests\":" + totalRequests.get()
-                + ",\"errors\":" + totalErrors.get()
-                + ",\"activeConnections\":" + getActiveConnections()
-                + ",\"avgResponseMs\":" + String.format("%.1f", getAvgResponseMs())
-                + "}";
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"requests\":").append(totalRequests.get())
+                .append(",\"errors\":").append(totalErrors.get())
+                .append(",\"activeConnections\":").append(getActiveConnections())
+                .append(",\"avgResponseMs\":").append(String.format("%.1f", getAvgResponseMs()))
+                .append(",\"tlsBufferPoolHits\":").append(getTlsBufferPoolHits())
+                .append(",\"tlsBufferPoolMisses\":").append(getTlsBufferPoolMisses())
+                .append(",\"bytesIn\":").append(getBytesIn())
+                .append(",\"bytesOut\":").append(getBytesOut())
+                .append(",\"workerMode\":\"").append(getWorkerMode()).append('"')
+                .append(",\"workerActive\":").append(getWorkerActive())
+                .append(",\"workerQueueDepth\":").append(getWorkerQueueDepth())
+                .append(",\"workerQueueWaitAvgMs\":").append(formatMs(avg(getWorkerQueueWaitNs() / 1_000L,
+                        getWorkerQueuedTasks())))
+                .append(",\"wsDroppedFrames\":").append(getWsDroppedFrames())
+                .append(",\"wsCoalescedFrames\":").append(getWsCoalescedFrames())
+                .append(",\"wsSlowConsumerCloses\":").append(getWsSlowConsumerCloses())
+                .append(",\"accessLogDropped\":").append(getAccessLogDropped())
+                .append(",\"timeouts\":{");
+        for (TimeoutType type : TimeoutType.values()) {
+            if (type.ordinal() > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(type.jsonName).append("\":").append(getTimeouts(type));
+        }
+        sb.append('}')
+                .append(",\"acceptors\":").append(getAcceptorCount())
+                .append(",\"reactors\":[");
+        List<ReactorStats> reactors = getReactorStats();
+        for (int i = 0; i < reactors.size(); i++) {
+            ReactorStats r = reactors.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"id\":").append(r.id()).append(",\"connections\":").append(r.connections())
+                    .append(",\"accepted\":").append(r.accepted()).append('}');
+        }
+        sb.append("],\"sseTopics\":[");
+        List<SseTopicStats> topics = getSseTopicStats();
+        for (int i = 0; i < topics.size(); i++) {
+            SseTopicStats t = topics.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"topic\":");
+            appendJsonString(sb, t.topic());
+            sb.append(",\"subscribers\":").append(t.subscribers())
+                    .append(",\"published\":").append(t.published())
+                    .append(",\"dropped\":").append(t.dropped())
+                    .append(",\"replayed\":").append(t.replayed()).append('}');
+        }
+        sb.append("],\"latency\":");
+        appendSnapshotJson(sb, latency.snapshot());
+        sb.append(",\"routes\":[");
+        boolean first = true;
+        for (RouteStats stats : sortedRoutes()) {
+            for (int m = 0; m < METHODS.length; m++) {
+                for (int c = 0; c < STATUS_CLASSES; c++) {
+                    VKLatencyHistogram h = stats.peek(m, c);
+                    if (h == null) {
+                        continue;
+                    }
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    first = false;
+                    sb.append("{\"route\":");
+                    appendJsonString(sb, stats.route);
+                    sb.append(",\"method\":\"").append(METHODS[m])
+                            .append("\",\"status\":\"").append(c + 1).append("xx\",\"latency\":");
+                    appendSnapshotJson(sb, h.snapshot());
+                    sb.append('}');
+                }
+            }
+        }
+        sb.append("]}");
+        return sb.toString();
+    }
+
+    /**
+     * 序列化为 Prometheus 文本格式（exposition format 0.0.4）。
+     * 延迟以 summary 形式导出（quantile 0.5/0.9/0.99 + _sum + _count），单位为秒。
+     */
+    public String toPrometheusText() {
+        StringBuilder sb = new StringBuilder(512);
+        counter(sb, "vostok_web_requests_total", "Total HTTP requests.", totalRequests.get());
+        counter(sb, "vostok_web_errors_total", "Total HTTP requests that failed or returned 5xx.", totalErrors.get());
+        gauge(sb, "vostok_web_active_connections", "Currently open connections.", getActiveConnections());
+        counter(sb, "vostok_web_bytes_in_total", "Bytes read from the network.", getBytesIn());
+        counter(sb, "vostok_web_bytes_out_total", "Bytes written to the network.", getBytesOut());
+        counter(sb, "vostok_web_tls_buffer_pool_hits_total", "TLS direct buffer pool hits.", getTlsBufferPoolHits());
+        counter(sb, "vostok_web_tls_buffer_pool_misses_total", "TLS direct buffer pool misses.",
+                getTlsBufferPoolMisses());
+        sb.append("# HELP vostok_web_worker_mode Effective request dispatch mode.\n")
+                .append("# TYPE vostok_web_worker_mode gauge\n")
+                .append("vostok_web_worker_mode{mode=\"").append(getWorkerMode().toLowerCase()).append("\"} 1\n");
+        gauge(sb, "vostok_web_worker_active", "Request tasks currently executing.", getWorkerActive());
+        gauge(sb, "vostok_web_worker_queue_depth", "Tasks waiting in the worker queue.", getWorkerQueueDepth());
+        counter(sb, "vostok_web_worker_queued_tasks_total", "Tasks dequeued by worker threads.",
+                getWorkerQueuedTasks());
+        sb.append("# HELP vostok_web_worker_queue_wait_seconds_total Time tasks spent waiting in the worker queue.\n")
+                .append("# TYPE vostok_web_worker_queue_wait_seconds_total counter\n")
+                .append("vostok_web_worker_queue_wait_seconds_total ")
+                .append(seconds(getWorkerQueueWaitNs() / 1_000L)).append('\n');
+        counter(sb, "vostok_web_ws_dropped_frames_total", "WebSocket frames dropped by the slow-consumer policy.",
+                getWsDroppedFrames());
+        counter(sb, "vostok_web_ws_coalesced_frames_total", "Queued WebSocket frames superseded by newer frames.",
+                getWsCoalescedFrames());
+        counter(sb, "vostok_web_ws_slow_consumer_closes_total",
+                "WebSocket connections closed for exceeding pending limits.", getWsSlowConsumerCloses());
+        counter(sb, "vostok_web_access_log_dropped_total", "Access log records dropped because the queue was full.",
+                getAccessLogDropped());
+        sb.append("# HELP vostok_web_timeouts_total Connections timed out, by deadline type.\n")
+                .append("# TYPE vostok_web_timeouts_total counter\n");
+        for (TimeoutType type : TimeoutType.values()) {
+            sb.append("vostok_web_timeouts_total{type=\"").append(type.label).append("\"} ")
+                    .append(getTimeouts(type)).append('\n');
+        }
+        List<ReactorStats> reactors = getReactorStats();
+        if (!reactors.isEmpty()) {
+            sb.append("# HELP vostok_web_reactor_connections Open connections per reactor.\n")
+                    .append("# TYPE vostok_web_reactor_connections gauge\n");
+            for (ReactorStats r : reactors) {
+                sb.append("vostok_web_reactor_connections{reactor=\"").append(r.id()).append("\"} ")
+                        .append(r.connections()).append('\n');
+            }
+            sb.append("# HELP vostok_web_reactor_accepted_total Connections assigned to each reactor.\n")
+                    .append("# TYPE vostok_web_reactor_accepted_total counter\n");
+            for (ReactorStats r : reactors) {
+                sb.append("vostok_web_reactor_accepted_total{reactor=\"").append(r.id()).append("\"} ")
+                        .append(r.accepted()).append('\n');
+            }
+        }
+        List<SseTopicStats> topics = getSseTopicStats();
+        if (!topics.isEmpty()) {
+            sseTopicSeries(sb, "vostok_web_sse_subscribers", "gauge", "Open SSE subscribers per topic.",
+                    topics, SseTopicStats::subscribers);
+            sseTopicSeries(sb, "vostok_web_sse_events_published_total", "counter", "SSE events published per topic.",
+                    topics, SseTopicStats::published);
+            sseTopicSeries(sb, "vostok_web_sse_events_dropped_total", "counter",
+                    "SSE events dropped for subscribers over the pending-bytes limit.", topics, SseTopicStats::dropped);
+            sseTopicSeries(sb, "vostok_web_sse_events_replayed_total", "counter",
+                    "SSE events replayed to reconnecting subscribers.", topics, SseTopicStats::replayed);
+        }
+
+        sb.append("# HELP vostok_web_request_duration_seconds HTTP request latency by route and status class.\n")
+                .append("# TYPE vostok_web_request_duration_seconds summary\n");
+        for (RouteStats stats : sortedRoutes()) {
+            for (int m = 0; m < METHODS.length; m++) {
+                for (int c = 0; c < STATUS_CLASSES; c++) {
+                    VKLatencyHistogram h = stats.peek(m, c);
+                    if (h == null) {
+                        continue;
+                    }
+                    VKLatencyHistogram.Snapshot snap = h.snapshot();
+                    String labels = "route=\"" + escapeLabel(stats.route) + "\",method=\"" + METHODS[m]
+                            + "\",status=\"" + (c + 1) + "xx\"";
+                    quantile(sb, labels, "0.5", snap.p50Micros());
+                    quantile(sb, labels, "0.9", snap.p90Micros());
+                    quantile(sb, labels, "0.99", snap.p99Micros());
+                    sb.append("vostok_web_request_duration_seconds_sum{").append(labels).append("} ")
+                            .append(seconds(snap.sumMicros())).append('\n');
+                    sb.append("vostok_web_request_duration_seconds_count{").append(labels).append("} ")
+                            .append(snap.count()).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private List<RouteStats> sortedRoutes() {
+        List<RouteStats> list = new ArrayList<>(routeStats.values());
+        list.sort((a, b) -> a.route.compareTo(b.route));
+        return list;
+    }
+
+    private static int methodIndex(String method) {
+        if (method != null) {
+            for (int i = 0; i < METHODS.length - 1; i++) {
+                if (METHODS[i].equalsIgnoreCase(method)) {
+                    return i;
+                }
+            }
+        }
+        return METHODS.length - 1;
+    }
+
+    private static void appendSnapshotJson(StringBuilder sb, VKLatencyHistogram.Snapshot snap) {
+        sb.append("{\"count\":").append(snap.count())
+                .append(",\"avgMs\":").append(formatMs(avg(snap.sumMicros(), snap.count())))
+                .append(",\"p50Ms\":").append(formatMs(snap.p50Micros()))
+                .append(",\"p90Ms\":").append(formatMs(snap.p90Micros()))
+                .append(",\"p99Ms\":").append(formatMs(snap.p99Micros()))
+                .append(",\"maxMs\":").append(formatMs(snap.maxMicros()))
+                .append('}');
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] out = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = new LongAdder();
+        }
+        return out;
+    }
+
+    private static long avg(long sum, long count) {
+        return count == 0 ? 0L : sum / count;
+    }
+
+    /** 微秒 → 毫秒，保留三位小数。 */
+    private static String formatMs(long micros) {
+        return String.format("%.3f", micros / 1_000.0);
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1_000_000.0);
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" gauge\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void sseTopicSeries(StringBuilder sb, String name, String type, String help,
+                                       List<SseTopicStats> topics, ToLongFunction<SseTopicStats> value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (SseTopicStats t : topics) {
+            sb.append(name).append("{topic=\"").append(escapeLabel(t.topic())).append("\"} ")
+                    .append(value.applyAsLong(t)).append('\n');
+        }
+    }
+
+    private static void quantile(StringBuilder sb, String labels, String q, long micros) {
+        sb.append("vostok_web_request_duration_seconds{").append(labels).append(",quantile=\"").append(q)
+                .append("\"} ").append(seconds(micros)).append('\n');
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                sb.append(String.format("\\u%04x", (int) ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * 单个路由模板的统计：按 方法 × 状态类别 惰性创建直方图，
+     * 未出现过的组合不占用桶数组内存。
+     */
+    /**
+     * 连接超时类型，对应 reactor 时间轮上的各类截止时间。
+     */
+    public enum TimeoutType {
+        /** 等待请求头/请求体期间无数据到达，返回 408。 */
+        READ("read", "read"),
+        /** 待发送数据长时间无写出进展（客户端停止读取）。 */
+        WRITE("write", "write"),
+        /** keep-alive 或 HTTP/2 连接空闲。 */
+        KEEP_ALIVE("keep_alive", "keepAlive"),
+        /** WebSocket 连接在空闲超时内无任何帧。 */
+        WS_IDLE("ws_idle", "wsIdle"),
+        /** WebSocket ping 发出后未在期限内收到 pong。 */
+        WS_PONG("ws_pong", "wsPong");
+
+        private final String label;
+        private final String jsonName;
+
+        TimeoutType(String label, String jsonName) {
+            this.label = label;
+            this.jsonName = jsonName;
+        }
+
+        /** Prometheus 标签值。 */
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 单个 SSE 主题的统计快照。
+     */
+    public static final class SseTopicStats {
+        private final String topic;
+        private final int subscribers;
+        private final long published;
+        private final long dropped;
+        private final long replayed;
+
+        public SseTopicStats(String topic, int subscribers, long published, long dropped, long replayed) {
+            this.topic = topic;
+            this.subscribers = subscribers;
+            this.published = published;
+            this.dropped = dropped;
+            this.replayed = replayed;
+        }
+
+        public String topic() {
+            return topic;
+        }
+
+        public int subscribers() {
+            return subscribers;
+        }
+
+        public long published() {
+            return published;
+        }
+
+        public long dropped() {
+            return dropped;
+        }
+
+        public long replayed() {
+            return replayed;
+        }
+    }
+
+    /**
+     * 单个 reactor 的连接统计快照。
+     */
+    public static final class ReactorStats {
+        private final int id;
+        private final int connections;
+        private final long accepted;
+
+        public ReactorStats(int id, int connections, long accepted) {
+            this.id = id;
+            this.connections = connections;
+            this.accepted = accepted;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public int connections() {
+            return connections;
+        }
+
+        public long accepted() {
+            return accepted;
+        }
+    }
+
+    private static final class RouteStats {
+        private final String route;
+        private final AtomicReferenceArray<VKLatencyHistogram> histograms =
+                new AtomicReferenceArray<>(METHODS.length * STATUS_CLASSES);
+
+        private RouteStats(String route) {
+            this.route = route;
+        }
+
+        VKLatencyHistogram peek(int method, int statusClass) {
+            return histograms.get(method * STATUS_CLASSES + statusClass);
+        }
+
+        VKLatencyHistogram histogram(int method, int statusClass) {
+            int idx = method * STATUS_CLASSES + statusClass;
+            VKLatencyHistogram h = histograms.get(idx);
+            if (h == null) {
+                histograms.compareAndSet(idx, null, new VKLatencyHistogram());
+                h = histograms.get(idx);
+            }
+            return h;
+        }
     }
 }
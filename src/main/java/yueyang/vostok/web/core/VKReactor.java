@@ -1,29 +1,40 @@
 package yueyang.vostok.web.core;
 
+import yueyang.vostok.web.VKStreamingHandler;
 import yueyang.vostok.web.VKWebConfig;
 import yueyang.vostok.web.http.VKHttpParseException;
+import yueyang.vostok.web.http.VKHttpDate;
 import yueyang.vostok.web.http.VKHttpParser;
 import yueyang.vostok.web.http.VKMultipartParseException;
 import yueyang.vostok.web.http.VKMultipartData;
 import yueyang.vostok.web.http.VKMultipartStreamDecoder;
+import yueyang.vostok.web.http.VKFileRegion;
 import yueyang.vostok.web.http.VKHttpWriter;
 import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.http.VKRequestBodyStream;
 import yueyang.vostok.web.http.VKResponse;
+import yueyang.vostok.web.http2.VKHttp2Frames;
+import yueyang.vostok.web.route.VKRouteMatch;
 import yueyang.vostok.web.spi.VKWebDispatchResult;
 import yueyang.vostok.web.spi.VKWebHttpDispatcher;
 import yueyang.vostok.web.spi.VKWebRuntimeSupport;
 import yueyang.vostok.web.sse.VKSseEmitter;
 import yueyang.vostok.web.util.VKBufferPool;
+import yueyang.vostok.web.util.VKDeflaterPool;
+import yueyang.vostok.web.util.VKDirectBufferPool;
 import yueyang.vostok.web.websocket.VKWebSocketEndpoint;
 import yueyang.vostok.web.websocket.VKWebSocketSession;
 import yueyang.vostok.web.websocket.VKWsAuthResult;
 import yueyang.vostok.web.websocket.VKWsFrame;
 import yueyang.vostok.web.websocket.VKWsHandshakeContext;
+import yueyang.vostok.web.websocket.VKWsSendGroup;
+import yueyang.vostok.web.websocket.VKWsSlowConsumerPolicy;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -41,6 +52,8 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 
 /**
  * NIO Reactor 事件循环，每个 Reactor 绑定一个 Selector 和一个线程。
@@ -59,6 +72,23 @@ import java.util.function.Consumer;
  */
 final class VKReactor implements Runnable {
     private static final AtomicLong TRACE_SEQ = new AtomicLong();
+    /** 每个 reactor 最多池化的 TLS packet 缓冲数（约 16KB/个）。 */
+    private static final int TLS_PACKET_POOL_MAX = 256;
+    /** 每个 reactor 最多池化的 TLS application 缓冲数（unwrap 目标与文件读块）。 */
+    private static final int TLS_APP_POOL_MAX = 16;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+    /** 响应头池化缓冲大小；超过该大小的头部退回堆数组编码。 */
+    private static final int HEAD_BUFFER_SIZE = 2048;
+    private static final int HEAD_POOL_MAX = 256;
+    /** 每个 reactor 最多池化的 permessage-deflate Deflater/Inflater 数。 */
+    private static final int DEFLATER_POOL_MAX = 64;
+    /** 连接时间轮：100ms 一格、1024 格（约 102s 一圈），更远的截止时间在扫描到时重新挂入。 */
+    private static final int TIMER_TICK_MS = 100;
+    private static final int TIMER_SLOTS = 1024;
+    /** 未启用 SSE 心跳时复查 emitter 状态的间隔。 */
+    private static final int SSE_CHECK_INTERVAL_MS = 30_000;
+    /** SSE 注释行心跳，客户端 EventSource 会忽略。 */
+    private static final byte[] SSE_HEARTBEAT = ":\n\n".getBytes(StandardCharsets.US_ASCII);
 
     /**
      * Perf4：ThreadLocal 缓存 SHA-1 MessageDigest，避免 WebSocket 握手时重复创建。
@@ -74,6 +104,7 @@ final class VKReactor implements Runnable {
 
     private final VKBuiltinWebServerEngine engine;
     private final VKWebRuntimeSupport runtime;
+    private final VKMetrics metrics;
     private final Selector selector;
     private final VKWorkerPool workers;
     private final VKHttpParser parser;
@@ -83,10 +114,32 @@ final class VKReactor implements Runnable {
     final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
     private final VKHashedWheelTimer<VKConn> timer;
     private volatile boolean running = true;
+    /** 运行本 reactor 的线程，用于判断调用方是否在 reactor 线程内。 */
+    private volatile Thread thread;
     /** TLS 上下文，null 表示明文 HTTP。 */
     private final SSLContext sslContext;
-
-    VKReactor(VKBuiltinWebServerEngine engine,
+    /**
+     * TLS 直接缓冲池（仅 TLS 模式非 null），只在本 reactor 线程内借还：
+     * packet 池用于 wrap 输出与待发包队列，app 池用于 unwrap 目标与文件读块。
+     */
+    private final VKDirectBufferPool tlsPacketPool;
+    private final VKDirectBufferPool tlsAppPool;
+    /** reactor 编号，对应线程名 vostok-web-reactor-{index}。 */
+    private final int index;
+    /** 分配到本 reactor 的连接数（含尚未完成注册的），用于最少连接分配与 per-reactor 指标。 */
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    /** 响应头编码缓冲池：worker 线程借出并写入头部，reactor 写完后归还。 */
+    final VKBufferPool headPool = new VKBufferPool(HEAD_BUFFER_SIZE, HEAD_POOL_MAX);
+    /** 按秒缓存的 Date 头部行，本 reactor 上的所有响应共享。 */
+    final VKHttpDate httpDate = new VKHttpDate();
+    /** 本 reactor 作为 WebSocket 广播的发送组，同一实例用作分组键。 */
+    private final VKWsSendGroup wsSendGroup = this::execute;
+    /** permessage-deflate 压缩器池，只在本 reactor 线程内借还。 */
+    private final VKDeflaterPool deflaterPool = new VKDeflaterPool(Deflater.DEFAULT_COMPRESSION, DEFLATER_POOL_MAX);
+
+    VKReactor(int index,
+              VKBuiltinWebServerEngine engine,
               VKWebRuntimeSupport runtime,
               Selector selector,
               VKWorkerPool workers,
@@ -94,19 +147,42 @@ final class VKReactor implements Runnable {
               VKBufferPool bufferPool,
               VKWebConfig config,
               SSLContext sslContext) {
+        this.index = index;
         this.engine = engine;
         this.runtime = runtime;
+        this.metrics = runtime.metrics();
         this.selector = selector;
         this.workers = workers;
         this.parser = parser;
         this.bufferPool = bufferPool;
         this.config = config;
         this.sslContext = sslContext;
-        this.timer = new VKHashedWheelTimer<>(1000, 1024, System.currentTimeMillis());
+        this.timer = new VKHashedWheelTimer<>(TIMER_TICK_MS, TIMER_SLOTS, System.currentTimeMillis());
+        if (sslContext != null) {
+            // 以一个探测 SSLEngine 的会话尺寸确定池化缓冲大小；个别会话需要更大缓冲时临时分配
+            SSLSession probe = sslContext.createSSLEngine().getSession();
+            this.tlsPacketPool = new VKDirectBufferPool(probe.getPacketBufferSize(), TLS_PACKET_POOL_MAX);
+            this.tlsAppPool = new VKDirectBufferPool(
+                    Math.max(probe.getApplicationBufferSize() + 32, 16 * 1024), TLS_APP_POOL_MAX);
+        } else {
+            this.tlsPacketPool = null;
+            this.tlsAppPool = null;
+        }
+    }
+
+    /** TLS 缓冲池命中次数（packet + app），明文模式为 0。 */
+    long tlsBufferPoolHits() {
+        return tlsPacketPool == null ? 0 : tlsPacketPool.hits() + tlsAppPool.hits();
+    }
+
+    /** TLS 缓冲池未命中次数（packet + app），明文模式为 0。 */
+    long tlsBufferPoolMisses() {
+        return tlsPacketPool == null ? 0 : tlsPacketPool.misses() + tlsAppPool.misses();
     }
 
     @Override
     public void run() {
+        thread = Thread.currentThread();
         while (running) {
             try {
                 selector.select(200);
@@ -138,6 +214,7 @@ final class VKReactor implements Runnable {
             } catch (IOException ignore) {
             }
         }
+        deflaterPool.clear();
         try {
             selector.close();
         } catch (IOException ignore) {
@@ -149,7 +226,27 @@ final class VKReactor implements Runnable {
         selector.wakeup();
     }
 
+    int index() {
+        return index;
+    }
+
+    /** 当前连接数（含已分配、尚未在 reactor 线程完成注册的连接）。 */
+    int connectionCount() {
+        return connections.get();
+    }
+
+    /** 累计分配到本 reactor 的连接数。 */
+    long acceptedCount() {
+        return accepted.get();
+    }
+
+    /**
+     * 由 acceptor 线程调用：计数后投递注册任务。
+     * 连接数在分配时立即递增，使并发 accept 的最少连接选择能看到尚未注册的连接。
+     */
     void register(SocketChannel channel) {
+        connections.incrementAndGet();
+        accepted.incrementAndGet();
         pending.add(() -> {
             try {
                 SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
@@ -167,6 +264,15 @@ final class VKReactor implements Runnable {
                     if (config.getTlsConfig() != null && config.getTlsConfig().getEnabledCipherSuites() != null) {
                         sslEngine.setEnabledCipherSuites(config.getTlsConfig().getEnabledCipherSuites());
                     }
+                    if (config.isHttp2Enabled()) {
+                        // ALPN：客户端提供 h2 时优先协商 HTTP/2，否则回落 HTTP/1.1
+                        sslEngine.setHandshakeApplicationProtocolSelector((engine, protocols) -> {
+                            if (protocols.contains("h2")) {
+                                return "h2";
+                            }
+                            return protocols.contains("http/1.1") ? "http/1.1" : "";
+                        });
+                    }
                     sslEngine.beginHandshake(); // 触发握手状态机初始化
                 }
                 VKConn conn = new VKConn(engine, runtime, channel, key, parser, bufferPool, workers,
@@ -175,6 +281,7 @@ final class VKReactor implements Runnable {
                 engine.incConnections();
                 conn.rescheduleTimeout(System.currentTimeMillis());
             } catch (Exception e) {
+                connections.decrementAndGet();
                 try {
                     channel.close();
                 } catch (IOException ignore) {
@@ -185,6 +292,14 @@ final class VKReactor implements Runnable {
     }
 
     void requestWrite(VKConn conn) {
+        if (inReactorThread()) {
+            // 在 reactor 线程内（如广播的组任务）直接注册写事件，不经 pending 队列与唤醒
+            SelectionKey key = conn.key();
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+            return;
+        }
         pending.add(() -> {
             SelectionKey key = conn.key();
             if (key != null && key.isValid()) {
@@ -199,6 +314,16 @@ final class VKReactor implements Runnable {
         selector.wakeup();
     }
 
+    boolean inReactorThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /** 在 reactor 线程中执行任务（HTTP/2 会话的 worker 回调使用）。 */
+    void execute(Runnable task) {
+        pending.add(task);
+        selector.wakeup();
+    }
+
     void requestReschedule(VKConn conn) {
         pending.add(() -> conn.rescheduleTimeout(System.currentTimeMillis()));
         selector.wakeup();
@@ -237,15 +362,10 @@ final class VKReactor implements Runnable {
 
     private void pollTimeouts() {
         long now = System.currentTimeMillis();
-        timer.pollExpired(now, entry -> {
-            VKConn conn = entry.target;
-            if (conn == null || conn.isClosed()) {
-                return;
+        timer.pollExpired(now, conn -> {
+            if (!conn.isClosed()) {
+                conn.onTimeout(now);
             }
-            if (conn.timeoutToken() != entry.token) {
-                return;
-            }
-            conn.onTimeout(now);
         });
     }
 
@@ -258,11 +378,13 @@ final class VKReactor implements Runnable {
          * - HTTP：标准 HTTP/1.1 请求响应
          * - WS：WebSocket 全双工
          * - SSE：Server-Sent Events，服务端单向推流
+         * - H2：HTTP/2 多路复用，帧处理委托给 VKHttp2Session
          */
         private enum Protocol {
             HTTP,
             WS,
-            SSE
+            SSE,
+            H2
         }
 
         private final VKBuiltinWebServerEngine engine;
@@ -276,6 +398,7 @@ final class VKReactor implements Runnable {
         /** 明文模式下的读缓冲（从连接池借出，关闭时归还）。 */
         private final ByteBuffer readBuffer;
         private final int readTimeoutMs;
+        private final int writeTimeoutMs;
         private final VKWebConfig webConfig;
 
         /**
@@ -284,12 +407,18 @@ final class VKReactor implements Runnable {
          */
         private byte[] dataBuf = new byte[8192];
         private int dataLen;
+        /** 增量解析状态：慢速到达的请求不必每次读事件都从头重扫。 */
+        private final VKHttpParser.State parseState = new VKHttpParser.State();
+        /** 已判定为普通请求（非流式、非 multipart）的头部，等待请求体期间不再重复匹配路由。 */
+        private VKHttpParser.ParsedHeaders plainHeaders;
 
         private final Queue<VKOutbound> writeQueue = new ConcurrentLinkedQueue<>();
         private VKOutbound currentOutbound;
         private ByteBuffer currentHead;
         private ByteBuffer currentBody;
         private long currentFilePos;
+        /** head + body 聚合写的复用数组。 */
+        private final ByteBuffer[] gather = new ByteBuffer[2];
 
         private volatile boolean closeAfterWrite;
         private volatile boolean waitingBody;
@@ -298,7 +427,11 @@ final class VKReactor implements Runnable {
 
         private volatile long lastActive;
         private volatile long lastRead;
-        private volatile long timeoutToken = -1;
+        /** 本连接在 reactor 时间轮上的常驻节点，所有截止时间共用，仅 reactor 线程访问。 */
+        private final VKHashedWheelTimer.Timeout<VKConn> timeout = new VKHashedWheelTimer.Timeout<>(this);
+        /** 是否有待写出的数据，以及最近一次写出进展的时间（仅 reactor 线程访问）。 */
+        private boolean writePending;
+        private long lastWriteProgress;
         private volatile Protocol protocol = Protocol.HTTP;
 
         // WebSocket 状态
@@ -315,10 +448,24 @@ final class VKReactor implements Runnable {
         private int wsPendingBytes;
         private int wsFragmentOpcode = -1;
         private ByteArrayOutputStream wsFragmentBuffer;
+        /** 当前分片消息首帧是否置位 RSV1（permessage-deflate 压缩）。 */
+        private boolean wsFragmentCompressed;
+        /** 协商得到的 permessage-deflate 状态，null 表示未启用压缩。 */
+        private volatile VKWsDeflate wsDeflate;
 
         // SSE 状态
         /** 当前 SSE 发射器，close() 时标记为 closed。 */
         private volatile VKSseEmitter sseEmitter;
+        /** 最近一次投递 SSE 事件或心跳的时间。 */
+        private volatile long sseLastSentAt;
+        /** 已入队未写出的 SSE 事件字节数：发送方（任意线程）累加，reactor 写完后扣减。 */
+        private AtomicInteger ssePendingBytes;
+
+        // HTTP/2 状态
+        /** HTTP/2 会话，仅在 protocol == H2 时非 null。 */
+        private VKHttp2Session http2;
+        /** 是否已完成 HTTP/2 连接前言探测（只在连接首个请求前探测一次）。 */
+        private boolean h2Probed;
 
         // TLS 状态
         /** SSLEngine 实例，null 表示明文连接。 */
@@ -332,6 +479,13 @@ final class VKReactor implements Runnable {
 
         private final AtomicInteger inFlight = new AtomicInteger();
         private MultipartCtx multipartCtx;
+        /** 流式请求体（VKStreamingHandler 路由），仅 reactor 线程读写该字段。 */
+        private VKRequestBodyStream bodyStream;
+        private long bodyRemaining;
+        /** 流式请求体缓冲达到高水位，已取消 OP_READ。 */
+        private boolean readPaused;
+        /** 正在写出的流式响应体，连接关闭时用于唤醒阻塞的写出器。 */
+        private volatile VKChunkedOutput responseStream;
 
         VKConn(VKBuiltinWebServerEngine engine,
                VKWebRuntimeSupport runtime,
@@ -353,6 +507,7 @@ final class VKReactor implements Runnable {
             this.reactor = reactor;
             this.webConfig = config;
             this.readTimeoutMs = config.getReadTimeoutMs();
+            this.writeTimeoutMs = config.getWriteTimeoutMs();
             this.readBuffer = bufferPool.acquire();
             this.lastActive = System.currentTimeMillis();
             this.lastRead = lastActive;
@@ -371,10 +526,6 @@ final class VKReactor implements Runnable {
             return key;
         }
 
-        long timeoutToken() {
-            return timeoutToken;
-        }
-
         boolean isClosed() {
             return closed;
         }
@@ -397,6 +548,7 @@ final class VKReactor implements Runnable {
                 close();
                 return;
             }
+            reactor.metrics.recordBytesIn(read);
 
             if (read <= 0) {
                 if (read < 0) {
@@ -447,6 +599,7 @@ final class VKReactor implements Runnable {
                 close();
                 return;
             }
+            reactor.metrics.recordBytesIn(n);
             if (n < 0) {
                 if (protocol == Protocol.SSE) {
                     VKSseEmitter e = sseEmitter;
@@ -498,40 +651,39 @@ final class VKReactor implements Runnable {
          * @return true 表示成功（可能解密了 0 字节）；false 表示连接应关闭
          */
         private boolean decryptSslInput() {
-            while (sslNetIn.hasRemaining()) {
-                int appBufSize = sslEngine.getSession().getApplicationBufferSize() + 32;
-                ByteBuffer appBuf = ByteBuffer.allocate(appBufSize);
-                SSLEngineResult res;
-                try {
-                    res = sslEngine.unwrap(sslNetIn, appBuf);
-                } catch (SSLException e) {
-                    close();
-                    return false;
-                }
-                switch (res.getStatus()) {
-                    case BUFFER_UNDERFLOW:
-                        // 需要更多网络数据，等待下次 read 事件
-                        sslNetIn.compact(); // 转回写模式，保留未消费内容
-                        return true;
-                    case BUFFER_OVERFLOW:
-                        // 不应发生（appBuf 已足够大），跳过
-                        break;
-                    case CLOSED:
+            ByteBuffer appBuf = acquireAppBuffer();
+            try {
+                while (sslNetIn.hasRemaining()) {
+                    appBuf.clear();
+                    SSLEngineResult res;
+                    try {
+                        res = sslEngine.unwrap(sslNetIn, appBuf);
+                    } catch (SSLException e) {
                         close();
                         return false;
-                    case OK:
-                        appBuf.flip();
-                        int nDecrypted = appBuf.remaining();
-                        if (nDecrypted > 0) {
-                            // 注意：appBuf.get() 会修改 remaining()，需先保存
-                            ensureCapacity(dataLen + nDecrypted);
-                            appBuf.get(dataBuf, dataLen, nDecrypted);
-                            dataLen += nDecrypted;
-                        }
-                        // 可能还有更多 TLS 记录，继续循环
-                        continue;
+                    }
+                    switch (res.getStatus()) {
+                        case BUFFER_UNDERFLOW:
+                            // 需要更多网络数据，等待下次 read 事件
+                            sslNetIn.compact(); // 转回写模式，保留未消费内容
+                            return true;
+                        case BUFFER_OVERFLOW:
+                            // 会话要求的缓冲大于池化尺寸：换一个足够大的临时缓冲重试
+                            reactor.tlsAppPool.release(appBuf);
+                            appBuf = ByteBuffer.allocate(sslEngine.getSession().getApplicationBufferSize() + 32);
+                            continue;
+                        case CLOSED:
+                            close();
+                            return false;
+                        case OK:
+                            drainAppBuffer(appBuf);
+                            // 可能还有更多 TLS 记录，继续循环
+                            continue;
+                    }
+                    break;
                 }
-                break;
+            } finally {
+                reactor.tlsAppPool.release(appBuf);
             }
             // sslNetIn 已读完，compact 转回写模式
             if (sslNetIn.hasRemaining()) {
@@ -571,12 +723,13 @@ final class VKReactor implements Runnable {
 
                         case NEED_WRAP: {
                             // 生成握手数据（ServerHello、证书等）
-                            ByteBuffer netOut = ByteBuffer.allocate(
-                                    sslEngine.getSession().getPacketBufferSize());
-                            SSLEngineResult r = sslEngine.wrap(ByteBuffer.allocate(0), netOut);
+                            ByteBuffer netOut = acquirePacketBuffer();
+                            SSLEngineResult r = sslEngine.wrap(EMPTY_BUFFER, netOut);
                             netOut.flip();
                             if (netOut.hasRemaining()) {
                                 sslOutPackets.addLast(netOut);
+                            } else {
+                                reactor.tlsPacketPool.release(netOut);
                             }
                             // 尝试将生成的握手数据写出
                             boolean flushed = flushSslOutPackets();
@@ -603,9 +756,15 @@ final class VKReactor implements Runnable {
                                 sslNetIn.compact();
                                 return;
                             }
-                            ByteBuffer appBuf = ByteBuffer.allocate(
-                                    sslEngine.getSession().getApplicationBufferSize() + 32);
-                            SSLEngineResult r = sslEngine.unwrap(sslNetIn, appBuf);
+                            ByteBuffer appBuf = acquireAppBuffer();
+                            SSLEngineResult r;
+                            try {
+                                r = sslEngine.unwrap(sslNetIn, appBuf);
+                                // TLS 1.3 下握手尾部可能紧跟应用数据，不能丢弃
+                                drainAppBuffer(appBuf);
+                            } finally {
+                                reactor.tlsAppPool.release(appBuf);
+                            }
                             if (r.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
                                 // 握手数据未到齐，compact 保留现有数据等待更多读事件
                                 sslNetIn.compact();
@@ -635,6 +794,36 @@ final class VKReactor implements Runnable {
             }
         }
 
+        /** 从 reactor 池借出 unwrap 目标缓冲；会话要求更大时临时分配。 */
+        private ByteBuffer acquireAppBuffer() {
+            int need = sslEngine.getSession().getApplicationBufferSize() + 32;
+            if (need <= reactor.tlsAppPool.bufferSize()) {
+                return reactor.tlsAppPool.acquire();
+            }
+            return ByteBuffer.allocate(need);
+        }
+
+        /** 从 reactor 池借出 wrap 输出缓冲；会话要求更大时临时分配。 */
+        private ByteBuffer acquirePacketBuffer() {
+            int need = sslEngine.getSession().getPacketBufferSize();
+            if (need <= reactor.tlsPacketPool.bufferSize()) {
+                return reactor.tlsPacketPool.acquire();
+            }
+            return ByteBuffer.allocate(need);
+        }
+
+        /** 将 unwrap 产出的明文（appBuf 写模式）追加到 dataBuf。 */
+        private void drainAppBuffer(ByteBuffer appBuf) {
+            appBuf.flip();
+            int n = appBuf.remaining();
+            if (n > 0) {
+                ensureCapacity(dataLen + n);
+                appBuf.get(dataBuf, dataLen, n);
+                dataLen += n;
+            }
+            appBuf.clear();
+        }
+
         /** 同步执行 SSLEngine 委托的计算任务（密钥派生等），在 reactor 线程中内联执行。 */
         private void runDelegatedTasks() {
             Runnable task;
@@ -648,6 +837,22 @@ final class VKReactor implements Runnable {
          * 供明文路径和 TLS 解密后共同调用。
          */
         private void processDataBuf(long now) {
+            if (protocol == Protocol.HTTP && !h2Probed && webConfig.isHttp2Enabled()) {
+                if (!probeHttp2()) {
+                    rescheduleTimeout(now);
+                    return;
+                }
+            }
+            if (protocol == Protocol.H2) {
+                int consumed = http2.onData(dataBuf, dataLen);
+                shift(consumed);
+                if (dataLen == 0) {
+                    maybeShrinkDataBuf();
+                }
+                rescheduleTimeout(now);
+                return;
+            }
+
             // SSE 连接：客户端数据直接忽略（SSE 是单向推送，不期望客户端发数据）
             if (protocol == Protocol.SSE) {
                 dataLen = 0; // 丢弃客户端发来的任何数据
@@ -662,6 +867,12 @@ final class VKReactor implements Runnable {
 
             // HTTP 解析循环
             while (true) {
+                if (bodyStream != null) {
+                    // 流式请求体已派发给 worker：剩余字节全部交给 bodyStream，
+                    // 后续流水线请求等响应写出后经 requestContinueRead 继续解析
+                    feedBodyStream(now);
+                    return;
+                }
                 if (multipartCtx != null) {
                     if (!consumeMultipartBody()) {
                         waitingBody = true;
@@ -673,7 +884,7 @@ final class VKReactor implements Runnable {
                 }
                 VKHttpParser.ParsedHeaders headers;
                 try {
-                    headers = parser.parseHeadersOnly(dataBuf, dataLen);
+                    headers = parser.parseHeaders(parseState, dataBuf, dataLen);
                 } catch (VKHttpParseException e) {
                     respondError(e.status(), e.getMessage(), true);
                     return;
@@ -681,7 +892,23 @@ final class VKReactor implements Runnable {
                     respondError(400, "Bad Request", true);
                     return;
                 }
-                if (headers != null && isStreamingMultipart(headers)) {
+                if (headers == null || headers == plainHeaders) {
+                    break;
+                }
+                if (isStreamingRoute(headers)) {
+                    if (headers.chunked()) {
+                        respondError(411, "Length Required", true);
+                        return;
+                    }
+                    if (headers.contentLengthLong() > webConfig.getStreamingMaxBodyBytes()) {
+                        respondError(413, "Body too large", true);
+                        return;
+                    }
+                    startBodyStream(headers);
+                    feedBodyStream(now);
+                    return;
+                }
+                if (isStreamingMultipart(headers)) {
                     if (headers.chunked()) {
                         respondError(400, "Chunked multipart is not supported", true);
                         return;
@@ -691,7 +918,7 @@ final class VKReactor implements Runnable {
                         respondError(413, "Body too large", true);
                         return;
                     }
-                    String contentType = headers.headers().get("content-type");
+                    String contentType = headers.header("content-type");
                     String boundary = extractBoundary(contentType);
                     if (boundary == null || boundary.isEmpty()) {
                         respondError(400, "Invalid multipart boundary", true);
@@ -702,13 +929,14 @@ final class VKReactor implements Runnable {
                     shift(consumed);
                     continue;
                 }
+                plainHeaders = headers;
                 break;
             }
 
             while (true) {
                 VKHttpParser.ParsedRequest parsed;
                 try {
-                    parsed = parser.parse(dataBuf, dataLen, remoteAddress(), sentContinue);
+                    parsed = parser.parse(parseState, dataBuf, dataLen, remoteAddress());
                 } catch (VKHttpParseException e) {
                     respondError(e.status(), e.getMessage(), true);
                     return;
@@ -719,7 +947,7 @@ final class VKReactor implements Runnable {
 
                 if (parsed == null) {
                     waitingBody = true;
-                    if (!sentContinue && parser.shouldSendContinue(dataBuf, dataLen)) {
+                    if (!sentContinue && parser.shouldSendContinue(parseState)) {
                         enqueueResponse(VKOutbound.fromHeadBytes(VKHttpWriter.writeContinue()), false);
                         sentContinue = true;
                     }
@@ -755,6 +983,31 @@ final class VKReactor implements Runnable {
             }
         }
 
+        /**
+         * 探测 HTTP/2 连接前言（明文 prior-knowledge 或 TLS ALPN 协商为 h2）。
+         * 匹配成功则切换到 H2 协议并发送服务端 SETTINGS。
+         *
+         * @return false 表示前言尚不完整，需等待更多数据
+         */
+        private boolean probeHttp2() {
+            if (sslEngine != null && !"h2".equals(sslEngine.getApplicationProtocol())) {
+                h2Probed = true;
+                return true;
+            }
+            int match = VKHttp2Frames.matchPreface(dataBuf, dataLen);
+            if (match == 0) {
+                return false;
+            }
+            h2Probed = true;
+            if (match > 0) {
+                shift(VKHttp2Frames.PREFACE.length);
+                protocol = Protocol.H2;
+                http2 = new VKHttp2Session(this, reactor, runtime, workers, webConfig);
+                http2.start();
+            }
+            return true;
+        }
+
         // -----------------------------------------------------------------------
         // onWrite: 写事件处理（TLS/明文双路径）
         // -----------------------------------------------------------------------
@@ -777,7 +1030,7 @@ final class VKReactor implements Runnable {
                     // 握手未完成，正等待客户端数据（NEED_UNWRAP）
                     // sslOutPackets 已空：清除 OP_WRITE 避免空转；等待 OP_READ 触发后续握手
                     if (sslOutPackets.isEmpty() && key.isValid()) {
-                        key.interestOps(SelectionKey.OP_READ);
+                        key.interestOps(readPaused ? 0 : SelectionKey.OP_READ);
                     }
                     return;
                 }
@@ -801,31 +1054,31 @@ final class VKReactor implements Runnable {
 
         /**
          * 明文写循环：将 writeQueue 中的 outbound 按顺序写出到 channel。
+         * 文件区间通过 FileChannel.transferTo 直接从页缓存发送到 socket（零拷贝 sendfile）。
          */
         private void writeLoop() throws IOException {
             while (true) {
-                if (currentOutbound == null) {
-                    currentOutbound = writeQueue.poll();
-                    currentFilePos = 0;
-                    if (currentOutbound == null) {
-                        if (key.isValid()) {
-                            key.interestOps(SelectionKey.OP_READ);
-                        }
-                        if (closeAfterWrite) {
-                            close();
-                        } else {
-                            lastActive = System.currentTimeMillis();
-                            rescheduleTimeout(lastActive);
-                        }
+                if (currentOutbound == null && !pollOutbound()) {
+                    return;
+                }
+
+                if (currentHead != null && currentBody != null && currentBody.hasRemaining()) {
+                    // head 与非空 body 一次 gather write，小响应只需一次系统调用
+                    gather[0] = currentHead;
+                    gather[1] = currentBody;
+                    long n = channel.write(gather);
+                    gather[0] = null;
+                    gather[1] = null;
+                    wrote(n);
+                    if (currentHead.hasRemaining() || currentBody.hasRemaining()) {
                         return;
                     }
-                    // 在首次出队时初始化 head/body 缓冲，避免 OP_WRITE 多次触发时重复写入头部
-                    currentHead = currentOutbound.head != null ? ByteBuffer.wrap(currentOutbound.head) : null;
-                    currentBody = currentOutbound.body != null ? ByteBuffer.wrap(currentOutbound.body) : null;
+                    currentHead = null;
+                    currentBody = null;
                 }
 
                 if (currentHead != null) {
-                    channel.write(currentHead);
+                    wrote(channel.write(currentHead));
                     if (currentHead.hasRemaining()) {
                         return;
                     }
@@ -833,7 +1086,7 @@ final class VKReactor implements Runnable {
                 }
 
                 if (currentBody != null) {
-                    channel.write(currentBody);
+                    wrote(channel.write(currentBody));
                     if (currentBody.hasRemaining()) {
                         return;
                     }
@@ -841,25 +1094,23 @@ final class VKReactor implements Runnable {
                 }
 
                 if (currentOutbound.file != null) {
-                    long transferred = currentOutbound.file.transferTo(currentFilePos,
-                            currentOutbound.fileLength - currentFilePos, channel);
-                    if (transferred > 0) {
+                    long end = currentOutbound.fileOffset + currentOutbound.fileLength;
+                    while (currentFilePos < end) {
+                        long transferred = currentOutbound.file.transferTo(currentFilePos,
+                                end - currentFilePos, channel);
+                        if (transferred <= 0) {
+                            if (currentFilePos >= currentOutbound.file.size()) {
+                                // 文件在发送途中被截断，已发出的 Content-Length 无法兑现
+                                close();
+                            }
+                            return;
+                        }
                         currentFilePos += transferred;
-                    }
-                    if (currentFilePos < currentOutbound.fileLength) {
-                        return;
-                    }
-                    try {
-                        currentOutbound.file.close();
-                    } catch (IOException ignore) {
+                        wrote(transferred);
                     }
                 }
 
-                if (currentOutbound.wsFrame) {
-                    wsPendingFrames = Math.max(0, wsPendingFrames - 1);
-                    wsPendingBytes = Math.max(0, wsPendingBytes - (int) currentOutbound.totalBytes());
-                }
-                currentOutbound = null;
+                finishOutbound();
             }
         }
 
@@ -874,43 +1125,18 @@ final class VKReactor implements Runnable {
                     return;
                 }
 
-                if (currentOutbound == null) {
-                    currentOutbound = writeQueue.poll();
-                    currentHead = null;
-                    currentBody = null;
-                    currentFilePos = 0;
-                    if (currentOutbound == null) {
-                        if (key.isValid()) {
-                            key.interestOps(SelectionKey.OP_READ);
-                        }
-                        if (closeAfterWrite) {
-                            close();
-                        } else {
-                            lastActive = System.currentTimeMillis();
-                            rescheduleTimeout(lastActive);
-                        }
-                        return;
-                    }
+                if (currentOutbound == null && !pollOutbound()) {
+                    return;
                 }
 
-                // 加密 head 部分
-                if (currentHead == null && currentOutbound.head != null) {
-                    currentHead = ByteBuffer.wrap(currentOutbound.head);
-                }
-                if (currentHead != null) {
-                    wrapAndEnqueue(currentHead);
-                    currentHead = null;
-                    if (!flushSslOutPackets()) {
-                        return;
+                // head + body 一次 gather-wrap，小响应可合并进同一个 TLS 记录
+                if (currentHead != null || currentBody != null) {
+                    if (currentHead != null && currentBody != null) {
+                        wrapAndEnqueue(currentHead, currentBody);
+                    } else {
+                        wrapAndEnqueue(currentHead != null ? currentHead : currentBody);
                     }
-                }
-
-                // 加密 body 部分
-                if (currentBody == null && currentOutbound.body != null) {
-                    currentBody = ByteBuffer.wrap(currentOutbound.body);
-                }
-                if (currentBody != null) {
-                    wrapAndEnqueue(currentBody);
+                    currentHead = null;
                     currentBody = null;
                     if (!flushSslOutPackets()) {
                         return;
@@ -919,54 +1145,156 @@ final class VKReactor implements Runnable {
 
                 // 文件响应：分块读取并加密（TLS 不支持 zero-copy sendfile）
                 if (currentOutbound.file != null) {
-                    ByteBuffer fileBuf = ByteBuffer.allocate(16 * 1024);
-                    while (currentFilePos < currentOutbound.fileLength) {
-                        fileBuf.clear();
-                        long toRead = Math.min(fileBuf.capacity(), currentOutbound.fileLength - currentFilePos);
-                        fileBuf.limit((int) toRead);
-                        int nRead = currentOutbound.file.read(fileBuf, currentFilePos);
-                        if (nRead <= 0) break;
-                        currentFilePos += nRead;
-                        fileBuf.flip();
-                        wrapAndEnqueue(fileBuf);
-                        if (!flushSslOutPackets()) {
-                            return;
-                        }
-                    }
-                    if (currentFilePos >= currentOutbound.fileLength) {
-                        try {
-                            currentOutbound.file.close();
-                        } catch (IOException ignore) {
+                    long end = currentOutbound.fileOffset + currentOutbound.fileLength;
+                    ByteBuffer fileBuf = reactor.tlsAppPool.acquire();
+                    try {
+                        while (currentFilePos < end) {
+                            fileBuf.clear();
+                            long toRead = Math.min(16 * 1024, end - currentFilePos);
+                            fileBuf.limit((int) toRead);
+                            int nRead = currentOutbound.file.read(fileBuf, currentFilePos);
+                            if (nRead <= 0) {
+                                close();
+                                return;
+                            }
+                            currentFilePos += nRead;
+                            fileBuf.flip();
+                            wrapAndEnqueue(fileBuf);
+                            if (!flushSslOutPackets()) {
+                                return;
+                            }
                         }
+                    } finally {
+                        reactor.tlsAppPool.release(fileBuf);
                     }
                 }
 
-                if (currentOutbound.wsFrame) {
-                    wsPendingFrames = Math.max(0, wsPendingFrames - 1);
-                    wsPendingBytes = Math.max(0, wsPendingBytes - (int) currentOutbound.totalBytes());
+                finishOutbound();
+            }
+        }
+
+        /**
+         * 从写队列取出下一个 outbound；队列已空时进入空闲（或按 closeAfterWrite 关闭连接）。
+         *
+         * @return false 表示没有待写数据
+         */
+        private boolean pollOutbound() {
+            VKOutbound next = writeQueue.poll();
+            if (next == null && http2 != null && http2.produceMore()) {
+                next = writeQueue.poll();
+            }
+            if (next == null) {
+                writePending = false;
+                if (key.isValid()) {
+                    key.interestOps(readPaused ? 0 : SelectionKey.OP_READ);
+                }
+                if (closeAfterWrite) {
+                    close();
+                } else {
+                    lastActive = System.currentTimeMillis();
+                    rescheduleTimeout(lastActive);
+                }
+                return false;
+            }
+            if (!writePending) {
+                // 从空闲转入写出：写超时自此起算
+                writePending = true;
+                lastWriteProgress = System.currentTimeMillis();
+                rescheduleTimeout(lastWriteProgress);
+            }
+            beginOutbound(next);
+            return true;
+        }
+
+        /** 记录写出字节数；有进展时刷新写超时起点。 */
+        private void wrote(long n) {
+            reactor.metrics.recordBytesOut(n);
+            if (n > 0) {
+                lastWriteProgress = System.currentTimeMillis();
+            }
+        }
+
+        /** 初始化 head/body/文件游标，只在首次出队时执行一次，避免 OP_WRITE 多次触发时重复写入头部。 */
+        private void beginOutbound(VKOutbound out) {
+            currentOutbound = out;
+            if (out.headBuffer != null) {
+                currentHead = out.headBuffer.duplicate();
+            } else {
+                currentHead = out.head != null ? ByteBuffer.wrap(out.head) : null;
+            }
+            if (out.bodyBuffer != null) {
+                currentBody = out.bodyBuffer.duplicate();
+            } else {
+                currentBody = out.body != null ? ByteBuffer.wrap(out.body) : null;
+            }
+            currentFilePos = out.fileOffset;
+        }
+
+        /** 当前 outbound 写完：multipart/byteranges 链上还有后续分段则继续，否则释放文件。 */
+        private void finishOutbound() {
+            VKOutbound done = currentOutbound;
+            if (done.chunkOwner != null) {
+                done.chunkOwner.onWritten(done.pooled, done.bodyBuffer.remaining());
+            }
+            if (done.headBuffer != null) {
+                reactor.headPool.release(done.headBuffer);
+            }
+            if (done.wsFrame) {
+                wsPendingFrames = Math.max(0, wsPendingFrames - 1);
+                wsPendingBytes = Math.max(0, wsPendingBytes - (int) done.totalBytes());
+            }
+            if (done.sseEvent) {
+                ssePendingBytes.addAndGet(-(int) done.totalBytes());
+            }
+            if (done.next != null) {
+                beginOutbound(done.next);
+                return;
+            }
+            if (done.file != null) {
+                try {
+                    done.file.close();
+                } catch (IOException ignore) {
                 }
-                currentOutbound = null;
             }
+            currentOutbound = null;
         }
 
         /**
-         * 将明文 ByteBuffer 经 SSLEngine 加密，结果放入 sslOutPackets 队列。
+         * 将明文经 SSLEngine 加密，结果放入 sslOutPackets 队列。
+         * 多个源缓冲通过 wrap(ByteBuffer[]) 一次 gather 加密，输出包从 reactor 池借出，写出后归还。
          */
-        private void wrapAndEnqueue(ByteBuffer plaintext) throws IOException {
-            while (plaintext.hasRemaining()) {
-                ByteBuffer netOut = ByteBuffer.allocate(sslEngine.getSession().getPacketBufferSize());
+        private void wrapAndEnqueue(ByteBuffer... plaintext) throws IOException {
+            while (hasRemaining(plaintext)) {
+                ByteBuffer netOut = acquirePacketBuffer();
+                SSLEngineResult r;
                 try {
-                    sslEngine.wrap(plaintext, netOut);
+                    r = sslEngine.wrap(plaintext, netOut);
                 } catch (SSLException e) {
+                    reactor.tlsPacketPool.release(netOut);
                     throw new IOException("TLS wrap failed", e);
                 }
                 netOut.flip();
                 if (netOut.hasRemaining()) {
                     sslOutPackets.addLast(netOut);
+                } else {
+                    reactor.tlsPacketPool.release(netOut);
+                }
+                if (r.getStatus() == SSLEngineResult.Status.CLOSED
+                        || (r.bytesConsumed() == 0 && r.bytesProduced() == 0)) {
+                    throw new IOException("TLS wrap made no progress: " + r.getStatus());
                 }
             }
         }
 
+        private static boolean hasRemaining(ByteBuffer[] buffers) {
+            for (ByteBuffer b : buffers) {
+                if (b.hasRemaining()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         /**
          * 将 sslOutPackets 中已加密的数据包写入 channel。
          *
@@ -975,7 +1303,7 @@ final class VKReactor implements Runnable {
         private boolean flushSslOutPackets() throws IOException {
             while (!sslOutPackets.isEmpty()) {
                 ByteBuffer packet = sslOutPackets.peekFirst();
-                channel.write(packet);
+                wrote(channel.write(packet));
                 if (packet.hasRemaining()) {
                     // channel 写缓冲已满，注册 OP_WRITE 等待
                     if (key.isValid()) {
@@ -983,7 +1311,7 @@ final class VKReactor implements Runnable {
                     }
                     return false;
                 }
-                sslOutPackets.pollFirst();
+                reactor.tlsPacketPool.release(sslOutPackets.pollFirst());
             }
             return true;
         }
@@ -996,6 +1324,20 @@ final class VKReactor implements Runnable {
             if (closed) {
                 return;
             }
+            if (writePending && now - lastWriteProgress >= writeTimeoutMs) {
+                // 客户端长时间不读取：已无法写出 408，直接关闭；阻塞中的流式写出器随之被唤醒
+                reactor.metrics.recordTimeout(VKMetrics.TimeoutType.WRITE);
+                close();
+                return;
+            }
+            if (bodyStream != null && !readPaused && now - lastRead >= readTimeoutMs) {
+                // 流式上传期间请求处于 in-flight，单独检查读超时；暂停读取时等待 handler 消费，不计超时
+                reactor.metrics.recordTimeout(VKMetrics.TimeoutType.READ);
+                bodyStream.fail(new IOException("Request body read timeout"));
+                bodyStream = null;
+                respondTimeout();
+                return;
+            }
             if (inFlight.get() > 0) {
                 rescheduleTimeout(now);
                 return;
@@ -1005,48 +1347,83 @@ final class VKReactor implements Runnable {
                 return;
             }
             if (protocol == Protocol.SSE) {
-                // SSE：emitter 已关闭则关闭连接；否则继续保持长驻
-                VKSseEmitter e = sseEmitter;
-                if (e == null || !e.isOpen()) {
-                    close();
-                } else {
-                    rescheduleTimeout(now);
+                handleSseTimeout(now);
+                return;
+            }
+            if (protocol == Protocol.H2) {
+                // HTTP/2：仍有活跃流时保持连接；空闲超过 keep-alive 后发送 GOAWAY 关闭
+                if (!http2.hasOpenStreams() && now - lastActive >= engine.keepAliveTimeoutMs()) {
+                    reactor.metrics.recordTimeout(VKMetrics.TimeoutType.KEEP_ALIVE);
+                    http2.goAway();
+                    return;
                 }
+                rescheduleTimeout(now);
                 return;
             }
             if (waitingBody) {
                 if (now - lastRead >= readTimeoutMs) {
+                    reactor.metrics.recordTimeout(VKMetrics.TimeoutType.READ);
                     respondTimeout();
                     return;
                 }
-            } else {
-                if (now - lastActive >= engine.keepAliveTimeoutMs()) {
-                    close();
-                    return;
-                }
+            } else if (!writePending && now - lastActive >= engine.keepAliveTimeoutMs()) {
+                reactor.metrics.recordTimeout(VKMetrics.TimeoutType.KEEP_ALIVE);
+                close();
+                return;
             }
             rescheduleTimeout(now);
         }
 
+        /**
+         * 按当前状态把连接的下一个截止时间挂到 reactor 时间轮上。
+         * 连接活动时调用的开销为 O(1)：截止时间推迟只改写节点字段，到期扫描时才重新挂入。
+         * 时间轮只在 reactor 线程访问，其他线程的调用转投 pending 队列。
+         */
         void rescheduleTimeout(long now) {
             if (closed) {
                 return;
             }
-            if (protocol == Protocol.WS) {
-                timeoutToken = reactor.timer.schedule(this, now + 1000);
+            if (!reactor.inReactorThread()) {
+                reactor.requestReschedule(this);
                 return;
             }
-            if (protocol == Protocol.SSE) {
-                // SSE 连接每 30s 检查一次 emitter 状态
-                timeoutToken = reactor.timer.schedule(this, now + 30_000);
-                return;
+            long deadline = nextDeadline(now);
+            if (writePending) {
+                deadline = Math.min(deadline, lastWriteProgress + writeTimeoutMs);
             }
-            long timeoutMs = waitingBody ? readTimeoutMs : engine.keepAliveTimeoutMs();
-            if (inFlight.get() > 0) {
-                timeoutMs = Math.max(timeoutMs, engine.keepAliveTimeoutMs());
+            reactor.timer.schedule(timeout, deadline);
+        }
+
+        private long nextDeadline(long now) {
+            int keepAliveMs = engine.keepAliveTimeoutMs();
+            if (bodyStream != null && !readPaused) {
+                return lastRead + readTimeoutMs;
             }
-            long deadline = now + timeoutMs;
-            timeoutToken = reactor.timer.schedule(this, deadline);
+            if (inFlight.get() > 0) {
+                // 处理中的请求完成后会重新调度，这里只作兜底复查
+                return now + keepAliveMs;
+            }
+            return switch (protocol) {
+                case WS -> webSocketDeadline(now);
+                case SSE -> {
+                    int heartbeatMs = webConfig.getSseHeartbeatIntervalMs();
+                    yield heartbeatMs > 0 ? sseLastSentAt + heartbeatMs : now + SSE_CHECK_INTERVAL_MS;
+                }
+                case H2 -> http2.hasOpenStreams() ? now + keepAliveMs : lastActive + keepAliveMs;
+                case HTTP -> waitingBody ? lastRead + readTimeoutMs : lastActive + keepAliveMs;
+            };
+        }
+
+        /** 写队列全部写出后关闭连接。 */
+        void closeAfterWrite() {
+            closeAfterWrite = true;
+            reactor.requestWrite(this);
+        }
+
+        /** 写队列与 TLS 待发包是否均已清空。 */
+        boolean outboundIdle() {
+            return currentOutbound == null && writeQueue.isEmpty()
+                    && (sslOutPackets == null || sslOutPackets.isEmpty());
         }
 
         void enqueueResponse(VKOutbound outbound, boolean close) {
@@ -1057,6 +1434,14 @@ final class VKReactor implements Runnable {
             reactor.requestWrite(this);
         }
 
+        /** 投递流式响应的一个分块；写完后通过 owner 归还池化缓冲。 */
+        void enqueueChunk(ByteBuffer frame, ByteBuffer pooled, VKChunkedOutput owner) {
+            VKOutbound out = new VKOutbound(null, null, frame, null, 0, 0, false);
+            out.pooled = pooled;
+            out.chunkOwner = owner;
+            enqueueResponse(out, false);
+        }
+
         // -----------------------------------------------------------------------
         // close: 连接关闭清理
         // -----------------------------------------------------------------------
@@ -1068,7 +1453,11 @@ final class VKReactor implements Runnable {
             boolean wsWasOpen = protocol == Protocol.WS;
             boolean sseWasOpen = protocol == Protocol.SSE;
             closed = true;
-            timeoutToken = -1;
+            if (reactor.inReactorThread()) {
+                reactor.timer.cancel(timeout);
+            } else {
+                reactor.execute(() -> reactor.timer.cancel(timeout));
+            }
 
             try {
                 key.cancel();
@@ -1080,6 +1469,7 @@ final class VKReactor implements Runnable {
             }
             bufferPool.release(readBuffer);
             engine.decConnections();
+            reactor.connections.decrementAndGet();
 
             closeOutbound(currentOutbound);
             VKOutbound pendingOut;
@@ -1090,6 +1480,34 @@ final class VKReactor implements Runnable {
                 multipartCtx.abort();
                 multipartCtx = null;
             }
+            VKRequestBodyStream stream = bodyStream;
+            if (stream != null) {
+                stream.fail(new IOException("Connection closed"));
+            }
+            VKChunkedOutput output = responseStream;
+            if (output != null) {
+                output.fail(new IOException("Connection closed"));
+            }
+            if (http2 != null) {
+                http2.onClose();
+            }
+            if (sslOutPackets != null && !sslOutPackets.isEmpty()) {
+                // 缓冲池只允许 reactor 线程访问；worker 线程触发的关闭改为投递归还
+                if (reactor.inReactorThread()) {
+                    releaseSslPackets();
+                } else {
+                    reactor.execute(this::releaseSslPackets);
+                }
+            }
+            VKWsDeflate deflate = wsDeflate;
+            if (deflate != null) {
+                wsDeflate = null;
+                if (reactor.inReactorThread()) {
+                    deflate.release();
+                } else {
+                    reactor.execute(deflate::release);
+                }
+            }
             if (wsWasOpen && wsEndpoint != null && wsSession != null) {
                 runtime.unregisterWebSocketSession(wsEndpoint.path(), wsSession);
                 try {
@@ -1106,7 +1524,20 @@ final class VKReactor implements Runnable {
             }
         }
 
+        private void releaseSslPackets() {
+            ByteBuffer packet;
+            while ((packet = sslOutPackets.pollFirst()) != null) {
+                reactor.tlsPacketPool.release(packet);
+            }
+        }
+
         private void closeOutbound(VKOutbound out) {
+            if (out != null && out.chunkOwner != null) {
+                out.chunkOwner.onWritten(out.pooled, out.bodyBuffer.remaining());
+            }
+            if (out != null && out.headBuffer != null) {
+                reactor.headPool.release(out.headBuffer);
+            }
             if (out != null && out.file != null) {
                 try {
                     out.file.close();
@@ -1121,10 +1552,16 @@ final class VKReactor implements Runnable {
 
         private void dispatch(VKRequest req) {
             inFlight.incrementAndGet();
-            boolean accepted = workers.submit(() -> {
+            // 流式请求体的 handler 会阻塞等待 reactor 投喂数据，不能在 reactor 线程中内联执行
+            Runnable task = () -> {
                 try {
                     VKWebHttpDispatcher.ensureTraceId(req, new VKResponse());
                     if (tryUpgradeWebSocket(req)) {
+                        if (protocol == Protocol.WS) {
+                            // 升级完成后连接不再有进行中的 HTTP 请求，ping/空闲截止时间由此生效
+                            inFlight.decrementAndGet();
+                            reactor.requestReschedule(this);
+                        }
                         return;
                     }
                     VKWebDispatchResult dispatchResult = runtime.dispatchHttp(req);
@@ -1137,7 +1574,7 @@ final class VKReactor implements Runnable {
 
                     // SSE 响应检测：handler 设置了 sseResponse() 则切换到 SSE 协议
                     if (res.isSse()) {
-                        byte[] head = VKHttpWriter.writeSseHead(res, req.keepAlive());
+                        byte[] head = VKHttpWriter.writeSseHead(res, req.keepAlive(), reactor.httpDate);
                         enqueueResponse(VKOutbound.fromHeadBytes(head), false);
                         Consumer<VKSseEmitter> consumer = res.sseConsumer();
                         // 切换协议必须在 reactor 线程中执行，通过 pending 队列投递
@@ -1152,13 +1589,29 @@ final class VKReactor implements Runnable {
                         res.header("X-Trace-Id", req.traceId());
                     }
 
+                    if (res.isStreaming()) {
+                        if (!reactor.inReactorThread()) {
+                            writeStreamingResponse(req, res, dispatchResult);
+                        } else if (!workers.submitBlocking(() -> writeStreamingResponse(req, res, dispatchResult))) {
+                            // 写出器依赖 reactor 排空输出，INLINE 模式下转交后备线程池
+                            inFlight.decrementAndGet();
+                            respondError(503, "Service Unavailable", true);
+                        }
+                        return;
+                    }
+
                     boolean keepAlive = req.keepAlive();
-                    VKOutbound out = VKOutbound.from(res, keepAlive);
+                    if (!req.isBodyFullyReceived()) {
+                        // handler 未读完请求体就已响应：放弃剩余数据并在响应写出后关闭连接
+                        req.bodyStream().close();
+                        keepAlive = false;
+                    }
+                    VKOutbound out = outbound(res, keepAlive);
                     enqueueResponse(out, !keepAlive);
 
-                    runtime.recordRequest(dispatchResult.costNs(), dispatchResult.error());
+                    runtime.recordRequest(req, dispatchResult);
 
-                    logAccess(req, res.status(), out.totalBytes(), dispatchResult.costMs());
+                    logAccess(req, res.status(), out.totalBytes(), dispatchResult);
 
                     inFlight.decrementAndGet();
                     reactor.requestContinueRead(this);
@@ -1167,20 +1620,88 @@ final class VKReactor implements Runnable {
                     inFlight.decrementAndGet();
                     respondError(500, "Internal Server Error", true);
                 }
-            });
+            };
+            boolean accepted = req.isStreaming() ? workers.submitBlocking(task) : workers.submit(task);
 
             if (!accepted) {
                 inFlight.decrementAndGet();
                 VKResponse res = new VKResponse().status(503).text("Service Unavailable");
-                enqueueResponse(VKOutbound.from(res, false), true);
+                enqueueResponse(outbound(res, false), true);
                 rescheduleTimeout(System.currentTimeMillis());
             }
         }
 
+        /**
+         * 在 worker 线程中写出流式响应：先投递响应头，再执行写出器，分块随写随发。
+         * 响应头发出后无法再改写状态码，写出器异常时直接关闭连接，客户端据缺失的结束块判断响应不完整。
+         */
+        private void writeStreamingResponse(VKRequest req, VKResponse res, VKWebDispatchResult dispatchResult) {
+            boolean chunked = !"HTTP/1.0".equalsIgnoreCase(req.version());
+            boolean keepAlive = chunked && req.keepAlive();
+            if (!req.isBodyFullyReceived()) {
+                try {
+                    req.bodyStream().close();
+                } catch (IOException ignore) {
+                }
+                keepAlive = false;
+            }
+            byte[] head = VKHttpWriter.writeStreamingHead(res, keepAlive, chunked, reactor.httpDate);
+            VKChunkedOutput output = new VKChunkedOutput(this, bufferPool, chunked,
+                    webConfig.getStreamingResponseHighWaterBytes(), webConfig.getStreamingResponseWriteTimeoutMs());
+            responseStream = output;
+            if (closed) {
+                output.fail(new IOException("Connection closed"));
+            }
+            enqueueResponse(VKOutbound.fromHeadBytes(head), false);
+            boolean completed = false;
+            try {
+                res.streamWriter().writeTo(output);
+                output.close();
+                completed = true;
+            } catch (Throwable t) {
+                output.abort();
+            } finally {
+                responseStream = null;
+            }
+            if (completed) {
+                if (!keepAlive) {
+                    closeAfterWrite();
+                }
+            } else {
+                reactor.requestClose(this);
+            }
+
+            runtime.recordRequest(req, dispatchResult);
+            logAccess(req, res.status(), head.length + output.bytesWritten(), dispatchResult);
+
+            inFlight.decrementAndGet();
+            reactor.requestContinueRead(this);
+            reactor.requestReschedule(this);
+        }
+
         // -----------------------------------------------------------------------
         // SSE 支持
         // -----------------------------------------------------------------------
 
+        /**
+         * 投递一个已编码的 SSE 事件（任意线程）。待发送字节超过 sseMaxPendingBytes 时丢弃并返回 false；
+         * 队列为空时总是放行，保证单个大事件也能发出。
+         */
+        private boolean offerSse(ByteBuffer encoded) {
+            if (closed) {
+                return false;
+            }
+            int size = encoded.remaining();
+            int pendingBytes = ssePendingBytes.addAndGet(size);
+            if (pendingBytes > webConfig.getSseMaxPendingBytes() && pendingBytes != size) {
+                ssePendingBytes.addAndGet(-size);
+                return false;
+            }
+            sseLastSentAt = System.currentTimeMillis();
+            enqueueResponse(VKOutbound.fromSseEvent(encoded), false);
+            return true;
+        }
+
         /**
          * 切换连接到 SSE 协议并创建 VKSseEmitter。
          * 必须在 reactor 线程中调用（通过 pending 队列投递）。
@@ -1192,18 +1713,19 @@ final class VKReactor implements Runnable {
                 return;
             }
             protocol = Protocol.SSE;
+            ssePendingBytes = new AtomicInteger();
             VKSseEmitter emitter = new VKSseEmitter(
                     // sender：将 SSE 事件字节投递到 reactor 写队列（跨线程安全）
-                    bytes -> {
-                        if (!closed) {
-                            enqueueResponse(VKOutbound.fromHeadBytes(bytes), false);
-                        }
-                    },
+                    bytes -> offerSse(ByteBuffer.wrap(bytes)),
                     // closer：通过 requestClose 在 reactor 线程安全地关闭连接
-                    () -> reactor.requestClose(this)
+                    () -> reactor.requestClose(this),
+                    // 共享缓冲：主题广播时所有连接引用同一份事件编码
+                    this::offerSse,
+                    reactor::execute
             );
             this.sseEmitter = emitter;
-            rescheduleTimeout(System.currentTimeMillis());
+            sseLastSentAt = System.currentTimeMillis();
+            rescheduleTimeout(sseLastSentAt);
             // 在 reactor 线程中调用 consumer（可能立即发送初始事件）
             try {
                 consumer.accept(emitter);
@@ -1267,19 +1789,27 @@ final class VKReactor implements Runnable {
                 return true;
             }
             String accept = websocketAccept(wsKey);
+            // 只记录协商结果，Deflater/Inflater 在 reactor 线程首次收发时才从池中借出
+            VKWsDeflate deflate = VKWsDeflate.negotiate(
+                    req.header("sec-websocket-extensions"), endpoint.config(), reactor.deflaterPool);
             byte[] head = ("HTTP/1.1 101 Switching Protocols\r\n"
                     + "Upgrade: websocket\r\n"
                     + "Connection: Upgrade\r\n"
                     + "Sec-WebSocket-Accept: " + accept + "\r\n"
+                    + (deflate == null ? "" : "Sec-WebSocket-Extensions: " + deflate.responseHeader() + "\r\n")
                     + "X-Trace-Id: " + (req.traceId() == null ? "" : req.traceId()) + "\r\n\r\n")
                     .getBytes(StandardCharsets.US_ASCII);
-            enqueueResponse(VKOutbound.fromHeadBytes(head), false);
-            enableWebSocket(req, endpoint, hsContext, authResult);
+            wsDeflate = deflate;
+            enableWebSocket(req, endpoint, hsContext, authResult, head);
             return true;
         }
 
+        /**
+         * 切换到 WebSocket 协议后再投递 101 响应：客户端收到 101 即可发帧，
+         * 此时 reactor 必须已按 WebSocket 解析，否则首帧会被当作 HTTP 数据滞留。
+         */
         private void enableWebSocket(VKRequest req, VKWebSocketEndpoint endpoint,
-                                     VKWsHandshakeContext hsContext, VKWsAuthResult authResult) {
+                                     VKWsHandshakeContext hsContext, VKWsAuthResult authResult, byte[] head) {
             protocol = Protocol.WS;
             wsEndpoint = endpoint;
             wsLastPongAt = System.currentTimeMillis();
@@ -1298,8 +1828,12 @@ final class VKReactor implements Runnable {
                     // Bug2修复：通过 requestClose 在 reactor 线程内关闭，消除与 onRead 的竞态
                     () -> reactor.requestClose(this),
                     runtime.wsRegistry(),
-                    authResult.attributes()
+                    authResult.attributes(),
+                    // 广播按 reactor 分批投递，组任务在本 reactor 线程中直接调用 sendWsFrame
+                    reactor.wsSendGroup,
+                    this::sendWsFrame
             );
+            enqueueResponse(VKOutbound.fromHeadBytes(head), false);
             runtime.registerWebSocketSession(endpoint.path(), wsSession);
             try {
                 endpoint.config().getHandshakeHook().afterAuth(wsSession, hsContext);
@@ -1318,7 +1852,13 @@ final class VKReactor implements Runnable {
                 int b0 = dataBuf[0] & 0xFF;
                 int b1 = dataBuf[1] & 0xFF;
                 boolean fin = (b0 & 0x80) != 0;
+                boolean rsv1 = (b0 & 0x40) != 0;
                 int opcode = b0 & 0x0F;
+                // RSV2/RSV3 没有定义的扩展；RSV1 仅在协商了 permessage-deflate 时合法
+                if ((b0 & 0x30) != 0 || (rsv1 && wsDeflate == null)) {
+                    closeWebSocket(1002, "Reserved bits set");
+                    return;
+                }
                 boolean masked = (b1 & 0x80) != 0;
                 long len = b1 & 0x7F;
                 int pos = 2;
@@ -1373,13 +1913,18 @@ final class VKReactor implements Runnable {
                 shift(frameTotal);
                 lastActive = System.currentTimeMillis();
 
-                if (!handleWebSocketFrame(opcode, fin, payload)) {
+                if (!handleWebSocketFrame(opcode, fin, rsv1, payload)) {
                     return;
                 }
             }
         }
 
-        private boolean handleWebSocketFrame(int opcode, boolean fin, byte[] payload) {
+        private boolean handleWebSocketFrame(int opcode, boolean fin, boolean rsv1, byte[] payload) {
+            // RSV1 只能出现在消息首帧（RFC 7692 6.1），控制帧与续帧置位均为协议错误
+            if (rsv1 && opcode != VKWsFrame.OPCODE_TEXT && opcode != VKWsFrame.OPCODE_BINARY) {
+                closeWebSocket(1002, "Reserved bits set");
+                return false;
+            }
             if (opcode == VKWsFrame.OPCODE_PING) {
                 sendWsFrame(VKWsFrame.pong(payload));
                 return true;
@@ -1396,6 +1941,7 @@ final class VKReactor implements Runnable {
             if (opcode == VKWsFrame.OPCODE_TEXT || opcode == VKWsFrame.OPCODE_BINARY) {
                 if (!fin) {
                     wsFragmentOpcode = opcode;
+                    wsFragmentCompressed = rsv1;
                     wsFragmentBuffer = new ByteArrayOutputStream();
                     wsFragmentBuffer.writeBytes(payload);
                     if (wsFragmentBuffer.size() > wsEndpoint.config().getMaxMessageBytes()) {
@@ -1404,8 +1950,7 @@ final class VKReactor implements Runnable {
                     }
                     return true;
                 }
-                dispatchWebSocketMessage(opcode, payload);
-                return true;
+                return completeWebSocketMessage(opcode, rsv1, payload);
             }
             if (opcode == VKWsFrame.OPCODE_CONTINUATION) {
                 if (wsFragmentBuffer == null || wsFragmentOpcode < 0) {
@@ -1420,9 +1965,11 @@ final class VKReactor implements Runnable {
                 if (fin) {
                     byte[] data = wsFragmentBuffer.toByteArray();
                     int op = wsFragmentOpcode;
+                    boolean compressed = wsFragmentCompressed;
                     wsFragmentBuffer = null;
                     wsFragmentOpcode = -1;
-                    dispatchWebSocketMessage(op, data);
+                    wsFragmentCompressed = false;
+                    return completeWebSocketMessage(op, compressed, data);
                 }
                 return true;
             }
@@ -1430,6 +1977,24 @@ final class VKReactor implements Runnable {
             return false;
         }
 
+        /** 完整消息：按需解压后派发，解压结果同样受 maxMessageBytes 约束。 */
+        private boolean completeWebSocketMessage(int opcode, boolean compressed, byte[] data) {
+            if (compressed) {
+                try {
+                    data = wsDeflate.inflate(data, wsEndpoint.config().getMaxMessageBytes());
+                } catch (DataFormatException e) {
+                    closeWebSocket(1007, "Invalid compressed data");
+                    return false;
+                }
+                if (data == null) {
+                    closeWebSocket(1009, "Message Too Big");
+                    return false;
+                }
+            }
+            dispatchWebSocketMessage(opcode, data);
+            return true;
+        }
+
         private void dispatchWebSocketMessage(int opcode, byte[] payload) {
             inFlight.incrementAndGet();
             boolean accepted = workers.submit(() -> {
@@ -1465,16 +2030,59 @@ final class VKReactor implements Runnable {
             if (frame == null || protocol != Protocol.WS || closed || wsEndpoint == null) {
                 return;
             }
-            int nextFrames = wsPendingFrames + 1;
-            int nextBytes = wsPendingBytes + frame.payload().length;
-            if (nextFrames > wsEndpoint.config().getMaxPendingFrames()
-                    || nextBytes > wsEndpoint.config().getMaxPendingBytes()) {
-                closeWebSocket(1008, "Backpressure");
-                return;
+            // 帧只编码一次：广播时所有连接的 outbound 引用同一只读缓冲
+            ByteBuffer encoded = frame.encodedBuffer();
+            int size = encoded.remaining();
+            VKWsDeflate deflate = wsDeflate;
+            // 只压缩完整的 text/binary 消息，续帧无法单独置位 RSV1
+            boolean compress = deflate != null
+                    && (frame.opcode() == VKWsFrame.OPCODE_TEXT || frame.opcode() == VKWsFrame.OPCODE_BINARY)
+                    && deflate.shouldCompress(frame.payload().length);
+            // 控制帧不受待发送上限约束，保证 close/pong 总能发出
+            if (frame.isData() && isWsBackpressured(size)) {
+                VKWsSlowConsumerPolicy policy = wsEndpoint.config().getSlowConsumerPolicy();
+                if (policy == VKWsSlowConsumerPolicy.DROP) {
+                    reactor.metrics.recordWsDropped(1);
+                    return;
+                }
+                if (policy != VKWsSlowConsumerPolicy.COALESCE) {
+                    reactor.metrics.recordWsSlowConsumerClose();
+                    closeWebSocket(1008, "Backpressure");
+                    return;
+                }
+                // COALESCE：撤回尚未开始写出的数据帧，只保留最新一帧
+                int removed = 0;
+                for (java.util.Iterator<VKOutbound> it = writeQueue.iterator(); it.hasNext(); ) {
+                    VKOutbound o = it.next();
+                    if (o.wsData) {
+                        it.remove();
+                        wsPendingFrames = Math.max(0, wsPendingFrames - 1);
+                        wsPendingBytes = Math.max(0, wsPendingBytes - (int) o.totalBytes());
+                        removed++;
+                    }
+                }
+                reactor.metrics.recordWsCoalesced(removed);
             }
-            wsPendingFrames = nextFrames;
-            wsPendingBytes = nextBytes;
-            enqueueResponse(VKOutbound.fromWsFrame(frame.encode()), false);
+            // 压缩放在背压判定之后，被 DROP 的帧不消耗压缩开销，也不进入压缩上下文
+            boolean removable = frame.isData();
+            if (compress) {
+                if (deflate.isShareable()) {
+                    encoded = frame.deflatedBuffer(deflate::deflate);
+                } else {
+                    encoded = ByteBuffer.wrap(VKWsFrame.encode(frame.opcode(), true, deflate.deflate(frame.payload())));
+                    // 已进入压缩上下文的帧撤回后客户端字典会错位，不允许被 COALESCE 撤回
+                    removable = false;
+                }
+                size = encoded.remaining();
+            }
+            wsPendingFrames++;
+            wsPendingBytes += size;
+            enqueueResponse(VKOutbound.fromWsFrame(encoded, removable), false);
+        }
+
+        private boolean isWsBackpressured(int size) {
+            return wsPendingFrames + 1 > wsEndpoint.config().getMaxPendingFrames()
+                    || wsPendingBytes + size > wsEndpoint.config().getMaxPendingBytes();
         }
 
         private void closeWebSocket(int code, String reason) {
@@ -1507,6 +2115,7 @@ final class VKReactor implements Runnable {
             }
             int idleTimeoutMs = wsEndpoint.config().getIdleTimeoutMs();
             if (now - lastActive >= idleTimeoutMs) {
+                reactor.metrics.recordTimeout(VKMetrics.TimeoutType.WS_IDLE);
                 closeWebSocket(1001, "Idle Timeout");
                 return;
             }
@@ -1517,12 +2126,41 @@ final class VKReactor implements Runnable {
                 wsLastPingAt = now;
                 sendWsFrame(VKWsFrame.ping(new byte[0]));
             } else if (wsAwaitingPong && now - wsLastPingAt >= pongTimeoutMs) {
+                reactor.metrics.recordTimeout(VKMetrics.TimeoutType.WS_PONG);
                 closeWebSocket(1001, "Pong Timeout");
                 return;
             }
             rescheduleTimeout(now);
         }
 
+        /** WebSocket 的下一个截止时间：空闲超时与下一次 ping（或等待 pong 的期限）中较早者。 */
+        private long webSocketDeadline(long now) {
+            VKWebSocketEndpoint endpoint = wsEndpoint;
+            if (endpoint == null) {
+                return now;
+            }
+            long idle = lastActive + endpoint.config().getIdleTimeoutMs();
+            long probe = wsAwaitingPong
+                    ? wsLastPingAt + endpoint.config().getPongTimeoutMs()
+                    : wsLastPingAt + endpoint.config().getPingIntervalMs();
+            return Math.min(idle, probe);
+        }
+
+        /** SSE 截止时间到达：emitter 已关闭则关闭连接，否则在无事件期间发送注释心跳。 */
+        private void handleSseTimeout(long now) {
+            VKSseEmitter e = sseEmitter;
+            if (e == null || !e.isOpen()) {
+                close();
+                return;
+            }
+            int heartbeatMs = webConfig.getSseHeartbeatIntervalMs();
+            if (heartbeatMs > 0 && now - sseLastSentAt >= heartbeatMs) {
+                sseLastSentAt = now;
+                enqueueResponse(VKOutbound.fromHeadBytes(SSE_HEARTBEAT), false);
+            }
+            rescheduleTimeout(now);
+        }
+
         /**
          * Perf4：使用 ThreadLocal 缓存的 MessageDigest 计算 WebSocket Accept 值，
          * 避免每次握手都调用 getInstance（有锁竞争）。
@@ -1540,16 +2178,21 @@ final class VKReactor implements Runnable {
         // 工具方法
         // -----------------------------------------------------------------------
 
+        /** 以本 reactor 的头部缓冲池与 Date 缓存编码响应。 */
+        private VKOutbound outbound(VKResponse res, boolean keepAlive) {
+            return VKOutbound.from(res, keepAlive, reactor.headPool, reactor.httpDate);
+        }
+
         private void respondError(int status, String msg, boolean doClose) {
             VKResponse res = new VKResponse().status(status).text(msg == null ? "" : msg);
-            enqueueResponse(VKOutbound.from(res, false), doClose);
+            enqueueResponse(outbound(res, false), doClose);
             lastActive = System.currentTimeMillis();
             rescheduleTimeout(lastActive);
         }
 
         void respondTimeout() {
             VKResponse res = new VKResponse().status(408).text("Request Timeout");
-            enqueueResponse(VKOutbound.from(res, false), true);
+            enqueueResponse(outbound(res, false), true);
             lastActive = System.currentTimeMillis();
             rescheduleTimeout(lastActive);
         }
@@ -1573,6 +2216,8 @@ final class VKReactor implements Runnable {
                 System.arraycopy(dataBuf, consumed, dataBuf, 0, remain);
             }
             dataLen = remain;
+            // 解析状态中的位置相对于缓冲区起点，移位后失效
+            parseState.reset();
         }
 
         /**
@@ -1586,7 +2231,7 @@ final class VKReactor implements Runnable {
             }
         }
 
-        private InetSocketAddress remoteAddress() {
+        InetSocketAddress remoteAddress() {
             try {
                 return (InetSocketAddress) channel.getRemoteAddress();
             } catch (IOException e) {
@@ -1594,15 +2239,86 @@ final class VKReactor implements Runnable {
             }
         }
 
-        private void logAccess(VKRequest req, int status, long bytes, long costMs) {
+        void logAccess(VKRequest req, int status, long bytes, VKWebDispatchResult result) {
             if (!engine.accessLogEnabled()) {
                 return;
             }
-            String ip = req.remoteAddress() == null ? "-" : req.remoteAddress().getAddress().getHostAddress();
-            String traceId = req.traceId() == null ? "-" : req.traceId();
-            String msg = ip + " \"" + req.method() + " " + req.path() + "\" " + status + " " + bytes + " "
-                    + costMs + "ms trace=" + traceId;
-            engine.logAccess(msg);
+            engine.logAccess(req, status, bytes, result);
+        }
+
+        /** 请求是否命中以 VKStreamingHandler 注册的路由（仅有请求体时启用流式派发）。 */
+        private boolean isStreamingRoute(VKHttpParser.ParsedHeaders headers) {
+            if (headers.contentLengthLong() <= 0 && !headers.chunked()) {
+                return false;
+            }
+            VKRouteMatch match = runtime.router().match(headers.method(), headers.path());
+            return match != null && match.handler() instanceof VKStreamingHandler;
+        }
+
+        /**
+         * 建立流式请求体并立即派发请求：handler 在 worker 中边读边处理，
+         * reactor 在 feedBodyStream 中按 bodyStream 水位暂停/恢复 OP_READ。
+         */
+        private void startBodyStream(VKHttpParser.ParsedHeaders headers) {
+            VKRequest req = headers.newRequest(new byte[0], remoteAddress());
+            VKRequestBodyStream stream = new VKRequestBodyStream(headers.contentLengthLong(),
+                    webConfig.getStreamingBodyBufferBytes());
+            stream.onResume(() -> reactor.execute(this::resumeRead));
+            req.setBodyStream(stream, webConfig);
+            bodyStream = stream;
+            bodyRemaining = headers.contentLengthLong();
+            waitingBody = true;
+            shift(headers.headerEnd() + 4);
+            if (headers.expectContinue()) {
+                enqueueResponse(VKOutbound.fromHeadBytes(VKHttpWriter.writeContinue()), false);
+            }
+            dispatch(req);
+        }
+
+        /** 把 dataBuf 中属于当前流式请求体的字节交给 bodyStream；缓冲到达高水位时暂停读取。 */
+        private void feedBodyStream(long now) {
+            VKRequestBodyStream stream = bodyStream;
+            int n = (int) Math.min(dataLen, bodyRemaining);
+            if (n > 0) {
+                boolean accepted = stream.offer(dataBuf, 0, n);
+                shift(n);
+                bodyRemaining -= n;
+                if (!accepted && bodyRemaining > 0) {
+                    pauseRead();
+                }
+            }
+            if (bodyRemaining == 0) {
+                stream.complete();
+                bodyStream = null;
+                waitingBody = false;
+                if (readPaused) {
+                    resumeRead();
+                }
+            }
+            if (dataLen == 0) {
+                maybeShrinkDataBuf();
+            }
+            rescheduleTimeout(now);
+        }
+
+        private void pauseRead() {
+            readPaused = true;
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        /** handler 把缓冲消费到低水位以下后由 reactor 线程调用，恢复 OP_READ。 */
+        private void resumeRead() {
+            if (closed || !readPaused) {
+                return;
+            }
+            readPaused = false;
+            lastRead = System.currentTimeMillis();
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+            rescheduleTimeout(lastRead);
         }
 
         private boolean isStreamingMultipart(VKHttpParser.ParsedHeaders headers) {
@@ -1612,31 +2328,16 @@ final class VKReactor implements Runnable {
             if (headers == null || headers.contentLength() <= 0) {
                 return false;
             }
-            String ct = headers.headers().get("content-type");
+            String ct = headers.header("content-type");
             return ct != null && ct.toLowerCase().startsWith("multipart/form-data");
         }
 
-        private String extractBoundary(String contentType) {
-            if (contentType == null) {
-                return null;
-            }
-            String[] parts = contentType.split(";");
-            for (String p : parts) {
-                String s = p.trim();
-                if (s.toLowerCase().startsWith("boundary=")) {
-                    String v = s.substring("boundary=".length()).trim();
-                    if (v.startsWith("\"") && v.endsWith("\"") && v.length() >= 2) {
-                        v = v.substring(1, v.length() - 1);
-                    }
-                    return v;
-                }
-            }
-            return null;
+        static String extractBoundary(String contentType) {
+            return VKMultipartStreamDecoder.boundaryOf(contentType);
         }
 
         private void initMultipart(VKHttpParser.ParsedHeaders headers, String boundary) {
-            VKRequest req = new VKRequest(headers.method(), headers.path(), headers.query(), headers.version(),
-                    headers.headers(), new byte[0], headers.keepAlive(), remoteAddress());
+            VKRequest req = headers.newRequest(new byte[0], remoteAddress());
             multipartCtx = new MultipartCtx(req, new VKMultipartStreamDecoder(boundary, webConfig), headers.contentLength());
         }
 
@@ -1698,51 +2399,145 @@ final class VKReactor implements Runnable {
     // VKOutbound - 待发送的响应数据
     // ==========================================================================
     static final class VKOutbound {
-        final byte[] head;
+        /** 堆数组形式的头部；由 from() 编码的响应头在构造后才挂上，因此不是 final。 */
+        byte[] head;
         final byte[] body;
+        /** 缓冲形式的响应体（如内存映射文件），非 null 时优先于 body。 */
+        final ByteBuffer bodyBuffer;
         final java.nio.channels.FileChannel file;
+        final long fileOffset;
         final long fileLength;
         final boolean wsFrame;
-
-        private VKOutbound(byte[] head, byte[] body, java.nio.channels.FileChannel file,
-                           long fileLength, boolean wsFrame) {
+        /** multipart/byteranges 的后续分段，与本段共享同一个 FileChannel。 */
+        VKOutbound next;
+        /** WebSocket 数据帧（text/binary），COALESCE 策略下尚未写出时可被撤回；已进入压缩上下文的帧除外。 */
+        boolean wsData;
+        /** SSE 事件，写完后从连接的待发送字节数中扣减。 */
+        boolean sseEvent;
+        /** 池化的响应头（已 flip，可直接写出），非 null 时取代 head，写完后归还 reactor 的头部缓冲池。 */
+        ByteBuffer headBuffer;
+        /** 流式响应分块：bodyBuffer 是 pooled 的切片，写完后经 chunkOwner 归还。 */
+        ByteBuffer pooled;
+        VKChunkedOutput chunkOwner;
+
+        private VKOutbound(byte[] head, byte[] body, ByteBuffer bodyBuffer, java.nio.channels.FileChannel file,
+                           long fileOffset, long fileLength, boolean wsFrame) {
             this.head = head;
             this.body = body;
+            this.bodyBuffer = bodyBuffer;
             this.file = file;
+            this.fileOffset = fileOffset;
             this.fileLength = fileLength;
             this.wsFrame = wsFrame;
         }
 
-        static VKOutbound from(VKResponse res, boolean keepAlive) {
+        /**
+         * 编码响应：响应头直接编码进 headPool 的池化缓冲，写出时与响应体聚合为一次 write；
+         * 头部超过池化缓冲大小时退回堆数组。
+         */
+        static VKOutbound from(VKResponse res, boolean keepAlive, VKBufferPool headPool, VKHttpDate date) {
             if (res.isFile()) {
-                byte[] head = VKHttpWriter.writeHead(res, keepAlive);
+                java.nio.channels.FileChannel fc;
                 try {
-                    java.nio.channels.FileChannel fc = java.nio.channels.FileChannel.open(
-                            res.filePath(), java.nio.file.StandardOpenOption.READ);
-                    return new VKOutbound(head, null, fc, res.fileLength(), false);
+                    fc = java.nio.channels.FileChannel.open(res.filePath(), java.nio.file.StandardOpenOption.READ);
                 } catch (IOException e) {
                     VKResponse fail = new VKResponse().status(404).text("Not Found");
-                    byte[] h = VKHttpWriter.writeHead(fail, false);
-                    return new VKOutbound(h, fail.body(), null, 0, false);
+                    return withHead(new VKOutbound(null, fail.body(), null, null, 0, 0, false),
+                            fail, false, headPool, date);
+                }
+                VKOutbound first = fileChain(res, fc);
+                return withHead(first, res, keepAlive, headPool, date);
+            }
+            ByteBuffer buffer = res.bodyBuffer();
+            if (buffer != null) {
+                return withHead(new VKOutbound(null, null, buffer, null, 0, 0, false), res, keepAlive, headPool, date);
+            }
+            return withHead(new VKOutbound(null, res.body(), null, null, 0, 0, false), res, keepAlive, headPool, date);
+        }
+
+        /** 把 res 的响应头编码后挂到 out 上；out 构造时不带头部。 */
+        private static VKOutbound withHead(VKOutbound out, VKResponse res, boolean keepAlive, VKBufferPool headPool,
+                                           VKHttpDate date) {
+            if (headPool != null) {
+                ByteBuffer buf = headPool.acquire();
+                if (VKHttpWriter.encodeHead(res, keepAlive, date, buf)) {
+                    buf.flip();
+                    out.headBuffer = buf;
+                    return out;
+                }
+                headPool.release(buf);
+            }
+            out.head = VKHttpWriter.writeHead(res, keepAlive, date);
+            return out;
+        }
+
+        /** 文件响应的 outbound（不含响应头）；多段区间串成链，首段挂响应头。 */
+        private static VKOutbound fileChain(VKResponse res, java.nio.channels.FileChannel fc) {
+            java.util.List<VKFileRegion> regions = res.fileRegions();
+            if (regions == null) {
+                return new VKOutbound(null, null, null, fc, res.fileOffset(), res.fileLength(), false);
+            }
+            // 多段区间：按顺序串成链，每段先写分段头再 transferTo 对应文件区间
+            VKOutbound first = null;
+            VKOutbound last = null;
+            for (VKFileRegion r : regions) {
+                VKOutbound part = new VKOutbound(null, r.prefix(), null,
+                        r.length() > 0 ? fc : null, r.offset(), r.length(), false);
+                if (first == null) {
+                    first = part;
+                } else {
+                    last.next = part;
+                }
+                last = part;
+            }
+            if (first == null) {
+                first = new VKOutbound(null, null, null, null, 0, 0, false);
+            }
+            if (last == null || last.file == null) {
+                // 链尾不持有文件时由一个空的尾段负责关闭 FileChannel
+                VKOutbound closer = new VKOutbound(null, null, null, fc, 0, 0, false);
+                if (last == null) {
+                    first.next = closer;
+                } else {
+                    last.next = closer;
                 }
             }
-            byte[] head = VKHttpWriter.writeHead(res, keepAlive);
-            return new VKOutbound(head, res.body(), null, 0, false);
+            return first;
         }
 
         static VKOutbound fromHeadBytes(byte[] bytes) {
-            return new VKOutbound(bytes, null, null, 0, false);
+            return new VKOutbound(bytes, null, null, null, 0, 0, false);
         }
 
-        static VKOutbound fromWsFrame(byte[] bytes) {
-            return new VKOutbound(bytes, null, null, 0, true);
+        /** SSE 事件：encoded 可为主题共享的只读编码缓冲，写出时 duplicate，不拷贝。 */
+        static VKOutbound fromSseEvent(ByteBuffer encoded) {
+            VKOutbound out = new VKOutbound(null, null, encoded, null, 0, 0, false);
+            out.sseEvent = true;
+            return out;
+        }
+
+        /** WebSocket 帧：encoded 为共享的只读编码缓冲，写出时 duplicate，不拷贝。 */
+        static VKOutbound fromWsFrame(ByteBuffer encoded, boolean data) {
+            VKOutbound out = new VKOutbound(null, null, encoded, null, 0, 0, true);
+            out.wsData = data;
+            return out;
         }
 
         long totalBytes() {
             long n = 0;
-            if (head != null) n += head.length;
-            if (body != null) n += body.length;
-            n += fileLength;
+            for (VKOutbound o = this; o != null; o = o.next) {
+                if (o.headBuffer != null) {
+                    n += o.headBuffer.remaining();
+                } else if (o.head != null) {
+                    n += o.head.length;
+                }
+                if (o.bodyBuffer != null) {
+                    n += o.bodyBuffer.remaining();
+                } else if (o.body != null) {
+                    n += o.body.length;
+                }
+                n += o.fileLength;
+            }
             return n;
         }
     }
@@ -0,0 +1,292 @@
+package yueyang.vostok.web.core;
+
+import yueyang.vostok.web.VKAccessLogFormat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 结构化访问日志：请求线程只写入定长字段，格式化与 IO 全部在日志线程中按批完成。
+ *
+ * - 槽位在启动时预分配为并列数组（时间、状态码、字节数、耗时 + 方法/路径/路由/地址/traceId 的引用），
+ *   生产方通过 CAS 领取序号后直接填写，不分配对象、不拼接字符串
+ * - 槽位的发布序号写入 published，消费方按序读取，读完清空引用后推进 head，生产方据此判断是否已满
+ * - 环形缓冲已满时丢弃新记录并计数，不阻塞 reactor
+ * - 日志线程每批最多格式化 batchSize 行，整批作为一条消息写入 VostokLog（web-access logger 以原样输出），
+ *   由其异步引擎负责落盘、滚动与 fsync
+ */
+final class VKStructuredAccessLogger {
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final int mask;
+    private final int batchSize;
+    private final VKAccessLogFormat format;
+    private final long[] times;
+    private final long[] costNs;
+    private final long[] bytes;
+    private final int[] statuses;
+    private final String[] methods;
+    private final String[] paths;
+    private final String[] routes;
+    private final String[] traceIds;
+    private final InetSocketAddress[] remotes;
+    /** 槽位当前承载的序号，未发布时为上一轮的旧值（初始为 -1）。 */
+    private final AtomicLongArray published;
+    /** 下一个待领取的序号。 */
+    private final AtomicLong tail = new AtomicLong();
+    /** 下一个待消费的序号，只由日志线程写入。 */
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported;
+    private volatile boolean running;
+    private Thread worker;
+
+    private StringBuilder out = new StringBuilder(8192);
+    /** 同一秒内的记录复用格式化好的时间前缀。 */
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedSecondText;
+
+    VKStructuredAccessLogger(int capacity, int batchSize, VKAccessLogFormat format) {
+        int size = Integer.highestOneBit(Math.max(256, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.batchSize = Math.max(1, batchSize);
+        this.format = format == null ? VKAccessLogFormat.TEXT : format;
+        this.times = new long[size];
+        this.costNs = new long[size];
+        this.bytes = new long[size];
+        this.statuses = new int[size];
+        this.methods = new String[size];
+        this.paths = new String[size];
+        this.routes = new String[size];
+        this.traceIds = new String[size];
+        this.remotes = new InetSocketAddress[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1L);
+        }
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runLoop, "vostok-web-accesslog");
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+            try {
+                worker.join(2000);
+            } catch (InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * 记录一次请求，只在 reactor / worker 线程中调用；缓冲已满时丢弃。
+     */
+    void record(long timeMs, String method, String path, String route, int status, long byteCount,
+                long costNanos, InetSocketAddress remote, String traceId) {
+        if (!running) {
+            return;
+        }
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+        int i = (int) (seq & mask);
+        times[i] = timeMs;
+        costNs[i] = costNanos;
+        bytes[i] = byteCount;
+        statuses[i] = status;
+        methods[i] = method;
+        paths[i] = path;
+        routes[i] = route;
+        traceIds[i] = traceId;
+        remotes[i] = remote;
+        published.set(i, seq);
+    }
+
+    private void runLoop() {
+        while (true) {
+            int n;
+            try {
+                n = drainBatch();
+            } catch (Throwable ignore) {
+                n = 0;
+            }
+            if (n == 0) {
+                // 关闭阶段排空已发布的记录后退出；已领取但尚未发布的槽位不再等待
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        reportDropped();
+    }
+
+    /** 格式化并写出一批记录，返回本批行数。 */
+    private int drainBatch() {
+        StringBuilder sb = out;
+        sb.setLength(0);
+        long h = head;
+        int n = 0;
+        while (n < batchSize) {
+            int i = (int) (h & mask);
+            if (published.get(i) != h) {
+                break;
+            }
+            if (format == VKAccessLogFormat.JSON) {
+                appendJson(sb, i);
+            } else {
+                appendText(sb, i);
+            }
+            sb.append('\n');
+            methods[i] = null;
+            paths[i] = null;
+            routes[i] = null;
+            traceIds[i] = null;
+            remotes[i] = null;
+            h++;
+            n++;
+            head = h;
+        }
+        if (n > 0) {
+            reportDropped();
+            VKWebLogSupport.accessInfo(sb.toString());
+            if (sb.capacity() > MAX_RETAINED_BUFFER) {
+                out = new StringBuilder(8192);
+            }
+        }
+        return n;
+    }
+
+    /** 2026-01-01 12:00:00.123 127.0.0.1 "GET /users/1" 200 512 1.234ms route=/users/{id} trace=abc */
+    private void appendText(StringBuilder sb, int i) {
+        appendTime(sb, times[i]);
+        sb.append(' ');
+        appendIp(sb, remotes[i]);
+        sb.append(" \"").append(methods[i]).append(' ').append(paths[i]).append("\" ")
+                .append(statuses[i]).append(' ').append(bytes[i]).append(' ');
+        appendMillis(sb, costNs[i]);
+        sb.append("ms route=").append(routes[i] == null ? "-" : routes[i])
+                .append(" trace=").append(traceIds[i] == null ? "-" : traceIds[i]);
+    }
+
+    /** {"ts":1767240000123,"ip":"127.0.0.1","method":"GET","path":"/users/1","route":"/users/{id}",...} */
+    private void appendJson(StringBuilder sb, int i) {
+        sb.append("{\"ts\":").append(times[i]).append(",\"ip\":\"");
+        appendIp(sb, remotes[i]);
+        sb.append("\",\"method\":");
+        appendJsonString(sb, methods[i]);
+        sb.append(",\"path\":");
+        appendJsonString(sb, paths[i]);
+        sb.append(",\"route\":");
+        appendJsonString(sb, routes[i]);
+        sb.append(",\"status\":").append(statuses[i])
+                .append(",\"bytes\":").append(bytes[i])
+                .append(",\"costUs\":").append(costNs[i] / 1_000L)
+                .append(",\"trace\":");
+        appendJsonString(sb, traceIds[i]);
+        sb.append('}');
+    }
+
+    private void appendTime(StringBuilder sb, long timeMs) {
+        long second = Math.floorDiv(timeMs, 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = SECOND_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+        int ms = (int) Math.floorMod(timeMs, 1000L);
+        sb.append(cachedSecondText).append('.');
+        if (ms < 100) {
+            sb.append('0');
+        }
+        if (ms < 10) {
+            sb.append('0');
+        }
+        sb.append(ms);
+    }
+
+    /** 纳秒耗时格式化为保留三位小数的毫秒。 */
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        long us = nanos / 1_000L;
+        int frac = (int) (us % 1_000L);
+        sb.append(us / 1_000L).append('.');
+        if (frac < 100) {
+            sb.append('0');
+        }
+        if (frac < 10) {
+            sb.append('0');
+        }
+        sb.append(frac);
+    }
+
+    private static void appendIp(StringBuilder sb, InetSocketAddress remote) {
+        InetAddress addr = remote == null ? null : remote.getAddress();
+        sb.append(addr == null ? "-" : addr.getHostAddress());
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        if (s == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        long n = total - droppedReported;
+        if (n > 0) {
+            droppedReported = total;
+            VKWebLogSupport.accessWarn("AccessLog ring full, dropped=" + n);
+        }
+    }
+}
@@ -19,15 +19,32 @@ public final class VKWebLogSupport {
     }
 
     public static void ensureLoggersReady() {
+        ensureLoggersReady(null, false);
+    }
+
+    /**
+     * 注册 Web 使用的命名 logger。
+     *
+     * @param accessSink 访问日志的 sink 覆盖配置（滚动、fsync 等），null 时使用默认配置
+     * @param rawAccess  访问日志消息已由调用方格式化为完整的行（结构化模式），写出时不再添加时间、级别前缀
+     */
+    static void ensureLoggersReady(VKLogSinkConfig accessSink, boolean rawAccess) {
+        VKLogSinkConfig access = accessSink == null ? new VKLogSinkConfig() : accessSink.copy();
+        if (access.getFilePrefix() == null) {
+            access.filePrefix("access");
+        }
+        if (rawAccess) {
+            access.formatter((level, loggerName, msg, t, ts, mdc) -> msg);
+        }
         if (!Vostok.Log.initialized()) {
             VKLogConfig cfg = VKLogConfig.defaults()
-                    .registerLogger(ACCESS_LOGGER, new VKLogSinkConfig().filePrefix("access"))
+                    .registerLogger(ACCESS_LOGGER, access)
                     .registerLogger(RATELIMIT_LOGGER, new VKLogSinkConfig().filePrefix("ratelimit"));
             Vostok.Log.init(cfg);
             return;
         }
-        tryRegisterLogger(ACCESS_LOGGER, "access");
-        tryRegisterLogger(RATELIMIT_LOGGER, "ratelimit");
+        tryRegisterLogger(ACCESS_LOGGER, access);
+        tryRegisterLogger(RATELIMIT_LOGGER, new VKLogSinkConfig().filePrefix("ratelimit"));
     }
 
     static void accessInfo(String msg) {
@@ -71,10 +88,10 @@ public final class VKWebLogSupport {
         }
     }
 
-    private static void tryRegisterLogger(String loggerName, String filePrefix) {
+    private static void tryRegisterLogger(String loggerName, VKLogSinkConfig sinkConfig) {
         try {
             Method m = Vostok.Log.class.getMethod("registerLogger", String.class, VKLogSinkConfig.class);
-            m.invoke(null, loggerName, new VKLogSinkConfig().filePrefix(filePrefix));
+            m.invoke(null, loggerName, sinkConfig);
         } catch (NoSuchMethodException e) {
             warnRegisterMissing();
         } catch (Throwable e) {
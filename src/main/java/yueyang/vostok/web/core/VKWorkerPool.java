@@ -1,37 +1,149 @@
 package yueyang.vostok.web.core;
 
+import yueyang.vostok.web.VKWorkerMode;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 请求派发执行器，按 {@link VKWorkerMode} 选择执行策略。
+ *
+ * 各模式统一通过提交包装统计：已提交未开始的任务数即队列深度（同时用作有界队列的容量控制），
+ * 开始执行时累加排队时间，因此 metrics 中的 workerQueueDepth/workerQueueWaitAvgMs 对所有模式含义一致。
+ */
 final class VKWorkerPool {
-    private final ThreadPoolExecutor executor;
+    private final VKWorkerMode mode;
+    private final ExecutorService executor;
+    /** INLINE 模式下执行可能阻塞的任务（流式请求/响应）的后备线程池；其他模式与 executor 相同。 */
+    private final ExecutorService offloadExecutor;
+    private final int queueSize;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    /** 已出队执行的任务数与累计排队时间（纳秒），多 reactor 并发提交，使用 LongAdder 分散竞争。 */
+    private final LongAdder queuedTasks = new LongAdder();
+    private final LongAdder queueWaitNs = new LongAdder();
+
+    VKWorkerPool(VKWorkerMode mode, int threads, int queueSize) {
+        this.queueSize = queueSize;
+        VKWorkerMode effective = mode == null ? VKWorkerMode.POOL : mode;
+        ExecutorService exec = null;
+        if (effective == VKWorkerMode.VIRTUAL) {
+            exec = newVirtualThreadExecutor();
+            if (exec == null) {
+                effective = VKWorkerMode.POOL;
+            }
+        }
+        switch (effective) {
+            case FORK_JOIN -> exec = new ForkJoinPool(threads, new NamedForkJoinFactory("vostok-web-worker"),
+                    null, true);
+            case POOL, INLINE -> exec = new ThreadPoolExecutor(
+                    threads,
+                    threads,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory("vostok-web-worker")
+            );
+            default -> {
+            }
+        }
+        this.mode = effective;
+        this.offloadExecutor = exec;
+        this.executor = effective == VKWorkerMode.INLINE ? null : exec;
+    }
 
-    VKWorkerPool(int threads, int queueSize) {
-        this.executor = new ThreadPoolExecutor(
-                threads,
-                threads,
-                60L,
-                TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(queueSize),
-                new NamedThreadFactory("vostok-web-worker")
-        );
+    /** 实际生效的模式（VIRTUAL 在 JVM 不支持时为 POOL）。 */
+    VKWorkerMode mode() {
+        return mode;
     }
 
+    /**
+     * 派发请求任务。INLINE 模式下在调用线程（reactor）中直接执行。
+     *
+     * @return false 表示队列已满或执行器已关闭
+     */
     boolean submit(Runnable task) {
+        if (executor == null) {
+            queuedTasks.increment();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+            }
+            return true;
+        }
+        return enqueue(executor, task);
+    }
+
+    /** 派发可能长时间阻塞的任务，INLINE 模式下改由后备线程池执行，避免阻塞 reactor。 */
+    boolean submitBlocking(Runnable task) {
+        return enqueue(offloadExecutor, task);
+    }
+
+    private boolean enqueue(Executor target, Runnable task) {
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            return false;
+        }
         try {
-            executor.execute(task);
+            long enqueuedAt = System.nanoTime();
+            target.execute(() -> {
+                queued.decrementAndGet();
+                queueWaitNs.add(System.nanoTime() - enqueuedAt);
+                queuedTasks.increment();
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
             return true;
         } catch (RuntimeException e) {
+            queued.decrementAndGet();
             return false;
         }
     }
 
+    int queueDepth() {
+        return queued.get();
+    }
+
+    /** 正在执行的任务数。 */
+    int activeCount() {
+        return active.get();
+    }
+
+    long queuedTasks() {
+        return queuedTasks.sum();
+    }
+
+    long queueWaitNs() {
+        return queueWaitNs.sum();
+    }
+
     void shutdown() {
-        executor.shutdownNow();
+        offloadExecutor.shutdownNow();
+    }
+
+    /** 通过反射创建 JDK 21 的 newVirtualThreadPerTaskExecutor，当前 JVM 不支持时返回 null。 */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method m = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
     }
 
     private static final class NamedThreadFactory implements ThreadFactory {
@@ -49,4 +161,21 @@ final class VKWorkerPool {
             return t;
         }
     }
+
+    private static final class NamedForkJoinFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+        private final String prefix;
+        private final AtomicInteger idx = new AtomicInteger(1);
+
+        private NamedForkJoinFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName(prefix + "-" + idx.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 }
@@ -0,0 +1,257 @@
+package yueyang.vostok.web.core;
+
+import yueyang.vostok.web.util.VKDeflaterPool;
+import yueyang.vostok.web.websocket.VKWebSocketConfig;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 单个 WebSocket 连接协商得到的 permessage-deflate（RFC 7692）状态。
+ *
+ * 压缩/解压只在 reactor 线程执行，Deflater/Inflater 从 reactor 的 {@link VKDeflaterPool} 借出：
+ * 启用上下文接管的一方在连接生命周期内独占实例（跨消息保留字典），
+ * 无上下文接管的一方每条消息借出、用完即 reset 归还。
+ * JDK Deflater 的压缩窗口固定为 15 位，因此不接受 server_max_window_bits 小于 15 的提议；
+ * Inflater 可解任意窗口，client_max_window_bits 只作为对客户端的约束下发。
+ */
+final class VKWsDeflate {
+    /** SYNC_FLUSH 产生的空存储块尾部，发送时去掉、接收时补回（RFC 7692 7.2.1/7.2.2）。 */
+    private static final byte[] TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+    private static final String EXTENSION = "permessage-deflate";
+
+    private final VKDeflaterPool pool;
+    private final int thresholdBytes;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    /** 下发给客户端的窗口上限，0 表示不下发。 */
+    private final int clientMaxWindowBits;
+    private Deflater deflater;
+    private Inflater inflater;
+
+    private VKWsDeflate(VKDeflaterPool pool, int thresholdBytes, boolean serverNoContextTakeover,
+                        boolean clientNoContextTakeover, int clientMaxWindowBits) {
+        this.pool = pool;
+        this.thresholdBytes = thresholdBytes;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.clientMaxWindowBits = clientMaxWindowBits;
+    }
+
+    /**
+     * 按 Sec-WebSocket-Extensions 中的提议顺序选择第一个可接受的 permessage-deflate 提议。
+     * 返回 null 表示不启用压缩（未配置、客户端未提供或所有提议都不可接受）。
+     */
+    static VKWsDeflate negotiate(String offers, VKWebSocketConfig config, VKDeflaterPool pool) {
+        if (offers == null || !config.isPerMessageDeflate()) {
+            return null;
+        }
+        for (String offer : offers.split(",")) {
+            VKWsDeflate d = accept(offer, config, pool);
+            if (d != null) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    private static VKWsDeflate accept(String offer, VKWebSocketConfig config, VKDeflaterPool pool) {
+        String[] parts = offer.split(";");
+        if (!EXTENSION.equalsIgnoreCase(parts[0].trim())) {
+            return null;
+        }
+        boolean serverNct = false;
+        boolean clientNct = false;
+        boolean serverBits = false;
+        boolean clientBitsOffered = false;
+        int clientBits = 15;
+        for (int i = 1; i < parts.length; i++) {
+            String p = parts[i].trim();
+            if (p.isEmpty()) {
+                continue;
+            }
+            int eq = p.indexOf('=');
+            String name = (eq < 0 ? p : p.substring(0, eq)).trim().toLowerCase();
+            String value = eq < 0 ? null : unquote(p.substring(eq + 1).trim());
+            switch (name) {
+                case "server_no_context_takeover" -> {
+                    if (serverNct || value != null) {
+                        return null;
+                    }
+                    serverNct = true;
+                }
+                case "client_no_context_takeover" -> {
+                    if (clientNct || value != null) {
+                        return null;
+                    }
+                    clientNct = true;
+                }
+                case "server_max_window_bits" -> {
+                    if (serverBits || windowBits(value) != 15) {
+                        return null;
+                    }
+                    serverBits = true;
+                }
+                case "client_max_window_bits" -> {
+                    if (clientBitsOffered) {
+                        return null;
+                    }
+                    clientBitsOffered = true;
+                    if (value != null) {
+                        clientBits = windowBits(value);
+                        if (clientBits < 0) {
+                            return null;
+                        }
+                    }
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        int bits = 0;
+        if (clientBitsOffered) {
+            int limit = Math.min(clientBits, config.getClientMaxWindowBits());
+            bits = limit < 15 ? limit : 0;
+        }
+        return new VKWsDeflate(pool, config.getDeflateThresholdBytes(),
+                serverNct || config.isServerNoContextTakeover(),
+                clientNct || config.isClientNoContextTakeover(),
+                bits);
+    }
+
+    private static int windowBits(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            int v = Integer.parseInt(value);
+            return v >= 8 && v <= 15 ? v : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String unquote(String v) {
+        if (v.length() >= 2 && v.charAt(0) == '"' && v.charAt(v.length() - 1) == '"') {
+            return v.substring(1, v.length() - 1);
+        }
+        return v;
+    }
+
+    /** 握手响应中的 Sec-WebSocket-Extensions 值。 */
+    String responseHeader() {
+        StringBuilder sb = new StringBuilder(EXTENSION);
+        if (serverNoContextTakeover) {
+            sb.append("; server_no_context_takeover");
+        }
+        if (clientNoContextTakeover) {
+            sb.append("; client_no_context_takeover");
+        }
+        if (clientMaxWindowBits > 0) {
+            sb.append("; client_max_window_bits=").append(clientMaxWindowBits);
+        }
+        return sb.toString();
+    }
+
+    /** 负载是否达到压缩阈值。 */
+    boolean shouldCompress(int payloadLength) {
+        return payloadLength >= thresholdBytes;
+    }
+
+    /** 压缩结果是否与连接无关，可在广播的所有连接间共享。 */
+    boolean isShareable() {
+        return serverNoContextTakeover;
+    }
+
+    /** 压缩一条完整消息的负载，返回去掉尾部 00 00 FF FF 的 raw deflate 数据。 */
+    byte[] deflate(byte[] payload) {
+        Deflater d = deflater;
+        if (d == null) {
+            d = pool.acquireDeflater();
+            if (!serverNoContextTakeover) {
+                deflater = d;
+            }
+        }
+        try {
+            d.setInput(payload);
+            byte[] out = new byte[Math.max(64, payload.length / 2 + 16)];
+            int len = 0;
+            while (true) {
+                len += d.deflate(out, len, out.length - len, Deflater.SYNC_FLUSH);
+                // SYNC_FLUSH 下输出未写满即表示本次输入已全部刷出
+                if (len < out.length) {
+                    break;
+                }
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            if (len >= TAIL.length && Arrays.equals(out, len - TAIL.length, len, TAIL, 0, TAIL.length)) {
+                len -= TAIL.length;
+            }
+            return Arrays.copyOf(out, len);
+        } finally {
+            if (serverNoContextTakeover) {
+                pool.releaseDeflater(d);
+            }
+        }
+    }
+
+    /**
+     * 解压一条完整消息；解压后超过 maxBytes 时返回 null。
+     *
+     * @throws DataFormatException 压缩数据非法
+     */
+    byte[] inflate(byte[] data, int maxBytes) throws DataFormatException {
+        Inflater inf = inflater;
+        if (inf == null) {
+            inf = pool.acquireInflater();
+            if (!clientNoContextTakeover) {
+                inflater = inf;
+            }
+        }
+        try {
+            byte[] in = Arrays.copyOf(data, data.length + TAIL.length);
+            System.arraycopy(TAIL, 0, in, data.length, TAIL.length);
+            inf.setInput(in);
+            int cap = maxBytes == Integer.MAX_VALUE ? maxBytes : maxBytes + 1;
+            byte[] out = new byte[Math.min(Math.max(64, data.length * 4), cap)];
+            int len = 0;
+            while (true) {
+                if (len == out.length) {
+                    out = Arrays.copyOf(out, (int) Math.min((long) out.length * 2, cap));
+                }
+                int n = inf.inflate(out, len, out.length - len);
+                len += n;
+                if (len > maxBytes) {
+                    return null;
+                }
+                if (n == 0) {
+                    // 输出仍有空间却无产出：输入已耗尽或需要预置字典（permessage-deflate 不使用）
+                    if (inf.needsDictionary()) {
+                        throw new DataFormatException("Preset dictionary not supported");
+                    }
+                    break;
+                }
+            }
+            return len == out.length ? out : Arrays.copyOf(out, len);
+        } finally {
+            if (clientNoContextTakeover) {
+                pool.releaseInflater(inf);
+            }
+        }
+    }
+
+    /** 连接关闭时归还常驻实例，必须在 reactor 线程调用。 */
+    void release() {
+        if (deflater != null) {
+            pool.releaseDeflater(deflater);
+            deflater = null;
+        }
+        if (inflater != null) {
+            pool.releaseInflater(inflater);
+            inflater = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package yueyang.vostok.web.http;
+
+/**
+ * Accept-Encoding 协商与内容编码相关的 ETag 工具。
+ *
+ * 按 RFC 7231 5.3.4 解析 q 值：q=0 表示明确拒绝，未列出的编码按 "*" 的 q 值处理，
+ * q 值相同时按调用方给出的服务端偏好顺序选择。
+ */
+public final class VKAcceptEncoding {
+    private VKAcceptEncoding() {
+    }
+
+    /**
+     * 从 available（按服务端偏好排序）中选出客户端可接受且 q 值最高的编码。
+     *
+     * @return 选中的编码名；客户端未发送 Accept-Encoding 或全部不可接受时返回 null（使用 identity）
+     */
+    public static String select(String acceptEncoding, String... available) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty() || available == null) {
+            return null;
+        }
+        String best = null;
+        double bestQ = 0;
+        for (String coding : available) {
+            if (coding == null) {
+                continue;
+            }
+            double q = quality(acceptEncoding, coding);
+            if (q > bestQ) {
+                best = coding;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 编码 coding 在 Accept-Encoding 中的 q 值，未列出且无 "*" 时为 0。
+     * "gzip" 同时匹配旧别名 "x-gzip"。
+     */
+    public static double quality(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return 0;
+        }
+        double wildcard = -1;
+        int len = acceptEncoding.length();
+        int start = 0;
+        while (start < len) {
+            int comma = acceptEncoding.indexOf(',', start);
+            int end = comma < 0 ? len : comma;
+            int semi = acceptEncoding.indexOf(';', start);
+            int nameEnd = semi >= 0 && semi < end ? semi : end;
+            String name = acceptEncoding.substring(start, nameEnd).trim();
+            if (!name.isEmpty()) {
+                double q = nameEnd < end ? parseQ(acceptEncoding.substring(nameEnd + 1, end)) : 1;
+                if (name.equalsIgnoreCase(coding)
+                        || ("gzip".equalsIgnoreCase(coding) && name.equalsIgnoreCase("x-gzip"))) {
+                    return q;
+                }
+                if (name.equals("*")) {
+                    wildcard = q;
+                }
+            }
+            start = end + 1;
+        }
+        return wildcard < 0 ? 0 : wildcard;
+    }
+
+    private static double parseQ(String params) {
+        for (String p : params.split(";")) {
+            String t = p.trim();
+            if (t.length() > 2 && (t.charAt(0) == 'q' || t.charAt(0) == 'Q') && t.charAt(1) == '=') {
+                try {
+                    double q = Double.parseDouble(t.substring(2).trim());
+                    return q < 0 ? 0 : Math.min(q, 1);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /** 把强 ETag 转为弱 ETag；内容编码变体与原始表示语义等价但字节不同，应使用弱校验值。 */
+    public static String weakEtag(String etag) {
+        if (etag == null || etag.startsWith("W/")) {
+            return etag;
+        }
+        return "W/" + etag;
+    }
+
+    /**
+     * If-None-Match 弱比较（RFC 7232 3.2）：忽略 W/ 前缀，支持逗号分隔的多个值与 "*"。
+     */
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String target = opaque(etag.trim());
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || opaque(c).equals(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
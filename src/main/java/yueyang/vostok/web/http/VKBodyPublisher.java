@@ -0,0 +1,112 @@
+package yueyang.vostok.web.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把请求体 InputStream 适配为 Flow.Publisher。
+ *
+ * 拉模式：数据在订阅方调用 request(n) 的线程中读取并回调 onNext，
+ * 因此订阅方的消费速度直接决定 reactor 的读取速度（经 VKRequestBodyStream 的水位控制）。
+ * 只允许订阅一次。
+ */
+final class VKBodyPublisher implements Flow.Publisher<ByteBuffer> {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final InputStream in;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    VKBodyPublisher(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Request body can only be subscribed once"));
+            return;
+        }
+        subscriber.onSubscribe(new BodySubscription(subscriber));
+    }
+
+    private final class BodySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private long demand;
+        private boolean emitting;
+        private boolean done;
+
+        BodySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) {
+                return;
+            }
+            if (n <= 0) {
+                done = true;
+                closeQuietly();
+                subscriber.onError(new IllegalArgumentException("Non-positive request: " + n));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            // onNext 中再次 request 时只累加需求，由最外层循环继续发射，避免递归
+            if (emitting) {
+                return;
+            }
+            emitting = true;
+            try {
+                while (demand > 0 && !done) {
+                    byte[] buf = new byte[CHUNK_SIZE];
+                    int r;
+                    try {
+                        r = in.read(buf, 0, buf.length);
+                    } catch (IOException e) {
+                        done = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+                    if (r < 0) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (r > 0) {
+                        demand--;
+                        subscriber.onNext(ByteBuffer.wrap(buf, 0, r));
+                    }
+                }
+            } finally {
+                emitting = false;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (!done) {
+                done = true;
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                in.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package yueyang.vostok.web.http;
+
+import java.io.IOException;
+
+/**
+ * 流式响应体写出器，见 {@link VKResponse#stream(VKBodyWriter)}。
+ * 在 worker 线程中调用；方法返回后引擎写出结束块，抛出异常则直接关闭连接（客户端可感知响应被截断）。
+ */
+@FunctionalInterface
+public interface VKBodyWriter {
+    void writeTo(VKResponseStream out) throws IOException;
+}
@@ -0,0 +1,39 @@
+package yueyang.vostok.web.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * 在内存中收集流式响应体，供 {@link VKResponse#bufferStreamingBody()} 使用。
+ */
+final class VKBufferedResponseStream extends VKResponseStream {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private boolean closed;
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Response stream closed");
+        }
+        out.write(b, off, len);
+    }
+
+    @Override
+    public long bytesWritten() {
+        return out.size();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,31 @@
+package yueyang.vostok.web.http;
+
+/**
+ * 文件响应中的一个区间：先写出 prefix（如 multipart 分段头），再写出文件 [offset, offset + length)。
+ * length 为 0 时仅写出 prefix，可用作结尾边界。
+ */
+public final class VKFileRegion {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[] prefix;
+    private final long offset;
+    private final long length;
+
+    public VKFileRegion(byte[] prefix, long offset, long length) {
+        this.prefix = prefix == null ? EMPTY : prefix;
+        this.offset = Math.max(0, offset);
+        this.length = Math.max(0, length);
+    }
+
+    public byte[] prefix() {
+        return prefix;
+    }
+
+    public long offset() {
+        return offset;
+    }
+
+    public long length() {
+        return length;
+    }
+}
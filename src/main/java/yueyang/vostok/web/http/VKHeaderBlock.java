@@ -0,0 +1,122 @@
+package yueyang.vostok.web.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 请求头的原始字节块。
+ *
+ * 解析器只记录每个头部名称/值在字节块中的区间，不生成字符串；
+ * header(name) 时按字节做大小写无关比较，只解码命中的值，toMap() 在首次需要完整 Map 时才物化。
+ */
+final class VKHeaderBlock {
+    static final VKHeaderBlock EMPTY = new VKHeaderBlock(new byte[0], new int[0], 0);
+
+    private final byte[] bytes;
+    /** 第 i 个头部：名称为 [bounds[4i], bounds[4i+1])，值为 [bounds[4i+2], bounds[4i+3])。 */
+    private final int[] bounds;
+    private final int count;
+    private String[] values;
+    private Map<String, String> map;
+
+    VKHeaderBlock(byte[] bytes, int[] bounds, int count) {
+        this.bytes = bytes;
+        this.bounds = bounds;
+        this.count = count;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * 按名称（大小写无关）取值；同名头部按 RFC 7230 以 ", " 合并。
+     */
+    String get(String name) {
+        if (name == null) {
+            return null;
+        }
+        if (map != null) {
+            return map.get(name.toLowerCase());
+        }
+        String result = null;
+        for (int i = 0; i < count; i++) {
+            if (!nameEquals(i, name)) {
+                continue;
+            }
+            String v = value(i);
+            result = result == null ? v : result + ", " + v;
+        }
+        return result;
+    }
+
+    /** 物化为小写名称到值的 Map，结果被缓存。 */
+    Map<String, String> toMap() {
+        Map<String, String> m = map;
+        if (m != null) {
+            return m;
+        }
+        m = new HashMap<>(Math.max(4, count * 2));
+        for (int i = 0; i < count; i++) {
+            String name = lowerName(i);
+            String v = value(i);
+            String existing = m.get(name);
+            m.put(name, existing == null ? v : existing + ", " + v);
+        }
+        map = m;
+        return m;
+    }
+
+    private boolean nameEquals(int i, String name) {
+        int start = bounds[4 * i];
+        int end = bounds[4 * i + 1];
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int j = 0; j < name.length(); j++) {
+            int b = bytes[start + j] & 0xFF;
+            int c = name.charAt(j);
+            if (b == c) {
+                continue;
+            }
+            if (b >= 'A' && b <= 'Z') {
+                b += 32;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 32;
+            }
+            if (b != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String value(int i) {
+        String[] vs = values;
+        if (vs == null) {
+            vs = new String[count];
+            values = vs;
+        }
+        String v = vs[i];
+        if (v == null) {
+            int start = bounds[4 * i + 2];
+            int end = bounds[4 * i + 3];
+            v = start >= end ? "" : new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+            vs[i] = v;
+        }
+        return v;
+    }
+
+    private String lowerName(int i) {
+        int start = bounds[4 * i];
+        int end = bounds[4 * i + 1];
+        byte[] out = new byte[end - start];
+        for (int j = 0; j < out.length; j++) {
+            byte c = bytes[start + j];
+            out[j] = c >= 'A' && c <= 'Z' ? (byte) (c + 32) : c;
+        }
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+}
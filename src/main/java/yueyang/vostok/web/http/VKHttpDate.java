@@ -0,0 +1,47 @@
+package yueyang.vostok.web.http;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * 缓存的 "Date: ...\r\n" 响应头行。
+ *
+ * HTTP 日期精度为秒，同一秒内的所有响应共享同一个字节数组；跨秒后首次访问时重新格式化。
+ * 每个 reactor 持有一个实例，worker 线程编码响应头时直接读取，竞争刷新只会多格式化一次，结果相同。
+ */
+public final class VKHttpDate {
+    private static final byte[] PREFIX = "Date: ".getBytes(StandardCharsets.US_ASCII);
+    /** IMF-fixdate（RFC 7231 7.1.1.1），日期固定两位，不能用 RFC_1123_DATE_TIME。 */
+    private static final DateTimeFormatter FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private volatile Line line = new Line(-1, null);
+
+    /** 当前秒的完整头部行（含 CRLF），调用方不得修改返回的数组。 */
+    public byte[] line() {
+        long second = System.currentTimeMillis() / 1000;
+        Line l = line;
+        if (l.second != second) {
+            l = new Line(second, format(second));
+            line = l;
+        }
+        return l.bytes;
+    }
+
+    private static byte[] format(long second) {
+        String date = FORMAT.format(Instant.ofEpochSecond(second));
+        byte[] value = date.getBytes(StandardCharsets.US_ASCII);
+        byte[] out = new byte[PREFIX.length + value.length + 2];
+        System.arraycopy(PREFIX, 0, out, 0, PREFIX.length);
+        System.arraycopy(value, 0, out, PREFIX.length, value.length);
+        out[out.length - 2] = '\r';
+        out[out.length - 1] = '\n';
+        return out;
+    }
+
+    private record Line(long second, byte[] bytes) {
+    }
+}
@@ -2,7 +2,6 @@ package yueyang.vostok.web.http;
 
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
 import java.util.Map;
 
 public final class VKHttpParser {
@@ -14,30 +13,49 @@ public final class VKHttpParser {
         this.maxBodyBytes = maxBodyBytes;
     }
 
+    /**
+     * 无状态解析：每次调用都从缓冲区起点重新扫描，仅供一次性解析使用；
+     * 连接上的增量解析请使用 {@link #parse(State, byte[], int, InetSocketAddress)}。
+     */
     public ParsedRequest parse(byte[] buf, int len, InetSocketAddress remote, boolean sentContinue) {
-        HeaderInfo info = parseHeaders(buf, len);
+        return parse(new State(), buf, len, remote);
+    }
+
+    public boolean shouldSendContinue(byte[] buf, int len) {
+        State state = new State();
+        parseHeaders(state, buf, len);
+        return shouldSendContinue(state);
+    }
+
+    public ParsedHeaders parseHeadersOnly(byte[] buf, int len) {
+        return parseHeaders(new State(), buf, len);
+    }
+
+    /**
+     * 增量解析一个请求。数据不完整时返回 null，已扫描的位置、已解析的头部与已收齐的分块保存在 state 中，
+     * 下次以追加了新数据的同一缓冲区调用时从中断处继续；返回完整请求后 state 自动复位。
+     */
+    public ParsedRequest parse(State state, byte[] buf, int len, InetSocketAddress remote) {
+        ParsedHeaders info = parseHeaders(state, buf, len);
         if (info == null) {
-            if (len > maxHeaderBytes) {
-                throw new VKHttpParseException(431, "Header too large");
-            }
             return null;
         }
 
         int bodyStart = info.headerEnd + 4;
         if (info.chunked) {
-            ChunkResult chunk = parseChunked(buf, len, bodyStart);
+            ChunkResult chunk = parseChunked(state, buf, len, bodyStart);
             if (chunk == null) {
                 return null;
             }
-            VKRequest req = new VKRequest(info.method, info.path, info.query, info.version, info.headers,
-                    chunk.body, info.keepAlive, remote);
+            VKRequest req = info.newRequest(chunk.body, remote);
+            state.reset();
             return new ParsedRequest(req, chunk.consumed);
         }
 
-        int contentLength = info.contentLength;
-        if (contentLength > maxBodyBytes) {
+        if (info.contentLength > maxBodyBytes) {
             throw new VKHttpParseException(413, "Body too large");
         }
+        int contentLength = (int) info.contentLength;
         int total = bodyStart + contentLength;
         if (len < total) {
             return null;
@@ -47,37 +65,47 @@ public final class VKHttpParser {
         if (contentLength > 0) {
             System.arraycopy(buf, bodyStart, body, 0, contentLength);
         }
-        VKRequest req = new VKRequest(info.method, info.path, info.query, info.version, info.headers, body,
-                info.keepAlive, remote);
+        VKRequest req = info.newRequest(body, remote);
+        state.reset();
         return new ParsedRequest(req, total);
     }
 
-    public boolean shouldSendContinue(byte[] buf, int len) {
-        HeaderInfo info = parseHeaders(buf, len);
-        if (info == null) {
-            return false;
-        }
-        return info.expectContinue && (info.contentLength > 0 || info.chunked);
-    }
-
-    public ParsedHeaders parseHeadersOnly(byte[] buf, int len) {
-        HeaderInfo info = parseHeaders(buf, len);
-        if (info == null) {
-            return null;
+    /**
+     * 增量解析请求头。头部结束符尚未到达时返回 null 并记住扫描位置；
+     * 头部完整后结果缓存在 state 中，重复调用直接返回同一对象。
+     */
+    public ParsedHeaders parseHeaders(State state, byte[] buf, int len) {
+        ParsedHeaders cached = state.headers;
+        if (cached != null) {
+            return cached;
         }
-        return new ParsedHeaders(info.method, info.path, info.query, info.version, info.headers, info.contentLength,
-                info.headerEnd, info.keepAlive, info.chunked, info.expectContinue);
-    }
-
-    private HeaderInfo parseHeaders(byte[] buf, int len) {
-        int headerEnd = indexOfHeaderEnd(buf, len, 0);
+        int headerEnd = indexOfHeaderEnd(buf, len, state.scanFrom);
         if (headerEnd < 0) {
+            if (len > maxHeaderBytes) {
+                throw new VKHttpParseException(431, "Header too large");
+            }
+            // 结束符可能跨越本次数据尾部，回退 3 字节后续扫
+            state.scanFrom = Math.max(0, len - 3);
             return null;
         }
         if (headerEnd > maxHeaderBytes) {
             throw new VKHttpParseException(431, "Header too large");
         }
+        ParsedHeaders headers = parseHead(buf, len, headerEnd);
+        state.headers = headers;
+        return headers;
+    }
+
+    /** 当前请求是否需要先回 100 Continue（头部尚未解析完成时为 false）。 */
+    public boolean shouldSendContinue(State state) {
+        ParsedHeaders info = state.headers;
+        if (info == null) {
+            return false;
+        }
+        return info.expectContinue && (info.contentLength > 0 || info.chunked);
+    }
 
+    private ParsedHeaders parseHead(byte[] buf, int len, int headerEnd) {
         int lineEnd = indexOfCRLF(buf, len, 0);
         if (lineEnd <= 0) {
             throw new VKHttpParseException(400, "Bad request line");
@@ -114,12 +142,17 @@ public final class VKHttpParser {
             }
         }
 
-        Map<String, String> headers = new HashMap<>();
-        int contentLength = 0;
+        // 头部区域整体拷贝一次，之后只记录区间；名称与值在 VKRequest.header() 时才解码
+        int blockStart = lineEnd + 2;
+        byte[] block = new byte[Math.max(0, headerEnd - blockStart)];
+        System.arraycopy(buf, blockStart, block, 0, block.length);
+        int[] bounds = new int[32];
+        int count = 0;
+        long contentLength = 0;
         boolean chunked = false;
         boolean expectContinue = false;
 
-        int pos = lineEnd + 2;
+        int pos = blockStart;
         while (pos < headerEnd) {
             int end = indexOfCRLF(buf, len, pos);
             if (end < 0 || end > headerEnd) {
@@ -136,91 +169,102 @@ public final class VKHttpParser {
                 int valueStart = trimLeftAscii(buf, colon + 1, end);
                 int valueEnd = trimRightAscii(buf, valueStart, end);
 
-                String name = asciiLowerString(buf, nameStart, nameEnd);
-                String value = asciiString(buf, valueStart, valueEnd);
-                // Bug4修复：RFC 7230 规定同名 header 应合并，而非覆盖
-                String existing = headers.get(name);
-                headers.put(name, existing == null ? value : existing + ", " + value);
-
-                if ("content-length".equals(name)) {
+                if (4 * count + 4 > bounds.length) {
+                    bounds = java.util.Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[4 * count] = nameStart - blockStart;
+                bounds[4 * count + 1] = nameEnd - blockStart;
+                bounds[4 * count + 2] = valueStart - blockStart;
+                bounds[4 * count + 3] = valueEnd - blockStart;
+                count++;
+
+                // 只有影响分帧的头部在解析期解码
+                if (asciiNameEquals(buf, nameStart, nameEnd, "content-length")) {
                     try {
-                        contentLength = Integer.parseInt(value);
+                        // 以 long 解析，流式上传允许超过 2GB 的请求体
+                        contentLength = Long.parseLong(asciiString(buf, valueStart, valueEnd));
                     } catch (NumberFormatException e) {
                         throw new VKHttpParseException(400, "Invalid content-length");
                     }
                     if (contentLength < 0) {
                         throw new VKHttpParseException(400, "Invalid content-length");
                     }
-                } else if ("transfer-encoding".equals(name)) {
-                    chunked = containsIgnoreCase(value, "chunked");
-                } else if ("expect".equals(name)) {
-                    expectContinue = containsIgnoreCase(value, "100-continue");
+                } else if (asciiNameEquals(buf, nameStart, nameEnd, "transfer-encoding")) {
+                    chunked = containsIgnoreCase(buf, valueStart, valueEnd, "chunked");
+                } else if (asciiNameEquals(buf, nameStart, nameEnd, "expect")) {
+                    expectContinue = containsIgnoreCase(buf, valueStart, valueEnd, "100-continue");
                 }
             }
             pos = end + 2;
         }
 
-        boolean keepAlive = isKeepAlive(version, headers);
-        return new HeaderInfo(method, path, query, version, headers, contentLength, headerEnd, keepAlive, chunked,
+        VKHeaderBlock headers = new VKHeaderBlock(block, bounds, count);
+        boolean keepAlive = isKeepAlive(version, headers.get("connection"));
+        return new ParsedHeaders(method, path, query, version, headers, contentLength, headerEnd, keepAlive, chunked,
                 expectContinue);
     }
 
-    private ChunkResult parseChunked(byte[] buf, int len, int bodyStart) {
-        int pos = bodyStart;
-        ChunkAccumulator acc = new ChunkAccumulator();
-        int total = 0;
-        while (true) {
-            int lineEnd = indexOfCRLF(buf, len, pos);
-            if (lineEnd < 0) {
-                acc.recycle();
-                return null;
-            }
-            int semi = indexOfByte(buf, pos, lineEnd, (byte) ';');
-            int sizeEnd = semi >= 0 ? semi : lineEnd;
-            String hex = asciiString(buf, trimLeftAscii(buf, pos, sizeEnd), trimRightAscii(buf, pos, sizeEnd));
-            if (hex.isEmpty()) {
-                acc.recycle();
-                throw new VKHttpParseException(400, "Invalid chunk size");
-            }
-
-            int chunkSize;
-            try {
-                chunkSize = Integer.parseInt(hex, 16);
-            } catch (NumberFormatException e) {
-                acc.recycle();
-                throw new VKHttpParseException(400, "Invalid chunk size");
-            }
-            if (chunkSize < 0) {
-                acc.recycle();
-                throw new VKHttpParseException(400, "Invalid chunk size");
-            }
-
-            pos = lineEnd + 2;
-            if (chunkSize == 0) {
-                int consumed = parseChunkTrailer(buf, len, pos);
-                if (consumed < 0) {
-                    acc.recycle();
+    /**
+     * 增量解析 chunked 请求体：已完整到达的分块写入 state 中的累加器，
+     * 数据不足时记住下一分块头的位置，下次从该处继续。
+     */
+    private ChunkResult parseChunked(State state, byte[] buf, int len, int bodyStart) {
+        ChunkAccumulator acc = state.chunks;
+        if (acc == null) {
+            acc = new ChunkAccumulator();
+            state.chunks = acc;
+            state.chunkPos = bodyStart;
+        }
+        int pos = state.chunkPos;
+        try {
+            while (true) {
+                state.chunkPos = pos;
+                int lineEnd = indexOfCRLF(buf, len, pos);
+                if (lineEnd < 0) {
                     return null;
                 }
-                return new ChunkResult(acc.toByteArrayAndRecycle(), consumed);
-            }
+                int semi = indexOfByte(buf, pos, lineEnd, (byte) ';');
+                int sizeEnd = semi >= 0 ? semi : lineEnd;
+                String hex = asciiString(buf, trimLeftAscii(buf, pos, sizeEnd), trimRightAscii(buf, pos, sizeEnd));
+                if (hex.isEmpty()) {
+                    throw new VKHttpParseException(400, "Invalid chunk size");
+                }
 
-            if (chunkSize > maxBodyBytes || total + chunkSize > maxBodyBytes) {
-                acc.recycle();
-                throw new VKHttpParseException(413, "Body too large");
-            }
-            if (len < pos + chunkSize + 2) {
-                acc.recycle();
-                return null;
-            }
-            acc.write(buf, pos, chunkSize);
-            total += chunkSize;
+                int chunkSize;
+                try {
+                    chunkSize = Integer.parseInt(hex, 16);
+                } catch (NumberFormatException e) {
+                    throw new VKHttpParseException(400, "Invalid chunk size");
+                }
+                if (chunkSize < 0) {
+                    throw new VKHttpParseException(400, "Invalid chunk size");
+                }
+
+                int dataStart = lineEnd + 2;
+                if (chunkSize == 0) {
+                    int consumed = parseChunkTrailer(buf, len, dataStart);
+                    if (consumed < 0) {
+                        return null;
+                    }
+                    state.chunks = null;
+                    return new ChunkResult(acc.toByteArrayAndRecycle(), consumed);
+                }
 
-            if (buf[pos + chunkSize] != '\r' || buf[pos + chunkSize + 1] != '\n') {
-                acc.recycle();
-                throw new VKHttpParseException(400, "Invalid chunk ending");
+                if (chunkSize > maxBodyBytes || acc.total + chunkSize > maxBodyBytes) {
+                    throw new VKHttpParseException(413, "Body too large");
+                }
+                if (len < dataStart + chunkSize + 2) {
+                    return null;
+                }
+                if (buf[dataStart + chunkSize] != '\r' || buf[dataStart + chunkSize + 1] != '\n') {
+                    throw new VKHttpParseException(400, "Invalid chunk ending");
+                }
+                acc.write(buf, dataStart, chunkSize);
+                pos = dataStart + chunkSize + 2;
             }
-            pos += chunkSize + 2;
+        } catch (RuntimeException e) {
+            state.reset();
+            throw e;
         }
     }
 
@@ -244,8 +288,7 @@ public final class VKHttpParser {
         }
     }
 
-    private boolean isKeepAlive(String version, Map<String, String> headers) {
-        String conn = headers.get("connection");
+    private boolean isKeepAlive(String version, String conn) {
         if ("HTTP/1.0".equalsIgnoreCase(version)) {
             return conn != null && conn.equalsIgnoreCase("keep-alive");
         }
@@ -256,22 +299,42 @@ public final class VKHttpParser {
     }
 
     /**
-     * Perf3：零分配的 case-insensitive 包含检查，避免创建 lowercase String。
+     * Perf3：零分配的 case-insensitive 包含检查，直接在字节区间上比较。
      * target 参数必须已全小写。
      */
-    private boolean containsIgnoreCase(String src, String target) {
-        if (src == null) return false;
-        int len = src.length(), tlen = target.length();
+    private boolean containsIgnoreCase(byte[] buf, int start, int end, String target) {
+        int tlen = target.length();
         outer:
-        for (int i = 0; i <= len - tlen; i++) {
+        for (int i = start; i <= end - tlen; i++) {
             for (int j = 0; j < tlen; j++) {
-                if (Character.toLowerCase(src.charAt(i + j)) != target.charAt(j)) continue outer;
+                byte c = buf[i + j];
+                if (c >= 'A' && c <= 'Z') {
+                    c += 32;
+                }
+                if (c != target.charAt(j)) continue outer;
             }
             return true;
         }
         return false;
     }
 
+    /** 字节区间与全小写名称做大小写无关比较。 */
+    private boolean asciiNameEquals(byte[] buf, int start, int end, String lowerName) {
+        if (end - start != lowerName.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            byte c = buf[i];
+            if (c >= 'A' && c <= 'Z') {
+                c += 32;
+            }
+            if (c != lowerName.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private int indexOfHeaderEnd(byte[] buf, int len, int start) {
         for (int i = start; i + 3 < len; i++) {
             if (buf[i] == '\r' && buf[i + 1] == '\n' && buf[i + 2] == '\r' && buf[i + 3] == '\n') {
@@ -340,22 +403,6 @@ public final class VKHttpParser {
         return new String(buf, start, end - start, StandardCharsets.US_ASCII);
     }
 
-    private String asciiLowerString(byte[] buf, int start, int end) {
-        if (start >= end) {
-            return "";
-        }
-        byte[] out = new byte[end - start];
-        for (int i = 0; i < out.length; i++) {
-            byte c = buf[start + i];
-            if (c >= 'A' && c <= 'Z') {
-                out[i] = (byte) (c + 32);
-            } else {
-                out[i] = c;
-            }
-        }
-        return new String(out, StandardCharsets.US_ASCII);
-    }
-
     private static final class ChunkAccumulator {
         private static final int BLOCK_SIZE = 8 * 1024;
         private static final int MAX_BLOCK_POOL = 64;
@@ -424,9 +471,29 @@ public final class VKHttpParser {
         }
     }
 
-    private record HeaderInfo(String method, String path, String query, String version,
-                              Map<String, String> headers, int contentLength, int headerEnd,
-                              boolean keepAlive, boolean chunked, boolean expectContinue) {
+    /**
+     * 单个连接上的增量解析状态，由连接持有并在每次读事件中传入。
+     *
+     * 其中的位置都相对于连接读缓冲区的起点，缓冲区前部被消费（移位）后必须调用 {@link #reset()}。
+     */
+    public static final class State {
+        /** 下次查找头部结束符的起点。 */
+        private int scanFrom;
+        /** 头部已完整时缓存的解析结果。 */
+        private ParsedHeaders headers;
+        /** chunked 请求体：已收齐的分块与下一分块头的位置。 */
+        private ChunkAccumulator chunks;
+        private int chunkPos;
+
+        public void reset() {
+            scanFrom = 0;
+            headers = null;
+            if (chunks != null) {
+                chunks.recycle();
+                chunks = null;
+            }
+            chunkPos = 0;
+        }
     }
 
     public static final class ParsedHeaders {
@@ -434,15 +501,15 @@ public final class VKHttpParser {
         private final String path;
         private final String query;
         private final String version;
-        private final Map<String, String> headers;
-        private final int contentLength;
+        private final VKHeaderBlock headers;
+        private final long contentLength;
         private final int headerEnd;
         private final boolean keepAlive;
         private final boolean chunked;
         private final boolean expectContinue;
 
-        ParsedHeaders(String method, String path, String query, String version, Map<String, String> headers,
-                      int contentLength, int headerEnd, boolean keepAlive, boolean chunked, boolean expectContinue) {
+        ParsedHeaders(String method, String path, String query, String version, VKHeaderBlock headers,
+                      long contentLength, int headerEnd, boolean keepAlive, boolean chunked, boolean expectContinue) {
             this.method = method;
             this.path = path;
             this.query = query;
@@ -471,11 +538,27 @@ public final class VKHttpParser {
             return version;
         }
 
+        /** 全部头部（小写名称），首次调用时物化。 */
         public Map<String, String> headers() {
-            return headers;
+            return headers.toMap();
         }
 
+        /** 按名称（大小写无关）取单个头部，只解码命中的值。 */
+        public String header(String name) {
+            return headers.get(name);
+        }
+
+        /** 以本次解析出的请求行与头部构造请求，头部区间直接交给 VKRequest 按需解码。 */
+        public VKRequest newRequest(byte[] body, InetSocketAddress remote) {
+            return new VKRequest(method, path, query, version, headers, body, keepAlive, remote);
+        }
+
+        /** 声明的请求体长度，超过 int 范围时截断为 Integer.MAX_VALUE；完整值见 {@link #contentLengthLong()}。 */
         public int contentLength() {
+            return (int) Math.min(Integer.MAX_VALUE, contentLength);
+        }
+
+        public long contentLengthLong() {
             return contentLength;
         }
 
@@ -0,0 +1,111 @@
+package yueyang.vostok.web.http;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * HTTP Range 请求头解析（RFC 9110 14.2，仅支持 bytes 单位）。
+ */
+public final class VKHttpRange {
+    /** 单请求允许的最大区间数，超出时忽略 Range 返回完整内容，避免区间放大攻击。 */
+    public static final int MAX_RANGES = 16;
+
+    private VKHttpRange() {
+    }
+
+    /**
+     * 解析 Range 头。
+     *
+     * @param header Range 头原始值
+     * @param size   资源总长度
+     * @return null 表示头部无效或应忽略（按 200 返回完整内容）；
+     * 空列表表示所有区间均不可满足（416）；
+     * 否则为按起点排序且已合并重叠/相邻区间的 long[]{start, endInclusive}
+     */
+    public static List<long[]> parse(String header, long size) {
+        if (header == null) {
+            return null;
+        }
+        String h = header.trim();
+        if (h.length() < 6 || !h.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = h.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String raw : specs) {
+            String spec = raw.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀区间 "-n"：最后 n 个字节
+                long n = parseNumber(last);
+                if (n < 0) {
+                    return null;
+                }
+                if (n == 0 || size == 0) {
+                    continue;
+                }
+                start = Math.max(0, size - n);
+                end = size - 1;
+            } else {
+                start = parseNumber(first);
+                end = last.isEmpty() ? Long.MAX_VALUE : parseNumber(last);
+                if (start < 0 || end < 0 || end < start) {
+                    return null;
+                }
+                if (start >= size) {
+                    continue;
+                }
+                end = Math.min(end, size - 1);
+            }
+            ranges.add(new long[]{start, end});
+        }
+        if (ranges.size() <= 1) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(r -> r[0]));
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        long[] cur = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            long[] r = ranges.get(i);
+            if (r[0] <= cur[1] + 1) {
+                cur[1] = Math.max(cur[1], r[1]);
+            } else {
+                merged.add(cur);
+                cur = r;
+            }
+        }
+        merged.add(cur);
+        return merged;
+    }
+
+    /** 构造 Content-Range 头值，如 "bytes 0-99/1000"。 */
+    public static String contentRange(long start, long endInclusive, long size) {
+        return "bytes " + start + '-' + endInclusive + '/' + size;
+    }
+
+    private static long parseNumber(String s) {
+        if (s.isEmpty() || s.length() > 18) {
+            return -1;
+        }
+        long v = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
@@ -1,14 +1,50 @@
 package yueyang.vostok.web.http;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+/**
+ * HTTP/1.1 响应头编码。
+ *
+ * 头部直接按字节写入 ByteBuffer：状态行与常用头部名称预先编码为字节数组，头部名称用 equalsIgnoreCase 判断，
+ * 不再经过 StringBuilder / toLowerCase / getBytes，Date 头取自按秒缓存的 {@link VKHttpDate}。
+ */
 public final class VKHttpWriter {
+    private static final int MIN_STATUS = 100;
+    private static final int MAX_STATUS = 599;
+    /** 100..599 的完整状态行 "HTTP/1.1 200 OK\r\n"。 */
+    private static final byte[][] STATUS_LINES = new byte[MAX_STATUS - MIN_STATUS + 1][];
+    private static final byte[] CONTINUE = ascii("HTTP/1.1 100 Continue\r\n\r\n");
+    private static final byte[] COLON_SP = ascii(": ");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] SET_COOKIE = ascii("Set-Cookie: ");
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] CONNECTION_KEEP_ALIVE = ascii("Connection: keep-alive\r\n");
+    private static final byte[] CONNECTION_CLOSE = ascii("Connection: close\r\n");
+    private static final byte[] TRANSFER_CHUNKED = ascii("Transfer-Encoding: chunked\r\n");
+    /** 不经过 reactor 的调用方共用的 Date 缓存。 */
+    private static final VKHttpDate DATE = new VKHttpDate();
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(1024));
+
+    static {
+        for (int status = MIN_STATUS; status <= MAX_STATUS; status++) {
+            STATUS_LINES[status - MIN_STATUS] = ascii("HTTP/1.1 " + status + " " + reason(status) + "\r\n");
+        }
+    }
+
+    /** 响应头的三种形态：普通定长响应、流式（chunked / 关闭定界）响应、SSE 响应。 */
+    private enum Kind {
+        FIXED, STREAMING, SSE
+    }
+
     private VKHttpWriter() {
     }
 
+    /** 100 Continue 中间响应；返回共享数组，调用方不得修改。 */
     public static byte[] writeContinue() {
-        return "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        return CONTINUE;
     }
 
     public static byte[] write(VKResponse res, boolean keepAlive) {
@@ -25,53 +61,32 @@ public final class VKHttpWriter {
     }
 
     public static byte[] writeHead(VKResponse res, boolean keepAlive) {
-        int status = res.status();
-        String reason = reason(status);
-        long contentLength = resolveContentLength(res);
-
-        StringBuilder sb = new StringBuilder(160);
-        sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
-
-        boolean hasContentLength = false;
-        boolean hasConnection = false;
+        return writeHead(res, keepAlive, DATE);
+    }
 
-        for (Map.Entry<String, String> e : res.headers().entrySet()) {
-            String name = e.getKey();
-            String value = e.getValue();
-            if (name == null || value == null) {
-                continue;
-            }
-            String lower = name.toLowerCase();
-            if ("content-length".equals(lower)) {
-                hasContentLength = true;
-            } else if ("connection".equals(lower)) {
-                hasConnection = true;
-            }
-            sb.append(name).append(": ").append(value).append("\r\n");
-        }
-        for (String setCookie : res.setCookies()) {
-            if (setCookie != null && !setCookie.isEmpty()) {
-                sb.append("Set-Cookie: ").append(setCookie).append("\r\n");
-            }
-        }
+    public static byte[] writeHead(VKResponse res, boolean keepAlive, VKHttpDate date) {
+        return toBytes(res, Kind.FIXED, keepAlive, false, date);
+    }
 
-        if (!hasContentLength) {
-            sb.append("Content-Length: ").append(contentLength).append("\r\n");
-        }
-        if (!hasConnection) {
-            sb.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
-        }
+    /**
+     * 把定长响应的头部直接编码进 dst（从 position 起写，写完 position 位于头部末尾）。
+     *
+     * @return false 表示 dst 剩余空间不足，dst 的 position 保持不变
+     */
+    public static boolean encodeHead(VKResponse res, boolean keepAlive, VKHttpDate date, ByteBuffer dst) {
+        return encode(res, Kind.FIXED, keepAlive, false, date, dst);
+    }
 
-        sb.append("\r\n");
-        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    /**
+     * 为流式响应写出 HTTP 头部（不含 Content-Length）。
+     * chunked 为 true 时声明 Transfer-Encoding: chunked；否则响应体以关闭连接定界（HTTP/1.0 客户端）。
+     */
+    public static byte[] writeStreamingHead(VKResponse res, boolean keepAlive, boolean chunked) {
+        return writeStreamingHead(res, keepAlive, chunked, DATE);
     }
 
-    private static long resolveContentLength(VKResponse res) {
-        if (res.isFile()) {
-            return Math.max(0, res.fileLength());
-        }
-        byte[] body = res.body();
-        return body == null ? 0 : body.length;
+    public static byte[] writeStreamingHead(VKResponse res, boolean keepAlive, boolean chunked, VKHttpDate date) {
+        return toBytes(res, Kind.STREAMING, keepAlive, chunked, date);
     }
 
     /**
@@ -83,33 +98,155 @@ public final class VKHttpWriter {
      * @return HTTP 头部字节数组，以空行结尾
      */
     public static byte[] writeSseHead(VKResponse res, boolean keepAlive) {
-        int status = res.status();
-        String reason = reason(status);
-
-        StringBuilder sb = new StringBuilder(200);
-        sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
-
-        boolean hasConnection = false;
-        for (Map.Entry<String, String> e : res.headers().entrySet()) {
-            String name = e.getKey();
-            String value = e.getValue();
-            if (name == null || value == null) {
-                continue;
+        return writeSseHead(res, keepAlive, DATE);
+    }
+
+    public static byte[] writeSseHead(VKResponse res, boolean keepAlive, VKHttpDate date) {
+        return toBytes(res, Kind.SSE, keepAlive, false, date);
+    }
+
+    private static long resolveContentLength(VKResponse res) {
+        if (res.isFile()) {
+            return Math.max(0, res.fileLength());
+        }
+        return res.bodyLength();
+    }
+
+    /** 编码到线程私有的暂存缓冲（不够时倍增），再拷贝出精确长度的数组。 */
+    private static byte[] toBytes(VKResponse res, Kind kind, boolean keepAlive, boolean chunked, VKHttpDate date) {
+        ByteBuffer scratch = SCRATCH.get();
+        scratch.clear();
+        while (!encode(res, kind, keepAlive, chunked, date, scratch)) {
+            scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            SCRATCH.set(scratch);
+        }
+        byte[] out = new byte[scratch.position()];
+        scratch.flip();
+        scratch.get(out);
+        return out;
+    }
+
+    private static boolean encode(VKResponse res, Kind kind, boolean keepAlive, boolean chunked, VKHttpDate date,
+                                  ByteBuffer dst) {
+        int start = dst.position();
+        try {
+            int status = res.status();
+            if (status >= MIN_STATUS && status <= MAX_STATUS) {
+                dst.put(STATUS_LINES[status - MIN_STATUS]);
+            } else {
+                dst.put(ascii("HTTP/1.1 " + status + " " + reason(status) + "\r\n"));
+            }
+
+            boolean hasContentLength = false;
+            boolean hasConnection = false;
+            boolean hasDate = false;
+            for (Map.Entry<String, String> e : res.headers().entrySet()) {
+                String name = e.getKey();
+                String value = e.getValue();
+                if (name == null || value == null) {
+                    continue;
+                }
+                if ("content-length".equalsIgnoreCase(name)) {
+                    // 流式与 SSE 响应不写 Content-Length
+                    if (kind != Kind.FIXED) {
+                        continue;
+                    }
+                    hasContentLength = true;
+                } else if ("connection".equalsIgnoreCase(name)) {
+                    if (kind == Kind.STREAMING) {
+                        continue;
+                    }
+                    hasConnection = true;
+                } else if ("transfer-encoding".equalsIgnoreCase(name)) {
+                    if (kind == Kind.STREAMING) {
+                        continue;
+                    }
+                } else if ("date".equalsIgnoreCase(name)) {
+                    hasDate = true;
+                }
+                putAscii(dst, name);
+                dst.put(COLON_SP);
+                putAscii(dst, value);
+                dst.put(CRLF);
+            }
+            if (kind != Kind.SSE) {
+                for (String setCookie : res.setCookies()) {
+                    if (setCookie != null && !setCookie.isEmpty()) {
+                        dst.put(SET_COOKIE);
+                        putAscii(dst, setCookie);
+                        dst.put(CRLF);
+                    }
+                }
             }
-            // SSE 不写 Content-Length，保持连接为流模式
-            if ("content-length".equalsIgnoreCase(name)) {
-                continue;
+
+            switch (kind) {
+                case FIXED -> {
+                    if (!hasContentLength) {
+                        dst.put(CONTENT_LENGTH);
+                        putLong(dst, resolveContentLength(res));
+                        dst.put(CRLF);
+                    }
+                    if (!hasConnection) {
+                        dst.put(keepAlive ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+                    }
+                }
+                case STREAMING -> {
+                    if (chunked) {
+                        dst.put(TRANSFER_CHUNKED);
+                    }
+                    dst.put(keepAlive && chunked ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+                }
+                case SSE -> {
+                    if (!hasConnection) {
+                        dst.put(CONNECTION_KEEP_ALIVE);
+                    }
+                }
             }
-            if ("connection".equalsIgnoreCase(name)) {
-                hasConnection = true;
+            if (!hasDate && date != null) {
+                dst.put(date.line());
             }
-            sb.append(name).append(": ").append(value).append("\r\n");
+            dst.put(CRLF);
+            return true;
+        } catch (BufferOverflowException e) {
+            dst.position(start);
+            return false;
+        }
+    }
+
+    /** 按 US-ASCII 写入，非 ASCII 字符替换为 '?'（与 String.getBytes(US_ASCII) 一致）。 */
+    private static void putAscii(ByteBuffer dst, String s) {
+        int len = s.length();
+        if (dst.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            dst.put(c < 0x80 ? (byte) c : (byte) '?');
         }
-        if (!hasConnection) {
-            sb.append("Connection: keep-alive\r\n");
+    }
+
+    private static void putLong(ByteBuffer dst, long v) {
+        if (v == 0) {
+            dst.put((byte) '0');
+            return;
+        }
+        int digits = 0;
+        for (long t = v; t > 0; t /= 10) {
+            digits++;
+        }
+        if (dst.remaining() < digits) {
+            throw new BufferOverflowException();
         }
-        sb.append("\r\n");
-        return sb.toString().getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+        int end = dst.position() + digits;
+        for (int i = end - 1; v > 0; i--) {
+            dst.put(i, (byte) ('0' + (v % 10)));
+            v /= 10;
+        }
+        dst.position(end);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
     }
 
     private static String reason(int status) {
@@ -132,6 +269,7 @@ public final class VKHttpWriter {
             case 410 -> "Gone";
             case 413 -> "Payload Too Large";
             case 415 -> "Unsupported Media Type";
+            case 416 -> "Range Not Satisfiable";
             case 422 -> "Unprocessable Entity";
             case 429 -> "Too Many Requests";
             case 431 -> "Request Header Fields Too Large";
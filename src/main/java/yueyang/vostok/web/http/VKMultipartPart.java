@@ -0,0 +1,57 @@
+package yueyang.vostok.web.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式 multipart 中的单个分段。
+ *
+ * content() 只能顺序读取一次，数据边解析边交付，不会落地为 VKUploadedFile；
+ * 典型用法是直接交给 {@code Vostok.File.writeFrom(path, part.content())}。
+ * 读取下一个分段时，本分段未读完的数据会被跳过。
+ */
+public final class VKMultipartPart {
+    private final String name;
+    private final String fileName;
+    private final String contentType;
+    private final InputStream content;
+
+    VKMultipartPart(String name, String fileName, String contentType, InputStream content) {
+        this.name = name;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.content = content;
+    }
+
+    /** 表单字段名。 */
+    public String name() {
+        return name;
+    }
+
+    /** 上传文件名（已去除路径），普通字段为 null。 */
+    public String fileName() {
+        return fileName;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public boolean isFile() {
+        return fileName != null;
+    }
+
+    /** 分段内容流。 */
+    public InputStream content() {
+        return content;
+    }
+
+    /** 以 UTF-8 读取剩余内容，适用于普通表单字段。 */
+    public String text() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        content.transferTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
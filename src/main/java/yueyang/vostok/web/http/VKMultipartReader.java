@@ -0,0 +1,173 @@
+package yueyang.vostok.web.http;
+
+import yueyang.vostok.web.VKWebConfig;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+
+/**
+ * 拉模式的流式 multipart 读取器。
+ *
+ * 每次需要数据时从请求体流读取一块，交给流式模式的 VKMultipartStreamDecoder 解析，
+ * 解析出的分段数据只在当前块范围内暂存，因此内存占用与上传大小无关。
+ *
+ * 用法：
+ * <pre>
+ * VKMultipartReader reader = req.multipartReader();
+ * VKMultipartPart part;
+ * while ((part = reader.next()) != null) {
+ *     if (part.isFile()) {
+ *         Vostok.File.writeFrom("upload/" + part.fileName(), part.content());
+ *     }
+ * }
+ * </pre>
+ */
+public final class VKMultipartReader implements VKMultipartStreamDecoder.PartListener {
+    private static final int READ_CHUNK = 16 * 1024;
+
+    private final InputStream source;
+    private final VKMultipartStreamDecoder decoder;
+    private final byte[] readBuf = new byte[READ_CHUNK];
+    /** 已解析出但尚未交给调用方的分段。 */
+    private final ArrayDeque<PartStream> ready = new ArrayDeque<>();
+    /** 正在接收数据的分段（解析器视角）。 */
+    private PartStream receiving;
+    /** 最近一次交给调用方的分段。 */
+    private PartStream current;
+    private boolean sourceDone;
+
+    public VKMultipartReader(InputStream source, String boundary, VKWebConfig cfg) {
+        this.source = source;
+        this.decoder = new VKMultipartStreamDecoder(boundary, cfg, this);
+    }
+
+    /**
+     * 返回下一个分段，没有更多分段时返回 null。
+     *
+     * @throws VKMultipartParseException multipart 格式错误
+     */
+    public VKMultipartPart next() throws IOException {
+        if (current != null) {
+            // 跳过调用方未读完的数据
+            current.skipRemaining();
+            current = null;
+        }
+        while (ready.isEmpty()) {
+            if (!pump()) {
+                return null;
+            }
+        }
+        current = ready.pollFirst();
+        return current.part;
+    }
+
+    /**
+     * 从请求体读取一块并解析。
+     *
+     * @return false 表示请求体已读完且没有更多数据可解析
+     */
+    private boolean pump() throws IOException {
+        if (sourceDone) {
+            return false;
+        }
+        int n = source.read(readBuf, 0, readBuf.length);
+        if (n < 0) {
+            sourceDone = true;
+            decoder.finish();
+            return true;
+        }
+        decoder.feed(readBuf, 0, n);
+        return true;
+    }
+
+    @Override
+    public void onPartStart(String name, String fileName, String contentType) {
+        PartStream ps = new PartStream();
+        ps.part = new VKMultipartPart(name, fileName, contentType, ps);
+        receiving = ps;
+        ready.addLast(ps);
+    }
+
+    @Override
+    public void onPartData(byte[] buf, int off, int len) {
+        receiving.append(buf, off, len);
+    }
+
+    @Override
+    public void onPartEnd() {
+        receiving.ended = true;
+        receiving = null;
+    }
+
+    /** 单个分段的内容流：缓冲耗尽时驱动 reader 继续解析。 */
+    private final class PartStream extends InputStream {
+        VKMultipartPart part;
+        private byte[] buf = new byte[0];
+        private int pos;
+        private int limit;
+        boolean ended;
+
+        void append(byte[] src, int off, int len) {
+            if (limit + len > buf.length) {
+                // 已读部分前移，仅在剩余空间不足时扩容
+                int unread = limit - pos;
+                byte[] next = unread + len > buf.length ? new byte[Math.max(unread + len, READ_CHUNK)] : buf;
+                System.arraycopy(buf, pos, next, 0, unread);
+                buf = next;
+                pos = 0;
+                limit = unread;
+            }
+            System.arraycopy(src, off, buf, limit, len);
+            limit += len;
+        }
+
+        private boolean fill() throws IOException {
+            while (pos >= limit) {
+                if (ended || this != current) {
+                    return false;
+                }
+                if (!pump()) {
+                    throw new VKMultipartParseException(400, "Malformed multipart stream");
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - pos;
+        }
+
+        void skipRemaining() throws IOException {
+            while (fill()) {
+                pos = limit;
+            }
+            buf = new byte[0];
+            pos = 0;
+            limit = 0;
+        }
+    }
+}
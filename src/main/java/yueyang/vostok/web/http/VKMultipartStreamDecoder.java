@@ -14,6 +14,18 @@ import java.util.Locale;
 import java.util.Map;
 
 public final class VKMultipartStreamDecoder {
+    /**
+     * 流式分段监听器：分段数据解析出来后直接交给调用方，不在内存或临时文件中汇总，
+     * 也不受 multipartMaxFileSizeBytes / multipartMaxTotalBytes 限制（由调用方自行控制）。
+     */
+    public interface PartListener {
+        void onPartStart(String name, String fileName, String contentType);
+
+        void onPartData(byte[] buf, int off, int len);
+
+        void onPartEnd();
+    }
+
     private enum State {
         START_BOUNDARY,
         PART_HEADERS,
@@ -22,6 +34,7 @@ public final class VKMultipartStreamDecoder {
     }
 
     private final VKWebConfig cfg;
+    private final PartListener listener;
     private final byte[] startBoundary;
     private final byte[] bodyBoundary;
     private byte[] pending = new byte[4096];
@@ -40,11 +53,38 @@ public final class VKMultipartStreamDecoder {
     private PartSink currentSink;
 
     public VKMultipartStreamDecoder(String boundary, VKWebConfig cfg) {
+        this(boundary, cfg, null);
+    }
+
+    /**
+     * @param listener 非 null 时进入流式模式，result() 不再包含任何分段
+     */
+    public VKMultipartStreamDecoder(String boundary, VKWebConfig cfg, PartListener listener) {
         this.cfg = cfg;
+        this.listener = listener;
         this.startBoundary = ("--" + boundary + "\r\n").getBytes(StandardCharsets.US_ASCII);
         this.bodyBoundary = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
     }
 
+    /** 从 Content-Type 中提取 boundary，缺失时返回 null。 */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String[] parts = contentType.split(";");
+        for (String p : parts) {
+            String s = p.trim();
+            if (s.toLowerCase(Locale.ROOT).startsWith("boundary=")) {
+                String v = s.substring("boundary=".length()).trim();
+                if (v.startsWith("\"") && v.endsWith("\"") && v.length() >= 2) {
+                    v = v.substring(1, v.length() - 1);
+                }
+                return v;
+            }
+        }
+        return null;
+    }
+
     public void feed(byte[] src, int off, int len) {
         if (state == State.END || len <= 0) {
             return;
@@ -188,6 +228,10 @@ public final class VKMultipartStreamDecoder {
         currentFieldName = name;
         currentFileName = fileName;
         currentContentType = hs.get("content-type");
+        if (listener != null) {
+            listener.onPartStart(name, fileName, currentContentType);
+            return;
+        }
         currentSink = new PartSink(cfg, fileName != null);
     }
 
@@ -214,6 +258,10 @@ public final class VKMultipartStreamDecoder {
         if (len <= 0) {
             return;
         }
+        if (listener != null) {
+            listener.onPartData(buf, off, len);
+            return;
+        }
         totalBytes += len;
         if (totalBytes > cfg.getMultipartMaxTotalBytes()) {
             throw new VKMultipartParseException(413, "Multipart body too large");
@@ -222,6 +270,13 @@ public final class VKMultipartStreamDecoder {
     }
 
     private void finishPart() {
+        if (listener != null) {
+            listener.onPartEnd();
+            currentFieldName = null;
+            currentFileName = null;
+            currentContentType = null;
+            return;
+        }
         VKUploadedFile file = currentSink.finish(currentFieldName, currentFileName, currentContentType);
         if (file == null) {
             String text = currentSink.text();
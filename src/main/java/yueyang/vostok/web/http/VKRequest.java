@@ -1,6 +1,12 @@
 package yueyang.vostok.web.http;
 
+import yueyang.vostok.web.VKWebConfig;
+import yueyang.vostok.web.route.VKRouteMatch;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -9,23 +15,35 @@ import java.util.List;
 import java.util.Map;
 import java.util.Collection;
 import java.util.Locale;
+import java.util.concurrent.Flow;
 
 public final class VKRequest {
     private final String method;
     private final String path;
     private final String query;
     private final String version;
-    private final Map<String, String> headers;
+    /** 以 Map 构造时非 null；由解析器构造时为 null，头部从 headerBlock 按需解码。 */
+    private Map<String, String> headers;
+    private final VKHeaderBlock headerBlock;
     private final byte[] body;
     private final boolean keepAlive;
     private final InetSocketAddress remoteAddress;
     private Map<String, String> params;
+    /** 冻结路由匹配出的参数区间，param() 时才从 paramSource 截取。 */
+    private String paramSource;
+    private String[] paramNames;
+    private int[] paramBounds;
     private Map<String, String> queryParams;
     private Map<String, String> cookies;
     private Map<String, String> formFields;
     private Map<String, List<VKUploadedFile>> multipartFiles;
     private List<VKUploadedFile> allFiles;
     private String traceId;
+    /** 命中的路由模板（如 /users/{id}），未匹配路由时为 null。 */
+    private String routePattern;
+    /** 流式请求体，仅流式路由（VKStreamingHandler）在 HTTP/1.1 下非 null。 */
+    private VKRequestBodyStream bodyStream;
+    private VKWebConfig config;
 
     public VKRequest(String method, String path, String query, String version,
                      Map<String, String> headers, byte[] body,
@@ -35,10 +53,11 @@ public final class VKRequest {
         this.query = query;
         this.version = version;
         this.headers = headers == null ? new HashMap<>() : headers;
+        this.headerBlock = null;
         this.body = body == null ? new byte[0] : body;
         this.keepAlive = keepAlive;
         this.remoteAddress = remoteAddress;
-        this.params = new HashMap<>();
+        this.params = null;
         this.queryParams = null;
         this.cookies = null;
         this.formFields = null;
@@ -47,6 +66,20 @@ public final class VKRequest {
         this.traceId = null;
     }
 
+    VKRequest(String method, String path, String query, String version,
+              VKHeaderBlock headerBlock, byte[] body,
+              boolean keepAlive, InetSocketAddress remoteAddress) {
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.version = version;
+        this.headers = null;
+        this.headerBlock = headerBlock == null ? VKHeaderBlock.EMPTY : headerBlock;
+        this.body = body == null ? new byte[0] : body;
+        this.keepAlive = keepAlive;
+        this.remoteAddress = remoteAddress;
+    }
+
     public String method() {
         return method;
     }
@@ -64,20 +97,80 @@ public final class VKRequest {
     }
 
     public Map<String, String> headers() {
-        return Collections.unmodifiableMap(headers);
+        Map<String, String> h = headers;
+        if (h == null) {
+            h = headerBlock.toMap();
+            headers = h;
+        }
+        return Collections.unmodifiableMap(h);
     }
 
     public String header(String name) {
         if (name == null) {
             return null;
         }
+        if (headers == null) {
+            return headerBlock.get(name);
+        }
         return headers.get(name.toLowerCase());
     }
 
+    /** 请求体字节；流式请求返回空数组，请改用 bodyStream()。 */
     public byte[] body() {
         return body;
     }
 
+    /** 是否为流式请求（请求体边读边交付，不在内存中汇总）。 */
+    public boolean isStreaming() {
+        return bodyStream != null;
+    }
+
+    /** 请求体是否已全部到达；非流式请求恒为 true。 */
+    public boolean isBodyFullyReceived() {
+        return bodyStream == null || bodyStream.isFullyReceived();
+    }
+
+    /**
+     * 请求体输入流。流式请求直接读取网络数据，读取速度决定连接的读取速度；
+     * 非流式请求返回已缓冲请求体的流。
+     */
+    public InputStream bodyStream() {
+        if (bodyStream != null) {
+            return bodyStream;
+        }
+        return new ByteArrayInputStream(body);
+    }
+
+    /** 以 Flow.Publisher 形式订阅请求体（拉模式，只能订阅一次）。 */
+    public Flow.Publisher<ByteBuffer> bodyPublisher() {
+        return new VKBodyPublisher(bodyStream());
+    }
+
+    /**
+     * 流式读取 multipart 请求体，分段数据不会落地为 VKUploadedFile。
+     *
+     * @throws IllegalStateException 非 multipart 请求，或请求体已被引擎按普通方式解析
+     */
+    public VKMultipartReader multipartReader() {
+        if (!isMultipart()) {
+            throw new IllegalStateException("Request is not multipart/form-data");
+        }
+        if (bodyStream == null && (formFields != null || multipartFiles != null)) {
+            throw new IllegalStateException("Multipart body already parsed, use formField()/file() instead");
+        }
+        String boundary = VKMultipartStreamDecoder.boundaryOf(header("content-type"));
+        if (boundary == null || boundary.isEmpty()) {
+            throw new VKMultipartParseException(400, "Invalid multipart boundary");
+        }
+        return new VKMultipartReader(bodyStream(), boundary, config == null ? new VKWebConfig() : config);
+    }
+
+    /** 由引擎绑定流式请求体与服务配置（multipart 分段数限制等）。 */
+    public void setBodyStream(VKRequestBodyStream bodyStream, VKWebConfig config) {
+        this.bodyStream = bodyStream;
+        this.config = config;
+    }
+
     public String bodyText() {
         return new String(body, StandardCharsets.UTF_8);
     }
@@ -98,11 +191,25 @@ public final class VKRequest {
         this.traceId = traceId;
     }
 
+    /** 命中的路由模板，供中间件按路由区分处理；未匹配路由时为 null。 */
+    public String routePattern() {
+        return routePattern;
+    }
+
     public String param(String name) {
-        if (name == null || params == null) {
+        if (name == null) {
             return null;
         }
-        return params.get(name);
+        if (paramNames != null) {
+            // 同名参数以靠后的为准，与 Map 覆盖语义一致
+            for (int i = paramNames.length - 1; i >= 0; i--) {
+                if (name.equals(paramNames[i])) {
+                    return paramSource.substring(paramBounds[2 * i], paramBounds[2 * i + 1]);
+                }
+            }
+            return null;
+        }
+        return params == null ? null : params.get(name);
     }
 
     public String queryParam(String name) {
@@ -178,6 +285,22 @@ public final class VKRequest {
 
     public void setParams(Map<String, String> params) {
         this.params = params == null ? new HashMap<>() : params;
+        this.paramNames = null;
+    }
+
+    /**
+     * 绑定路由匹配结果；冻结路由产生的下标区间不会在此物化为 Map。
+     */
+    public void setParams(VKRouteMatch match) {
+        this.routePattern = match == null ? null : match.routePattern();
+        if (match != null && match.hasParamBounds()) {
+            this.params = null;
+            this.paramSource = match.path();
+            this.paramNames = match.paramNames();
+            this.paramBounds = match.paramBounds();
+        } else {
+            setParams(match == null ? null : match.params());
+        }
     }
 
     public void applyMultipart(VKMultipartData data) {
@@ -198,6 +321,26 @@ public final class VKRequest {
         }
     }
 
+    /**
+     * 复制一份可在其他线程中独立使用的请求：请求行、头部、请求体、路由参数与 traceId，
+     * 不包含流式请求体与上传文件（由原请求负责清理）。用于原请求仍在使用时的后台重放，如缓存刷新。
+     */
+    public VKRequest snapshot() {
+        VKRequest copy = new VKRequest(method, path, query, version, new HashMap<>(headers()), body,
+                keepAlive, remoteAddress);
+        copy.routePattern = routePattern;
+        if (paramNames != null) {
+            copy.paramSource = paramSource;
+            copy.paramNames = paramNames;
+            copy.paramBounds = paramBounds;
+        } else if (params != null) {
+            copy.params = new HashMap<>(params);
+        }
+        copy.traceId = traceId;
+        copy.config = config;
+        return copy;
+    }
+
     private Map<String, String> ensureQueryParams() {
         if (queryParams != null) {
             return queryParams;
@@ -0,0 +1,183 @@
+package yueyang.vostok.web.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+
+/**
+ * 流式请求体：由 reactor 线程在读事件中写入数据块，由 worker 线程中的 handler 以 InputStream 方式读取。
+ *
+ * 背压：缓冲字节数达到 highWaterMark 时 offer 返回 false，reactor 据此取消 OP_READ；
+ * 读取方把缓冲消费到 highWaterMark / 2 以下后触发 resume 回调，reactor 重新注册 OP_READ。
+ *
+ * 生产方方法（offer/complete/fail/onResume）只供引擎调用。
+ */
+public final class VKRequestBodyStream extends InputStream {
+    private final long contentLength;
+    private final long highWaterMark;
+    private final long lowWaterMark;
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private byte[] current;
+    private int currentPos;
+    private long buffered;
+    private long received;
+    private boolean completed;
+    private boolean abandoned;
+    private boolean paused;
+    private IOException failure;
+    private volatile Runnable resumeCallback;
+
+    public VKRequestBodyStream(long contentLength, long highWaterMark) {
+        this.contentLength = contentLength;
+        this.highWaterMark = Math.max(1L, highWaterMark);
+        this.lowWaterMark = this.highWaterMark / 2;
+    }
+
+    /** 请求声明的 Content-Length。 */
+    public long contentLength() {
+        return contentLength;
+    }
+
+    /** 已从网络收到的字节数。 */
+    public synchronized long received() {
+        return received;
+    }
+
+    /** 请求体是否已全部从网络读完。 */
+    public synchronized boolean isFullyReceived() {
+        return completed && failure == null;
+    }
+
+    /** 注册恢复读取的回调，读取方把缓冲消费到低水位以下时在读取线程中调用。 */
+    public void onResume(Runnable callback) {
+        this.resumeCallback = callback;
+    }
+
+    /**
+     * 写入一个数据块（拷贝）。
+     *
+     * @return false 表示缓冲已达高水位，调用方应暂停读取，直到 resume 回调触发
+     */
+    public synchronized boolean offer(byte[] src, int off, int len) {
+        if (len <= 0) {
+            return true;
+        }
+        received += len;
+        if (abandoned || failure != null) {
+            // 读取方已放弃：继续计数并丢弃，保证连接能把剩余请求体读完
+            return true;
+        }
+        byte[] chunk = new byte[len];
+        System.arraycopy(src, off, chunk, 0, len);
+        chunks.addLast(chunk);
+        buffered += len;
+        notifyAll();
+        if (buffered >= highWaterMark) {
+            paused = true;
+            return false;
+        }
+        return true;
+    }
+
+    /** 请求体已全部写入。 */
+    public synchronized void complete() {
+        completed = true;
+        notifyAll();
+    }
+
+    /** 连接异常终止（关闭、超时等），阻塞中的读取方会收到该异常。 */
+    public synchronized void fail(IOException e) {
+        if (completed && chunks.isEmpty() && current == null) {
+            return;
+        }
+        if (failure == null) {
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        Runnable resume = null;
+        int n;
+        synchronized (this) {
+            while (current == null) {
+                if (abandoned) {
+                    throw new IOException("Request body stream closed");
+                }
+                current = chunks.pollFirst();
+                if (current != null) {
+                    currentPos = 0;
+                    break;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                if (completed) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading request body", e);
+                }
+            }
+            n = Math.min(len, current.length - currentPos);
+            System.arraycopy(current, currentPos, b, off, n);
+            currentPos += n;
+            if (currentPos >= current.length) {
+                current = null;
+            }
+            buffered -= n;
+            if (paused && buffered <= lowWaterMark) {
+                paused = false;
+                resume = resumeCallback;
+            }
+        }
+        if (resume != null) {
+            resume.run();
+        }
+        return n;
+    }
+
+    @Override
+    public synchronized int available() {
+        return (int) Math.min(Integer.MAX_VALUE, buffered);
+    }
+
+    /**
+     * 读取方放弃剩余请求体：丢弃缓冲并恢复读取，reactor 会把剩余字节读完后丢弃。
+     */
+    @Override
+    public void close() {
+        Runnable resume = null;
+        synchronized (this) {
+            if (abandoned) {
+                return;
+            }
+            abandoned = true;
+            chunks.clear();
+            current = null;
+            buffered = 0;
+            if (paused) {
+                paused = false;
+                resume = resumeCallback;
+            }
+            notifyAll();
+        }
+        if (resume != null) {
+            resume.run();
+        }
+    }
+}
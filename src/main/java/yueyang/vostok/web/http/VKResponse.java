@@ -2,6 +2,8 @@ package yueyang.vostok.web.http;
 
 import yueyang.vostok.web.sse.VKSseEmitter;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -15,12 +17,18 @@ public final class VKResponse {
     private final Map<String, String> headers = new HashMap<>();
     private final List<String> setCookies = new ArrayList<>();
     private byte[] body = new byte[0];
+    /** 只读缓冲形式的响应体（如静态资源的内存映射），非 null 时 body 延迟物化。 */
+    private ByteBuffer bodyBuffer;
     private Path filePath;
     private long fileOffset;
     private long fileLength = -1;
+    /** 多段文件响应（multipart/byteranges），null 表示单一区间。 */
+    private List<VKFileRegion> fileRegions;
     // SSE 模式：响应头后保持连接开放，由 reactor 转为 Protocol.SSE
     private boolean sseMode = false;
     private Consumer<VKSseEmitter> sseConsumer;
+    /** 流式响应体写出器，非 null 时以 chunked 编码边生成边发送。 */
+    private VKBodyWriter streamWriter;
 
     public int status() {
         return status;
@@ -43,16 +51,58 @@ public final class VKResponse {
     }
 
     public byte[] body() {
+        if (body == null) {
+            // 中间件等需要字节数组时才从 bodyBuffer 拷贝，此后以 byte[] 为准
+            ByteBuffer dup = bodyBuffer.duplicate();
+            body = new byte[dup.remaining()];
+            dup.get(body);
+            bodyBuffer = null;
+        }
         return body;
     }
 
+    /**
+     * 缓冲形式的响应体，未设置或已被物化为 byte[] 时返回 null。
+     * 返回独立的 duplicate，调用方可自由移动 position。
+     */
+    public ByteBuffer bodyBuffer() {
+        return bodyBuffer == null ? null : bodyBuffer.duplicate();
+    }
+
+    /** 响应体字节数（不触发 bodyBuffer 物化）。 */
+    public int bodyLength() {
+        if (body == null) {
+            return bodyBuffer.remaining();
+        }
+        return body.length;
+    }
+
     public List<String> setCookies() {
         return setCookies;
     }
 
     public VKResponse body(byte[] body) {
         this.body = body == null ? new byte[0] : body;
+        this.bodyBuffer = null;
+        this.filePath = null;
+        this.fileRegions = null;
+        this.streamWriter = null;
+        return this;
+    }
+
+    /**
+     * 以只读缓冲作为响应体，写出时直接从缓冲写入 socket，不经过 byte[] 拷贝。
+     * 适用于内存映射的静态资源；缓冲内容在响应写完前不得被修改。
+     */
+    public VKResponse body(ByteBuffer buffer) {
+        if (buffer == null) {
+            return body((byte[]) null);
+        }
+        this.body = null;
+        this.bodyBuffer = buffer.asReadOnlyBuffer();
         this.filePath = null;
+        this.fileRegions = null;
+        this.streamWriter = null;
         return this;
     }
 
@@ -114,11 +164,79 @@ public final class VKResponse {
         return sseConsumer;
     }
 
+    /**
+     * 以流式方式生成响应体：handler 返回后引擎先写出响应头（Transfer-Encoding: chunked，HTTP/1.0 下以关闭连接定界），
+     * 再在 worker 线程中调用 writer，写入的数据经池化缓冲分块发送。
+     * 待发送数据超过 streamingResponseHighWaterBytes 时写入方阻塞，直到连接可写并排空到一半以下。
+     * 适合大 JSON 导出、CSV 下载等不宜整体物化的响应。
+     */
+    public VKResponse stream(VKBodyWriter writer) {
+        this.streamWriter = writer;
+        this.body = new byte[0];
+        this.bodyBuffer = null;
+        this.filePath = null;
+        this.fileRegions = null;
+        return this;
+    }
+
+    /** 是否为流式响应。 */
+    public boolean isStreaming() {
+        return streamWriter != null;
+    }
+
+    public VKBodyWriter streamWriter() {
+        return streamWriter;
+    }
+
+    /**
+     * 在内存中执行流式写出器并把结果作为普通响应体，供不支持边写边发的传输路径（如 HTTP/2）使用。
+     */
+    public VKResponse bufferStreamingBody() throws IOException {
+        VKBodyWriter writer = streamWriter;
+        if (writer == null) {
+            return this;
+        }
+        VKBufferedResponseStream out = new VKBufferedResponseStream();
+        writer.writeTo(out);
+        out.close();
+        return body(out.toByteArray());
+    }
+
     public VKResponse file(Path path, long length) {
+        return file(path, 0, length);
+    }
+
+    /**
+     * 以文件区间 [offset, offset + length) 作为响应体。
+     * 明文连接下由 FileChannel.transferTo 零拷贝写出。
+     */
+    public VKResponse file(Path path, long offset, long length) {
         this.filePath = path;
-        this.fileOffset = 0;
+        this.fileOffset = Math.max(0, offset);
         this.fileLength = length;
+        this.fileRegions = null;
+        this.body = new byte[0];
+        this.bodyBuffer = null;
+        this.streamWriter = null;
+        return this;
+    }
+
+    /**
+     * 以同一文件的多个区间作为响应体（multipart/byteranges），每个区间前写出其 prefix。
+     * fileLength 为所有 prefix 与区间长度之和，即最终的 Content-Length。
+     */
+    public VKResponse fileRegions(Path path, List<VKFileRegion> regions) {
+        long total = 0;
+        for (VKFileRegion r : regions) {
+            total += r.prefix().length + r.length();
+        }
+        this.filePath = path;
+        this.fileOffset = 0;
+        this.fileLength = total;
+        this.fileRegions = List.copyOf(regions);
         this.body = new byte[0];
+        this.bodyBuffer = null;
+        this.streamWriter = null;
         return this;
     }
 
@@ -137,4 +255,9 @@ public final class VKResponse {
     public long fileLength() {
         return fileLength;
     }
+
+    /** 多段文件区间，null 表示单一区间（fileOffset/fileLength）。 */
+    public List<VKFileRegion> fileRegions() {
+        return fileRegions;
+    }
 }
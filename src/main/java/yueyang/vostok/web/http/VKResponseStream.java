@@ -0,0 +1,49 @@
+package yueyang.vostok.web.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式响应体输出端，同时提供 OutputStream 与 WritableByteChannel 两种写入方式。
+ *
+ * 写入的数据先进入缓冲，缓冲写满或调用 flush() 时作为一个分块交给连接发送；
+ * 连接待发送数据过多时写入方法会阻塞（背压）。实例不是线程安全的，只应由写出器所在线程使用。
+ */
+public abstract class VKResponseStream extends OutputStream implements WritableByteChannel {
+
+    /** 已写入的响应体字节数（不含分块编码开销）。 */
+    public abstract long bytesWritten();
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int n = src.remaining();
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + src.position(), n);
+            src.position(src.limit());
+            return n;
+        }
+        byte[] tmp = new byte[Math.min(n, 8192)];
+        while (src.hasRemaining()) {
+            int len = Math.min(tmp.length, src.remaining());
+            src.get(tmp, 0, len);
+            write(tmp, 0, len);
+        }
+        return n;
+    }
+
+    /** 以 UTF-8 写出文本。 */
+    public VKResponseStream print(CharSequence text) throws IOException {
+        if (text != null && text.length() > 0) {
+            write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return this;
+    }
+}
@@ -0,0 +1,143 @@
+package yueyang.vostok.web.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * HPACK 头部块解码器（RFC 7541）。
+ *
+ * 每条 HTTP/2 连接持有一个实例，头部块必须按接收顺序解码，以保持动态表与对端一致。
+ * 非线程安全，仅在 reactor 线程内使用。
+ */
+public final class VKHpackDecoder {
+    private final VKHpackTable table;
+    /** 本端通过 SETTINGS_HEADER_TABLE_SIZE 宣告的上限，动态表大小更新不得超过该值。 */
+    private final int maxTableSize;
+
+    public VKHpackDecoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new VKHpackTable(maxTableSize);
+    }
+
+    /**
+     * 解码完整头部块，逐个回调 (name, value)。
+     *
+     * @return 头部列表大小（RFC 9113 定义：name + value + 32 之和）
+     */
+    public long decode(byte[] buf, int off, int len, BiConsumer<String, String> sink) {
+        return decode(buf, off, len, Long.MAX_VALUE, sink);
+    }
+
+    /**
+     * 解码完整头部块，头部列表大小超过 maxListSize 后不再回调 sink。
+     *
+     * 超限后仍会解码完整个块，以免动态表状态与对端失步；但反复引用大条目的索引只计数、不交给调用方拼接，
+     * 代价与块长度成线性。由调用方根据返回值决定是否拒绝。
+     *
+     * @return 头部列表大小（RFC 9113 定义：name + value + 32 之和）
+     */
+    public long decode(byte[] buf, int off, int len, long maxListSize, BiConsumer<String, String> sink) {
+        int pos = off;
+        int end = off + len;
+        long listSize = 0;
+        boolean headerSeen = false;
+        int[] cursor = new int[1];
+        while (pos < end) {
+            int b = buf[pos] & 0xFF;
+            String name;
+            String value;
+            if ((b & 0x80) != 0) {
+                // 1xxxxxxx：索引头部字段
+                cursor[0] = pos;
+                int index = readInt(buf, cursor, end, 7);
+                pos = cursor[0];
+                String[] e = table.get(index);
+                name = e[0];
+                value = e[1];
+            } else if ((b & 0xE0) == 0x20) {
+                // 001xxxxx：动态表大小更新，只允许出现在头部块开头
+                if (headerSeen) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Table size update after header");
+                }
+                cursor[0] = pos;
+                int size = readInt(buf, cursor, end, 5);
+                pos = cursor[0];
+                if (size > maxTableSize) {
+                    throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Table size update too large");
+                }
+                table.setMaxSize(size);
+                continue;
+            } else {
+                // 01xxxxxx：带增量索引的字面量；0000xxxx / 0001xxxx：不索引 / 永不索引
+                boolean indexing = (b & 0xC0) == 0x40;
+                int prefix = indexing ? 6 : 4;
+                cursor[0] = pos;
+                int nameIndex = readInt(buf, cursor, end, prefix);
+                name = nameIndex == 0 ? readString(buf, cursor, end) : table.get(nameIndex)[0];
+                value = readString(buf, cursor, end);
+                pos = cursor[0];
+                if (indexing) {
+                    table.add(name, value);
+                }
+            }
+            headerSeen = true;
+            listSize += name.length() + value.length() + 32L;
+            if (listSize <= maxListSize) {
+                sink.accept(name, value);
+            }
+        }
+        return listSize;
+    }
+
+    /**
+     * 读取 N-bit 前缀整数（RFC 7541 第 5.1 节），cursor[0] 指向首字节，返回后指向下一个未读字节。
+     */
+    static int readInt(byte[] buf, int[] cursor, int end, int prefixBits) {
+        int pos = cursor[0];
+        int max = (1 << prefixBits) - 1;
+        int value = buf[pos++] & max;
+        if (value < max) {
+            cursor[0] = pos;
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (pos >= end) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Truncated integer");
+            }
+            int b = buf[pos++] & 0xFF;
+            if (shift > 28) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Integer overflow");
+            }
+            long next = value + ((long) (b & 0x7F) << shift);
+            if (next > Integer.MAX_VALUE) {
+                throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Integer overflow");
+            }
+            value = (int) next;
+            shift += 7;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        cursor[0] = pos;
+        return value;
+    }
+
+    private static String readString(byte[] buf, int[] cursor, int end) {
+        if (cursor[0] >= end) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Truncated string");
+        }
+        boolean huffman = (buf[cursor[0]] & 0x80) != 0;
+        int len = readInt(buf, cursor, end, 7);
+        int pos = cursor[0];
+        if (len > end - pos) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Truncated string");
+        }
+        cursor[0] = pos + len;
+        if (huffman) {
+            byte[] decoded = VKHpackHuffman.decode(buf, pos, len);
+            return new String(decoded, StandardCharsets.ISO_8859_1);
+        }
+        return new String(buf, pos, len, StandardCharsets.ISO_8859_1);
+    }
+}
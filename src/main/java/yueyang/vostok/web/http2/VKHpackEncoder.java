@@ -0,0 +1,77 @@
+package yueyang.vostok.web.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HPACK 头部编码器（服务端响应方向）。
+ *
+ * 采用无状态策略：名称命中静态表时引用静态索引，值一律以"不索引字面量"原文写出，
+ * 不使用动态表也不做 Huffman 编码。这样编码器无需与对端同步表状态，
+ * 且对端 SETTINGS_HEADER_TABLE_SIZE 的任意取值都能兼容。
+ */
+public final class VKHpackEncoder {
+    private static final Map<String, Integer> STATIC_NAME_INDEX = new HashMap<>();
+    private static final Map<String, Integer> STATIC_STATUS_INDEX = new HashMap<>();
+
+    static {
+        for (int i = VKHpackTable.STATIC_LENGTH; i >= 1; i--) {
+            String[] e = VKHpackTable.STATIC[i];
+            // 倒序遍历，保证同名条目最终记录的是最小索引
+            STATIC_NAME_INDEX.put(e[0], i);
+            if (":status".equals(e[0])) {
+                STATIC_STATUS_INDEX.put(e[1], i);
+            }
+        }
+    }
+
+    private VKHpackEncoder() {
+    }
+
+    public static void encodeStatus(ByteArrayOutputStream out, int status) {
+        String value = Integer.toString(status);
+        Integer full = STATIC_STATUS_INDEX.get(value);
+        if (full != null) {
+            writeInt(out, 0x80, 7, full);
+            return;
+        }
+        encodeHeader(out, ":status", value);
+    }
+
+    /**
+     * 写出一个头部字段，name 必须已为小写（HTTP/2 要求）。
+     */
+    public static void encodeHeader(ByteArrayOutputStream out, String name, String value) {
+        Integer nameIndex = STATIC_NAME_INDEX.get(name);
+        if (nameIndex != null) {
+            writeInt(out, 0x00, 4, nameIndex);
+        } else {
+            out.write(0x00);
+            writeString(out, name);
+        }
+        writeString(out, value == null ? "" : value);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+        writeInt(out, 0x00, 7, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static void writeInt(ByteArrayOutputStream out, int firstByteMask, int prefixBits, int value) {
+        int max = (1 << prefixBits) - 1;
+        if (value < max) {
+            out.write(firstByteMask | value);
+            return;
+        }
+        out.write(firstByteMask | max);
+        int rest = value - max;
+        while (rest >= 0x80) {
+            out.write((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.write(rest);
+    }
+}
@@ -0,0 +1,153 @@
+package yueyang.vostok.web.http2;
+
+/**
+ * HPACK 索引表：61 项静态表 + 按 FIFO 淘汰的动态表（RFC 7541 第 2.3 节）。
+ *
+ * 索引 1..61 命中静态表，62 起为动态表（最新插入的条目索引最小）。
+ * 条目大小按 name + value 字节数 + 32 计算；字符串以 ISO-8859-1 解码，字符数即字节数。
+ */
+final class VKHpackTable {
+    static final String[][] STATIC = {
+            null,
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+    static final int STATIC_LENGTH = STATIC.length - 1;
+    private static final int ENTRY_OVERHEAD = 32;
+
+    private String[][] ring = new String[16][];
+    private int head;
+    private int count;
+    private int size;
+    private int maxSize;
+
+    VKHpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    String[] get(int index) {
+        if (index <= 0) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Invalid header index: " + index);
+        }
+        if (index <= STATIC_LENGTH) {
+            return STATIC[index];
+        }
+        int dyn = index - STATIC_LENGTH - 1;
+        if (dyn >= count) {
+            throw new VKHttp2Exception(VKHttp2Frames.ERR_COMPRESSION, "Invalid header index: " + index);
+        }
+        return ring[(head + dyn) % ring.length];
+    }
+
+    void add(String name, String value) {
+        int entrySize = name.length() + value.length() + ENTRY_OVERHEAD;
+        if (entrySize > maxSize) {
+            // 条目本身超过表容量：按 RFC 清空动态表且不插入
+            clear();
+            return;
+        }
+        while (size + entrySize > maxSize) {
+            evictOldest();
+        }
+        if (count == ring.length) {
+            grow();
+        }
+        head = (head - 1 + ring.length) % ring.length;
+        ring[head] = new String[]{name, value};
+        count++;
+        size += entrySize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (size > maxSize) {
+            evictOldest();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void evictOldest() {
+        int tail = (head + count - 1) % ring.length;
+        String[] e = ring[tail];
+        ring[tail] = null;
+        count--;
+        size -= e[0].length() + e[1].length() + ENTRY_OVERHEAD;
+    }
+
+    private void clear() {
+        while (count > 0) {
+            evictOldest();
+        }
+    }
+
+    private void grow() {
+        String[][] next = new String[ring.length * 2][];
+        for (int i = 0; i < count; i++) {
+            next[i] = ring[(head + i) % ring.length];
+        }
+        ring = next;
+        head = 0;
+    }
+}
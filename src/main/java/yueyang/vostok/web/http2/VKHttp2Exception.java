@@ -0,0 +1,19 @@
+package yueyang.vostok.web.http2;
+
+/**
+ * HTTP/2 协议错误。
+ *
+ * errorCode 取值见 RFC 9113 第 7 节，连接级错误由引擎转换为 GOAWAY，流级错误转换为 RST_STREAM。
+ */
+public final class VKHttp2Exception extends RuntimeException {
+    private final int errorCode;
+
+    public VKHttp2Exception(int errorCode, String message) {
+        super(message);
+        this.errorCode = errorCode;
+    }
+
+    public int errorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,155 @@
+package yueyang.vostok.web.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP/2 帧常量与帧头编解码工具（RFC 9113）。
+ *
+ * 帧格式：Length(24) | Type(8) | Flags(8) | R(1) + Stream Identifier(31) | Payload。
+ */
+public final class VKHttp2Frames {
+    /** 客户端连接前言，明文 prior-knowledge 与 ALPN h2 两种模式下都必须以此开头。 */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    public static final int FRAME_HEADER_LENGTH = 9;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+    public static final int DEFAULT_WINDOW_SIZE = 65_535;
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    public static final int TYPE_DATA = 0x0;
+    public static final int TYPE_HEADERS = 0x1;
+    public static final int TYPE_PRIORITY = 0x2;
+    public static final int TYPE_RST_STREAM = 0x3;
+    public static final int TYPE_SETTINGS = 0x4;
+    public static final int TYPE_PUSH_PROMISE = 0x5;
+    public static final int TYPE_PING = 0x6;
+    public static final int TYPE_GOAWAY = 0x7;
+    public static final int TYPE_WINDOW_UPDATE = 0x8;
+    public static final int TYPE_CONTINUATION = 0x9;
+
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    public static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    public static final int SETTINGS_ENABLE_PUSH = 0x2;
+    public static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    public static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    public static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    public static final int ERR_NO_ERROR = 0x0;
+    public static final int ERR_PROTOCOL = 0x1;
+    public static final int ERR_INTERNAL = 0x2;
+    public static final int ERR_FLOW_CONTROL = 0x3;
+    public static final int ERR_STREAM_CLOSED = 0x5;
+    public static final int ERR_FRAME_SIZE = 0x6;
+    public static final int ERR_REFUSED_STREAM = 0x7;
+    public static final int ERR_CANCEL = 0x8;
+    public static final int ERR_COMPRESSION = 0x9;
+    public static final int ERR_ENHANCE_YOUR_CALM = 0xb;
+
+    private VKHttp2Frames() {
+    }
+
+    /**
+     * 判断 buf[0, len) 是否与连接前言一致。
+     *
+     * @return 1 表示完整匹配；0 表示目前为前言的前缀、需要更多数据；-1 表示不是 HTTP/2 前言
+     */
+    public static int matchPreface(byte[] buf, int len) {
+        int n = Math.min(len, PREFACE.length);
+        for (int i = 0; i < n; i++) {
+            if (buf[i] != PREFACE[i]) {
+                return -1;
+            }
+        }
+        return len >= PREFACE.length ? 1 : 0;
+    }
+
+    public static void writeFrameHeader(ByteArrayOutputStream out, int length, int type, int flags, int streamId) {
+        out.write((length >>> 16) & 0xFF);
+        out.write((length >>> 8) & 0xFF);
+        out.write(length & 0xFF);
+        out.write(type & 0xFF);
+        out.write(flags & 0xFF);
+        writeInt(out, streamId & 0x7FFFFFFF);
+    }
+
+    public static void writeSettings(ByteArrayOutputStream out, int[] idsAndValues) {
+        writeFrameHeader(out, idsAndValues.length / 2 * 6, TYPE_SETTINGS, 0, 0);
+        for (int i = 0; i + 1 < idsAndValues.length; i += 2) {
+            out.write((idsAndValues[i] >>> 8) & 0xFF);
+            out.write(idsAndValues[i] & 0xFF);
+            writeInt(out, idsAndValues[i + 1]);
+        }
+    }
+
+    public static void writeSettingsAck(ByteArrayOutputStream out) {
+        writeFrameHeader(out, 0, TYPE_SETTINGS, FLAG_ACK, 0);
+    }
+
+    public static void writePingAck(ByteArrayOutputStream out, byte[] buf, int off) {
+        writeFrameHeader(out, 8, TYPE_PING, FLAG_ACK, 0);
+        out.write(buf, off, 8);
+    }
+
+    public static void writeWindowUpdate(ByteArrayOutputStream out, int streamId, int increment) {
+        writeFrameHeader(out, 4, TYPE_WINDOW_UPDATE, 0, streamId);
+        writeInt(out, increment & 0x7FFFFFFF);
+    }
+
+    public static void writeRstStream(ByteArrayOutputStream out, int streamId, int errorCode) {
+        writeFrameHeader(out, 4, TYPE_RST_STREAM, 0, streamId);
+        writeInt(out, errorCode);
+    }
+
+    public static void writeGoAway(ByteArrayOutputStream out, int lastStreamId, int errorCode) {
+        writeFrameHeader(out, 8, TYPE_GOAWAY, 0, 0);
+        writeInt(out, lastStreamId & 0x7FFFFFFF);
+        writeInt(out, errorCode);
+    }
+
+    public static void writeData(ByteArrayOutputStream out, int streamId, byte[] data, int off, int len,
+                                 boolean endStream) {
+        writeFrameHeader(out, len, TYPE_DATA, endStream ? FLAG_END_STREAM : 0, streamId);
+        if (len > 0) {
+            out.write(data, off, len);
+        }
+    }
+
+    /**
+     * 写出 HEADERS（+CONTINUATION）帧，头部块超过 maxFrameSize 时自动分片。
+     */
+    public static void writeHeaders(ByteArrayOutputStream out, int streamId, byte[] block, int maxFrameSize,
+                                    boolean endStream) {
+        int len = block.length;
+        int first = Math.min(len, maxFrameSize);
+        int flags = (endStream ? FLAG_END_STREAM : 0) | (first == len ? FLAG_END_HEADERS : 0);
+        writeFrameHeader(out, first, TYPE_HEADERS, flags, streamId);
+        out.write(block, 0, first);
+        int pos = first;
+        while (pos < len) {
+            int n = Math.min(len - pos, maxFrameSize);
+            writeFrameHeader(out, n, TYPE_CONTINUATION, pos + n == len ? FLAG_END_HEADERS : 0, streamId);
+            out.write(block, pos, n);
+            pos += n;
+        }
+    }
+
+    public static int readInt(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24)
+                | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8)
+                | (buf[off + 3] & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write((v >>> 24) & 0xFF);
+        out.write((v >>> 16) & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+        out.write(v & 0xFF);
+    }
+}
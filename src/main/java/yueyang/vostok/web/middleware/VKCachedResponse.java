@@ -0,0 +1,119 @@
+package yueyang.vostok.web.middleware;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 缓存的响应快照：状态码、响应头、响应体与时间戳，创建后不可变。
+ *
+ * 响应体为只读缓冲（堆外或堆内），命中时以 duplicate 交给 VKResponse，多个请求共享同一份字节。
+ * 响应行与头部的字节编码在 reactor 写出时完成，这里只保存其内容。
+ */
+final class VKCachedResponse {
+    private static final int FORMAT_VERSION = 1;
+    /** 粗略估算的单个响应头开销，计入本地缓存字节数。 */
+    private static final int HEADER_OVERHEAD = 64;
+
+    final int status;
+    final Map<String, String> headers;
+    final ByteBuffer body;
+    final String etag;
+    final long createdAt;
+    final long expiresAt;
+    final long staleUntil;
+
+    VKCachedResponse(int status, Map<String, String> headers, ByteBuffer body, String etag,
+                     long createdAt, long expiresAt, long staleUntil) {
+        this.status = status;
+        Map<String, String> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        copy.putAll(headers);
+        this.headers = Collections.unmodifiableMap(copy);
+        this.body = body.asReadOnlyBuffer();
+        this.etag = etag;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+        this.staleUntil = staleUntil;
+    }
+
+    boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    boolean isUsable(long now) {
+        return now < staleUntil;
+    }
+
+    /** 本地缓存计费字节数。 */
+    long weight() {
+        long size = body.remaining();
+        for (Map.Entry<String, String> e : headers.entrySet()) {
+            size += e.getKey().length() + e.getValue().length() + HEADER_OVERHEAD;
+        }
+        return size;
+    }
+
+    /** 序列化为字节数组，存入共享缓存。 */
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.remaining() + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeShort(status);
+            out.writeLong(createdAt);
+            out.writeLong(expiresAt);
+            out.writeLong(staleUntil);
+            out.writeUTF(etag == null ? "" : etag);
+            out.writeShort(headers.size());
+            for (Map.Entry<String, String> e : headers.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            ByteBuffer dup = body.duplicate();
+            out.writeInt(dup.remaining());
+            byte[] chunk = new byte[Math.min(8192, Math.max(1, dup.remaining()))];
+            while (dup.hasRemaining()) {
+                int n = Math.min(chunk.length, dup.remaining());
+                dup.get(chunk, 0, n);
+                out.write(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** 从共享缓存读出的字节还原；格式不识别时返回 null。 */
+    static VKCachedResponse decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readUnsignedByte() != FORMAT_VERSION) {
+                return null;
+            }
+            int status = in.readUnsignedShort();
+            long createdAt = in.readLong();
+            long expiresAt = in.readLong();
+            long staleUntil = in.readLong();
+            String etag = in.readUTF();
+            int count = in.readUnsignedShort();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new VKCachedResponse(status, headers, ByteBuffer.wrap(body),
+                    etag.isEmpty() ? null : etag, createdAt, expiresAt, staleUntil);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
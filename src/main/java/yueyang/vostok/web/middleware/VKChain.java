@@ -24,4 +24,14 @@ public final class VKChain {
         }
         handler.handle(req, res);
     }
+
+    /**
+     * 从当前位置复制一条独立的链，后续调用 next 不影响原链；
+     * 供中间件在本次请求之外重新执行剩余链路（如响应缓存的后台刷新）。
+     */
+    VKChain fork() {
+        VKChain copy = new VKChain(middlewares, handler);
+        copy.index = index;
+        return copy;
+    }
 }
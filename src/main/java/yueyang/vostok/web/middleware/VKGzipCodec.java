@@ -0,0 +1,86 @@
+package yueyang.vostok.web.middleware;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip 编码器：raw deflate（nowrap）Deflater 加手写的 gzip 头尾。
+ *
+ * Deflater 持有本地 zlib 内存，逐次 new GZIPOutputStream 再依赖 GC 释放代价较高；
+ * 这里在 worker 线程间共享一个有界池，归还时 reset 复用，超出上限的实例直接 end()。
+ */
+final class VKGzipCodec {
+    /** gzip 固定头：magic、CM=deflate、无标志、MTIME=0、XFL=0、OS=0。 */
+    static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0};
+    static final int TRAILER_SIZE = 8;
+
+    private final int level;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<Deflater> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    VKGzipCodec(int level, int maxPooled) {
+        this.level = level;
+        this.maxPooled = Math.max(0, maxPooled);
+    }
+
+    Deflater acquire() {
+        Deflater d = pool.poll();
+        if (d == null) {
+            return new Deflater(level, true);
+        }
+        pooled.decrementAndGet();
+        return d;
+    }
+
+    void release(Deflater d) {
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            d.end();
+            return;
+        }
+        d.reset();
+        pool.offer(d);
+    }
+
+    /** 压缩完整响应体；输入为缓冲时直接交给 Deflater，不物化为 byte[]。 */
+    byte[] gzip(ByteBuffer data) {
+        int size = data.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        Deflater d = acquire();
+        try {
+            d.setInput(data.duplicate());
+            d.finish();
+            byte[] out = new byte[Math.max(64, size / 2 + HEADER.length + TRAILER_SIZE)];
+            System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+            int len = HEADER.length;
+            while (!d.finished()) {
+                if (len == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                len += d.deflate(out, len, out.length - len);
+            }
+            if (len + TRAILER_SIZE > out.length) {
+                out = Arrays.copyOf(out, len + TRAILER_SIZE);
+            }
+            writeTrailer(out, len, crc.getValue(), size);
+            len += TRAILER_SIZE;
+            return len == out.length ? out : Arrays.copyOf(out, len);
+        } finally {
+            release(d);
+        }
+    }
+
+    /** 在 out[off..off+8) 写入 gzip 尾部：CRC32 与原始长度（均为小端）。 */
+    static void writeTrailer(byte[] out, int off, long crc, long size) {
+        for (int i = 0; i < 4; i++) {
+            out[off + i] = (byte) (crc >>> (8 * i));
+            out[off + 4 + i] = (byte) (size >>> (8 * i));
+        }
+    }
+}
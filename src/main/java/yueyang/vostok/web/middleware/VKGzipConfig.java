@@ -8,10 +8,18 @@ import java.util.List;
  * 控制哪些响应会被压缩：
  * - minBytes：响应体最小字节数（默认 256），低于此阈值不压缩
  * - compressibleTypes：可压缩的 Content-Type 前缀列表
+ * - level：压缩级别 1~9（默认 6）
+ * - maxPooledDeflaters：worker 线程间共享的 Deflater 池上限（默认 32）
+ * - compressStreaming：是否对流式（chunked）响应边写边压缩（默认 true）
+ * - variantCacheBytes：按 ETag 缓存压缩结果的总字节上限（默认 8MB，0 关闭）
  */
 public final class VKGzipConfig {
     private int minBytes = 256;
     private List<String> compressibleTypes = List.of("text/", "application/json", "application/xml");
+    private int level = 6;
+    private int maxPooledDeflaters = 32;
+    private boolean compressStreaming = true;
+    private long variantCacheBytes = 8L * 1024 * 1024;
 
     /**
      * 获取触发压缩的最小字节数阈值。
@@ -42,4 +50,65 @@ public final class VKGzipConfig {
         this.compressibleTypes = types == null ? List.of() : List.copyOf(types);
         return this;
     }
+
+    /**
+     * 获取压缩级别。
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * 设置压缩级别，取值 1~9：越大压缩率越高、CPU 开销越大。
+     */
+    public VKGzipConfig level(int level) {
+        this.level = Math.min(9, Math.max(1, level));
+        return this;
+    }
+
+    /**
+     * 获取 Deflater 池上限。
+     */
+    public int getMaxPooledDeflaters() {
+        return maxPooledDeflaters;
+    }
+
+    /**
+     * 设置 Deflater 池上限，必须 >= 0；为 0 时每次压缩新建并立即释放。
+     */
+    public VKGzipConfig maxPooledDeflaters(int maxPooledDeflaters) {
+        this.maxPooledDeflaters = Math.max(0, maxPooledDeflaters);
+        return this;
+    }
+
+    /**
+     * 是否压缩流式响应。
+     */
+    public boolean isCompressStreaming() {
+        return compressStreaming;
+    }
+
+    /**
+     * 设置是否压缩流式响应；流式响应长度未知，不受 minBytes 约束。
+     */
+    public VKGzipConfig compressStreaming(boolean compressStreaming) {
+        this.compressStreaming = compressStreaming;
+        return this;
+    }
+
+    /**
+     * 获取压缩结果缓存的总字节上限。
+     */
+    public long getVariantCacheBytes() {
+        return variantCacheBytes;
+    }
+
+    /**
+     * 设置压缩结果缓存的总字节上限，必须 >= 0。
+     * 带 ETag 的响应（如静态资源）按 路径 + ETag 缓存压缩后的字节，命中时跳过压缩；按 LRU 淘汰。
+     */
+    public VKGzipConfig variantCacheBytes(long variantCacheBytes) {
+        this.variantCacheBytes = Math.max(0, variantCacheBytes);
+        return this;
+    }
 }
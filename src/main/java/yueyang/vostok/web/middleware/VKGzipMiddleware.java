@@ -1,23 +1,31 @@
 package yueyang.vostok.web.middleware;
 
+import yueyang.vostok.web.http.VKAcceptEncoding;
+import yueyang.vostok.web.http.VKBodyWriter;
 import yueyang.vostok.web.http.VKRequest;
 import yueyang.vostok.web.http.VKResponse;
 
-import java.io.ByteArrayOutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Gzip 压缩响应中间件。
  *
  * 工作流程（post-process 模式）：
  * 1. 先调用 chain.next() 让后续中间件和 handler 处理请求
- * 2. 检查响应是否满足压缩条件（客户端支持 gzip、Content-Type 可压缩、body 超过阈值）
+ * 2. 检查响应是否满足压缩条件（Accept-Encoding 中 gzip 的 q 值大于 0、Content-Type 可压缩、body 超过阈值）
  * 3. 满足条件时压缩 body，并添加 Content-Encoding: gzip 和 Vary: Accept-Encoding 头
  *
- * 以下响应不压缩：SSE 流、文件响应。
+ * Deflater 从共享池借出；带 ETag 的响应按 路径 + ETag 缓存压缩结果，热点静态资源只压缩一次；
+ * 流式响应包装写出器，边写边压缩。
+ * 以下响应不压缩：SSE 流、文件响应、Range 分段响应、已带 Content-Encoding 的响应（如预压缩静态资源）。
  */
 public final class VKGzipMiddleware implements VKMiddleware {
     private final VKGzipConfig config;
+    private final VKGzipCodec codec;
+    private final VariantCache variants;
 
     public VKGzipMiddleware() {
         this(new VKGzipConfig());
@@ -25,6 +33,8 @@ public final class VKGzipMiddleware implements VKMiddleware {
 
     public VKGzipMiddleware(VKGzipConfig config) {
         this.config = config == null ? new VKGzipConfig() : config;
+        this.codec = new VKGzipCodec(this.config.getLevel(), this.config.getMaxPooledDeflaters());
+        this.variants = new VariantCache(this.config.getVariantCacheBytes());
     }
 
     @Override
@@ -32,14 +42,13 @@ public final class VKGzipMiddleware implements VKMiddleware {
         // 先执行后续链路，再决定是否压缩
         chain.next(req, res);
 
-        // 检查客户端是否接受 gzip
-        String ae = req.header("accept-encoding");
-        if (ae == null || !ae.contains("gzip")) {
+        // SSE、文件响应和 Range 分段响应不压缩
+        if (res.isSse() || res.isFile() || res.status() == 206) {
             return;
         }
 
-        // SSE 和文件响应不压缩
-        if (res.isSse() || res.isFile()) {
+        // 已编码的响应（预压缩静态资源等）不再重复压缩
+        if (res.headers().containsKey("Content-Encoding")) {
             return;
         }
 
@@ -49,20 +58,70 @@ public final class VKGzipMiddleware implements VKMiddleware {
             return;
         }
 
+        // 按 q 值协商：gzip;q=0 或未列出（且无 *）时不压缩
+        if (VKAcceptEncoding.select(req.header("accept-encoding"), "gzip") == null) {
+            return;
+        }
+
+        if (res.isStreaming()) {
+            if (config.isCompressStreaming()) {
+                compressStream(res);
+            }
+            return;
+        }
+
         // 响应体超过阈值才压缩
-        byte[] body = res.body();
-        if (body == null || body.length < config.getMinBytes()) {
+        if (res.bodyLength() < config.getMinBytes()) {
             return;
         }
 
-        // 执行 gzip 压缩
-        try {
-            byte[] compressed = gzip(body);
-            res.body(compressed)
-               .header("Content-Encoding", "gzip")
-               .header("Vary", "Accept-Encoding");
-        } catch (Exception ignore) {
-            // 压缩失败时发送原始未压缩内容
+        String etag = res.headers().get("ETag");
+        String key = etag == null ? null : req.path() + ' ' + etag;
+        byte[] compressed = key == null ? null : variants.get(key);
+        if (compressed == null) {
+            try {
+                ByteBuffer buf = res.bodyBuffer();
+                compressed = codec.gzip(buf != null ? buf : ByteBuffer.wrap(res.body()));
+            } catch (Exception ignore) {
+                // 压缩失败时发送原始未压缩内容
+                return;
+            }
+            if (key != null) {
+                variants.put(key, compressed);
+            }
+        }
+        res.body(compressed).header("Content-Encoding", "gzip");
+        addVary(res);
+        if (etag != null) {
+            // 压缩变体与原始表示字节不同，ETag 降为弱校验值
+            res.header("ETag", VKAcceptEncoding.weakEtag(etag));
+        }
+    }
+
+    private void compressStream(VKResponse res) {
+        VKBodyWriter writer = res.streamWriter();
+        res.stream(out -> {
+            VKGzipResponseStream gz = new VKGzipResponseStream(out, codec);
+            try {
+                writer.writeTo(gz);
+                gz.finish();
+            } finally {
+                gz.release();
+            }
+        }).header("Content-Encoding", "gzip");
+        addVary(res);
+        String etag = res.headers().get("ETag");
+        if (etag != null) {
+            res.header("ETag", VKAcceptEncoding.weakEtag(etag));
+        }
+    }
+
+    private static void addVary(VKResponse res) {
+        String vary = res.headers().get("Vary");
+        if (vary == null || vary.isBlank()) {
+            res.header("Vary", "Accept-Encoding");
+        } else if (!vary.toLowerCase().contains("accept-encoding")) {
+            res.header("Vary", vary + ", Accept-Encoding");
         }
     }
 
@@ -83,13 +142,33 @@ public final class VKGzipMiddleware implements VKMiddleware {
     }
 
     /**
-     * 对 data 进行 gzip 压缩，返回压缩后的字节数组。
+     * 按总字节数限制的 LRU 压缩结果缓存。
+     * ETag 随内容变化，旧变体不会再被命中，依靠 LRU 自然淘汰。
      */
-    private byte[] gzip(byte[] data) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2 + 64);
-        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
-            gzip.write(data);
+    private static final class VariantCache {
+        private final long maxBytes;
+        private final LinkedHashMap<String, byte[]> map = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+
+        VariantCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized byte[] get(String key) {
+            return maxBytes <= 0 ? null : map.get(key);
+        }
+
+        synchronized void put(String key, byte[] value) {
+            if (value.length > maxBytes) {
+                return;
+            }
+            byte[] old = map.put(key, value);
+            bytes += value.length - (old == null ? 0 : old.length);
+            Iterator<Map.Entry<String, byte[]>> it = map.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().getValue().length;
+                it.remove();
+            }
         }
-        return baos.toByteArray();
     }
 }
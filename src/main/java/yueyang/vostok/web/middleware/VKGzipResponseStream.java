@@ -0,0 +1,109 @@
+package yueyang.vostok.web.middleware;
+
+import yueyang.vostok.web.http.VKResponseStream;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 流式响应的 gzip 包装：写出器写入的数据边压缩边交给底层分块流，响应体不在内存中物化。
+ *
+ * flush() 以 SYNC_FLUSH 刷出已压缩数据，保证客户端能及时解出已发送部分；
+ * finish() 写出 gzip 尾部，由中间件在写出器返回后调用，底层流的关闭仍由引擎负责。
+ */
+final class VKGzipResponseStream extends VKResponseStream {
+    private static final int OUT_SIZE = 8 * 1024;
+
+    private final VKResponseStream out;
+    private final VKGzipCodec codec;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] buf = new byte[OUT_SIZE];
+    private long written;
+    private boolean finished;
+    private boolean released;
+
+    VKGzipResponseStream(VKResponseStream out, VKGzipCodec codec) throws IOException {
+        this.out = out;
+        this.codec = codec;
+        out.write(VKGzipCodec.HEADER);
+        this.deflater = codec.acquire();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Response stream closed");
+        }
+        if (len <= 0) {
+            return;
+        }
+        crc.update(b, off, len);
+        written += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (finished) {
+            return;
+        }
+        int n;
+        do {
+            n = drain(Deflater.SYNC_FLUSH);
+        } while (n == buf.length);
+        out.flush();
+    }
+
+    @Override
+    public long bytesWritten() {
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !finished && out.isOpen();
+    }
+
+    /** 写出器代码调用 close() 等价于结束压缩；底层流由引擎关闭。 */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(Deflater.NO_FLUSH);
+        }
+        byte[] trailer = new byte[VKGzipCodec.TRAILER_SIZE];
+        VKGzipCodec.writeTrailer(trailer, 0, crc.getValue(), written);
+        out.write(trailer);
+        finished = true;
+        release();
+    }
+
+    /** 归还 Deflater；写出器异常终止时同样需要调用。 */
+    void release() {
+        finished = true;
+        if (!released) {
+            released = true;
+            codec.release(deflater);
+        }
+    }
+
+    private int drain(int flush) throws IOException {
+        int n = deflater.deflate(buf, 0, buf.length, flush);
+        if (n > 0) {
+            out.write(buf, 0, n);
+        }
+        return n;
+    }
+}
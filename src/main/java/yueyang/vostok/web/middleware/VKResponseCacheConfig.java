@@ -0,0 +1,178 @@
+package yueyang.vostok.web.middleware;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 响应缓存中间件配置类。
+ *
+ * 只有通过 route() 登记的路由模板会被缓存，其余请求直接透传：
+ * - maxBytes：本地缓存的总字节上限（默认 64MB），按 LRU 淘汰
+ * - maxEntryBytes：单个响应体的字节上限（默认 1MB），超过时不缓存
+ * - offHeap：本地缓存的响应体是否存放在堆外直接缓冲中（默认 true）
+ * - generateEtag：响应未带 ETag 时是否按内容生成（默认 true）
+ * - coalesceWaitMs：并发未命中时跟随请求等待首个请求结果的上限（默认 5000ms）
+ * - refreshThreads：stale-while-revalidate 后台刷新线程数（默认 2）
+ * - distributed：是否把响应存入 Vostok.Cache 供多节点共享（默认 false）
+ */
+public final class VKResponseCacheConfig {
+    private final Map<String, VKResponseCacheRule> routes = new LinkedHashMap<>();
+    private long maxBytes = 64L * 1024 * 1024;
+    private int maxEntryBytes = 1024 * 1024;
+    private boolean offHeap = true;
+    private boolean generateEtag = true;
+    private long coalesceWaitMs = 5000;
+    private int refreshThreads = 2;
+    private boolean distributed = false;
+    private String distributedNamespace = "vostok:resp";
+
+    /**
+     * 获取已登记的路由规则（路由模板 -> 规则）。
+     */
+    public Map<String, VKResponseCacheRule> getRoutes() {
+        return Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * 登记需要缓存的路由模板（与注册路由时的写法一致，如 /users/{id}），使用给定新鲜期。
+     */
+    public VKResponseCacheConfig route(String routePattern, long ttlMs) {
+        return route(routePattern, new VKResponseCacheRule().ttlMs(ttlMs));
+    }
+
+    /**
+     * 登记需要缓存的路由模板及其规则。
+     */
+    public VKResponseCacheConfig route(String routePattern, VKResponseCacheRule rule) {
+        if (routePattern != null && rule != null) {
+            routes.put(routePattern, rule);
+        }
+        return this;
+    }
+
+    /**
+     * 获取本地缓存总字节上限。
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 设置本地缓存总字节上限，必须 >= 0；为 0 时本地不保存任何响应。
+     */
+    public VKResponseCacheConfig maxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        return this;
+    }
+
+    /**
+     * 获取单个响应体字节上限。
+     */
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * 设置单个响应体字节上限，必须 >= 0。
+     */
+    public VKResponseCacheConfig maxEntryBytes(int maxEntryBytes) {
+        this.maxEntryBytes = Math.max(0, maxEntryBytes);
+        return this;
+    }
+
+    /**
+     * 本地缓存是否存放在堆外。
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * 设置本地缓存是否存放在堆外；堆外时缓存内容不占用堆、不参与 GC 复制，
+     * 命中时直接以只读缓冲写出。
+     */
+    public VKResponseCacheConfig offHeap(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    /**
+     * 是否为缺少 ETag 的响应生成 ETag。
+     */
+    public boolean isGenerateEtag() {
+        return generateEtag;
+    }
+
+    /**
+     * 设置是否为缺少 ETag 的响应按内容生成 ETag，用于 If-None-Match 条件请求返回 304。
+     */
+    public VKResponseCacheConfig generateEtag(boolean generateEtag) {
+        this.generateEtag = generateEtag;
+        return this;
+    }
+
+    /**
+     * 获取并发未命中时的等待上限（毫秒）。
+     */
+    public long getCoalesceWaitMs() {
+        return coalesceWaitMs;
+    }
+
+    /**
+     * 设置并发未命中时的等待上限（毫秒），必须 >= 0。
+     * 同一缓存键同时只执行一次 handler，其余请求等待其结果；超时后自行执行。
+     */
+    public VKResponseCacheConfig coalesceWaitMs(long coalesceWaitMs) {
+        this.coalesceWaitMs = Math.max(0, coalesceWaitMs);
+        return this;
+    }
+
+    /**
+     * 获取后台刷新线程数。
+     */
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    /**
+     * 设置后台刷新线程数，最小 1；线程空闲时自动回收。
+     */
+    public VKResponseCacheConfig refreshThreads(int refreshThreads) {
+        this.refreshThreads = Math.max(1, refreshThreads);
+        return this;
+    }
+
+    /**
+     * 是否使用 Vostok.Cache 共享缓存。
+     */
+    public boolean isDistributed() {
+        return distributed;
+    }
+
+    /**
+     * 设置是否把响应存入 Vostok.Cache（Redis 时跨节点共享）。
+     * 需先初始化 Vostok.Cache；缓存不可用时退化为不缓存，请求照常执行。
+     */
+    public VKResponseCacheConfig distributed(boolean distributed) {
+        this.distributed = distributed;
+        return this;
+    }
+
+    /**
+     * 获取共享缓存键前缀。
+     */
+    public String getDistributedNamespace() {
+        return distributedNamespace;
+    }
+
+    /**
+     * 设置共享缓存键前缀。
+     */
+    public VKResponseCacheConfig distributedNamespace(String distributedNamespace) {
+        if (distributedNamespace != null && !distributedNamespace.isBlank()) {
+            this.distributedNamespace = distributedNamespace;
+        }
+        return this;
+    }
+}
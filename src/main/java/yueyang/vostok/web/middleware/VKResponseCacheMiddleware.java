@@ -0,0 +1,350 @@
+package yueyang.vostok.web.middleware;
+
+import yueyang.vostok.web.http.VKAcceptEncoding;
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.http.VKResponse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+/**
+ * 服务端响应缓存中间件，用于幂等的 GET 路由。
+ *
+ * 工作流程：
+ * 1. 只处理 GET 请求中路由模板已在配置中登记的请求，其余直接透传；带 Authorization / Cookie
+ *    且规则未对其 vary 的请求同样透传，不读写缓存
+ * 2. 缓存键 = 路径 + 选定的查询参数 + vary 请求头 + 客户端是否接受 gzip，各部分带长度前缀，值中的分隔符无法伪造其他键
+ * 3. 命中新鲜条目时直接返回（If-None-Match 匹配时返回 304），不执行后续链路
+ * 4. 命中 stale 窗口内的旧条目时立即返回旧响应，并由后台线程刷新，同一键只刷新一次
+ * 5. 未命中时同一键只执行一次后续链路，并发请求等待其结果（请求合并）
+ *
+ * 只缓存 200 的完整响应：带 Set-Cookie、Cache-Control 含 no-store/private/no-cache、
+ * Vary: *、流式、SSE、文件响应以及超过 maxEntryBytes 的响应不缓存。
+ * 注册在 gzip 中间件之前时缓存的是压缩后的响应体，命中时不再压缩。
+ * 响应头 X-Cache 标明 HIT / STALE / MISS。
+ */
+public final class VKResponseCacheMiddleware implements VKMiddleware {
+    /** 不随缓存条目保存的响应头（逐请求生成或由引擎写出）。 */
+    private static final Set<String> TRANSIENT_HEADERS = Set.of(
+            "x-trace-id", "date", "age", "x-cache", "content-length", "connection", "transfer-encoding");
+    /** 携带用户身份的请求头：规则未对其 vary 时，带这些头的请求不读也不写缓存。 */
+    private static final String[] CREDENTIAL_HEADERS = {"authorization", "cookie"};
+    /** 304 响应保留的头（RFC 7232 4.1）。 */
+    private static final String[] NOT_MODIFIED_HEADERS = {"ETag", "Cache-Control", "Vary", "Expires", "Content-Location"};
+
+    private final VKResponseCacheConfig config;
+    private final Map<String, VKResponseCacheRule> rules;
+    private final VKResponseCacheStore store;
+    private final ConcurrentHashMap<String, CompletableFuture<VKCachedResponse>> inflight = new ConcurrentHashMap<>();
+    /** 响应 Vary 头中出现、规则未列出的请求头，按路由模板记录，此后参与缓存键。 */
+    private final ConcurrentHashMap<String, List<String>> learnedVary = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refresher;
+
+    public VKResponseCacheMiddleware(VKResponseCacheConfig config) {
+        this.config = config == null ? new VKResponseCacheConfig() : config;
+        this.rules = Map.copyOf(this.config.getRoutes());
+        this.store = this.config.isDistributed()
+                ? new VKResponseCacheStore.Shared(this.config.getDistributedNamespace())
+                : new VKResponseCacheStore.Local(this.config.getMaxBytes());
+        int threads = this.config.getRefreshThreads();
+        AtomicInteger seq = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1024), r -> {
+            Thread t = new Thread(r, "vostok-web-cache-refresh-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void handle(VKRequest req, VKResponse res, VKChain chain) {
+        String pattern = req.routePattern();
+        VKResponseCacheRule rule = pattern == null || !"GET".equals(req.method()) ? null : rules.get(pattern);
+        if (rule == null || carriesCredentials(req, pattern, rule)) {
+            chain.next(req, res);
+            return;
+        }
+
+        String key = key(req, pattern, rule);
+        long now = System.currentTimeMillis();
+        VKCachedResponse entry = store.get(key, now);
+        if (entry != null) {
+            if (entry.isFresh(now)) {
+                serve(req, res, entry, "HIT", now);
+            } else {
+                // 前台请求仍在使用 req，后台刷新使用其副本
+                refreshAsync(key, req.snapshot(), chain.fork(), pattern, rule);
+                serve(req, res, entry, "STALE", now);
+            }
+            return;
+        }
+
+        CompletableFuture<VKCachedResponse> mine = new CompletableFuture<>();
+        CompletableFuture<VKCachedResponse> leader = inflight.putIfAbsent(key, mine);
+        if (leader != null) {
+            VKCachedResponse shared = await(leader);
+            if (shared != null) {
+                serve(req, res, shared, "HIT", System.currentTimeMillis());
+                return;
+            }
+            // 首个请求的响应不可缓存或等待超时，自行执行
+            chain.next(req, res);
+            return;
+        }
+        try {
+            chain.next(req, res);
+            VKCachedResponse fresh = save(key, res, pattern, rule, now);
+            mine.complete(fresh);
+            if (fresh != null) {
+                res.header("X-Cache", "MISS");
+                if (VKAcceptEncoding.etagMatches(req.header("if-none-match"), fresh.etag)) {
+                    notModified(res, fresh);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            mine.complete(null);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    /** 清空本地缓存；共享缓存按 TTL 自然过期。 */
+    public void clear() {
+        store.clear();
+    }
+
+    private void refreshAsync(String key, VKRequest req, VKChain chain, String pattern, VKResponseCacheRule rule) {
+        CompletableFuture<VKCachedResponse> mine = new CompletableFuture<>();
+        if (inflight.putIfAbsent(key, mine) != null) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    VKResponse fresh = new VKResponse();
+                    chain.next(req, fresh);
+                    mine.complete(save(key, fresh, pattern, rule, System.currentTimeMillis()));
+                } catch (Throwable e) {
+                    // 刷新失败时保留旧条目，直到 stale 窗口结束
+                    mine.complete(null);
+                } finally {
+                    inflight.remove(key, mine);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mine.complete(null);
+            inflight.remove(key, mine);
+        }
+    }
+
+    private VKCachedResponse await(CompletableFuture<VKCachedResponse> leader) {
+        try {
+            return leader.get(config.getCoalesceWaitMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 可缓存时保存响应并返回条目，否则返回 null。
+     * 响应的 Vary 引入了新的请求头时只记录下来，本次不保存（键已变化，旧键下的跟随请求不能共享该响应）。
+     */
+    private VKCachedResponse save(String key, VKResponse res, String pattern,
+                                 VKResponseCacheRule rule, long now) {
+        if (!isCacheable(res) || learnVary(pattern, rule, res.headers().get("Vary"))) {
+            return null;
+        }
+        ByteBuffer src = res.bodyBuffer();
+        if (src == null) {
+            src = ByteBuffer.wrap(res.body());
+        }
+        ByteBuffer body = src;
+        if (config.isOffHeap()) {
+            body = ByteBuffer.allocateDirect(src.remaining());
+            body.put(src).flip();
+        }
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, String> e : res.headers().entrySet()) {
+            if (!TRANSIENT_HEADERS.contains(e.getKey().toLowerCase(Locale.ROOT))) {
+                headers.put(e.getKey(), e.getValue());
+            }
+        }
+        String etag = headers.get("ETag");
+        if (etag == null && config.isGenerateEtag()) {
+            etag = etagOf(body);
+            headers.put("ETag", etag);
+            res.header("ETag", etag);
+        }
+        long expiresAt = now + rule.getTtlMs();
+        VKCachedResponse entry = new VKCachedResponse(res.status(), headers, body, etag,
+                now, expiresAt, expiresAt + rule.getStaleWhileRevalidateMs());
+        store.put(key, entry, now);
+        return entry;
+    }
+
+    private boolean isCacheable(VKResponse res) {
+        if (res.status() != 200 || res.isSse() || res.isStreaming() || res.isFile()
+                || !res.setCookies().isEmpty() || res.bodyLength() > config.getMaxEntryBytes()) {
+            return false;
+        }
+        String cc = res.headers().get("Cache-Control");
+        if (cc != null) {
+            String lower = cc.toLowerCase(Locale.ROOT);
+            if (lower.contains("no-store") || lower.contains("private") || lower.contains("no-cache")) {
+                return false;
+            }
+        }
+        String vary = res.headers().get("Vary");
+        return vary == null || !vary.contains("*");
+    }
+
+    private void serve(VKRequest req, VKResponse res, VKCachedResponse entry, String state, long now) {
+        if (entry.etag != null && VKAcceptEncoding.etagMatches(req.header("if-none-match"), entry.etag)) {
+            notModified(res, entry);
+        } else {
+            res.status(entry.status);
+            res.headers().putAll(entry.headers);
+            res.body(entry.body.duplicate());
+        }
+        res.header("Age", String.valueOf(Math.max(0, now - entry.createdAt) / 1000));
+        res.header("X-Cache", state);
+    }
+
+    private static void notModified(VKResponse res, VKCachedResponse entry) {
+        res.headers().remove("Content-Type");
+        res.status(304).body(new byte[0]);
+        for (String name : NOT_MODIFIED_HEADERS) {
+            res.header(name, entry.headers.get(name));
+        }
+    }
+
+    /**
+     * 各组成部分（解码后的查询参数、请求头值等）均以 "长度:内容" 写入，值中的分隔符不会被当作边界，
+     * 如 {@code ?a=1%26b%3D2} 与 {@code ?a=1&b=2} 得到不同的键。
+     */
+    private String key(VKRequest req, String pattern, VKResponseCacheRule rule) {
+        StringBuilder sb = new StringBuilder(64);
+        appendPart(sb, req.path());
+        sb.append('?');
+        Map<String, String> query = req.queryParams();
+        List<String> names = rule.getVaryQuery();
+        if (names == null) {
+            for (Map.Entry<String, String> e : new TreeMap<>(query).entrySet()) {
+                appendPart(sb, e.getKey());
+                appendPart(sb, e.getValue());
+            }
+        } else {
+            for (String name : names) {
+                String v = query.get(name);
+                if (v != null) {
+                    appendPart(sb, name);
+                    appendPart(sb, v);
+                }
+            }
+        }
+        for (String name : rule.getVaryHeaders()) {
+            appendHeader(sb, req, name);
+        }
+        List<String> learned = learnedVary.get(pattern);
+        if (learned != null) {
+            for (String name : learned) {
+                appendHeader(sb, req, name);
+            }
+        }
+        sb.append(VKAcceptEncoding.select(req.header("accept-encoding"), "gzip") == null ? "|identity" : "|gzip");
+        return sb.toString();
+    }
+
+    private static void appendHeader(StringBuilder sb, VKRequest req, String name) {
+        String v = req.header(name);
+        sb.append('|');
+        appendPart(sb, name.toLowerCase(Locale.ROOT));
+        // 缺失与空值区分开
+        if (v == null) {
+            sb.append('-');
+        } else {
+            appendPart(sb, v);
+        }
+    }
+
+    private static void appendPart(StringBuilder sb, String part) {
+        sb.append(part.length()).append(':').append(part);
+    }
+
+    /** 请求带有未参与缓存键的 Authorization / Cookie 时返回 true，避免把某个用户的响应共享给其他人。 */
+    private boolean carriesCredentials(VKRequest req, String pattern, VKResponseCacheRule rule) {
+        for (String name : CREDENTIAL_HEADERS) {
+            if (req.header(name) == null || containsIgnoreCase(rule.getVaryHeaders(), name)) {
+                continue;
+            }
+            List<String> learned = learnedVary.get(pattern);
+            if (learned == null || !learned.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 记录 Vary 中规则未覆盖的请求头；有新增时返回 true。 */
+    private boolean learnVary(String pattern, VKResponseCacheRule rule, String vary) {
+        if (vary == null || vary.isBlank()) {
+            return false;
+        }
+        List<String> added = null;
+        List<String> known = learnedVary.getOrDefault(pattern, List.of());
+        for (String part : vary.split(",")) {
+            String name = part.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty() || name.equals("accept-encoding") || known.contains(name)
+                    || containsIgnoreCase(rule.getVaryHeaders(), name)) {
+                continue;
+            }
+            if (added == null) {
+                added = new ArrayList<>(known);
+            }
+            if (!added.contains(name)) {
+                added.add(name);
+            }
+        }
+        if (added == null) {
+            return false;
+        }
+        learnedVary.put(pattern, List.copyOf(added));
+        return true;
+    }
+
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String n : names) {
+            if (n.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 按内容生成的强 ETag：长度 + CRC32C。 */
+    private static String etagOf(ByteBuffer body) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return "\"" + Integer.toHexString(body.remaining()) + '-' + Long.toHexString(crc.getValue()) + "\"";
+    }
+}
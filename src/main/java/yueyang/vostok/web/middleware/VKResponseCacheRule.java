@@ -0,0 +1,81 @@
+package yueyang.vostok.web.middleware;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单条路由的响应缓存规则。
+ *
+ * - ttlMs：响应保持新鲜的时间（默认 5000ms）
+ * - staleWhileRevalidateMs：过期后仍可返回旧响应的窗口（默认 0 关闭），窗口内由后台刷新
+ * - varyHeaders：参与缓存键的请求头（默认无），如 Accept-Language
+ * - varyQuery：参与缓存键的查询参数（默认 null 表示全部参数，空列表表示忽略查询串）
+ */
+public final class VKResponseCacheRule {
+    private long ttlMs = 5000;
+    private long staleWhileRevalidateMs = 0;
+    private List<String> varyHeaders = List.of();
+    private List<String> varyQuery;
+
+    /**
+     * 获取新鲜期（毫秒）。
+     */
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    /**
+     * 设置新鲜期（毫秒），最小 1。
+     */
+    public VKResponseCacheRule ttlMs(long ttlMs) {
+        this.ttlMs = Math.max(1, ttlMs);
+        return this;
+    }
+
+    /**
+     * 获取过期后可返回旧响应的窗口（毫秒）。
+     */
+    public long getStaleWhileRevalidateMs() {
+        return staleWhileRevalidateMs;
+    }
+
+    /**
+     * 设置过期后可返回旧响应的窗口（毫秒），必须 >= 0。
+     * 窗口内的请求立即拿到旧响应，同一键只触发一次后台刷新。
+     */
+    public VKResponseCacheRule staleWhileRevalidateMs(long staleWhileRevalidateMs) {
+        this.staleWhileRevalidateMs = Math.max(0, staleWhileRevalidateMs);
+        return this;
+    }
+
+    /**
+     * 获取参与缓存键的请求头。
+     */
+    public List<String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    /**
+     * 设置参与缓存键的请求头（不区分大小写）。
+     * Accept-Encoding 无需列出，中间件始终按客户端是否接受 gzip 区分变体。
+     */
+    public VKResponseCacheRule varyHeaders(String... headers) {
+        this.varyHeaders = headers == null ? List.of() : List.copyOf(Arrays.asList(headers));
+        return this;
+    }
+
+    /**
+     * 获取参与缓存键的查询参数，null 表示全部参数。
+     */
+    public List<String> getVaryQuery() {
+        return varyQuery;
+    }
+
+    /**
+     * 设置参与缓存键的查询参数；未列出的参数（如埋点参数）不影响命中。
+     */
+    public VKResponseCacheRule varyQuery(String... names) {
+        this.varyQuery = names == null ? List.of() : List.copyOf(Arrays.asList(names));
+        return this;
+    }
+}
@@ -0,0 +1,104 @@
+package yueyang.vostok.web.middleware;
+
+import yueyang.vostok.Vostok;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 响应缓存的存储后端。
+ */
+interface VKResponseCacheStore {
+    VKCachedResponse get(String key, long now);
+
+    void put(String key, VKCachedResponse entry, long now);
+
+    void clear();
+
+    /**
+     * 本地存储：按总字节数限制的 LRU，过期（超出 stale 窗口）的条目在读取时移除。
+     */
+    final class Local implements VKResponseCacheStore {
+        private final long maxBytes;
+        private final LinkedHashMap<String, VKCachedResponse> map = new LinkedHashMap<>(64, 0.75f, true);
+        private long bytes;
+
+        Local(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public synchronized VKCachedResponse get(String key, long now) {
+            VKCachedResponse entry = map.get(key);
+            if (entry != null && !entry.isUsable(now)) {
+                map.remove(key);
+                bytes -= entry.weight();
+                return null;
+            }
+            return entry;
+        }
+
+        @Override
+        public synchronized void put(String key, VKCachedResponse entry, long now) {
+            long weight = entry.weight();
+            if (weight > maxBytes) {
+                return;
+            }
+            VKCachedResponse old = map.put(key, entry);
+            bytes += weight - (old == null ? 0 : old.weight());
+            Iterator<Map.Entry<String, VKCachedResponse>> it = map.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().getValue().weight();
+                it.remove();
+            }
+        }
+
+        @Override
+        public synchronized void clear() {
+            map.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * 共享存储：序列化后存入 Vostok.Cache，生存期为新鲜期加 stale 窗口。
+     * 缓存未启动或访问失败时视为未命中、放弃写入，不影响请求处理。
+     */
+    final class Shared implements VKResponseCacheStore {
+        private final String namespace;
+
+        Shared(String namespace) {
+            this.namespace = namespace;
+        }
+
+        @Override
+        public VKCachedResponse get(String key, long now) {
+            try {
+                if (!Vostok.Cache.started()) {
+                    return null;
+                }
+                VKCachedResponse entry = VKCachedResponse.decode(Vostok.Cache.get(namespace + ':' + key, byte[].class));
+                return entry == null || !entry.isUsable(now) ? null : entry;
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void put(String key, VKCachedResponse entry, long now) {
+            try {
+                if (Vostok.Cache.started()) {
+                    Vostok.Cache.set(namespace + ':' + key, entry.encode(), Math.max(1, entry.staleUntil - now));
+                }
+            } catch (Throwable ignore) {
+                // 共享缓存不可用时放弃写入
+            }
+        }
+
+        @Override
+        public void clear() {
+            // 共享缓存按 TTL 自然过期，不做跨节点清空
+        }
+    }
+}
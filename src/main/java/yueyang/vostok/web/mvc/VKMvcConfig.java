@@ -8,6 +8,7 @@ public final class VKMvcConfig {
     private boolean failFastOnControllerLoad = true;
     private int bindErrorStatus = 400;
     private int internalErrorStatus = 500;
+    private boolean compiledInvokerEnabled = true;
 
     public static VKMvcConfig defaults() {
         return new VKMvcConfig();
@@ -20,7 +21,8 @@ public final class VKMvcConfig {
                 .exposeExceptionMessage(exposeExceptionMessage)
                 .failFastOnControllerLoad(failFastOnControllerLoad)
                 .bindErrorStatus(bindErrorStatus)
-                .internalErrorStatus(internalErrorStatus);
+                .internalErrorStatus(internalErrorStatus)
+                .compiledInvokerEnabled(compiledInvokerEnabled);
     }
 
     public boolean autoWrapEnabled() {
@@ -78,4 +80,13 @@ public final class VKMvcConfig {
         this.internalErrorStatus = internalErrorStatus <= 0 ? 500 : internalErrorStatus;
         return this;
     }
+
+    public boolean compiledInvokerEnabled() {
+        return compiledInvokerEnabled;
+    }
+
+    public VKMvcConfig compiledInvokerEnabled(boolean compiledInvokerEnabled) {
+        this.compiledInvokerEnabled = compiledInvokerEnabled;
+        return this;
+    }
 }
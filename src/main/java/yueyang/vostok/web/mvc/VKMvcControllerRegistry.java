@@ -57,7 +57,8 @@ public final class VKMvcControllerRegistry {
                     throw new IllegalArgumentException("Duplicate MVC route in controller registry: " + key);
                 }
 
-                VKMvcMethodInvoker invoker = new VKMvcMethodInvoker(controller, method, converters);
+                VKMvcMethodInvoker invoker = new VKMvcMethodInvoker(controller, method, converters,
+                        config.compiledInvokerEnabled());
                 VKMvcRouteMeta meta = new VKMvcRouteMeta(route.method(), fullPath, controller, method, invoker);
                 runtime.addRoute(route.method(), fullPath, buildHandler(meta));
             } catch (Exception e) {
@@ -0,0 +1,185 @@
+package yueyang.vostok.web.mvc;
+
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.http.VKResponse;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * 把控制器方法编译为单个 MethodHandle：(VKRequest, VKResponse) -> Object。
+ *
+ * 每个参数的取值逻辑在注册期就以 MethodHandle 形式绑定到目标方法的对应位置：
+ * - VKRequest / VKResponse 直接透传
+ * - int/long/double/boolean 路径参数走专用解析方法，直接产出原始类型，不经过装箱
+ * - 其余参数绑定到注册期选定的解析器，不再逐次查找
+ * 调用期只剩一次 invokeExact，没有反射与 Object[] 参数数组。
+ */
+final class VKMvcInvokerCompiler {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CALL_TYPE = MethodType.methodType(Object.class, VKRequest.class, VKResponse.class);
+
+    private static final MethodHandle RESOLVE;
+    private static final MethodHandle REQUIRE_PRESENT;
+    private static final MethodHandle PATH_INT;
+    private static final MethodHandle PATH_LONG;
+    private static final MethodHandle PATH_DOUBLE;
+    private static final MethodHandle PATH_BOOLEAN;
+
+    static {
+        try {
+            Class<?> c = VKMvcInvokerCompiler.class;
+            RESOLVE = LOOKUP.findStatic(c, "resolve", MethodType.methodType(Object.class,
+                    VKMvcArgumentResolver.class, VKMvcMethodInvoker.ParameterSpec.class,
+                    VKMvcTypeConverterRegistry.class, VKRequest.class, VKResponse.class));
+            REQUIRE_PRESENT = LOOKUP.findStatic(c, "requirePresent", MethodType.methodType(Object.class,
+                    VKMvcMethodInvoker.ParameterSpec.class, Object.class));
+            PATH_INT = LOOKUP.findStatic(c, "pathInt", MethodType.methodType(int.class, String.class, VKRequest.class));
+            PATH_LONG = LOOKUP.findStatic(c, "pathLong", MethodType.methodType(long.class, String.class, VKRequest.class));
+            PATH_DOUBLE = LOOKUP.findStatic(c, "pathDouble",
+                    MethodType.methodType(double.class, String.class, VKRequest.class));
+            PATH_BOOLEAN = LOOKUP.findStatic(c, "pathBoolean",
+                    MethodType.methodType(boolean.class, String.class, VKRequest.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private VKMvcInvokerCompiler() {
+    }
+
+    static MethodHandle compile(Object controller,
+                                Method method,
+                                List<VKMvcMethodInvoker.ParameterSpec> specs,
+                                VKMvcArgumentResolver[] resolvers,
+                                VKMvcTypeConverterRegistry converters) throws IllegalAccessException {
+        MethodHandle target = LOOKUP.unreflect(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            target = target.bindTo(controller);
+        }
+        int n = specs.size();
+        // 从后往前把每个参数位置替换为 (req, res) -> 参数值
+        for (int i = n - 1; i >= 0; i--) {
+            target = MethodHandles.collectArguments(target, i, extractor(specs.get(i), resolvers[i], converters));
+        }
+        // 此时签名为 (req, res, req, res, ...)R，折叠为 (req, res)R
+        int[] reorder = new int[n * 2];
+        for (int i = 0; i < n; i++) {
+            reorder[i * 2 + 1] = 1;
+        }
+        target = MethodHandles.permuteArguments(target,
+                MethodType.methodType(target.type().returnType(), VKRequest.class, VKResponse.class), reorder);
+        return target.asType(CALL_TYPE);
+    }
+
+    private static MethodHandle extractor(VKMvcMethodInvoker.ParameterSpec spec,
+                                          VKMvcArgumentResolver resolver,
+                                          VKMvcTypeConverterRegistry converters) {
+        Class<?> type = spec.type();
+        MethodType extractorType = MethodType.methodType(type, VKRequest.class, VKResponse.class);
+        if (spec.source() == VKMvcMethodInvoker.Source.REQUEST) {
+            return MethodHandles.dropArguments(MethodHandles.identity(VKRequest.class), 1, VKResponse.class)
+                    .asType(extractorType);
+        }
+        if (spec.source() == VKMvcMethodInvoker.Source.RESPONSE) {
+            return MethodHandles.dropArguments(MethodHandles.identity(VKResponse.class), 0, VKRequest.class)
+                    .asType(extractorType);
+        }
+        if (spec.source() == VKMvcMethodInvoker.Source.PATH && type.isPrimitive() && !converters.hasConverter(type)) {
+            MethodHandle path = primitivePath(type);
+            if (path != null) {
+                return MethodHandles.dropArguments(MethodHandles.insertArguments(path, 0, spec.name()),
+                        1, VKResponse.class);
+            }
+        }
+        MethodHandle h = MethodHandles.insertArguments(RESOLVE, 0, resolver, spec, converters);
+        if (type.isPrimitive()) {
+            h = MethodHandles.filterReturnValue(h, MethodHandles.insertArguments(REQUIRE_PRESENT, 0, spec));
+        }
+        return h.asType(extractorType);
+    }
+
+    private static MethodHandle primitivePath(Class<?> type) {
+        if (type == int.class) {
+            return PATH_INT;
+        }
+        if (type == long.class) {
+            return PATH_LONG;
+        }
+        if (type == double.class) {
+            return PATH_DOUBLE;
+        }
+        if (type == boolean.class) {
+            return PATH_BOOLEAN;
+        }
+        return null;
+    }
+
+    private static Object resolve(VKMvcArgumentResolver resolver,
+                                  VKMvcMethodInvoker.ParameterSpec spec,
+                                  VKMvcTypeConverterRegistry converters,
+                                  VKRequest req,
+                                  VKResponse res) {
+        if (resolver == null) {
+            throw new VKMvcBindException("No resolver for parameter: #" + spec.index());
+        }
+        return resolver.resolve(spec, req, res, converters);
+    }
+
+    private static Object requirePresent(VKMvcMethodInvoker.ParameterSpec spec, Object value) {
+        if (value == null) {
+            throw new VKMvcBindException("Primitive parameter cannot be null: " + spec.type().getSimpleName());
+        }
+        return value;
+    }
+
+    private static String pathRaw(String name, VKRequest req) {
+        String raw = req.param(name);
+        if (raw == null || raw.isEmpty()) {
+            throw new VKMvcBindException("Missing path parameter: " + name);
+        }
+        return raw;
+    }
+
+    private static int pathInt(String name, VKRequest req) {
+        String raw = pathRaw(name, req);
+        try {
+            return Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            throw new VKMvcBindException("Invalid path parameter " + name + ": " + raw, e);
+        }
+    }
+
+    private static long pathLong(String name, VKRequest req) {
+        String raw = pathRaw(name, req);
+        try {
+            return Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            throw new VKMvcBindException("Invalid path parameter " + name + ": " + raw, e);
+        }
+    }
+
+    private static double pathDouble(String name, VKRequest req) {
+        String raw = pathRaw(name, req);
+        try {
+            return Double.parseDouble(raw);
+        } catch (NumberFormatException e) {
+            throw new VKMvcBindException("Invalid path parameter " + name + ": " + raw, e);
+        }
+    }
+
+    private static boolean pathBoolean(String name, VKRequest req) {
+        String raw = pathRaw(name, req);
+        if ("1".equals(raw)) {
+            return true;
+        }
+        if ("0".equals(raw)) {
+            return false;
+        }
+        return Boolean.parseBoolean(raw);
+    }
+}
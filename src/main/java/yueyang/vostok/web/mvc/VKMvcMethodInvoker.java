@@ -21,13 +21,19 @@ import yueyang.vostok.web.mvc.resolver.VKPathResolver;
 import yueyang.vostok.web.mvc.resolver.VKQueryResolver;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
 import java.util.List;
 
-/** 控制器方法调用器：负责参数绑定并反射调用。 */
+/**
+ * 控制器方法调用器：负责参数绑定并调用控制器方法。
+ *
+ * 每个参数的解析器在构造时选定；编译模式下进一步把参数提取与方法调用编译为一个 MethodHandle
+ * （见 VKMvcInvokerCompiler），编译失败或关闭编译模式时回退到反射调用。
+ */
 public final class VKMvcMethodInvoker {
     private final Object controller;
     private final Method method;
@@ -35,8 +41,19 @@ public final class VKMvcMethodInvoker {
     private final List<ParameterSpec> specs;
     private final List<VKMvcArgumentResolver> resolvers;
     private final VKMvcTypeConverterRegistry converters;
+    /** 与 specs 一一对应、注册期预先选定的解析器。 */
+    private final VKMvcArgumentResolver[] boundResolvers;
+    /** 编译后的调用入口 (VKRequest, VKResponse) -> Object，null 表示使用反射调用。 */
+    private final MethodHandle compiled;
 
     public VKMvcMethodInvoker(Object controller, Method method, VKMvcTypeConverterRegistry converters) {
+        this(controller, method, converters, false);
+    }
+
+    public VKMvcMethodInvoker(Object controller,
+                              Method method,
+                              VKMvcTypeConverterRegistry converters,
+                              boolean compile) {
         this.controller = controller;
         this.method = method;
         this.method.setAccessible(true);
@@ -53,6 +70,24 @@ public final class VKMvcMethodInvoker {
                 new VKFormResolver(),
                 new VKFileResolver()
         );
+        this.boundResolvers = new VKMvcArgumentResolver[specs.size()];
+        for (int i = 0; i < specs.size(); i++) {
+            boundResolvers[i] = findResolver(specs.get(i));
+        }
+        this.compiled = compile ? tryCompile() : null;
+    }
+
+    private MethodHandle tryCompile() {
+        try {
+            return VKMvcInvokerCompiler.compile(controller, method, specs, boundResolvers, converters);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** 是否使用编译后的 MethodHandle 调用。 */
+    public boolean isCompiled() {
+        return compiled != null;
     }
 
     public boolean isVoidReturn() {
@@ -64,10 +99,19 @@ public final class VKMvcMethodInvoker {
     }
 
     public Object invoke(VKRequest req, VKResponse res) {
+        if (compiled != null) {
+            try {
+                return (Object) compiled.invokeExact(req, res);
+            } catch (VKMvcBindException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new VKMvcInvokeException("Invoke controller method failed: " + method, t);
+            }
+        }
         Object[] args = new Object[specs.size()];
         for (int i = 0; i < specs.size(); i++) {
             ParameterSpec spec = specs.get(i);
-            VKMvcArgumentResolver resolver = findResolver(spec);
+            VKMvcArgumentResolver resolver = boundResolvers[i];
             if (resolver == null) {
                 throw new VKMvcBindException("No resolver for parameter: " + method.getName() + "#" + i);
             }
@@ -14,6 +14,11 @@ public final class VKMvcTypeConverterRegistry {
         return this;
     }
 
+    /** 是否为指定类型注册了自定义转换器。 */
+    public boolean hasConverter(Class<?> type) {
+        return type != null && custom.containsKey(type);
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     public Object convert(String raw, Class<?> targetType) {
         if (targetType == null) {
@@ -0,0 +1,88 @@
+package yueyang.vostok.web.rate;
+
+import yueyang.vostok.Vostok;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 集群共享配额：以 refillPeriodMs 为固定窗口（按绝对时间对齐，各节点窗口一致），整个集群每窗口最多 capacity 个请求。
+ *
+ * 节点不逐请求访问缓存，而是以 INCRBY 一次租借 leaseBatch 个令牌，在本地用 CAS 扣减；
+ * 本地租约耗尽时才再次租借，窗口切换时未用完的租约作废。计数 key 带窗口序号并设置 TTL，过期自动清理。
+ * 缓存未启动或访问失败时降级为本地令牌桶，保证限流不因缓存故障而失效或阻塞请求。
+ */
+final class VKLeasedQuota extends VKRateBucket {
+    private final String keyPrefix;
+    private final long windowMs;
+    private final long quota;
+    private final long batch;
+    private final VKRateBucket fallback;
+    /** 高 32 位为租约所属窗口序号，低 32 位为本地剩余令牌。 */
+    private final AtomicLong lease = new AtomicLong(-1L << 32);
+    /** 集群配额已耗尽的窗口序号，同一窗口内不再访问缓存。 */
+    private volatile long exhaustedWindow = -1;
+
+    VKLeasedQuota(String keyPrefix, long quota, long batch, long windowMs, VKRateBucket fallback, long now) {
+        super(now);
+        this.keyPrefix = keyPrefix;
+        this.quota = quota;
+        this.batch = Math.min(batch, quota);
+        this.windowMs = windowMs;
+        this.fallback = fallback;
+    }
+
+    @Override
+    boolean tryAcquire(long now) {
+        long window = now / windowMs;
+        if (tryLocal(window)) {
+            return true;
+        }
+        if (exhaustedWindow == window) {
+            return false;
+        }
+        synchronized (this) {
+            // 只在租借时加锁：等待期间其他线程可能已完成租借
+            if (tryLocal(window)) {
+                return true;
+            }
+            if (exhaustedWindow == window) {
+                return false;
+            }
+            long granted;
+            try {
+                if (!Vostok.Cache.started()) {
+                    return fallback.tryAcquire(now);
+                }
+                String key = keyPrefix + window;
+                long claimed = Vostok.Cache.incrBy(key, batch);
+                if (claimed <= batch) {
+                    // 本窗口首个租借者设置 TTL，多留一个窗口容忍节点间时钟偏差
+                    Vostok.Cache.expire(key, windowMs * 2);
+                }
+                granted = Math.max(0, Math.min(batch, quota - (claimed - batch)));
+            } catch (Throwable e) {
+                return fallback.tryAcquire(now);
+            }
+            if (granted <= 0) {
+                exhaustedWindow = window;
+                return false;
+            }
+            lease.set(((window & 0xFFFFFFFFL) << 32) | (granted - 1));
+            return true;
+        }
+    }
+
+    private boolean tryLocal(long window) {
+        int w = (int) window;
+        while (true) {
+            long s = lease.get();
+            long tokens = s & 0xFFFFFFFFL;
+            if ((int) (s >>> 32) != w || tokens == 0) {
+                return false;
+            }
+            if (lease.compareAndSet(s, s - 1)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package yueyang.vostok.web.rate;
+
+/**
+ * 单个限流 key 的状态。实现必须无锁且线程安全，由 worker 线程并发调用。
+ */
+abstract class VKRateBucket {
+    /** 最近一次访问时间，过期轮据此判断是否可以回收。 */
+    volatile long lastSeen;
+
+    VKRateBucket(long now) {
+        this.lastSeen = now;
+    }
+
+    abstract boolean tryAcquire(long now);
+}
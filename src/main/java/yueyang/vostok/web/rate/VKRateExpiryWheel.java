@@ -0,0 +1,68 @@
+package yueyang.vostok.web.rate;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * 限流 key 的过期时间轮。
+ *
+ * key 创建时按 最近访问 + 空闲时长 放入对应槽位；请求线程顺带推进时间轮（CAS 抢占要处理的 tick，不额外起线程），
+ * 到期槽位中的 key 由回调复查：仍活跃则按新的截止时间重新入槽，否则回收。
+ * 每次推进只处理到期槽位，代价与过期 key 数成正比，不再整表扫描。
+ */
+final class VKRateExpiryWheel {
+    private final long tickMs;
+    private final int mask;
+    private final ConcurrentLinkedQueue<String>[] slots;
+    /** 下一个待处理的 tick（绝对时间 / tickMs）。 */
+    private final AtomicLong nextTick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    VKRateExpiryWheel(long tickMs, int slotCount, long now) {
+        this.tickMs = Math.max(1, tickMs);
+        int n = 1;
+        while (n < Math.max(16, slotCount)) {
+            n <<= 1;
+        }
+        this.mask = n - 1;
+        this.slots = new ConcurrentLinkedQueue[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.nextTick = new AtomicLong(now / this.tickMs);
+    }
+
+    void schedule(String key, long deadlineMs) {
+        // 超出一圈的截止时间会提前被扫到，复查后重新入槽
+        slots[(int) ((deadlineMs / tickMs) & mask)].offer(key);
+    }
+
+    /**
+     * 推进到 now 并处理到期槽位。
+     *
+     * @param check 返回 key 的新截止时间，返回值 <= 0 表示已回收
+     */
+    void advance(long now, ToLongFunction<String> check) {
+        long target = now / tickMs;
+        long from = nextTick.get();
+        if (from > target || !nextTick.compareAndSet(from, target + 1)) {
+            return;
+        }
+        // 长时间无请求后一次最多扫一圈
+        long start = Math.max(from, target - mask);
+        for (long t = start; t <= target; t++) {
+            ConcurrentLinkedQueue<String> slot = slots[(int) (t & mask)];
+            for (int i = slot.size(); i > 0; i--) {
+                String key = slot.poll();
+                if (key == null) {
+                    break;
+                }
+                long deadline = check.applyAsLong(key);
+                if (deadline > 0) {
+                    schedule(key, Math.max(deadline, (target + 1) * tickMs));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package yueyang.vostok.web.rate;
+
+/**
+ * 单机限流算法。
+ */
+public enum VKRateLimitAlgorithm {
+    /** 令牌桶：容量 capacity，每 refillPeriodMs 补充 refillTokens 个令牌，允许突发。 */
+    TOKEN_BUCKET,
+    /**
+     * 滑动窗口计数：窗口长度 refillPeriodMs，窗口内最多 capacity 个请求；
+     * 按上一窗口计数的剩余占比加权估算，避免固定窗口边界处的双倍突发。
+     */
+    SLIDING_WINDOW
+}
@@ -13,6 +13,10 @@ public final class VKRateLimitConfig {
     private Function<VKRequest, String> customKeyResolver;
     private int rejectStatus = 429;
     private String rejectBody = "Too Many Requests";
+    private VKRateLimitAlgorithm algorithm = VKRateLimitAlgorithm.TOKEN_BUCKET;
+    private boolean distributed = false;
+    private int leaseBatch = 10;
+    private String distributedNamespace = "vostok:rate";
 
     public int getCapacity() {
         return capacity;
@@ -87,4 +91,49 @@ public final class VKRateLimitConfig {
         this.rejectBody = rejectBody == null ? "" : rejectBody;
         return this;
     }
+
+    public VKRateLimitAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** 单机限流算法，distributed 模式下仅在缓存不可用降级时生效。 */
+    public VKRateLimitConfig algorithm(VKRateLimitAlgorithm algorithm) {
+        this.algorithm = algorithm == null ? VKRateLimitAlgorithm.TOKEN_BUCKET : algorithm;
+        return this;
+    }
+
+    public boolean isDistributed() {
+        return distributed;
+    }
+
+    /**
+     * 集群共享配额：所有节点合计每 refillPeriodMs 最多 capacity 个请求，计数保存在 Vostok.Cache（Redis 时跨节点生效）。
+     * 节点按 leaseBatch 批量租借令牌，缓存未启动或不可用时降级为单机限流。
+     */
+    public VKRateLimitConfig distributed(boolean distributed) {
+        this.distributed = distributed;
+        return this;
+    }
+
+    public int getLeaseBatch() {
+        return leaseBatch;
+    }
+
+    /** 每次向缓存租借的令牌数：越大缓存访问越少，但节点间分配越不均匀。 */
+    public VKRateLimitConfig leaseBatch(int leaseBatch) {
+        this.leaseBatch = Math.max(1, leaseBatch);
+        return this;
+    }
+
+    public String getDistributedNamespace() {
+        return distributedNamespace;
+    }
+
+    /** 集群计数 key 的前缀，不同应用共用同一缓存时应区分。 */
+    public VKRateLimitConfig distributedNamespace(String distributedNamespace) {
+        if (distributedNamespace != null && !distributedNamespace.isEmpty()) {
+            this.distributedNamespace = distributedNamespace;
+        }
+        return this;
+    }
 }
@@ -5,14 +5,34 @@ import yueyang.vostok.web.http.VKResponse;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * 按 key 限流。
+ *
+ * 每个 key 的状态为无锁的 {@link VKRateBucket}（CAS 令牌桶 / 滑动窗口 / 集群租约），
+ * 分布在 ConcurrentHashMap 的分段桶上，热点路径不加锁；空闲 key 由过期时间轮回收。
+ */
 public final class VKRateLimiter {
+    /** 过期时间轮槽数，一圈覆盖约一个空闲时长。 */
+    private static final int EXPIRY_SLOTS = 64;
+
     private final VKRateLimitConfig config;
-    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, VKRateBucket> buckets = new ConcurrentHashMap<>();
+    private final long staleMs;
+    private final VKRateExpiryWheel expiry;
+    /** 集群计数 key 前缀：namespace:scope:，scope 区分全局与各路由限流器。 */
+    private final String distributedPrefix;
 
     public VKRateLimiter(VKRateLimitConfig config) {
+        this(config, "global");
+    }
+
+    public VKRateLimiter(VKRateLimitConfig config, String scope) {
         this.config = config == null ? new VKRateLimitConfig() : config;
+        this.staleMs = Math.max(this.config.getRefillPeriodMs() * 20L, 60_000L);
+        this.expiry = new VKRateExpiryWheel(staleMs / EXPIRY_SLOTS, EXPIRY_SLOTS, System.currentTimeMillis());
+        this.distributedPrefix = this.config.getDistributedNamespace() + ':'
+                + (scope == null || scope.isEmpty() ? "global" : scope) + ':';
     }
 
     public boolean tryAcquire(VKRequest req) {
@@ -22,19 +42,19 @@ public final class VKRateLimiter {
     public Decision tryAcquireDecision(VKRequest req) {
         String key = resolveKey(req);
         long now = System.currentTimeMillis();
-        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(config.getCapacity(), now));
-        boolean allowed;
-        synchronized (bucket) {
-            refill(bucket, now);
-            if (bucket.tokens > 0) {
-                bucket.tokens--;
-                allowed = true;
-            } else {
-                allowed = false;
+        VKRateBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            VKRateBucket created = newBucket(key, now);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+                // 入槽必须在 bucket 对其他线程可见之后，否则并发推进的时间轮复查不到 bucket 会丢掉该 key，map 永不回收
+                expiry.schedule(key, now + staleMs);
             }
-            bucket.lastSeen = now;
         }
-        cleanupIfNeeded(now);
+        boolean allowed = bucket.tryAcquire(now);
+        bucket.lastSeen = now;
+        expiry.advance(now, this::expireIfIdle);
         return new Decision(allowed, key, config.getKeyStrategy(), config.getRejectStatus());
     }
 
@@ -42,18 +62,15 @@ public final class VKRateLimiter {
         res.status(config.getRejectStatus()).text(config.getRejectBody());
     }
 
-    private void refill(Bucket bucket, long now) {
-        long elapsed = now - bucket.lastRefillAt;
-        if (elapsed < config.getRefillPeriodMs()) {
-            return;
+    private VKRateBucket newBucket(String key, long now) {
+        VKRateBucket local = config.getAlgorithm() == VKRateLimitAlgorithm.SLIDING_WINDOW
+                ? new VKSlidingWindow(config.getCapacity(), config.getRefillPeriodMs(), now)
+                : new VKTokenBucket(config.getCapacity(), config.getRefillTokens(), config.getRefillPeriodMs(), now);
+        if (!config.isDistributed()) {
+            return local;
         }
-        long intervals = elapsed / config.getRefillPeriodMs();
-        long add = intervals * (long) config.getRefillTokens();
-        if (add <= 0) {
-            return;
-        }
-        bucket.tokens = Math.min(config.getCapacity(), bucket.tokens + add);
-        bucket.lastRefillAt += intervals * config.getRefillPeriodMs();
+        return new VKLeasedQuota(distributedPrefix + key + ':', config.getCapacity(), config.getLeaseBatch(),
+                config.getRefillPeriodMs(), local, now);
     }
 
     private String resolveKey(VKRequest req) {
@@ -80,32 +97,18 @@ public final class VKRateLimiter {
         return "0.0.0.0";
     }
 
-    /**
-     * Perf6：用 ThreadLocalRandom 替代 AtomicLong 的 1/1024 概率触发清理，零 CAS 竞争。
-     */
-    private void cleanupIfNeeded(long now) {
-        if (ThreadLocalRandom.current().nextInt(1024) != 0) {
-            return;
+    /** 过期轮回调：空闲超过 staleMs 的 key 被回收，否则返回新的截止时间。 */
+    private long expireIfIdle(String key) {
+        VKRateBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
         }
-        long staleMs = Math.max(config.getRefillPeriodMs() * 20L, 60_000L);
-        for (Map.Entry<String, Bucket> e : buckets.entrySet()) {
-            Bucket bucket = e.getValue();
-            if (now - bucket.lastSeen > staleMs) {
-                buckets.remove(e.getKey(), bucket);
-            }
-        }
-    }
-
-    private static final class Bucket {
-        long tokens;
-        long lastRefillAt;
-        volatile long lastSeen;
-
-        Bucket(long tokens, long now) {
-            this.tokens = tokens;
-            this.lastRefillAt = now;
-            this.lastSeen = now;
+        long deadline = bucket.lastSeen + staleMs;
+        if (deadline <= System.currentTimeMillis()) {
+            buckets.remove(key, bucket);
+            return 0;
         }
+        return deadline;
     }
 
     public record Decision(boolean allowed, String key, VKRateLimitKeyStrategy strategy, int rejectStatus) {
@@ -0,0 +1,60 @@
+package yueyang.vostok.web.rate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 滑动窗口计数器：估算值 = 上一窗口计数 × 上一窗口在滑动窗口内的剩余占比 + 当前窗口计数。
+ *
+ * 当前窗口计数用 CAS 自增，只有跨窗口时才替换 Window 对象；
+ * 切换瞬间仍落在旧窗口上的少量自增会被计入上一窗口计数之外，误差上限为并发切换的线程数。
+ */
+final class VKSlidingWindow extends VKRateBucket {
+    private final long windowMs;
+    private final int limit;
+    private final AtomicReference<Window> current;
+
+    VKSlidingWindow(int limit, long windowMs, long now) {
+        super(now);
+        this.windowMs = windowMs;
+        this.limit = limit;
+        this.current = new AtomicReference<>(new Window(now / windowMs, 0));
+    }
+
+    @Override
+    boolean tryAcquire(long now) {
+        long index = now / windowMs;
+        Window w = current.get();
+        while (w.index < index) {
+            int previous = w.index == index - 1 ? w.count.get() : 0;
+            Window next = new Window(index, previous);
+            if (current.compareAndSet(w, next)) {
+                w = next;
+            } else {
+                w = current.get();
+            }
+        }
+        double weight = 1.0 - (double) (now - index * windowMs) / windowMs;
+        double carried = w.previous * weight;
+        while (true) {
+            int c = w.count.get();
+            if (carried + c + 1 > limit) {
+                return false;
+            }
+            if (w.count.compareAndSet(c, c + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static final class Window {
+        final long index;
+        final int previous;
+        final AtomicInteger count = new AtomicInteger();
+
+        Window(long index, int previous) {
+            this.index = index;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package yueyang.vostok.web.rate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CAS 令牌桶。
+ *
+ * 状态打包在一个 long 中：高 32 位为最近一次补充所在的周期序号（相对创建时间），低 32 位为剩余令牌数，
+ * 补充与扣减在同一次 CAS 中完成。周期序号按 int 差值计算，回绕前桶早已因空闲被回收。
+ */
+final class VKTokenBucket extends VKRateBucket {
+    private final long createdAt;
+    private final long periodMs;
+    private final long capacity;
+    private final long refillTokens;
+    private final AtomicLong state;
+
+    VKTokenBucket(long capacity, long refillTokens, long periodMs, long now) {
+        super(now);
+        this.createdAt = now;
+        this.periodMs = periodMs;
+        this.capacity = capacity;
+        this.refillTokens = refillTokens;
+        this.state = new AtomicLong(capacity);
+    }
+
+    @Override
+    boolean tryAcquire(long now) {
+        int period = (int) (Math.max(0, now - createdAt) / periodMs);
+        while (true) {
+            long s = state.get();
+            int lastPeriod = (int) (s >>> 32);
+            long tokens = s & 0xFFFFFFFFL;
+            int elapsed = period - lastPeriod;
+            if (elapsed > 0) {
+                tokens = elapsed >= capacity ? capacity : Math.min(capacity, tokens + elapsed * refillTokens);
+            } else {
+                // 时钟回拨或并发线程已推进周期：不补充，保持已记录的周期
+                period = lastPeriod;
+            }
+            if (tokens <= 0) {
+                return false;
+            }
+            long next = ((long) period << 32) | (tokens - 1);
+            if (state.compareAndSet(s, next)) {
+                return true;
+            }
+        }
+    }
+}
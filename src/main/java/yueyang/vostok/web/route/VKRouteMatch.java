@@ -2,28 +2,77 @@ package yueyang.vostok.web.route;
 
 import yueyang.vostok.web.VKHandler;
 
+import java.util.HashMap;
 import java.util.Map;
 
 public final class VKRouteMatch {
     private final VKHandler handler;
-    private final Map<String, String> params;
+    private Map<String, String> params;
     private final String routePattern;
+    /**
+     * 冻结路由的参数以下标区间表示：第 i 个参数的值为 path[bounds[2i], bounds[2i+1])，
+     * 由 VKRequest 按需截取，未访问的参数不产生字符串。
+     */
+    private final String path;
+    private final String[] paramNames;
+    private final int[] paramBounds;
 
     public VKRouteMatch(VKHandler handler, Map<String, String> params, String routePattern) {
         this.handler = handler;
         this.params = params;
         this.routePattern = routePattern;
+        this.path = null;
+        this.paramNames = null;
+        this.paramBounds = null;
+    }
+
+    VKRouteMatch(VKHandler handler, String routePattern, String path, String[] paramNames, int[] paramBounds) {
+        this.handler = handler;
+        this.params = null;
+        this.routePattern = routePattern;
+        this.path = path;
+        this.paramNames = paramNames;
+        this.paramBounds = paramBounds;
     }
 
     public VKHandler handler() {
         return handler;
     }
 
+    /**
+     * 参数 Map；区间形式的匹配结果在首次调用时才物化。
+     */
     public Map<String, String> params() {
-        return params;
+        Map<String, String> p = params;
+        if (p == null) {
+            p = new HashMap<>();
+            for (int i = 0; i < paramNames.length; i++) {
+                p.put(paramNames[i], path.substring(paramBounds[2 * i], paramBounds[2 * i + 1]));
+            }
+            params = p;
+        }
+        return p;
     }
 
     public String routePattern() {
         return routePattern;
     }
+
+    /** 是否以下标区间携带参数（由冻结路由产生）。 */
+    public boolean hasParamBounds() {
+        return paramNames != null;
+    }
+
+    /** 参数值所在的源路径（已规范化），仅 hasParamBounds() 为 true 时有效。 */
+    public String path() {
+        return path;
+    }
+
+    public String[] paramNames() {
+        return paramNames;
+    }
+
+    public int[] paramBounds() {
+        return paramBounds;
+    }
 }
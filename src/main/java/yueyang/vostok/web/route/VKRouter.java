@@ -2,23 +2,58 @@ package yueyang.vostok.web.route;
 
 import yueyang.vostok.web.VKHandler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 路由表。
+ *
+ * 注册阶段使用可变的分段 Trie（TrieNode）；调用 {@link #freeze()} 后额外编译出一份不可变的
+ * 数组化压缩前缀树（CompiledTable），此后 match 只走编译结果：
+ * - 逐字符扫描路径，不做 split，不创建 segment 数组
+ * - 静态路由命中时复用预先构造的 VKRouteMatch，零分配
+ * - 动态路由只分配一个下标数组与一个 VKRouteMatch，参数值由 VKRequest 按需截取
+ *
+ * 冻结后仍可继续 add：每次注册都会重新编译快照，匹配线程始终读到完整的新旧快照之一。
+ */
 public final class VKRouter {
     private final ConcurrentHashMap<String, RouteTable> byMethod = new ConcurrentHashMap<>();
+    /** 编译后的路由快照，null 表示尚未冻结。 */
+    private volatile Map<String, CompiledTable> compiled;
 
-    public void add(String method, String path, VKHandler handler) {
+    public synchronized void add(String method, String path, VKHandler handler) {
         String m = method == null ? "GET" : method.toUpperCase();
         String p = normalize(path);
         RouteTable table = byMethod.computeIfAbsent(m, k -> new RouteTable());
         table.add(p, handler);
+        if (compiled != null) {
+            compiled = compileAll();
+        }
+    }
+
+    /**
+     * 把当前路由编译为不可变的数组化前缀树，通常在服务启动时调用一次。
+     */
+    public synchronized void freeze() {
+        compiled = compileAll();
+    }
+
+    public boolean isFrozen() {
+        return compiled != null;
     }
 
     public VKRouteMatch match(String method, String path) {
         String m = method == null ? "GET" : method.toUpperCase();
         String p = normalize(path);
+        Map<String, CompiledTable> c = compiled;
+        if (c != null) {
+            CompiledTable ct = c.get(m);
+            return ct == null ? null : ct.match(p);
+        }
         RouteTable table = byMethod.get(m);
         if (table == null) {
             return null;
@@ -37,6 +72,14 @@ public final class VKRouter {
         return p;
     }
 
+    private Map<String, CompiledTable> compileAll() {
+        Map<String, CompiledTable> out = new HashMap<>();
+        for (Map.Entry<String, RouteTable> e : byMethod.entrySet()) {
+            out.put(e.getKey(), CompiledTable.compile(e.getValue()));
+        }
+        return out;
+    }
+
     private static final class RouteTable {
         private final ConcurrentHashMap<String, RouteEntry> staticRoutes = new ConcurrentHashMap<>();
         private final TrieNode root = new TrieNode();
@@ -182,6 +225,228 @@ public final class VKRouter {
         }
     }
 
+    /**
+     * 不可变的数组化前缀树（structure of arrays，节点以 int 下标引用）。
+     *
+     * 每个节点位于路径段边界，包含：
+     * - 字面量子边：按首段排序的 key 数组，二分查找；只有单个字面量子节点且无参数/通配/终点的链会被压缩成
+     *   一条多段 key（如 "api/v1/users"），逐字符比较后一次跳过
+     * - 参数子节点与通配终点
+     * 匹配优先级与 Trie 相同：字面量 > 参数 > 通配，失败时回溯。
+     */
+    private static final class CompiledTable {
+        private final Map<String, VKRouteMatch> staticMatches;
+        private final String[][] litKeys;
+        private final int[][] litFirstLen;
+        private final int[][] litTargets;
+        private final int[] paramChild;
+        private final Terminal[] terminals;
+        private final Terminal[] wildcards;
+        private final int maxParams;
+
+        private CompiledTable(Map<String, VKRouteMatch> staticMatches, Builder b) {
+            this.staticMatches = staticMatches;
+            int n = b.paramChild.size();
+            this.litKeys = b.litKeys.toArray(new String[n][]);
+            this.litFirstLen = b.litFirstLen.toArray(new int[n][]);
+            this.litTargets = b.litTargets.toArray(new int[n][]);
+            this.paramChild = new int[n];
+            for (int i = 0; i < n; i++) {
+                paramChild[i] = b.paramChild.get(i);
+            }
+            this.terminals = b.terminals.toArray(new Terminal[n]);
+            this.wildcards = b.wildcards.toArray(new Terminal[n]);
+            this.maxParams = b.maxParams;
+        }
+
+        static CompiledTable compile(RouteTable table) {
+            Map<String, VKRouteMatch> statics = new HashMap<>();
+            for (RouteEntry e : table.staticRoutes.values()) {
+                statics.put(e.pathPattern, new VKRouteMatch(e.handler, Map.of(), e.pathPattern));
+            }
+            Builder b = new Builder();
+            b.build(table.root, new ArrayList<>());
+            return new CompiledTable(statics, b);
+        }
+
+        VKRouteMatch match(String path) {
+            VKRouteMatch exact = staticMatches.get(path);
+            if (exact != null) {
+                return exact;
+            }
+            int end = path.length();
+            while (end > 1 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            int[] bounds = new int[maxParams * 2];
+            Terminal t = find(path, end, 0, 1, 0, bounds);
+            if (t == null) {
+                return null;
+            }
+            return new VKRouteMatch(t.handler, t.pattern, path, t.names, bounds);
+        }
+
+        /**
+         * @param pos   当前段起始下标；pos >= end 表示所有段已消费
+         * @param depth 已绑定的参数个数
+         */
+        private Terminal find(String path, int end, int node, int pos, int depth, int[] bounds) {
+            if (pos >= end) {
+                if (terminals[node] != null) {
+                    return terminals[node];
+                }
+                Terminal w = wildcards[node];
+                if (w != null) {
+                    bounds[2 * depth] = end;
+                    bounds[2 * depth + 1] = end;
+                }
+                return w;
+            }
+            int segEnd = path.indexOf('/', pos);
+            if (segEnd < 0 || segEnd > end) {
+                segEnd = end;
+            }
+
+            String[] keys = litKeys[node];
+            if (keys != null) {
+                int i = search(keys, litFirstLen[node], path, pos, segEnd);
+                if (i >= 0) {
+                    String key = keys[i];
+                    int keyEnd = pos + key.length();
+                    if (key.length() == litFirstLen[node][i]
+                            || (keyEnd <= end && path.regionMatches(pos, key, 0, key.length())
+                            && (keyEnd == end || path.charAt(keyEnd) == '/'))) {
+                        Terminal t = find(path, end, litTargets[node][i], keyEnd + 1, depth, bounds);
+                        if (t != null) {
+                            return t;
+                        }
+                    }
+                }
+            }
+
+            int param = paramChild[node];
+            if (param >= 0) {
+                bounds[2 * depth] = pos;
+                bounds[2 * depth + 1] = segEnd;
+                Terminal t = find(path, end, param, segEnd + 1, depth + 1, bounds);
+                if (t != null) {
+                    return t;
+                }
+            }
+
+            Terminal w = wildcards[node];
+            if (w != null) {
+                bounds[2 * depth] = pos;
+                bounds[2 * depth + 1] = end;
+            }
+            return w;
+        }
+
+        /** 在按首段排序的 key 中二分查找与 path[from, to) 相等的首段。 */
+        private static int search(String[] keys, int[] firstLen, String path, int from, int to) {
+            int lo = 0;
+            int hi = keys.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(keys[mid], firstLen[mid], path, from, to);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private static int compare(String key, int keyLen, String path, int from, int to) {
+            int len = Math.min(keyLen, to - from);
+            for (int i = 0; i < len; i++) {
+                int d = key.charAt(i) - path.charAt(from + i);
+                if (d != 0) {
+                    return d;
+                }
+            }
+            return keyLen - (to - from);
+        }
+
+        private static final class Builder {
+            final List<String[]> litKeys = new ArrayList<>();
+            final List<int[]> litFirstLen = new ArrayList<>();
+            final List<int[]> litTargets = new ArrayList<>();
+            final List<Integer> paramChild = new ArrayList<>();
+            final List<Terminal> terminals = new ArrayList<>();
+            final List<Terminal> wildcards = new ArrayList<>();
+            int maxParams;
+
+            int build(TrieNode n, List<String> names) {
+                int id = paramChild.size();
+                litKeys.add(null);
+                litFirstLen.add(null);
+                litTargets.add(null);
+                paramChild.add(-1);
+                terminals.add(n.entry == null ? null : new Terminal(n.entry, names));
+                TrieNode w = n.wildcardChild;
+                Terminal wildcard = null;
+                if (w != null && w.entry != null) {
+                    List<String> wn = new ArrayList<>(names);
+                    wn.add(w.paramName == null ? "*" : w.paramName);
+                    wildcard = new Terminal(w.entry, wn);
+                    maxParams = Math.max(maxParams, wn.size());
+                }
+                wildcards.add(wildcard);
+                maxParams = Math.max(maxParams, names.size());
+
+                if (!n.literalChildren.isEmpty()) {
+                    String[] segs = n.literalChildren.keySet().toArray(new String[0]);
+                    Arrays.sort(segs);
+                    String[] keys = new String[segs.length];
+                    int[] firstLen = new int[segs.length];
+                    int[] targets = new int[segs.length];
+                    for (int i = 0; i < segs.length; i++) {
+                        StringBuilder key = new StringBuilder(segs[i]);
+                        TrieNode c = n.literalChildren.get(segs[i]);
+                        // 压缩单链：中间节点不可能成为匹配终点或回溯分支
+                        while (c.entry == null && c.paramChild == null && c.wildcardChild == null
+                                && c.literalChildren.size() == 1) {
+                            Map.Entry<String, TrieNode> only = c.literalChildren.entrySet().iterator().next();
+                            key.append('/').append(only.getKey());
+                            c = only.getValue();
+                        }
+                        keys[i] = key.toString();
+                        firstLen[i] = segs[i].length();
+                        targets[i] = build(c, names);
+                    }
+                    litKeys.set(id, keys);
+                    litFirstLen.set(id, firstLen);
+                    litTargets.set(id, targets);
+                }
+
+                TrieNode p = n.paramChild;
+                if (p != null) {
+                    names.add(p.paramName);
+                    int child = build(p, names);
+                    names.remove(names.size() - 1);
+                    paramChild.set(id, child);
+                }
+                return id;
+            }
+        }
+    }
+
+    private static final class Terminal {
+        final VKHandler handler;
+        final String pattern;
+        final String[] names;
+
+        Terminal(RouteEntry entry, List<String> names) {
+            this.handler = entry.handler;
+            this.pattern = entry.pathPattern;
+            this.names = names.toArray(new String[0]);
+        }
+    }
+
     private static final class TrieNode {
         final ConcurrentHashMap<String, TrieNode> literalChildren = new ConcurrentHashMap<>();
         volatile TrieNode paramChild;
@@ -11,11 +11,18 @@ public final class VKWebDispatchResult {
     private final VKResponse response;
     private final long costNs;
     private final boolean error;
+    /** 命中的路由模板（如 /users/{id}），未匹配时为 null。 */
+    private final String route;
 
     public VKWebDispatchResult(VKResponse response, long costNs, boolean error) {
+        this(response, costNs, error, null);
+    }
+
+    public VKWebDispatchResult(VKResponse response, long costNs, boolean error, String route) {
         this.response = response;
         this.costNs = Math.max(0L, costNs);
         this.error = error;
+        this.route = route;
     }
 
     public VKResponse response() {
@@ -33,4 +40,8 @@ public final class VKWebDispatchResult {
     public boolean error() {
         return error;
     }
+
+    public String route() {
+        return route;
+    }
 }
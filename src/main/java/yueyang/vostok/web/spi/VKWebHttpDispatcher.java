@@ -33,6 +33,7 @@ public final class VKWebHttpDispatcher {
     public VKWebDispatchResult dispatch(VKRequest req, VKResponse res) {
         long startNs = System.nanoTime();
         boolean error = false;
+        String route = null;
         try {
             ensureTraceId(req, res);
             VKRouteMatch match = runtime.router().match(req.method(), req.path());
@@ -40,9 +41,10 @@ public final class VKWebHttpDispatcher {
             if (match == null || match.handler() == null) {
                 finalHandler = (r, s) -> s.status(404).text("Not Found");
             } else {
-                req.setParams(match.params());
+                req.setParams(match);
+                route = match.routePattern();
                 if (!runtime.tryRateLimit(req, match, res)) {
-                    return finish(req, res, startNs, false);
+                    return finish(req, res, startNs, false, route);
                 }
                 finalHandler = match.handler();
             }
@@ -60,7 +62,7 @@ public final class VKWebHttpDispatcher {
             error = true;
             handleError(runtime.errorHandler(), t, req, res);
         }
-        return finish(req, res, startNs, error);
+        return finish(req, res, startNs, error, route);
     }
 
     /**
@@ -80,13 +82,13 @@ public final class VKWebHttpDispatcher {
         }
     }
 
-    private VKWebDispatchResult finish(VKRequest req, VKResponse res, long startNs, boolean error) {
+    private VKWebDispatchResult finish(VKRequest req, VKResponse res, long startNs, boolean error, String route) {
         if (res.headers().get("X-Trace-Id") == null && req.traceId() != null) {
             res.header("X-Trace-Id", req.traceId());
         }
         req.cleanupUploads();
         long costNs = System.nanoTime() - startNs;
-        return new VKWebDispatchResult(res, costNs, error || res.status() >= 500);
+        return new VKWebDispatchResult(res, costNs, error || res.status() >= 500, route);
     }
 
     private void handleError(VKErrorHandler errorHandler, Throwable error, VKRequest req, VKResponse res) {
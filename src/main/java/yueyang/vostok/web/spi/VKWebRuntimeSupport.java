@@ -13,6 +13,7 @@ import yueyang.vostok.web.rate.VKRateLimitConfig;
 import yueyang.vostok.web.rate.VKRateLimiter;
 import yueyang.vostok.web.route.VKRouter;
 import yueyang.vostok.web.route.VKRouteMatch;
+import yueyang.vostok.web.sse.VKSseHub;
 import yueyang.vostok.web.websocket.VKWebSocketConfig;
 import yueyang.vostok.web.websocket.VKWebSocketEndpoint;
 import yueyang.vostok.web.websocket.VKWebSocketHandler;
@@ -41,10 +42,13 @@ public final class VKWebRuntimeSupport {
     private final Map<String, VKWebSocketEndpoint> webSockets = new ConcurrentHashMap<>();
     private final VKWsRegistry wsRegistry = new VKWsRegistry();
     private final VKMetrics metrics = new VKMetrics();
+    private final VKSseHub sseHub;
     private final VKWebHttpDispatcher dispatcher = new VKWebHttpDispatcher(this);
 
     public VKWebRuntimeSupport(VKWebConfig config) {
         this.config = config == null ? new VKWebConfig() : config;
+        this.sseHub = new VKSseHub(this.config.getSseReplayBufferSize());
+        metrics.setSseTopicStatsSupplier(sseHub::stats);
     }
 
     public VKWebConfig config() {
@@ -79,7 +83,8 @@ public final class VKWebRuntimeSupport {
         if (method == null || path == null || config == null) {
             return;
         }
-        routeRateLimiters.put(routeLimitKey(method.name(), path), new VKRateLimiter(config));
+        String key = routeLimitKey(method.name(), path);
+        routeRateLimiters.put(key, new VKRateLimiter(config, key));
     }
 
     public void addWebSocket(String path, VKWebSocketConfig wsConfig, VKWebSocketHandler handler) {
@@ -132,6 +137,10 @@ public final class VKWebRuntimeSupport {
         return wsRegistry;
     }
 
+    public VKSseHub sseHub() {
+        return sseHub;
+    }
+
     public VKMetrics metrics() {
         return metrics;
     }
@@ -180,6 +189,14 @@ public final class VKWebRuntimeSupport {
         metrics.recordRequest(nanos, error);
     }
 
+    /**
+     * 按路由模板与状态类别记录请求指标，内建引擎与自定义引擎在写回响应后调用。
+     */
+    public void recordRequest(VKRequest req, VKWebDispatchResult result) {
+        metrics.recordRequest(req.method(), result.route(), result.response().status(),
+                result.costNs(), result.error());
+    }
+
     private String routeLimitKey(String method, String path) {
         String actualMethod = method == null ? "GET" : method.toUpperCase();
         return actualMethod + " " + normalizePath(path);
@@ -1,7 +1,9 @@
 package yueyang.vostok.web.sse;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Server-Sent Events 发射器，用于向已建立的 SSE 连接推送事件。
@@ -24,8 +26,15 @@ public final class VKSseEmitter {
     private final Consumer<byte[]> sender;
     /** 关闭连接回调：通过 reactor 的 pending 队列安全地关闭连接。 */
     private final Runnable closer;
+    /** 共享缓冲发送回调：直接引用事件的编码结果，返回 false 表示因待发送字节超限而丢弃；为 null 时退化为 sender。 */
+    private final Predicate<ByteBuffer> bufferSender;
+    /** 所属发送线程组（内建引擎中即连接所在的 reactor），主题广播时同组连接合并为一个任务投递。 */
+    private final Executor sendGroup;
     /** 连接是否已关闭（volatile 保证跨线程可见性）。 */
     private volatile boolean closed = false;
+    /** 关闭回调（如从主题退订），只执行一次。 */
+    private Runnable closeListener;
+    private boolean closeFired;
 
     /**
      * 创建 SSE 发射器。
@@ -34,8 +43,19 @@ public final class VKSseEmitter {
      * @param closer 连接关闭回调，由 reactor 内部提供（线程安全）
      */
     public VKSseEmitter(Consumer<byte[]> sender, Runnable closer) {
+        this(sender, closer, null, null);
+    }
+
+    /**
+     * @param bufferSender 共享缓冲发送入口（线程安全），返回 false 表示事件被丢弃
+     * @param sendGroup    连接所属的发送线程组，null 表示无分组
+     */
+    public VKSseEmitter(Consumer<byte[]> sender, Runnable closer,
+                        Predicate<ByteBuffer> bufferSender, Executor sendGroup) {
         this.sender = sender;
         this.closer = closer;
+        this.bufferSender = bufferSender;
+        this.sendGroup = bufferSender == null ? null : sendGroup;
     }
 
     /**
@@ -69,27 +89,59 @@ public final class VKSseEmitter {
         if (closed) {
             return;
         }
-        StringBuilder sb = new StringBuilder(64);
-        if (id != null && !id.isEmpty()) {
-            sb.append("id: ").append(id).append('\n');
+        VKSseEvent e = new VKSseEvent(event, data, id);
+        try {
+            if (bufferSender != null) {
+                bufferSender.test(ByteBuffer.wrap(e.encode()));
+            } else {
+                sender.accept(e.encode());
+            }
+        } catch (Throwable ignore) {
+            // sender 投递失败（连接已断开），忽略异常
         }
-        if (event != null && !event.isEmpty()) {
-            sb.append("event: ").append(event).append('\n');
+    }
+
+    /**
+     * 推送已构造的事件；支持共享缓冲的连接直接引用事件的编码结果，不逐连接编码。
+     *
+     * @return false 表示连接已关闭、投递失败或因待发送字节超限被丢弃
+     */
+    public boolean send(VKSseEvent event) {
+        if (closed || event == null) {
+            return false;
         }
-        // 多行 data 分拆处理：每行都需要 "data: " 前缀
-        String dataStr = data == null ? "" : data;
-        String[] lines = dataStr.split("\n", -1);
-        for (String line : lines) {
-            sb.append("data: ").append(line).append('\n');
+        try {
+            if (bufferSender != null) {
+                return bufferSender.test(event.encodedBuffer());
+            }
+            sender.accept(event.encode());
+            return true;
+        } catch (Throwable e) {
+            return false;
         }
-        // 事件以空行结束
-        sb.append('\n');
+    }
 
-        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
-        try {
-            sender.accept(bytes);
-        } catch (Throwable ignore) {
-            // sender 投递失败（连接已断开），忽略异常
+    /**
+     * 连接所属的发送线程组，null 表示无分组（逐个发送）。
+     */
+    public Executor sendGroup() {
+        return sendGroup;
+    }
+
+    /**
+     * 注册连接关闭回调；已关闭时立即执行。回调只执行一次。
+     */
+    public void onClose(Runnable listener) {
+        boolean fire;
+        synchronized (this) {
+            closeListener = listener;
+            fire = closed && !closeFired && listener != null;
+            if (fire) {
+                closeFired = true;
+            }
+        }
+        if (fire) {
+            runQuietly(listener);
         }
     }
 
@@ -104,6 +156,7 @@ public final class VKSseEmitter {
                 closer.run();
             } catch (Throwable ignore) {
             }
+            fireClosed();
         }
     }
 
@@ -122,5 +175,25 @@ public final class VKSseEmitter {
      */
     public void markClosed() {
         closed = true;
+        fireClosed();
+    }
+
+    private void fireClosed() {
+        Runnable listener;
+        synchronized (this) {
+            if (closeFired || closeListener == null) {
+                return;
+            }
+            closeFired = true;
+            listener = closeListener;
+        }
+        runQuietly(listener);
+    }
+
+    private static void runQuietly(Runnable r) {
+        try {
+            r.run();
+        } catch (Throwable ignore) {
+        }
     }
 }
@@ -0,0 +1,81 @@
+package yueyang.vostok.web.sse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 不可变的 SSE 事件。
+ *
+ * 编码结果在首次使用时缓存为只读缓冲：主题广播与断线重放时同一事件被所有连接引用，只编码一次。
+ */
+public final class VKSseEvent {
+    private final String id;
+    private final String event;
+    private final String data;
+    /** 编码结果缓存，写出方必须 duplicate() 后再消费。 */
+    private volatile ByteBuffer encoded;
+
+    public VKSseEvent(String event, String data, String id) {
+        this.id = id;
+        this.event = event;
+        this.data = data == null ? "" : data;
+    }
+
+    public static VKSseEvent of(String data) {
+        return new VKSseEvent(null, data, null);
+    }
+
+    public static VKSseEvent of(String event, String data) {
+        return new VKSseEvent(event, data, null);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String event() {
+        return event;
+    }
+
+    public String data() {
+        return data;
+    }
+
+    /**
+     * 编码后的只读缓冲，首次调用时编码并缓存。
+     * 返回的缓冲被多个连接共享，写出方必须 duplicate() 后再消费。
+     */
+    public ByteBuffer encodedBuffer() {
+        ByteBuffer b = encoded;
+        if (b == null) {
+            // 并发首次调用最多重复编码一次，结果相同
+            b = ByteBuffer.wrap(encode()).asReadOnlyBuffer();
+            encoded = b;
+        }
+        return b;
+    }
+
+    /**
+     * 按 SSE 格式编码：可选 id、event 字段，多行 data 按行拆分，每行独立写入 "data: ..."，以空行结束。
+     */
+    public byte[] encode() {
+        StringBuilder sb = new StringBuilder(data.length() + 32);
+        if (id != null && !id.isEmpty()) {
+            sb.append("id: ").append(id).append('\n');
+        }
+        if (event != null && !event.isEmpty()) {
+            sb.append("event: ").append(event).append('\n');
+        }
+        int start = 0;
+        while (true) {
+            int nl = data.indexOf('\n', start);
+            sb.append("data: ").append(data, start, nl < 0 ? data.length() : nl).append('\n');
+            if (nl < 0) {
+                break;
+            }
+            start = nl + 1;
+        }
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,201 @@
+package yueyang.vostok.web.sse;
+
+import yueyang.vostok.web.core.VKMetrics;
+import yueyang.vostok.web.http.VKRequest;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SSE 主题中心：按主题管理订阅连接，发布的事件只编码一次后投递到所有订阅者。
+ *
+ * - 事件 id 为 "纪元-序号"：纪元取主题创建时间，序号按发布顺序分配（1, 2, 3 ...），客户端断线重连时浏览器自动带上 Last-Event-ID
+ * - 每个主题保留最近 replaySize 个事件的环形缓冲，重连时补发 Last-Event-ID 之后仍在缓冲中的事件；
+ *   纪元不符的 id（进程重启或主题重建之前分配的）不补发，避免按无关的序号重放
+ * - 有发送组的连接（内建引擎中即 reactor）按组合并为一个任务投递，每个 reactor 只需一次跨线程投递
+ * - 连接待发送字节超过上限（VKWebConfig.sseMaxPendingBytes）时丢弃新事件并计入主题的 dropped
+ *
+ * 发布与订阅在主题内串行化：重放与实时事件之间不会遗漏或重复。
+ */
+public final class VKSseHub {
+    private final int defaultReplaySize;
+    private final ConcurrentHashMap<String, Topic> topics = new ConcurrentHashMap<>();
+
+    public VKSseHub(int defaultReplaySize) {
+        this.defaultReplaySize = Math.max(0, defaultReplaySize);
+    }
+
+    /**
+     * 创建主题并指定重放缓冲大小；主题已存在时不做修改。
+     */
+    public void createTopic(String topic, int replaySize) {
+        if (topic != null) {
+            topics.computeIfAbsent(topic, t -> new Topic(t, replaySize));
+        }
+    }
+
+    /**
+     * 订阅主题，Last-Event-ID 取自请求头（或查询参数 lastEventId，便于不能设置请求头的客户端）。
+     *
+     * @return 补发的事件数
+     */
+    public int subscribe(String topic, VKRequest req, VKSseEmitter emitter) {
+        String lastEventId = req == null ? null : req.header("Last-Event-ID");
+        if ((lastEventId == null || lastEventId.isEmpty()) && req != null) {
+            lastEventId = req.queryParam("lastEventId");
+        }
+        return subscribe(topic, emitter, lastEventId);
+    }
+
+    /**
+     * 订阅主题；lastEventId 非空时先补发其后仍在重放缓冲中的事件。连接关闭时自动退订。
+     *
+     * @return 补发的事件数
+     */
+    public int subscribe(String topic, VKSseEmitter emitter, String lastEventId) {
+        if (topic == null || emitter == null || !emitter.isOpen()) {
+            return 0;
+        }
+        Topic t = topic(topic);
+        int replayed;
+        synchronized (t) {
+            replayed = t.replay(emitter, lastEventId);
+            t.subscribers.add(emitter);
+        }
+        emitter.onClose(() -> t.subscribers.remove(emitter));
+        return replayed;
+    }
+
+    public int publish(String topic, String data) {
+        return publish(topic, null, data);
+    }
+
+    /**
+     * 向主题的所有订阅者发布事件。
+     *
+     * @return 投递的订阅者数（被丢弃的事件计入主题的 dropped，不影响返回值）
+     */
+    public int publish(String topic, String event, String data) {
+        if (topic == null) {
+            return 0;
+        }
+        Topic t = topic(topic);
+        synchronized (t) {
+            return t.publish(event, data);
+        }
+    }
+
+    /** 主题当前订阅者数，主题不存在时为 0。 */
+    public int subscribers(String topic) {
+        Topic t = topic == null ? null : topics.get(topic);
+        return t == null ? 0 : t.subscribers.size();
+    }
+
+    /** 各主题的统计快照，按主题名排序。 */
+    public List<VKMetrics.SseTopicStats> stats() {
+        List<VKMetrics.SseTopicStats> out = new ArrayList<>(topics.size());
+        for (Topic t : topics.values()) {
+            out.add(new VKMetrics.SseTopicStats(t.name, t.subscribers.size(), t.published.sum(),
+                    t.dropped.sum(), t.replayed.sum()));
+        }
+        out.sort((a, b) -> a.topic().compareTo(b.topic()));
+        return out;
+    }
+
+    private Topic topic(String name) {
+        Topic t = topics.get(name);
+        return t != null ? t : topics.computeIfAbsent(name, n -> new Topic(n, defaultReplaySize));
+    }
+
+    private static final class Topic {
+        private final String name;
+        /** 环形缓冲，序号 seq 的事件位于 seq % ring.length。 */
+        private final VKSseEvent[] ring;
+        private final Set<VKSseEmitter> subscribers = ConcurrentHashMap.newKeySet();
+        private final LongAdder published = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder replayed = new LongAdder();
+        /** 事件 id 前缀（纪元 + '-'），区分不同进程或主题实例分配的序号。 */
+        private final String idPrefix;
+        /** 下一个事件序号，只在持有主题锁时访问。 */
+        private long nextSeq = 1;
+
+        Topic(String name, int replaySize) {
+            this.name = name;
+            this.ring = new VKSseEvent[Math.max(0, replaySize)];
+            this.idPrefix = Long.toString(System.currentTimeMillis(), 36) + '-';
+        }
+
+        int publish(String event, String data) {
+            long seq = nextSeq++;
+            VKSseEvent e = new VKSseEvent(event, data, idPrefix + seq);
+            if (ring.length > 0) {
+                ring[(int) (seq % ring.length)] = e;
+            }
+            published.increment();
+            // 同一发送组的订阅者合并为一个任务，在组线程中逐个入队
+            Map<Executor, List<VKSseEmitter>> byGroup = new IdentityHashMap<>();
+            int sent = 0;
+            for (VKSseEmitter s : subscribers) {
+                if (!s.isOpen()) {
+                    subscribers.remove(s);
+                    continue;
+                }
+                sent++;
+                Executor group = s.sendGroup();
+                if (group == null) {
+                    deliver(s, e);
+                } else {
+                    byGroup.computeIfAbsent(group, g -> new ArrayList<>()).add(s);
+                }
+            }
+            for (Map.Entry<Executor, List<VKSseEmitter>> g : byGroup.entrySet()) {
+                List<VKSseEmitter> batch = g.getValue();
+                g.getKey().execute(() -> {
+                    for (VKSseEmitter s : batch) {
+                        deliver(s, e);
+                    }
+                });
+            }
+            return sent;
+        }
+
+        /** 补发 lastEventId 之后仍在缓冲中的事件；id 不是本主题（本纪元）分配的序号时不补发。 */
+        int replay(VKSseEmitter emitter, String lastEventId) {
+            if (ring.length == 0 || lastEventId == null) {
+                return 0;
+            }
+            String id = lastEventId.trim();
+            if (!id.startsWith(idPrefix)) {
+                return 0;
+            }
+            long last;
+            try {
+                last = Long.parseLong(id.substring(idPrefix.length()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+            long from = Math.max(last + 1, Math.max(1, nextSeq - ring.length));
+            int n = 0;
+            for (long seq = from; seq < nextSeq; seq++) {
+                if (emitter.send(ring[(int) (seq % ring.length)])) {
+                    n++;
+                }
+            }
+            replayed.add(n);
+            return n;
+        }
+
+        private void deliver(VKSseEmitter s, VKSseEvent e) {
+            if (!s.send(e) && s.isOpen()) {
+                dropped.increment();
+            }
+        }
+    }
+}
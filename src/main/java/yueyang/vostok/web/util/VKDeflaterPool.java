@@ -0,0 +1,71 @@
+package yueyang.vostok.web.util;
+
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 单线程 raw deflate（nowrap）Deflater/Inflater 池，由每个 reactor 独占。
+ *
+ * Deflater/Inflater 持有本地 zlib 内存，逐个创建再依赖 GC 释放代价较高；
+ * 归还时 reset 后复用，超出 maxPooled 的实例直接 end() 释放本地内存。
+ */
+public final class VKDeflaterPool {
+    private final int level;
+    private final int maxPooled;
+    private final ArrayDeque<Deflater> deflaters;
+    private final ArrayDeque<Inflater> inflaters;
+
+    public VKDeflaterPool(int level, int maxPooled) {
+        this.level = level;
+        this.maxPooled = Math.max(1, maxPooled);
+        this.deflaters = new ArrayDeque<>(this.maxPooled);
+        this.inflaters = new ArrayDeque<>(this.maxPooled);
+    }
+
+    public Deflater acquireDeflater() {
+        Deflater d = deflaters.pollFirst();
+        return d != null ? d : new Deflater(level, true);
+    }
+
+    public void releaseDeflater(Deflater d) {
+        if (d == null) {
+            return;
+        }
+        if (deflaters.size() >= maxPooled) {
+            d.end();
+            return;
+        }
+        d.reset();
+        deflaters.addFirst(d);
+    }
+
+    public Inflater acquireInflater() {
+        Inflater i = inflaters.pollFirst();
+        return i != null ? i : new Inflater(true);
+    }
+
+    public void releaseInflater(Inflater i) {
+        if (i == null) {
+            return;
+        }
+        if (inflaters.size() >= maxPooled) {
+            i.end();
+            return;
+        }
+        i.reset();
+        inflaters.addFirst(i);
+    }
+
+    /** 释放池中全部实例的本地内存（reactor 退出时调用）。 */
+    public void clear() {
+        Deflater d;
+        while ((d = deflaters.pollFirst()) != null) {
+            d.end();
+        }
+        Inflater i;
+        while ((i = inflaters.pollFirst()) != null) {
+            i.end();
+        }
+    }
+}
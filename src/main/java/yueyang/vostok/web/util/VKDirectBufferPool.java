@@ -0,0 +1,66 @@
+package yueyang.vostok.web.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 单线程直接缓冲池，由每个 reactor 独占，供 TLS wrap/unwrap 复用 packet/application 缓冲。
+ *
+ * 与 VKBufferPool 的区别：
+ * - 只在所属 reactor 线程内使用，不做任何同步
+ * - 池内最多创建 maxPooled 个直接缓冲；超出后临时分配堆缓冲，避免直接内存随突发流量膨胀
+ * - 记录命中/未命中次数，由 VKMetrics 汇总展示
+ */
+public final class VKDirectBufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free;
+    /** 已创建的池化直接缓冲数量（包括借出中的）。 */
+    private int created;
+    /** 仅 reactor 线程写入，volatile 保证 metrics 线程读到最新值。 */
+    private volatile long hits;
+    private volatile long misses;
+
+    public VKDirectBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = Math.max(1, maxPooled);
+        this.free = new ArrayDeque<>(this.maxPooled);
+    }
+
+    /** 借出一个已 clear 的缓冲，容量为 bufferSize。 */
+    public ByteBuffer acquire() {
+        ByteBuffer buf = free.pollFirst();
+        if (buf != null) {
+            hits++;
+            buf.clear();
+            return buf;
+        }
+        misses++;
+        if (created < maxPooled) {
+            created++;
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        return ByteBuffer.allocate(bufferSize);
+    }
+
+    /** 归还缓冲；堆缓冲或容量不符的缓冲直接丢弃。 */
+    public void release(ByteBuffer buf) {
+        if (buf == null || !buf.isDirect() || buf.capacity() != bufferSize || free.size() >= maxPooled) {
+            return;
+        }
+        buf.clear();
+        free.addFirst(buf);
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+}
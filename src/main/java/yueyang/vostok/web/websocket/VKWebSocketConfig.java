@@ -8,6 +8,12 @@ public final class VKWebSocketConfig {
     private int pingIntervalMs = 30_000;
     private int pongTimeoutMs = 10_000;
     private int idleTimeoutMs = 120_000;
+    private VKWsSlowConsumerPolicy slowConsumerPolicy = VKWsSlowConsumerPolicy.DISCONNECT;
+    private boolean perMessageDeflate = false;
+    private int deflateThresholdBytes = 256;
+    private boolean serverNoContextTakeover = false;
+    private boolean clientNoContextTakeover = false;
+    private int clientMaxWindowBits = 15;
     private VKWsHandshakeAuthenticator handshakeAuthenticator = VKWsHandshakeAuthenticator.allowAll();
     private VKWsHandshakeHook handshakeHook = VKWsHandshakeHook.noop();
 
@@ -74,6 +80,69 @@ public final class VKWebSocketConfig {
         return this;
     }
 
+    public VKWsSlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    /** 待发送队列超过 maxPendingFrames / maxPendingBytes 时对新数据帧的处理方式。 */
+    public VKWebSocketConfig slowConsumerPolicy(VKWsSlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = slowConsumerPolicy == null ? VKWsSlowConsumerPolicy.DISCONNECT : slowConsumerPolicy;
+        return this;
+    }
+
+    public boolean isPerMessageDeflate() {
+        return perMessageDeflate;
+    }
+
+    /** 启用 permessage-deflate（RFC 7692）；仅在客户端握手时提供该扩展才会生效。 */
+    public VKWebSocketConfig perMessageDeflate(boolean perMessageDeflate) {
+        this.perMessageDeflate = perMessageDeflate;
+        return this;
+    }
+
+    public int getDeflateThresholdBytes() {
+        return deflateThresholdBytes;
+    }
+
+    /** 负载小于该字节数的数据帧不压缩直接发送。 */
+    public VKWebSocketConfig deflateThresholdBytes(int deflateThresholdBytes) {
+        this.deflateThresholdBytes = Math.max(0, deflateThresholdBytes);
+        return this;
+    }
+
+    public boolean isServerNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    /**
+     * 服务端每条消息独立压缩（不跨消息保留字典）。
+     * 压缩率略降，但连接不再独占 Deflater，且广播帧的压缩结果可在连接间共享。
+     */
+    public VKWebSocketConfig serverNoContextTakeover(boolean serverNoContextTakeover) {
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        return this;
+    }
+
+    public boolean isClientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    /** 要求客户端每条消息独立压缩，服务端因此无需为连接常驻 Inflater。 */
+    public VKWebSocketConfig clientNoContextTakeover(boolean clientNoContextTakeover) {
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        return this;
+    }
+
+    public int getClientMaxWindowBits() {
+        return clientMaxWindowBits;
+    }
+
+    /** 客户端压缩窗口上限（8~15），仅在客户端声明支持 client_max_window_bits 时下发。 */
+    public VKWebSocketConfig clientMaxWindowBits(int clientMaxWindowBits) {
+        this.clientMaxWindowBits = Math.min(15, Math.max(8, clientMaxWindowBits));
+        return this;
+    }
+
     public VKWsHandshakeAuthenticator getHandshakeAuthenticator() {
         return handshakeAuthenticator;
     }
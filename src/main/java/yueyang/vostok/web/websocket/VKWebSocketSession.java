@@ -18,6 +18,9 @@ public final class VKWebSocketSession {
     private final Runnable closeAction;
     private final VKWsRegistry registry;
     private final ConcurrentHashMap<String, Object> attributes;
+    /** 所属发送组与组线程内的直接发送入口；为 null 时广播退化为逐个 sender 投递。 */
+    private final VKWsSendGroup sendGroup;
+    private final Consumer<VKWsFrame> groupSender;
 
     public VKWebSocketSession(String id,
                               String path,
@@ -28,6 +31,24 @@ public final class VKWebSocketSession {
                               Runnable closeAction,
                               VKWsRegistry registry,
                               Map<String, Object> attributes) {
+        this(id, path, traceId, remoteAddress, openSupplier, sender, closeAction, registry, attributes, null, null);
+    }
+
+    /**
+     * @param sendGroup   会话所属的发送组（如连接所在的 reactor）
+     * @param groupSender 只能在 sendGroup 线程中调用的发送入口，广播时由组任务直接调用
+     */
+    public VKWebSocketSession(String id,
+                              String path,
+                              String traceId,
+                              InetSocketAddress remoteAddress,
+                              Supplier<Boolean> openSupplier,
+                              Consumer<VKWsFrame> sender,
+                              Runnable closeAction,
+                              VKWsRegistry registry,
+                              Map<String, Object> attributes,
+                              VKWsSendGroup sendGroup,
+                              Consumer<VKWsFrame> groupSender) {
         this.id = id;
         this.path = path;
         this.traceId = traceId;
@@ -36,6 +57,8 @@ public final class VKWebSocketSession {
         this.sender = sender;
         this.closeAction = closeAction;
         this.registry = registry;
+        this.sendGroup = groupSender == null ? null : sendGroup;
+        this.groupSender = groupSender;
         this.attributes = new ConcurrentHashMap<>();
         if (attributes != null && !attributes.isEmpty()) {
             this.attributes.putAll(attributes);
@@ -71,6 +94,22 @@ public final class VKWebSocketSession {
         sender.accept(VKWsFrame.binary(data == null ? new byte[0] : data));
     }
 
+    /** 发送已构造好的帧；广播时所有会话共享同一个帧对象，编码结果随之共享。 */
+    public void send(VKWsFrame frame) {
+        if (frame != null) {
+            sender.accept(frame);
+        }
+    }
+
+    VKWsSendGroup sendGroup() {
+        return sendGroup;
+    }
+
+    /** 在 sendGroup 线程中直接发送（由广播的组任务调用）。 */
+    void sendInGroup(VKWsFrame frame) {
+        groupSender.accept(frame);
+    }
+
     public void ping(byte[] payload) {
         sender.accept(VKWsFrame.ping(payload == null ? new byte[0] : payload));
     }
@@ -1,5 +1,8 @@
 package yueyang.vostok.web.websocket;
 
+import java.nio.ByteBuffer;
+import java.util.function.UnaryOperator;
+
 public final class VKWsFrame {
     public static final int OPCODE_CONTINUATION = 0x0;
     public static final int OPCODE_TEXT = 0x1;
@@ -10,6 +13,10 @@ public final class VKWsFrame {
 
     private final int opcode;
     private final byte[] payload;
+    /** 编码结果缓存：广播时同一帧被所有会话引用，只编码一次。 */
+    private volatile ByteBuffer encoded;
+    /** 压缩编码缓存（RSV1 置位），仅在无上下文接管时可跨连接共享。 */
+    private volatile ByteBuffer deflated;
 
     private VKWsFrame(int opcode, byte[] payload) {
         this.opcode = opcode;
@@ -24,11 +31,48 @@ public final class VKWsFrame {
         return payload;
     }
 
+    /** 是否为数据帧（text/binary/continuation），控制帧之外的帧受慢消费者策略约束。 */
+    public boolean isData() {
+        return opcode == OPCODE_TEXT || opcode == OPCODE_BINARY || opcode == OPCODE_CONTINUATION;
+    }
+
+    /**
+     * 编码后的只读缓冲，首次调用时编码并缓存。
+     * 返回的缓冲被多个连接共享，写出方必须 duplicate() 后再消费。
+     */
+    public ByteBuffer encodedBuffer() {
+        ByteBuffer b = encoded;
+        if (b == null) {
+            // 并发首次调用最多重复编码一次，结果相同
+            b = ByteBuffer.wrap(encode()).asReadOnlyBuffer();
+            encoded = b;
+        }
+        return b;
+    }
+
+    /**
+     * permessage-deflate 编码后的只读缓冲，首次调用时用 compressor 压缩负载并缓存。
+     * 只有压缩结果与连接无关（server_no_context_takeover）时才可调用，否则应逐连接 {@link #encode(int, boolean, byte[])}。
+     */
+    public ByteBuffer deflatedBuffer(UnaryOperator<byte[]> compressor) {
+        ByteBuffer b = deflated;
+        if (b == null) {
+            b = ByteBuffer.wrap(encode(opcode, true, compressor.apply(payload))).asReadOnlyBuffer();
+            deflated = b;
+        }
+        return b;
+    }
+
     public byte[] encode() {
+        return encode(opcode, false, payload);
+    }
+
+    /** 编码单个 FIN 帧；rsv1 表示负载已按 permessage-deflate 压缩。 */
+    public static byte[] encode(int opcode, boolean rsv1, byte[] payload) {
         int len = payload.length;
         int head = 2 + (len >= 126 && len <= 65535 ? 2 : (len > 65535 ? 8 : 0));
         byte[] out = new byte[head + len];
-        out[0] = (byte) (0x80 | (opcode & 0x0F));
+        out[0] = (byte) (0x80 | (rsv1 ? 0x40 : 0) | (opcode & 0x0F));
         int p = 1;
         if (len < 126) {
             out[p++] = (byte) len;
@@ -1,8 +1,10 @@
 package yueyang.vostok.web.websocket;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -99,193 +101,166 @@ public final class VKWsRegistry {
     }
 
     public int broadcastAllText(String path, String text) {
-        String p = normalize(path);
-        Map<String, VKWebSocketSession> sessions = sessionsByPath.get(p);
-        if (sessions == null || sessions.isEmpty()) {
-            return 0;
-        }
-        int sent = 0;
-        // Perf2：直接迭代 entrySet 快照，避免创建 Stream 和中间 VKWsCandidate 对象
-        for (Map.Entry<String, VKWebSocketSession> e : List.copyOf(sessions.entrySet())) {
-            if (sendText(e.getValue(), text)) {
-                sent++;
-            } else {
-                unregister(p, e.getKey());
-            }
-        }
-        return sent;
+        return broadcastAll(path, textFrame(text));
     }
 
     public int broadcastAllBinary(String path, byte[] data) {
-        String p = normalize(path);
-        Map<String, VKWebSocketSession> sessions = sessionsByPath.get(p);
-        if (sessions == null || sessions.isEmpty()) {
-            return 0;
-        }
-        int sent = 0;
-        for (Map.Entry<String, VKWebSocketSession> e : List.copyOf(sessions.entrySet())) {
-            if (sendBinary(e.getValue(), data)) {
-                sent++;
-            } else {
-                unregister(p, e.getKey());
-            }
-        }
-        return sent;
+        return broadcastAll(path, binaryFrame(data));
     }
 
     public int broadcastRoomBinary(String path, String room, byte[] data) {
-        if (isBlank(room)) {
-            return 0;
-        }
-        String p = normalize(path);
-        Set<String> ids = snapshot(roomsByPath.get(p), room);
-        return sendBinaryByIds(p, ids, data);
+        return broadcastRoom(path, room, binaryFrame(data));
     }
 
     public int broadcastGroupBinary(String path, String group, byte[] data) {
-        if (isBlank(group)) {
-            return 0;
-        }
-        String p = normalize(path);
-        Set<String> ids = snapshot(groupsByPath.get(p), group);
-        return sendBinaryByIds(p, ids, data);
+        return broadcastGroup(path, group, binaryFrame(data));
     }
 
     public int broadcastRoomAndGroupBinary(String path, String room, String group, byte[] data) {
-        if (isBlank(room) || isBlank(group)) {
-            return 0;
-        }
+        return broadcastRoomAndGroup(path, room, group, binaryFrame(data));
+    }
+
+    public int broadcastRoomText(String path, String room, String text) {
+        return broadcastRoom(path, room, textFrame(text));
+    }
+
+    public int broadcastGroupText(String path, String group, String text) {
+        return broadcastGroup(path, group, textFrame(text));
+    }
+
+    public int broadcastRoomAndGroupText(String path, String room, String group, String text) {
+        return broadcastRoomAndGroup(path, room, group, textFrame(text));
+    }
+
+    /**
+     * 向路径下全部会话广播同一帧。
+     * 帧只编码一次，所有连接的待发送队列引用同一只读缓冲；会话按发送组（reactor）分批投递。
+     */
+    public int broadcastAll(String path, VKWsFrame frame) {
         String p = normalize(path);
-        Set<String> roomIds = snapshot(roomsByPath.get(p), room);
-        Set<String> groupIds = snapshot(groupsByPath.get(p), group);
-        if (roomIds.isEmpty() || groupIds.isEmpty()) {
+        Map<String, VKWebSocketSession> sessions = sessionsByPath.get(p);
+        if (sessions == null || sessions.isEmpty()) {
             return 0;
         }
-        Set<String> small = roomIds.size() <= groupIds.size() ? roomIds : groupIds;
-        Set<String> large = Objects.equals(small, roomIds) ? groupIds : roomIds;
-        int sent = 0;
-        for (String id : small) {
-            if (!large.contains(id)) {
-                continue;
-            }
-            VKWebSocketSession session = session(p, id);
-            if (session == null || !session.isOpen()) {
-                unregister(p, id);
-                continue;
-            }
-            if (sendBinary(session, data)) {
-                sent++;
-            } else {
-                unregister(p, id);
-            }
+        // ConcurrentHashMap 迭代弱一致，迭代中注销会话是安全的，无需先复制快照
+        Fanout fanout = new Fanout(p, frame);
+        for (VKWebSocketSession session : sessions.values()) {
+            fanout.add(session);
         }
-        return sent;
+        return fanout.flush();
     }
 
-    public int broadcastRoomText(String path, String room, String text) {
+    public int broadcastRoom(String path, String room, VKWsFrame frame) {
         if (isBlank(room)) {
             return 0;
         }
         String p = normalize(path);
-        Set<String> ids = snapshot(roomsByPath.get(p), room);
-        return sendByIds(p, ids, text);
+        return sendByIds(p, index(roomsByPath.get(p), room), frame);
     }
 
-    public int broadcastGroupText(String path, String group, String text) {
+    public int broadcastGroup(String path, String group, VKWsFrame frame) {
         if (isBlank(group)) {
             return 0;
         }
         String p = normalize(path);
-        Set<String> ids = snapshot(groupsByPath.get(p), group);
-        return sendByIds(p, ids, text);
+        return sendByIds(p, index(groupsByPath.get(p), group), frame);
     }
 
-    public int broadcastRoomAndGroupText(String path, String room, String group, String text) {
+    public int broadcastRoomAndGroup(String path, String room, String group, VKWsFrame frame) {
         if (isBlank(room) || isBlank(group)) {
             return 0;
         }
         String p = normalize(path);
-        Set<String> roomIds = snapshot(roomsByPath.get(p), room);
-        Set<String> groupIds = snapshot(groupsByPath.get(p), group);
+        Set<String> roomIds = index(roomsByPath.get(p), room);
+        Set<String> groupIds = index(groupsByPath.get(p), group);
         if (roomIds.isEmpty() || groupIds.isEmpty()) {
             return 0;
         }
         Set<String> small = roomIds.size() <= groupIds.size() ? roomIds : groupIds;
-        Set<String> large = Objects.equals(small, roomIds) ? groupIds : roomIds;
-        int sent = 0;
+        Set<String> large = small == roomIds ? groupIds : roomIds;
+        Fanout fanout = new Fanout(p, frame);
         for (String id : small) {
-            if (!large.contains(id)) {
-                continue;
-            }
-            VKWebSocketSession session = session(p, id);
-            if (session == null || !session.isOpen()) {
-                unregister(p, id);
-                continue;
-            }
-            if (sendText(session, text)) {
-                sent++;
-            } else {
-                unregister(p, id);
+            if (large.contains(id)) {
+                fanout.add(id, session(p, id));
             }
         }
-        return sent;
+        return fanout.flush();
     }
 
-    private int sendBinaryByIds(String path, Set<String> ids, byte[] data) {
+    private int sendByIds(String path, Set<String> ids, VKWsFrame frame) {
         if (ids.isEmpty()) {
             return 0;
         }
-        int sent = 0;
+        Fanout fanout = new Fanout(path, frame);
         for (String id : ids) {
-            VKWebSocketSession session = session(path, id);
-            if (session == null || !session.isOpen()) {
-                unregister(path, id);
-                continue;
-            }
-            if (sendBinary(session, data)) {
-                sent++;
-            } else {
-                unregister(path, id);
-            }
+            fanout.add(id, session(path, id));
         }
-        return sent;
+        return fanout.flush();
     }
 
-    private int sendByIds(String path, Set<String> ids, String text) {
-        if (ids.isEmpty()) {
-            return 0;
+    private static VKWsFrame textFrame(String text) {
+        return VKWsFrame.text(text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static VKWsFrame binaryFrame(byte[] data) {
+        return VKWsFrame.binary(data == null ? new byte[0] : data);
+    }
+
+    /**
+     * 一次广播的分发器：有发送组的会话按组收集，flush 时每组投递一个任务；
+     * 没有发送组的会话（第三方引擎）直接经各自的 sender 发送。
+     */
+    private final class Fanout {
+        private final String path;
+        private final VKWsFrame frame;
+        private final Map<VKWsSendGroup, List<VKWebSocketSession>> byGroup = new IdentityHashMap<>();
+        private int sent;
+
+        Fanout(String path, VKWsFrame frame) {
+            this.path = path;
+            this.frame = frame;
         }
-        int sent = 0;
-        for (String id : ids) {
-            VKWebSocketSession session = session(path, id);
-            if (session == null || !session.isOpen()) {
-                unregister(path, id);
-                continue;
-            }
-            if (sendText(session, text)) {
-                sent++;
-            } else {
+
+        void add(String id, VKWebSocketSession session) {
+            if (session == null) {
                 unregister(path, id);
+                return;
             }
+            add(session);
         }
-        return sent;
-    }
 
-    private static boolean sendText(VKWebSocketSession session, String text) {
-        try {
-            session.sendText(text);
-            return true;
-        } catch (Throwable e) {
-            return false;
+        void add(VKWebSocketSession session) {
+            if (!session.isOpen()) {
+                unregister(path, session.id());
+                return;
+            }
+            VKWsSendGroup group = session.sendGroup();
+            if (group == null) {
+                try {
+                    session.send(frame);
+                    sent++;
+                } catch (Throwable e) {
+                    unregister(path, session.id());
+                }
+                return;
+            }
+            byGroup.computeIfAbsent(group, g -> new ArrayList<>()).add(session);
+            sent++;
         }
-    }
 
-    private static boolean sendBinary(VKWebSocketSession session, byte[] data) {
-        try {
-            session.sendBinary(data);
-            return true;
-        } catch (Throwable e) {
-            return false;
+        int flush() {
+            for (Map.Entry<VKWsSendGroup, List<VKWebSocketSession>> e : byGroup.entrySet()) {
+                List<VKWebSocketSession> batch = e.getValue();
+                e.getKey().execute(() -> {
+                    for (VKWebSocketSession s : batch) {
+                        try {
+                            s.sendInGroup(frame);
+                        } catch (Throwable ignore) {
+                        }
+                    }
+                });
+            }
+            return sent;
         }
     }
 
@@ -305,7 +280,8 @@ public final class VKWsRegistry {
         return members.get(sessionId);
     }
 
-    private static Set<String> snapshot(Map<String, Set<String>> index, String key) {
+    /** 房间/分组的成员集合（并发集合，弱一致迭代，不复制）。 */
+    private static Set<String> index(Map<String, Set<String>> index, String key) {
         if (index == null || key == null) {
             return Set.of();
         }
@@ -313,7 +289,7 @@ public final class VKWsRegistry {
         if (set == null || set.isEmpty()) {
             return Set.of();
         }
-        return Set.copyOf(set);
+        return set;
     }
 
     private static void removeIndex(Map<String, Set<String>> index, String key, String sessionId) {
@@ -349,7 +325,4 @@ public final class VKWsRegistry {
         private final Set<String> rooms = ConcurrentHashMap.newKeySet();
         private final Set<String> groups = ConcurrentHashMap.newKeySet();
     }
-
-    private record VKWsCandidate(VKWebSocketSession session, String sessionId) {
-    }
 }
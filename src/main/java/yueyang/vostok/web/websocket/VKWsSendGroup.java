@@ -0,0 +1,13 @@
+package yueyang.vostok.web.websocket;
+
+/**
+ * 会话所属的发送线程组（内建引擎中即连接所在的 reactor）。
+ *
+ * 广播时同一组的会话合并为一个任务投递，组线程中再逐个入队，
+ * 每个组只需一次跨线程投递与一次唤醒。
+ */
+@FunctionalInterface
+public interface VKWsSendGroup {
+    /** 在组线程中执行任务。 */
+    void execute(Runnable task);
+}
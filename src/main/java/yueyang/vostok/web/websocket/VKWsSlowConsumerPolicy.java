@@ -0,0 +1,14 @@
+package yueyang.vostok.web.websocket;
+
+/**
+ * 慢消费者策略：会话待发送帧数或字节数超过 maxPendingFrames / maxPendingBytes 时如何处理新的数据帧。
+ * 控制帧（ping/pong/close）不受该策略约束。
+ */
+public enum VKWsSlowConsumerPolicy {
+    /** 以 1008 Backpressure 关闭连接（默认）。 */
+    DISCONNECT,
+    /** 丢弃新帧，已排队的帧照常发送。 */
+    DROP,
+    /** 丢弃尚未开始发送的排队数据帧，只保留最新一帧（适合行情、状态快照等只关心最新值的推送）。 */
+    COALESCE
+}
@@ -0,0 +1,162 @@
+package yueyang.vostok;
+
+import org.junit.jupiter.api.Test;
+
+import yueyang.vostok.data.VKDataConfig;
+import yueyang.vostok.data.core.VKFieldCrypto;
+import yueyang.vostok.data.meta.EntityMeta;
+import yueyang.vostok.data.meta.EntityRowMapper;
+import yueyang.vostok.data.meta.FieldMeta;
+import yueyang.vostok.data.meta.MetaRegistry;
+import yueyang.vostok.data.sql.SqlTemplate;
+import yueyang.vostok.data.type.VKTypeMapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 行映射 / 参数绑定基准：反射路径（原 JdbcExecutor.mapRow / SqlTemplate.bindEntity 实现）对比编译路径。
+ */
+public class MapperBenchmarkTest {
+    @Test
+    void benchmarkRowMapper() throws Exception {
+        assumeTrue(Boolean.getBoolean("vostok.bench"), "Skip benchmark by default");
+
+        int rows = Integer.getInteger("bench.rows", 10000);
+        int loops = Integer.getInteger("bench.loops", 50);
+        int warmup = Integer.getInteger("bench.warmup", 10);
+
+        VKDataConfig cfg = new VKDataConfig();
+        EntityMeta meta = MetaRegistry.get(UserEntity.class);
+        List<FieldMeta> fields = meta.getFields();
+        String sql = "SELECT id, user_name, age FROM t_user";
+
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:bench_mapper;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "")) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS t_user");
+                st.execute("CREATE TABLE t_user (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(64), age INT)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO t_user (user_name, age) VALUES (?, ?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ps.setString(1, "user-" + i);
+                    ps.setInt(2, i % 100);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+
+            for (int i = 0; i < warmup; i++) {
+                reflectiveQuery(conn, sql, meta, fields, cfg);
+                compiledQuery(conn, sql, meta, fields, cfg);
+            }
+            long reflective = 0;
+            long compiled = 0;
+            for (int i = 0; i < loops; i++) {
+                long t0 = System.nanoTime();
+                reflectiveQuery(conn, sql, meta, fields, cfg);
+                long t1 = System.nanoTime();
+                compiledQuery(conn, sql, meta, fields, cfg);
+                reflective += t1 - t0;
+                compiled += System.nanoTime() - t1;
+            }
+            report("RowMapper", (long) rows * loops, reflective, compiled);
+        }
+    }
+
+    @Test
+    void benchmarkBinder() {
+        assumeTrue(Boolean.getBoolean("vostok.bench"), "Skip benchmark by default");
+
+        int loops = Integer.getInteger("bench.loops", 2_000_000);
+        VKDataConfig cfg = new VKDataConfig();
+        EntityMeta meta = MetaRegistry.get(UserEntity.class);
+        List<FieldMeta> insertFields = new ArrayList<>();
+        for (FieldMeta f : meta.getFields()) {
+            if (!f.isId()) {
+                insertFields.add(f);
+            }
+        }
+        SqlTemplate tpl = new SqlTemplate("UPDATE t_user SET user_name = ?, age = ? WHERE id = ?",
+                insertFields, meta.getIdField(), true, false);
+        UserEntity u = new UserEntity();
+        u.setId(1L);
+        u.setName("bench");
+        u.setAge(18);
+
+        long sink = 0;
+        for (int i = 0; i < loops / 10; i++) {
+            sink += reflectiveBind(u, insertFields, meta.getIdField(), cfg).length;
+            sink += tpl.bindEntity(u, cfg).length;
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            sink += reflectiveBind(u, insertFields, meta.getIdField(), cfg).length;
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            sink += tpl.bindEntity(u, cfg).length;
+        }
+        long t2 = System.nanoTime();
+        report("Binder", loops, t1 - t0, t2 - t1);
+        System.out.println("[Binder] sink=" + sink);
+    }
+
+    private static int reflectiveQuery(Connection conn, String sql, EntityMeta meta, List<FieldMeta> fields,
+                                       VKDataConfig cfg) throws Exception {
+        int n = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            int[] indexes = new int[fields.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = rs.findColumn(fields.get(i).getColumnName());
+            }
+            while (rs.next()) {
+                Object obj = meta.getEntityClass().getDeclaredConstructor().newInstance();
+                for (int i = 0; i < fields.size(); i++) {
+                    FieldMeta field = fields.get(i);
+                    Object value = VKFieldCrypto.decryptRead(field, rs.getObject(indexes[i]), cfg);
+                    field.setValue(obj, VKTypeMapper.fromJdbc(value, field.getField().getType()));
+                }
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static int compiledQuery(Connection conn, String sql, EntityMeta meta, List<FieldMeta> fields,
+                                     VKDataConfig cfg) throws SQLException {
+        int n = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            EntityRowMapper mapper = meta.rowMapper(fields);
+            int[] ordinals = mapper.ordinals(rs);
+            while (rs.next()) {
+                mapper.map(rs, ordinals, cfg);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static Object[] reflectiveBind(Object entity, List<FieldMeta> fields, FieldMeta idField, VKDataConfig cfg) {
+        List<Object> params = new ArrayList<>();
+        for (FieldMeta field : fields) {
+            params.add(VKFieldCrypto.encryptWrite(field, field.getValue(entity), cfg));
+        }
+        params.add(idField.getValue(entity));
+        return params.toArray();
+    }
+
+    private static void report(String name, long ops, long reflectiveNs, long compiledNs) {
+        System.out.println("[" + name + "Benchmark] ops=" + ops
+                + " reflective ns/op=" + String.format("%.1f", (double) reflectiveNs / ops)
+                + " compiled ns/op=" + String.format("%.1f", (double) compiledNs / ops)
+                + " speedup=" + String.format("%.2fx", (double) reflectiveNs / Math.max(1L, compiledNs)));
+    }
+}
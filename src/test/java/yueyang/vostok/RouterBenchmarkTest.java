@@ -0,0 +1,71 @@
+package yueyang.vostok;
+
+import org.junit.jupiter.api.Test;
+
+import yueyang.vostok.web.VKHandler;
+import yueyang.vostok.web.route.VKRouteMatch;
+import yueyang.vostok.web.route.VKRouter;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class RouterBenchmarkTest {
+    @Test
+    void benchmarkTrieVsFrozen() {
+        assumeTrue(Boolean.getBoolean("vostok.bench"), "Skip benchmark by default");
+
+        int groups = Integer.getInteger("bench.routeGroups", 500);
+        int loops = Integer.getInteger("bench.loops", 2_000_000);
+        int warmup = Integer.getInteger("bench.warmup", 500_000);
+
+        VKHandler handler = (req, res) -> res.text("ok");
+        VKRouter trie = new VKRouter();
+        VKRouter frozen = new VKRouter();
+        // 每组 6 条路由，默认约 3000 条，静态与动态各半
+        for (int g = 0; g < groups; g++) {
+            String base = "/api/v1/svc" + g;
+            String[] routes = {
+                    base + "/health", base + "/items", base + "/items/{id}",
+                    base + "/items/{id}/detail", base + "/users/{uid}/orders/{oid}", base + "/static/{*path}"
+            };
+            for (String r : routes) {
+                trie.add("GET", r, handler);
+                frozen.add("GET", r, handler);
+            }
+        }
+        frozen.freeze();
+
+        String[] paths = new String[1024];
+        for (int i = 0; i < paths.length; i++) {
+            int g = (i * 7919) % groups;
+            switch (i % 4) {
+                case 0 -> paths[i] = "/api/v1/svc" + g + "/health";
+                case 1 -> paths[i] = "/api/v1/svc" + g + "/items/" + i;
+                case 2 -> paths[i] = "/api/v1/svc" + g + "/users/" + i + "/orders/" + (i * 3);
+                default -> paths[i] = "/api/v1/svc" + g + "/static/css/app" + i + ".css";
+            }
+        }
+
+        run("trie", trie, paths, warmup);
+        run("frozen", frozen, paths, warmup);
+        double trieOps = run("trie", trie, paths, loops);
+        double frozenOps = run("frozen", frozen, paths, loops);
+        System.out.println("[RouterBenchmark] routes=" + (groups * 6) + " speedup="
+                + String.format("%.2f", frozenOps / trieOps) + "x");
+    }
+
+    private static double run(String name, VKRouter router, String[] paths, int loops) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            VKRouteMatch m = router.match("GET", paths[i & (paths.length - 1)]);
+            sink += m.routePattern().length();
+        }
+        long end = System.nanoTime();
+        double seconds = (end - start) / 1_000_000_000.0;
+        double opsPerSec = loops / seconds;
+        System.out.println("[RouterBenchmark] " + name + " loops=" + loops
+                + " timeSec=" + String.format("%.3f", seconds)
+                + " ops/s=" + String.format("%.2f", opsPerSec) + " sink=" + sink);
+        return opsPerSec;
+    }
+}
@@ -8,6 +8,7 @@ import java.nio.charset.StandardCharsets;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class VKHttpParserTest {
@@ -62,4 +63,65 @@ public class VKHttpParserTest {
         VKHttpParser parser = new VKHttpParser(8192, 1024 * 1024);
         assertTrue(parser.shouldSendContinue(buf, buf.length));
     }
+
+    @Test
+    void testIncrementalStateResumesByteByByte() {
+        String head = "POST /upload?x=1 HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Cookie: a=1; b=2\r\n" +
+                "X-Dup: one\r\n" +
+                "x-dup: two\r\n" +
+                "Content-Length: 5\r\n" +
+                "\r\n";
+        byte[] buf = (head + "hello" + "GET /next HTTP/1.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        VKHttpParser parser = new VKHttpParser(8192, 1024 * 1024);
+        VKHttpParser.State state = new VKHttpParser.State();
+
+        VKHttpParser.ParsedRequest parsed = null;
+        VKHttpParser.ParsedHeaders firstHeaders = null;
+        int len = 0;
+        while (parsed == null) {
+            len++;
+            parsed = parser.parse(state, buf, len, null);
+            VKHttpParser.ParsedHeaders h = parser.parseHeaders(state, buf, len);
+            if (parsed == null && h != null) {
+                // 头部完整后复用同一解析结果，不再重扫
+                if (firstHeaders == null) {
+                    firstHeaders = h;
+                }
+                assertSame(firstHeaders, h);
+            }
+        }
+        assertEquals(head.length() + 5, len);
+        assertEquals(len, parsed.consumed());
+        var req = parsed.request();
+        assertEquals("/upload", req.path());
+        assertEquals("x=1", req.query());
+        assertEquals("hello", req.bodyText());
+        assertEquals("a=1; b=2", req.header("COOKIE"));
+        assertEquals("2", req.cookie("b"));
+        assertEquals("one, two", req.header("x-dup"));
+        assertEquals("one, two", req.headers().get("x-dup"));
+        assertNull(req.header("missing"));
+    }
+
+    @Test
+    void testIncrementalChunkedAcrossReads() {
+        String raw = "POST /chunk HTTP/1.1\r\n" +
+                "Transfer-Encoding: chunked\r\n" +
+                "\r\n" +
+                "3\r\nabc\r\n" +
+                "4\r\ndefg\r\n" +
+                "0\r\n\r\n";
+        byte[] buf = raw.getBytes(StandardCharsets.US_ASCII);
+        VKHttpParser parser = new VKHttpParser(8192, 1024 * 1024);
+        VKHttpParser.State state = new VKHttpParser.State();
+        for (int len = 1; len < buf.length; len++) {
+            assertNull(parser.parse(state, buf, len, null));
+        }
+        var parsed = parser.parse(state, buf, buf.length, null);
+        assertNotNull(parsed);
+        assertEquals("abcdefg", parsed.request().bodyText());
+        assertEquals(buf.length, parsed.consumed());
+    }
 }
@@ -0,0 +1,124 @@
+package yueyang.vostok;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import yueyang.vostok.cache.VKCacheConfig;
+import yueyang.vostok.cache.VKCacheProviderType;
+import yueyang.vostok.web.rate.VKRateLimitAlgorithm;
+import yueyang.vostok.web.rate.VKRateLimitConfig;
+import yueyang.vostok.web.rate.VKRateLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VKRateLimiterTest {
+    @AfterEach
+    void tearDown() {
+        Vostok.Cache.close();
+    }
+
+    @Test
+    void testTokenBucketExactUnderContention() throws Exception {
+        VKRateLimiter limiter = new VKRateLimiter(new VKRateLimitConfig()
+                .capacity(1000).refillTokens(1000).refillPeriodMs(3_600_000));
+        assertEquals(1000, hammer(limiter, 8, 500));
+    }
+
+    @Test
+    void testTokenBucketRefillsPerPeriod() throws Exception {
+        VKRateLimiter limiter = new VKRateLimiter(new VKRateLimitConfig()
+                .capacity(3).refillTokens(2).refillPeriodMs(200));
+        assertTrue(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire(null));
+        assertFalse(limiter.tryAcquire(null));
+        Thread.sleep(250);
+        assertTrue(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire(null));
+        assertFalse(limiter.tryAcquire(null));
+    }
+
+    @Test
+    void testSlidingWindowLimitsAndRecovers() throws Exception {
+        VKRateLimiter limiter = new VKRateLimiter(new VKRateLimitConfig()
+                .algorithm(VKRateLimitAlgorithm.SLIDING_WINDOW)
+                .capacity(5).refillPeriodMs(200));
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.tryAcquire(null)) {
+                allowed++;
+            }
+        }
+        assertEquals(5, allowed);
+        // 两个窗口之后上一窗口计数不再参与估算
+        Thread.sleep(450);
+        allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.tryAcquire(null)) {
+                allowed++;
+            }
+        }
+        assertEquals(5, allowed);
+    }
+
+    @Test
+    void testDistributedQuotaSharedAcrossNodes() throws Exception {
+        Vostok.Cache.init(new VKCacheConfig().providerType(VKCacheProviderType.MEMORY));
+        VKRateLimitConfig config = new VKRateLimitConfig()
+                .capacity(50).refillPeriodMs(3_600_000)
+                .distributed(true).leaseBatch(7).distributedNamespace("rl-test");
+        // 两个实例模拟两个节点共享同一缓存计数
+        VKRateLimiter nodeA = new VKRateLimiter(config);
+        VKRateLimiter nodeB = new VKRateLimiter(config);
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (nodeA.tryAcquire(null)) {
+                allowed++;
+            }
+            if (nodeB.tryAcquire(null)) {
+                allowed++;
+            }
+        }
+        assertEquals(50, allowed);
+    }
+
+    @Test
+    void testDistributedFallsBackToLocalWithoutCache() {
+        VKRateLimiter limiter = new VKRateLimiter(new VKRateLimitConfig()
+                .capacity(2).refillTokens(2).refillPeriodMs(3_600_000).distributed(true));
+        assertTrue(limiter.tryAcquire(null));
+        assertTrue(limiter.tryAcquire(null));
+        assertFalse(limiter.tryAcquire(null));
+    }
+
+    private static int hammer(VKRateLimiter limiter, int threads, int attempts) throws Exception {
+        AtomicInteger allowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread th = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < attempts; i++) {
+                    if (limiter.tryAcquire(null)) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+            th.start();
+            workers.add(th);
+        }
+        start.countDown();
+        for (Thread th : workers) {
+            th.join();
+        }
+        return allowed.get();
+    }
+}
@@ -0,0 +1,87 @@
+package yueyang.vostok;
+
+import org.junit.jupiter.api.Test;
+import yueyang.vostok.web.VKHandler;
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.route.VKRouteMatch;
+import yueyang.vostok.web.route.VKRouter;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VKRouterTest {
+    private static final String[] ROUTES = {
+            "/", "/users", "/users/{id}", "/users/{id}/posts", "/users/me", "/users/{id}/posts/{postId}",
+            "/api/v1/orders/{orderId}/items", "/api/v1/orders/summary", "/files/{*path}", "/files/public/readme",
+            "/shop/:category/list", "/shop/{name}", "/assets/{*}", "/a/{x}/c", "/a/b/{y}/d"
+    };
+
+    private static final String[] PATHS = {
+            "/", "/users", "/users/", "/users/42", "/users/me", "/users/42/posts", "/users/42/posts/7",
+            "/users/42/comments", "/api/v1/orders/9/items", "/api/v1/orders/summary", "/api/v1/orders",
+            "/api/v1", "/files", "/files/a/b/c.txt", "/files/public/readme", "/files/public/other",
+            "/shop/toys/list", "/shop/toys", "/shop/toys/other", "/assets", "/assets/css/site.css",
+            "/a/b/c", "/a/b/x/d", "/a/b/x/e", "/missing", "/users//posts", "users/5"
+    };
+
+    @Test
+    void testFrozenRouterMatchesTrie() {
+        VKRouter trie = build();
+        VKRouter frozen = build();
+        frozen.freeze();
+        assertTrue(frozen.isFrozen());
+        for (String path : PATHS) {
+            VKRouteMatch a = trie.match("GET", path);
+            VKRouteMatch b = frozen.match("GET", path);
+            if (a == null) {
+                assertNull(b, path);
+                continue;
+            }
+            assertNotNull(b, path);
+            assertEquals(a.routePattern(), b.routePattern(), path);
+            assertSame(a.handler(), b.handler(), path);
+            assertEquals(a.params(), b.params(), path);
+        }
+        assertNull(frozen.match("POST", "/users"));
+    }
+
+    @Test
+    void testLazyParamsAndAddAfterFreeze() {
+        VKRouter router = build();
+        router.freeze();
+        VKRouteMatch match = router.match("GET", "/users/42/posts/7");
+        assertTrue(match.hasParamBounds());
+        VKRequest req = new VKRequest("GET", "/users/42/posts/7", null, "HTTP/1.1", null, null, true, null);
+        req.setParams(match);
+        assertEquals("42", req.param("id"));
+        assertEquals("7", req.param("postId"));
+        assertNull(req.param("other"));
+
+        // 静态路由复用同一个预构造结果
+        assertSame(router.match("GET", "/users/me"), router.match("GET", "/users/me"));
+
+        router.add("GET", "/orders/{id}", handler("/orders/{id}"));
+        VKRouteMatch added = router.match("GET", "/orders/5");
+        assertNotNull(added);
+        assertEquals(Map.of("id", "5"), added.params());
+    }
+
+    private static VKRouter build() {
+        VKRouter router = new VKRouter();
+        for (String route : ROUTES) {
+            router.add("GET", route, handler(route));
+        }
+        return router;
+    }
+
+    private static final Map<String, VKHandler> HANDLERS = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private static VKHandler handler(String route) {
+        return HANDLERS.computeIfAbsent(route, r -> (req, res) -> res.text(r));
+    }
+}
@@ -31,10 +31,14 @@ import yueyang.vostok.data.query.VKAggregate;
 import yueyang.vostok.data.query.VKCondition;
 import yueyang.vostok.data.query.VKOrder;
 import yueyang.vostok.data.query.VKOperator;
+import yueyang.vostok.data.query.VKPage;
 import yueyang.vostok.data.query.VKQuery;
 import yueyang.vostok.data.sql.SqlBuilder;
 import yueyang.vostok.data.ds.VKDataSourceRegistry;
 import yueyang.vostok.data.ds.VKDataSourceHolder;
+import yueyang.vostok.data.ds.VKReadRouter;
+import yueyang.vostok.data.pool.VKDataSource;
+import yueyang.vostok.data.pool.VKPoolMetrics;
 
 import java.math.BigDecimal;
 import java.io.PrintWriter;
@@ -312,6 +316,182 @@ public class VostokIntegrationTest {
         assertNull(list.get(0).getAge());
     }
 
+    @Test
+    void testStreamingCursorQueries() {
+        Vostok.Data.batchInsert(List.of(user("A", 10), user("B", 20), user("C", 30), user("D", 40), user("E", 50)));
+        VKQuery q = VKQuery.create()
+                .where(VKCondition.of("age", VKOperator.GE, 20))
+                .orderBy(VKOrder.asc("age"));
+
+        List<String> names = new ArrayList<>();
+        long rows = Vostok.Data.queryEach(UserEntity.class, q, u -> names.add(u.getName()));
+        assertEquals(4, rows);
+        assertEquals(List.of("B", "C", "D", "E"), names);
+
+        try (var stream = Vostok.Data.queryStream(UserEntity.class, null)) {
+            assertEquals(150, stream.mapToInt(UserEntity::getAge).sum());
+        }
+
+        // 提前结束遍历：关闭后连接归还连接池
+        try (var cursor = Vostok.Data.queryCursor(UserEntity.class, q)) {
+            assertTrue(cursor.hasNext());
+            assertEquals("B", cursor.next().getName());
+            assertEquals(1, cursor.rowCount());
+        }
+        assertEquals(0, defaultPoolActive());
+
+        // 游标遍历完自动关闭
+        var cursor = Vostok.Data.queryCursor(UserEntity.class, q);
+        int n = 0;
+        while (cursor.hasNext()) {
+            cursor.next();
+            n++;
+        }
+        assertEquals(4, n);
+        assertTrue(cursor.isClosed());
+        assertEquals(0, defaultPoolActive());
+
+        // 事务内复用事务连接
+        Vostok.Data.tx(() -> {
+            Vostok.Data.insert(user("F", 60));
+            assertEquals(5, Vostok.Data.queryEach(UserEntity.class, q, u -> { }));
+        });
+
+        // PostgreSQL 方言：游标期间临时开启只读事务，结束后恢复自动提交
+        VKDataConfig pgCfg = new VKDataConfig()
+                .url(JDBC_URL)
+                .username("sa")
+                .password("")
+                .driver("org.h2.Driver")
+                .dialect(VKDialectType.POSTGRESQL)
+                .streamFetchSize(2);
+        Vostok.Data.registerDataSource("stream_pg", pgCfg);
+        Vostok.Data.withDataSource("stream_pg", () -> {
+            List<Integer> ages = new ArrayList<>();
+            Vostok.Data.queryEach(UserEntity.class, q, u -> ages.add(u.getAge()));
+            assertEquals(List.of(20, 30, 40, 50, 60), ages);
+            Vostok.Data.insert(user("G", 70));
+        });
+        assertEquals(7, Vostok.Data.findAll(UserEntity.class).size());
+    }
+
+    @Test
+    void testCompiledRowMapperByProjectionAndShape() throws Exception {
+        Vostok.Data.insert(user("A", 10));
+        UserEntity noAge = new UserEntity();
+        noAge.setName("B");
+        Vostok.Data.insert(noAge);
+
+        List<UserEntity> all = Vostok.Data.findAll(UserEntity.class);
+        assertEquals(2, all.size());
+        assertNull(all.stream().filter(u -> "B".equals(u.getName())).findFirst().orElseThrow().getAge());
+
+        List<UserEntity> names = Vostok.Data.queryColumns(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.asc("name")), "name");
+        assertEquals("A", names.get(0).getName());
+        assertNull(names.get(0).getAge());
+        assertNull(names.get(0).getId());
+
+        // 映射器按投影缓存于 EntityMeta
+        var meta = MetaRegistry.get(UserEntity.class);
+        var mapper = meta.rowMapper(meta.getFields());
+        assertSame(mapper, meta.rowMapper(new ArrayList<>(meta.getFields())));
+        assertNotSame(mapper, meta.rowMapper(List.of(meta.getFieldByName("name"))));
+
+        // 列顺序不同的结果集按形状分别解析列序号
+        try (Connection conn = DriverManager.getConnection(JDBC_URL, "sa", "");
+             PreparedStatement ps = conn.prepareStatement("SELECT age, user_name, id FROM t_user WHERE user_name = 'A'");
+             var rs = ps.executeQuery()) {
+            int[] ordinals = mapper.ordinals(rs);
+            assertSame(ordinals, mapper.ordinals(rs));
+            assertTrue(rs.next());
+            UserEntity u = (UserEntity) mapper.map(rs, ordinals, new VKDataConfig());
+            assertEquals("A", u.getName());
+            assertEquals(10, u.getAge());
+            assertNotNull(u.getId());
+        }
+    }
+
+    @Test
+    void testKeysetPagination() {
+        Vostok.Data.batchInsert(List.of(user("A", 10), user("B", 20), user("C", 20), user("D", 30),
+                user("E", 30), user("F", 30), user("G", 40)));
+
+        // 按 age 升序（主键兜底）逐页读取
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            VKPage<UserEntity> page = Vostok.Data.queryPage(UserEntity.class,
+                    VKQuery.create().orderBy(VKOrder.asc("age")).limit(3).seek(cursor));
+            page.getItems().forEach(u -> names.add(u.getName()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(List.of("A", "B", "C", "D", "E", "F", "G"), names);
+        assertEquals(3, pages);
+
+        // 混合方向 + 过滤条件；整页恰好取完时没有下一页
+        VKQuery mixed = VKQuery.create()
+                .where(VKCondition.of("age", VKOperator.GE, 20))
+                .orderBy(VKOrder.desc("age"))
+                .orderBy(VKOrder.asc("name"))
+                .limit(3);
+        VKPage<UserEntity> first = Vostok.Data.queryPage(UserEntity.class, mixed);
+        assertEquals(List.of("G", "D", "E"), first.getItems().stream().map(UserEntity::getName).toList());
+        assertTrue(first.hasNext());
+        VKPage<UserEntity> second = Vostok.Data.queryPage(UserEntity.class, mixed.seek(first.getNextCursor()));
+        assertEquals(List.of("F", "B", "C"), second.getItems().stream().map(UserEntity::getName).toList());
+        assertFalse(second.hasNext());
+
+        // query 同样识别 seek 游标
+        assertEquals(List.of("F", "B", "C"), Vostok.Data.query(UserEntity.class, mixed)
+                .stream().map(UserEntity::getName).toList());
+
+        // 指定列：排序键字段自动加入投影
+        VKPage<UserEntity> cols = Vostok.Data.queryColumnsPage(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.asc("age")).limit(2), "name");
+        assertEquals("A", cols.getItems().get(0).getName());
+        assertEquals(10, cols.getItems().get(0).getAge());
+        assertNotNull(cols.getItems().get(0).getId());
+        assertEquals(List.of("C", "D"), Vostok.Data.queryColumns(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.asc("age")).limit(2).seek(cols.getNextCursor()), "name")
+                .stream().map(UserEntity::getName).toList());
+
+        // 方言：方向一致时 MySQL 用行值比较，Oracle 展开为 OR 条件
+        var meta = MetaRegistry.get(UserEntity.class);
+        VKQuery seekQ = VKQuery.create().orderBy(VKOrder.asc("age")).limit(3).seek(cols.getNextCursor());
+        String mysql = SqlBuilder.buildSelect(meta, seekQ, VKDialectManager.resolve(new VKDataConfig().dialect(VKDialectType.MYSQL))).getSql();
+        assertTrue(mysql.contains("(age, id) > (?, ?)"), mysql);
+        assertFalse(mysql.contains("OFFSET"), mysql);
+        String oracle = SqlBuilder.buildSelect(meta, seekQ, VKDialectManager.resolve(new VKDataConfig().dialect(VKDialectType.ORACLE))).getSql();
+        assertTrue(oracle.contains("(age > ?) OR (age = ? AND id > ?)"), oracle);
+
+        // 游标与排序不一致、被篡改、与 offset 混用均拒绝
+        assertThrows(VKException.class, () -> Vostok.Data.queryPage(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.desc("age")).limit(3).seek(cols.getNextCursor())));
+        assertThrows(VKException.class, () -> Vostok.Data.queryPage(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.asc("age")).limit(3).seek("not-a-cursor")));
+        assertThrows(VKException.class, () -> Vostok.Data.queryPage(UserEntity.class,
+                VKQuery.create().orderBy(VKOrder.asc("age")).limit(3).offset(3).seek(null)));
+        assertThrows(VKException.class, () -> Vostok.Data.queryPage(UserEntity.class, VKQuery.create()));
+    }
+
+    private static VKPoolMetrics defaultPoolMetrics() {
+        String name = VKDataSourceRegistry.getDefaultName();
+        return Vostok.Data.poolMetrics().stream()
+                .filter(m -> name.equals(m.getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static int defaultPoolActive() {
+        return Vostok.Data.poolMetrics().stream()
+                .filter(m -> !"stream_pg".equals(m.getName()) && !"ds2".equals(m.getName()))
+                .mapToInt(m -> m.getActive())
+                .sum();
+    }
+
     @Test
     void testAggregateGroupByHaving() {
         Vostok.Data.batchInsert(List.of(user("A", 10), user("B", 10), user("C", 20)));
@@ -345,6 +525,91 @@ public class VostokIntegrationTest {
         Vostok.Data.withDataSource("ds2", () -> assertEquals(1, Vostok.Data.findAll(UserEntity.class).size()));
     }
 
+    @Test
+    void testReadReplicaRouting() throws Exception {
+        String primaryUrl = "jdbc:h2:mem:devkit_rw_primary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        String replicaUrl = "jdbc:h2:mem:devkit_rw_replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        for (String url : List.of(primaryUrl, replicaUrl)) {
+            try (var conn = java.sql.DriverManager.getConnection(url, "sa", "");
+                 var stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE t_user (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(64), age INT)");
+            }
+        }
+        // 副本使用独立库并写入不同数据，便于观察路由结果
+        try (var conn = java.sql.DriverManager.getConnection(replicaUrl, "sa", "");
+             var stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO t_user (user_name, age) VALUES ('replica', 1)");
+        }
+        VKDataConfig cfg = new VKDataConfig()
+                .url(primaryUrl)
+                .username("sa")
+                .password("")
+                .driver("org.h2.Driver")
+                .dialect(VKDialectType.MYSQL)
+                .replicaStickyMs(60_000)
+                .addReplica(new VKDataConfig()
+                        .url(replicaUrl)
+                        .username("sa")
+                        .password("")
+                        .driver("org.h2.Driver")
+                        .dialect(VKDialectType.MYSQL));
+        Vostok.Data.registerDataSource("ds_rw", cfg);
+
+        // 不同线程没有写入记录，读落在副本
+        CompletableFuture.runAsync(() -> Vostok.Data.withDataSource("ds_rw", () -> {
+            assertEquals("replica", Vostok.Data.findAll(UserEntity.class).get(0).getName());
+            assertEquals(1L, Vostok.Data.count(UserEntity.class, VKQuery.create()));
+        })).get();
+
+        Vostok.Data.withDataSource("ds_rw", () -> {
+            // 只读事务落在副本，读写事务与事务内的读走主库
+            assertEquals("replica", Vostok.Data.tx(() -> Vostok.Data.findAll(UserEntity.class).get(0).getName(),
+                    VKTxPropagation.REQUIRED, VKTxIsolation.DEFAULT, true));
+            Vostok.Data.tx(() -> {
+                Vostok.Data.insert(user("primary", 2));
+                assertEquals("primary", Vostok.Data.findAll(UserEntity.class).get(0).getName());
+            });
+            // 写后粘滞窗口内 read-your-writes
+            assertEquals("primary", Vostok.Data.findAll(UserEntity.class).get(0).getName());
+        });
+        assertTrue(Vostok.Data.poolMetrics().stream().anyMatch(m -> "ds_rw-replica-0".equals(m.getName())));
+        assertTrue(Vostok.Data.report().contains("Replica:ds_rw-replica-0"));
+
+        // 不可用副本：连接失败回退主库，连续失败达到阈值后摘除
+        VKDataConfig broken = new VKDataConfig()
+                .url(primaryUrl)
+                .username("sa")
+                .password("")
+                .driver("org.h2.Driver")
+                .dialect(VKDialectType.MYSQL)
+                .replicaEjectThreshold(2)
+                .addReplica(new VKDataConfig()
+                        .url("jdbc:vostok-missing:replica")
+                        .username("sa")
+                        .password("")
+                        .driver("org.h2.Driver")
+                        .minIdle(0)
+                        .maxWaitMs(100));
+        Vostok.Data.registerDataSource("ds_rw_broken", broken);
+        Vostok.Data.withDataSource("ds_rw_broken", () -> {
+            VKReadRouter router = VKDataSourceRegistry.get("ds_rw_broken").getReadRouter();
+            assertEquals(1, router.availableReplicas());
+            for (int i = 0; i < 2; i++) {
+                assertEquals("primary", Vostok.Data.findAll(UserEntity.class).get(0).getName());
+            }
+            assertEquals(0, router.availableReplicas());
+            assertEquals("primary", Vostok.Data.tx(() -> Vostok.Data.findAll(UserEntity.class).get(0).getName(),
+                    VKTxPropagation.REQUIRED, VKTxIsolation.DEFAULT, true));
+        });
+
+        assertThrows(VKException.class, () -> Vostok.Data.registerDataSource("ds_rw_bad", new VKDataConfig()
+                .url(primaryUrl)
+                .username("sa")
+                .driver("org.h2.Driver")
+                .replicaEjectThreshold(0)
+                .addReplica(new VKDataConfig().url(replicaUrl).username("sa").driver("org.h2.Driver"))));
+    }
+
     @Test
     void testWrapPropagatesDataSource() throws Exception {
         String url = "jdbc:h2:mem:devkit_wrap;MODE=MySQL;DB_CLOSE_DELAY=-1";
@@ -757,6 +1022,81 @@ public class VostokIntegrationTest {
         Vostok.Data.init(cfg2, "yueyang.vostok");
     }
 
+    @Test
+    void testStatementCacheReusedAcrossCheckouts() throws Exception {
+        VKDataSource ds = new VKDataSource(new VKDataConfig()
+                .url(JDBC_URL)
+                .username("sa")
+                .password("")
+                .driver("org.h2.Driver")
+                .minIdle(1)
+                .maxActive(1)
+                .statementCacheSize(2));
+        try {
+            org.h2.jdbc.JdbcPreparedStatement first;
+            org.h2.jdbc.JdbcPreparedStatement second;
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                ps.setInt(1, 1);
+                ps.setQueryTimeout(5);
+                ps.executeQuery().close();
+                first = ps.unwrap(org.h2.jdbc.JdbcPreparedStatement.class);
+                // 同一次借出内并发使用同一 SQL 时各自持有独立语句，先归还的一条进入缓存
+                try (PreparedStatement other = conn.prepareStatement("SELECT ?")) {
+                    second = other.unwrap(org.h2.jdbc.JdbcPreparedStatement.class);
+                    assertNotSame(first, second);
+                    other.setQueryTimeout(5);
+                }
+            }
+            assertTrue(first.isClosed());
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                assertSame(second, ps.unwrap(org.h2.jdbc.JdbcPreparedStatement.class));
+                assertEquals(0, ps.getQueryTimeout());
+                // 归还时已清空参数
+                assertThrows(java.sql.SQLException.class, ps::executeQuery);
+                assertSame(conn, ps.getConnection());
+                try (PreparedStatement keys = conn.prepareStatement("SELECT ?", PreparedStatement.RETURN_GENERATED_KEYS)) {
+                    assertNotSame(second, keys.unwrap(org.h2.jdbc.JdbcPreparedStatement.class));
+                }
+            }
+            assertEquals(1, ds.getStatementCacheHits());
+            assertEquals(3, ds.getStatementCacheMisses());
+
+            // 容量为 2：再放入两条不同 SQL 后最久未用的语句被物理关闭
+            org.h2.jdbc.JdbcPreparedStatement evicted;
+            try (Connection conn = ds.getConnection()) {
+                try (PreparedStatement ps = conn.prepareStatement("SELECT ?")) {
+                    evicted = ps.unwrap(org.h2.jdbc.JdbcPreparedStatement.class);
+                }
+                conn.prepareStatement("SELECT 1").close();
+                conn.prepareStatement("SELECT 2").close();
+            }
+            assertTrue(evicted.isClosed());
+
+            // 物理关闭连接时缓存一并清空
+            org.h2.jdbc.JdbcPreparedStatement cached;
+            try (Connection conn = ds.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT 2")) {
+                cached = ps.unwrap(org.h2.jdbc.JdbcPreparedStatement.class);
+            }
+            assertFalse(cached.isClosed());
+            ds.close();
+            assertTrue(cached.isClosed());
+        } finally {
+            ds.close();
+        }
+
+        long hits = defaultPoolMetrics().getStatementCacheHits();
+        for (int i = 0; i < 3; i++) {
+            Vostok.Data.findAll(UserEntity.class);
+        }
+        VKPoolMetrics metrics = defaultPoolMetrics();
+        assertTrue(metrics.getStatementCacheHits() >= hits + 2);
+        assertTrue(metrics.getStatementCacheHitRate() > 0);
+        assertTrue(Vostok.Data.report().contains("StatementCache: hits="));
+    }
+
     @Test
     @Order(96)
     void testStatementCacheClosedOnReturn() throws Exception {
@@ -0,0 +1,377 @@
+package yueyang.vostok;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import yueyang.vostok.web.VKWebConfig;
+import yueyang.vostok.web.http2.VKHpackDecoder;
+import yueyang.vostok.web.http2.VKHttp2Frames;
+import yueyang.vostok.web.tls.VKTlsConfig;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HTTP/2 集成测试：TLS + ALPN(h2)、明文 prior-knowledge(h2c) 以及 HPACK 解码。
+ */
+public class VostokWebHttp2Test {
+    private static final String KEYSTORE_PATH =
+            VostokWebHttp2Test.class.getResource("/test-server.p12").getPath();
+    private static final String KEYSTORE_PASS = "changeit";
+
+    @AfterEach
+    void tearDown() {
+        try {
+            Vostok.Web.stop();
+        } catch (Exception ignore) {
+        }
+    }
+
+    private static SSLContext buildTrustingContext() throws Exception {
+        KeyStore ts = KeyStore.getInstance("PKCS12");
+        try (InputStream in = VostokWebHttp2Test.class.getResourceAsStream("/test-server.p12")) {
+            ts.load(in, KEYSTORE_PASS.toCharArray());
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(ts);
+        SSLContext ctx = SSLContext.getInstance("TLS");
+        ctx.init(null, tmf.getTrustManagers(), null);
+        return ctx;
+    }
+
+    private static VKWebConfig tlsConfig() {
+        return new VKWebConfig()
+                .port(0)
+                .http2Enabled(true)
+                .tls(new VKTlsConfig()
+                        .keyStorePath(KEYSTORE_PATH)
+                        .keyStorePassword(KEYSTORE_PASS));
+    }
+
+    @Test
+    void testH2MultiplexedRequests() throws Exception {
+        Vostok.Web.init(tlsConfig())
+                .get("/hello/{id}", (req, res) -> res.text("h2-" + req.param("id")))
+                .post("/echo", (req, res) -> res.text(req.bodyText()));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(buildTrustingContext())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<CompletableFuture<HttpResponse<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(client.sendAsync(
+                    HttpRequest.newBuilder(new URI("https://127.0.0.1:" + port + "/hello/" + i)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            HttpResponse<String> res = futures.get(i).get();
+            assertEquals(HttpClient.Version.HTTP_2, res.version());
+            assertEquals(200, res.statusCode());
+            assertEquals("h2-" + i, res.body());
+        }
+
+        // 大于单帧和默认窗口的请求体，覆盖 CONTINUATION 外的流控路径
+        String big = "x".repeat(200_000);
+        HttpResponse<String> echo = client.send(
+                HttpRequest.newBuilder(new URI("https://127.0.0.1:" + port + "/echo"))
+                        .POST(HttpRequest.BodyPublishers.ofString(big)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, echo.version());
+        assertEquals(big, echo.body());
+    }
+
+    @Test
+    void testHttp11FallbackWhenH2Enabled() throws Exception {
+        Vostok.Web.init(tlsConfig()).get("/ping", (req, res) -> res.text("pong"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .sslContext(buildTrustingContext())
+                .build();
+        HttpResponse<String> res = client.send(
+                HttpRequest.newBuilder(new URI("https://127.0.0.1:" + port + "/ping")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_1_1, res.version());
+        assertEquals("pong", res.body());
+    }
+
+    @Test
+    void testH2cPriorKnowledge() throws Exception {
+        Vostok.Web.init(new VKWebConfig().port(0).http2Enabled(true))
+                .get("/hello", (req, res) -> res.text("h2c-ok"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            ByteArrayOutputStream req = new ByteArrayOutputStream();
+            req.write(VKHttp2Frames.PREFACE);
+            VKHttp2Frames.writeSettings(req, new int[0]);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            block.write(0x82); // :method GET
+            block.write(0x86); // :scheme http
+            block.write(0x04); // :path，字面量不索引
+            block.write(6);
+            block.write("/hello".getBytes(StandardCharsets.US_ASCII));
+            VKHttp2Frames.writeHeaders(req, 1, block.toByteArray(), VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE, true);
+            out.write(req.toByteArray());
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            VKHpackDecoder decoder = new VKHpackDecoder(4096);
+            Map<String, String> headers = new LinkedHashMap<>();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            boolean done = false;
+            while (!done) {
+                int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                int flags = in.readUnsignedByte();
+                int streamId = in.readInt() & 0x7FFFFFFF;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (streamId != 1) {
+                    continue;
+                }
+                if (type == VKHttp2Frames.TYPE_HEADERS) {
+                    decoder.decode(payload, 0, length, headers::put);
+                } else if (type == VKHttp2Frames.TYPE_DATA) {
+                    body.write(payload);
+                }
+                done = (flags & VKHttp2Frames.FLAG_END_STREAM) != 0;
+            }
+            assertEquals("200", headers.get(":status"));
+            assertEquals("6", headers.get("content-length"));
+            assertEquals("h2c-ok", body.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testH2FileTruncatedMidStreamResetsOnlyThatStream() throws Exception {
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("vk-h2-trunc", ".bin");
+        java.nio.file.Files.write(file, new byte[256 * 1024]);
+        Vostok.Web.init(new VKWebConfig().port(0).http2Enabled(true))
+                .get("/file", (req, res) -> res.file(file, 256 * 1024))
+                .get("/hello", (req, res) -> res.text("h2c-ok"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            ByteArrayOutputStream req = new ByteArrayOutputStream();
+            req.write(VKHttp2Frames.PREFACE);
+            VKHttp2Frames.writeSettings(req, new int[]{VKHttp2Frames.SETTINGS_INITIAL_WINDOW_SIZE, 16384});
+            VKHttp2Frames.writeHeaders(req, 1, getBlock("/file"), VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE, true);
+            out.write(req.toByteArray());
+            out.flush();
+
+            // 读满流窗口后截断文件，再放开窗口让服务端继续读取
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int received = 0;
+            while (received < 16384) {
+                int[] frame = new int[3];
+                byte[] payload = readFrame(in, frame);
+                if (frame[2] == 1 && frame[0] == VKHttp2Frames.TYPE_DATA) {
+                    received += payload.length;
+                }
+            }
+            try (java.nio.channels.FileChannel fc = java.nio.channels.FileChannel.open(file,
+                    java.nio.file.StandardOpenOption.WRITE)) {
+                fc.truncate(100);
+            }
+            req.reset();
+            VKHttp2Frames.writeWindowUpdate(req, 1, 1 << 20);
+            VKHttp2Frames.writeWindowUpdate(req, 0, 1 << 20);
+            out.write(req.toByteArray());
+            out.flush();
+            boolean reset = false;
+            while (!reset) {
+                int[] frame = new int[3];
+                readFrame(in, frame);
+                reset = frame[2] == 1 && frame[0] == VKHttp2Frames.TYPE_RST_STREAM;
+            }
+
+            // 被重置的流不再参与发送，同一连接上的新流正常响应
+            req.reset();
+            VKHttp2Frames.writeHeaders(req, 3, getBlock("/hello"), VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE, true);
+            out.write(req.toByteArray());
+            out.flush();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            boolean done = false;
+            while (!done) {
+                int[] frame = new int[3];
+                byte[] payload = readFrame(in, frame);
+                if (frame[2] != 3) {
+                    continue;
+                }
+                if (frame[0] == VKHttp2Frames.TYPE_DATA) {
+                    body.write(payload);
+                }
+                done = (frame[1] & VKHttp2Frames.FLAG_END_STREAM) != 0;
+            }
+            assertEquals("h2c-ok", body.toString(StandardCharsets.UTF_8));
+        } finally {
+            java.nio.file.Files.deleteIfExists(file);
+        }
+    }
+
+    /** GET 请求头块：:method GET、:scheme http、字面量 :path。 */
+    private static byte[] getBlock(String path) {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.write(0x82);
+        block.write(0x86);
+        block.write(0x04);
+        block.write(path.length());
+        block.writeBytes(path.getBytes(StandardCharsets.US_ASCII));
+        return block.toByteArray();
+    }
+
+    /** 读取一帧，frame 依次填入 type、flags、streamId，返回负载。 */
+    private static byte[] readFrame(DataInputStream in, int[] frame) throws java.io.IOException {
+        int length = (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        frame[0] = in.readUnsignedByte();
+        frame[1] = in.readUnsignedByte();
+        frame[2] = in.readInt() & 0x7FFFFFFF;
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    @Test
+    void testH2HpackBombRejectedWithoutConcatenation() throws Exception {
+        Vostok.Web.init(new VKWebConfig().port(0).http2Enabled(true).maxHeaderBytes(4096))
+                .get("/hello", (req, res) -> res.text("h2c-ok"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        // 一个 1000 字节的动态表条目，随后上万次单字节索引引用它（解码后约 12MB 的同名头）
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.writeBytes(getBlock("/hello"));
+        block.write(0x40);
+        block.write(5);
+        block.writeBytes("x-big".getBytes(StandardCharsets.US_ASCII));
+        block.write(0x7F);
+        block.write(0xE9);
+        block.write(0x06);
+        block.writeBytes("v".repeat(1000).getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < 12000; i++) {
+            block.write(0xBE);
+        }
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            ByteArrayOutputStream req = new ByteArrayOutputStream();
+            req.write(VKHttp2Frames.PREFACE);
+            VKHttp2Frames.writeSettings(req, new int[0]);
+            VKHttp2Frames.writeHeaders(req, 1, block.toByteArray(), VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE, true);
+            VKHttp2Frames.writeHeaders(req, 3, getBlock("/hello"), VKHttp2Frames.DEFAULT_MAX_FRAME_SIZE, true);
+            out.write(req.toByteArray());
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            VKHpackDecoder decoder = new VKHpackDecoder(4096);
+            Map<Integer, String> status = new HashMap<>();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            boolean done = false;
+            while (!done) {
+                int[] frame = new int[3];
+                byte[] payload = readFrame(in, frame);
+                if (frame[0] == VKHttp2Frames.TYPE_HEADERS) {
+                    decoder.decode(payload, 0, payload.length, (name, value) -> {
+                        if (":status".equals(name)) {
+                            status.put(frame[2], value);
+                        }
+                    });
+                } else if (frame[0] == VKHttp2Frames.TYPE_DATA && frame[2] == 3) {
+                    body.write(payload);
+                }
+                done = frame[2] == 3 && (frame[1] & VKHttp2Frames.FLAG_END_STREAM) != 0;
+            }
+            assertEquals("431", status.get(1));
+            assertEquals("200", status.get(3));
+            assertEquals("h2c-ok", body.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testHpackDecodeStopsCallbackPastLimit() {
+        VKHpackDecoder decoder = new VKHpackDecoder(4096);
+        // 01000000 新名字面量：x-a: 1，加入动态表（索引 62），随后 100 次引用
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        block.write(0x40);
+        block.write(3);
+        block.writeBytes("x-a".getBytes(StandardCharsets.US_ASCII));
+        block.write(1);
+        block.write('1');
+        for (int i = 0; i < 100; i++) {
+            block.write(0xBE);
+        }
+        byte[] b = block.toByteArray();
+        int[] calls = new int[1];
+        long size = decoder.decode(b, 0, b.length, 100, (name, value) -> calls[0]++);
+        assertEquals(101 * 36L, size);
+        assertEquals(2, calls[0]);
+
+        // 超限后动态表仍与对端同步
+        Map<String, String> next = new LinkedHashMap<>();
+        decoder.decode(new byte[]{(byte) 0xBE}, 0, 1, next::put);
+        assertEquals("1", next.get("x-a"));
+    }
+
+    @Test
+    void testHpackDecodeHuffmanWithDynamicTable() {
+        // RFC 7541 C.4.1 / C.4.2：Huffman 编码请求，第二个请求引用动态表
+        VKHpackDecoder decoder = new VKHpackDecoder(4096);
+        Map<String, String> first = new LinkedHashMap<>();
+        byte[] r1 = hex("828684418cf1e3c2e5f23a6ba0ab90f4ff");
+        decoder.decode(r1, 0, r1.length, first::put);
+        assertEquals("GET", first.get(":method"));
+        assertEquals("http", first.get(":scheme"));
+        assertEquals("/", first.get(":path"));
+        assertEquals("www.example.com", first.get(":authority"));
+
+        Map<String, String> second = new LinkedHashMap<>();
+        byte[] r2 = hex("828684be5886a8eb10649cbf");
+        decoder.decode(r2, 0, r2.length, second::put);
+        assertEquals("www.example.com", second.get(":authority"));
+        assertEquals("no-cache", second.get("cache-control"));
+        assertTrue(second.containsKey(":path"));
+    }
+
+    private static byte[] hex(String s) {
+        byte[] out = new byte[s.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+        }
+        return out;
+    }
+}
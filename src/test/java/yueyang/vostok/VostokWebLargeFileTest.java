@@ -98,6 +98,38 @@ public class VostokWebLargeFileTest {
         }
     }
 
+    /** 带额外请求头（如 Range）的原始 GET，extraHeaders 每行以 \r\n 结尾。 */
+    private static byte[] rawGet(String host, int port, String path, String extraHeaders, int timeoutMs)
+            throws Exception {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setSoTimeout(timeoutMs);
+            OutputStream out = socket.getOutputStream();
+            String req = "GET " + path + " HTTP/1.1\r\n" +
+                    "Host: " + host + ":" + port + "\r\n" +
+                    extraHeaders +
+                    "Connection: close\r\n\r\n";
+            out.write(req.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return socket.getInputStream().readAllBytes();
+        }
+    }
+
+    private static String extractHeader(byte[] raw, String name) {
+        for (String line : extractHeaderSection(raw).split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase(name)) {
+                return line.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static byte[] slice(byte[] data, int start, int endInclusive) {
+        byte[] out = new byte[endInclusive - start + 1];
+        System.arraycopy(data, start, out, 0, out.length);
+        return out;
+    }
+
     /**
      * 从原始 HTTP 响应字节中分离 header 和 body。
      * 返回 body 部分（\r\n\r\n 之后的内容）。
@@ -860,4 +892,330 @@ public class VostokWebLargeFileTest {
                     "size=" + size + ": body length " + body.length + " != declared " + size);
         }
     }
+
+    // -----------------------------------------------------------------------
+    // 测试：Range / 零拷贝区间
+    // -----------------------------------------------------------------------
+
+    /**
+     * 大文件单区间：206 + Content-Range，区间内容经 transferTo 从指定偏移发送。
+     */
+    @Test
+    void testRange_singleRangeLargeFile() throws Exception {
+        int size = 300 * 1024;
+        byte[] data = randomBytes(size);
+        Path dir = Files.createTempDirectory("vk_range_test");
+        writeTempFile(dir, "big.bin", data);
+
+        Vostok.Web.init(0).staticDir("/files", dir.toString());
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        byte[] raw = rawGet("127.0.0.1", port, "/files/big.bin", "Range: bytes=100000-199999\r\n", 10_000);
+        assertEquals(206, extractStatus(raw));
+        assertEquals("bytes 100000-199999/" + size, extractHeader(raw, "Content-Range"));
+        assertEquals("bytes", extractHeader(raw, "Accept-Ranges"));
+        assertEquals(100_000, extractContentLength(raw));
+        assertEquals(sha256(slice(data, 100_000, 199_999)), sha256(extractBody(raw)));
+
+        // 后缀区间：最后 500 字节
+        byte[] suffix = rawGet("127.0.0.1", port, "/files/big.bin", "Range: bytes=-500\r\n", 10_000);
+        assertEquals(206, extractStatus(suffix));
+        assertEquals(sha256(slice(data, size - 500, size - 1)), sha256(extractBody(suffix)));
+    }
+
+    /**
+     * 小文件（内存映射缓存路径）的区间与 416。
+     */
+    @Test
+    void testRange_smallFileAndUnsatisfiable() throws Exception {
+        byte[] data = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+        Path dir = Files.createTempDirectory("vk_range_test");
+        writeTempFile(dir, "small.txt", data);
+
+        Vostok.Web.init(0).staticDir("/files", dir.toString());
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        byte[] raw = rawGet("127.0.0.1", port, "/files/small.txt", "Range: bytes=10-\r\n", 10_000);
+        assertEquals(206, extractStatus(raw));
+        assertEquals("bytes 10-19/20", extractHeader(raw, "Content-Range"));
+        assertEquals("abcdefghij", new String(extractBody(raw), StandardCharsets.US_ASCII));
+
+        byte[] bad = rawGet("127.0.0.1", port, "/files/small.txt", "Range: bytes=50-60\r\n", 10_000);
+        assertEquals(416, extractStatus(bad));
+        assertEquals("bytes */20", extractHeader(bad, "Content-Range"));
+
+        // If-Range 与当前 etag 不一致：忽略 Range，返回完整内容
+        byte[] stale = rawGet("127.0.0.1", port, "/files/small.txt",
+                "Range: bytes=0-1\r\nIf-Range: \"stale\"\r\n", 10_000);
+        assertEquals(200, extractStatus(stale));
+        assertEquals(new String(data, StandardCharsets.US_ASCII),
+                new String(extractBody(stale), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 已映射的小文件按 write-then-rename 替换：检查间隔内仍完整返回旧映射，间隔过后切换到新文件。
+     */
+    @Test
+    void testStaticFile_mappedFileReplacedByRename() throws Exception {
+        Path dir = Files.createTempDirectory("vk_mmap_test");
+        Path file = writeTempFile(dir, "app.js", "console.log(1);".getBytes(StandardCharsets.US_ASCII));
+
+        Vostok.Web.init(0).staticDir("/assets", dir.toString());
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        byte[] first = rawGet("127.0.0.1", port, "/assets/app.js", 10_000);
+        assertEquals("console.log(1);", new String(extractBody(first), StandardCharsets.US_ASCII));
+
+        Path tmp = writeTempFile(dir, "app.js.tmp", "console.log('replaced');".getBytes(StandardCharsets.US_ASCII));
+        Files.move(tmp, file, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        byte[] cached = rawGet("127.0.0.1", port, "/assets/app.js", 10_000);
+        assertEquals("console.log(1);", new String(extractBody(cached), StandardCharsets.US_ASCII));
+
+        Thread.sleep(1100);
+        byte[] second = rawGet("127.0.0.1", port, "/assets/app.js", 10_000);
+        assertEquals(200, extractStatus(second));
+        assertEquals("console.log('replaced');", new String(extractBody(second), StandardCharsets.US_ASCII));
+        assertNotEquals(extractHeader(first, "ETag"), extractHeader(second, "ETag"));
+    }
+
+    /**
+     * 多区间：multipart/byteranges，每段带 Content-Range，重叠区间被合并。
+     */
+    @Test
+    void testRange_multiRange() throws Exception {
+        int size = 128 * 1024;
+        byte[] data = randomBytes(size);
+        Path dir = Files.createTempDirectory("vk_range_test");
+        writeTempFile(dir, "multi.bin", data);
+
+        Vostok.Web.init(0).staticDir("/files", dir.toString());
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        byte[] raw = rawGet("127.0.0.1", port, "/files/multi.bin",
+                "Range: bytes=0-99, 50-149, 70000-70099\r\n", 10_000);
+        assertEquals(206, extractStatus(raw));
+        String ct = extractHeader(raw, "Content-Type");
+        assertTrue(ct.startsWith("multipart/byteranges; boundary="), ct);
+        String boundary = ct.substring(ct.indexOf('=') + 1);
+        byte[] body = extractBody(raw);
+        assertEquals(extractContentLength(raw), body.length);
+
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        assertTrue(text.contains("Content-Range: bytes 0-149/" + size));
+        assertTrue(text.contains("Content-Range: bytes 70000-70099/" + size));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+        int p1 = text.indexOf("\r\n\r\n") + 4;
+        assertEquals(sha256(slice(data, 0, 149)), sha256(slice(body, p1, p1 + 149)));
+        int p2 = text.indexOf("\r\n\r\n", text.indexOf("bytes 70000-70099")) + 4;
+        assertEquals(sha256(slice(data, 70_000, 70_099)), sha256(slice(body, p2, p2 + 99)));
+    }
+
+    /**
+     * res.file(path, offset, length)：handler 直接返回文件中的一段。
+     */
+    @Test
+    void testDirectFileRoute_offsetRegion() throws Exception {
+        int size = 256 * 1024;
+        byte[] data = randomBytes(size);
+        Path dir = Files.createTempDirectory("vk_range_test");
+        Path file = writeTempFile(dir, "region.bin", data);
+
+        Vostok.Web.init(0).get("/region", (req, res) -> res.file(file, 1000, 150_000));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        byte[] raw = rawGet("127.0.0.1", port, "/region", 10_000);
+        assertEquals(200, extractStatus(raw));
+        assertEquals(150_000, extractContentLength(raw));
+        assertEquals(sha256(slice(data, 1000, 150_999)), sha256(extractBody(raw)));
+    }
+
+    /**
+     * 流式上传：请求体超过 maxBodyBytes 仍可通过 postStream 路由边收边读，
+     * handler 慢速消费时缓冲受 streamingBodyBufferBytes 约束。
+     */
+    @Test
+    void testStreamingUpload_backpressure() throws Exception {
+        int size = 8 * 1024 * 1024;
+        byte[] data = randomBytes(size);
+        java.util.concurrent.atomic.AtomicInteger maxBuffered = new java.util.concurrent.atomic.AtomicInteger();
+
+        Vostok.Web.init(new VKWebConfig().port(0).streamingBodyBufferBytes(64 * 1024))
+                .postStream("/upload", (req, res) -> {
+                    try (InputStream in = req.bodyStream()) {
+                        MessageDigest md = MessageDigest.getInstance("SHA-256");
+                        byte[] buf = new byte[8192];
+                        long total = 0;
+                        int n;
+                        while ((n = in.read(buf)) >= 0) {
+                            maxBuffered.accumulateAndGet(in.available(), Math::max);
+                            md.update(buf, 0, n);
+                            total += n;
+                            if (total % (1024 * 1024) < n) {
+                                Thread.sleep(20);
+                            }
+                        }
+                        res.text(total + ":" + HexFormat.of().formatHex(md.digest()));
+                    } catch (Exception e) {
+                        res.status(500).text(e.toString());
+                    }
+                });
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(30_000);
+            OutputStream out = socket.getOutputStream();
+            String head = "POST /upload HTTP/1.1\r\n" +
+                    "Host: 127.0.0.1:" + port + "\r\n" +
+                    "Content-Type: application/octet-stream\r\n" +
+                    "Content-Length: " + size + "\r\n" +
+                    "Connection: close\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.US_ASCII));
+            for (int off = 0; off < size; off += 64 * 1024) {
+                out.write(data, off, Math.min(64 * 1024, size - off));
+            }
+            out.flush();
+            byte[] raw = socket.getInputStream().readAllBytes();
+            assertEquals(200, extractStatus(raw));
+            assertEquals(size + ":" + sha256(data), new String(extractBody(raw), StandardCharsets.UTF_8));
+        }
+        // 高水位之上最多多出一个读批次
+        assertTrue(maxBuffered.get() <= 192 * 1024, "buffered=" + maxBuffered.get());
+    }
+
+    /**
+     * 流式 multipart：分段内容经 multipartReader 逐段读取，不受 multipartMaxFileSizeBytes 约束、不落临时文件。
+     */
+    @Test
+    void testStreamingUpload_multipartReader() throws Exception {
+        byte[] file = randomBytes(20 * 1024 * 1024);
+        String boundary = "vkStreamBoundary";
+        java.io.ByteArrayOutputStream body = new java.io.ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"title\"\r\n\r\nreport\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"a.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.write(file);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        byte[] payload = body.toByteArray();
+
+        Vostok.Web.init(0).postStream("/parts", (req, res) -> {
+            try {
+                StringBuilder sb = new StringBuilder();
+                yueyang.vostok.web.http.VKMultipartReader reader = req.multipartReader();
+                yueyang.vostok.web.http.VKMultipartPart part;
+                while ((part = reader.next()) != null) {
+                    if (part.isFile()) {
+                        byte[] content = part.content().readAllBytes();
+                        sb.append(part.name()).append('=').append(part.fileName()).append(':').append(sha256(content));
+                    } else {
+                        sb.append(part.name()).append('=').append(part.text()).append(';');
+                    }
+                }
+                res.text(sb.toString());
+            } catch (Exception e) {
+                res.status(500).text(e.toString());
+            }
+        });
+        Vostok.Web.start();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                        .uri(URI.create("http://127.0.0.1:" + Vostok.Web.port() + "/parts"))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode(), resp.body());
+        assertEquals("title=report;file=a.bin:" + sha256(file), resp.body());
+    }
+
+    /**
+     * 流式响应：res.stream() 以 chunked 编码边写边发，HttpClient 能正确还原内容；HTTP/1.0 客户端以关闭连接定界。
+     */
+    @Test
+    void testStreamingResponse_chunkedExport() throws Exception {
+        int rows = 200_000;
+        Vostok.Web.init(0).get("/export", (req, res) -> res
+                .header("Content-Type", "text/csv")
+                .stream(out -> {
+                    for (int i = 0; i < rows; i++) {
+                        out.print(i + ",row-" + i + "\n");
+                    }
+                }));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            expected.append(i).append(",row-").append(i).append('\n');
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        for (int round = 0; round < 2; round++) {
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder()
+                            .uri(URI.create("http://127.0.0.1:" + port + "/export"))
+                            .timeout(Duration.ofSeconds(30)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, resp.statusCode());
+            assertEquals("chunked", resp.headers().firstValue("Transfer-Encoding").orElse(null));
+            assertTrue(resp.headers().firstValue("Content-Length").isEmpty());
+            assertEquals(expected.toString(), resp.body());
+        }
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(30_000);
+            socket.getOutputStream().write("GET /export HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            byte[] raw = socket.getInputStream().readAllBytes();
+            assertEquals(200, extractStatus(raw));
+            assertNull(extractHeader(raw, "Transfer-Encoding"));
+            assertEquals(expected.toString(), new String(extractBody(raw), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 流式响应背压：客户端不读取时写出器被阻塞在高水位附近，而不是把整个响应堆积在内存中。
+     */
+    @Test
+    void testStreamingResponse_backpressure() throws Exception {
+        long total = 64L * 1024 * 1024;
+        java.util.concurrent.atomic.AtomicLong produced = new java.util.concurrent.atomic.AtomicLong();
+        byte[] block = randomBytes(8192);
+        Vostok.Web.init(new VKWebConfig().port(0).streamingResponseHighWaterBytes(64 * 1024))
+                .get("/big", (req, res) -> res.stream(out -> {
+                    while (produced.get() < total) {
+                        out.write(block);
+                        produced.addAndGet(block.length);
+                    }
+                }));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setReceiveBufferSize(64 * 1024);
+            socket.setSoTimeout(30_000);
+            socket.getOutputStream().write(("GET /big HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(500);
+            long stalled = produced.get();
+            assertTrue(stalled < total / 2, "produced=" + stalled);
+
+            InputStream in = socket.getInputStream();
+            byte[] buf = new byte[64 * 1024];
+            long received = 0;
+            int n;
+            while ((n = in.read(buf)) >= 0) {
+                received += n;
+            }
+            assertEquals(total, produced.get());
+            assertTrue(received > total, "received=" + received);
+        }
+    }
 }
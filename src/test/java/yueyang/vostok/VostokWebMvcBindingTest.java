@@ -2,7 +2,14 @@ package yueyang.vostok;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import yueyang.vostok.web.http.VKRequest;
+import yueyang.vostok.web.http.VKResponse;
 import yueyang.vostok.web.http.VKUploadedFile;
+import yueyang.vostok.web.mvc.VKMvcBindException;
+import yueyang.vostok.web.mvc.VKMvcInvokeException;
+import yueyang.vostok.web.mvc.VKMvcMethodInvoker;
+import yueyang.vostok.web.mvc.VKMvcTypeConverterRegistry;
+import yueyang.vostok.web.mvc.annotation.VKGet;
 import yueyang.vostok.web.mvc.annotation.VKApi;
 import yueyang.vostok.web.mvc.annotation.VKBody;
 import yueyang.vostok.web.mvc.annotation.VKCookie;
@@ -19,6 +26,8 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class VostokWebMvcBindingTest {
@@ -63,6 +72,52 @@ public class VostokWebMvcBindingTest {
         }
     }
 
+    @VKApi("/typed")
+    static class TypedApi {
+        @VKGet("/{id}/{flag}")
+        String typed(@VKPath("id") int id,
+                     @VKPath("flag") boolean flag,
+                     @VKQuery(value = "n", required = false) Long n,
+                     VKResponse res) {
+            res.header("X-Typed", "1");
+            return id + ":" + flag + ":" + n;
+        }
+
+        @VKGet("/fail")
+        void fail() {
+            throw new IllegalStateException("boom");
+        }
+    }
+
+    @Test
+    void testCompiledInvokerMatchesReflective() throws Exception {
+        java.lang.reflect.Method typed = TypedApi.class.getDeclaredMethod("typed",
+                int.class, boolean.class, Long.class, VKResponse.class);
+        VKMvcMethodInvoker compiled = new VKMvcMethodInvoker(new TypedApi(), typed, new VKMvcTypeConverterRegistry(), true);
+        VKMvcMethodInvoker reflective = new VKMvcMethodInvoker(new TypedApi(), typed, new VKMvcTypeConverterRegistry(), false);
+        assertTrue(compiled.isCompiled());
+        assertFalse(reflective.isCompiled());
+
+        for (VKMvcMethodInvoker invoker : java.util.List.of(compiled, reflective)) {
+            VKRequest req = new VKRequest("GET", "/typed/42/1", "n=9", "HTTP/1.1", null, null, true, null);
+            req.setParams(java.util.Map.of("id", "42", "flag", "1"));
+            VKResponse res = new VKResponse();
+            assertEquals("42:true:9", invoker.invoke(req, res));
+            assertEquals("1", res.headers().get("X-Typed"));
+
+            VKRequest bad = new VKRequest("GET", "/typed/x/1", null, "HTTP/1.1", null, null, true, null);
+            bad.setParams(java.util.Map.of("id", "x", "flag", "1"));
+            assertThrows(VKMvcBindException.class, () -> invoker.invoke(bad, new VKResponse()));
+        }
+
+        VKMvcMethodInvoker failing = new VKMvcMethodInvoker(new TypedApi(),
+                TypedApi.class.getDeclaredMethod("fail"), new VKMvcTypeConverterRegistry(), true);
+        VKMvcInvokeException e = assertThrows(VKMvcInvokeException.class,
+                () -> failing.invoke(new VKRequest("GET", "/typed/fail", null, "HTTP/1.1", null, null, true, null),
+                        new VKResponse()));
+        assertEquals("boom", e.getCause().getMessage());
+    }
+
     @Test
     void testBindingJsonHeaderCookiePathQuery() throws Exception {
         Vostok.Web.init(0)
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import yueyang.vostok.web.websocket.VKWsAuthResult;
 import yueyang.vostok.web.websocket.VKWebSocketConfig;
 import yueyang.vostok.web.websocket.VKWebSocketSession;
+import yueyang.vostok.web.websocket.VKWsSlowConsumerPolicy;
 
 import java.net.Socket;
 import java.net.URI;
@@ -297,6 +298,190 @@ public class VostokWebSocketTest {
         ws2.sendClose(WebSocket.NORMAL_CLOSURE, "bye").join();
     }
 
+    @Test
+    void testBroadcastSlowConsumerCoalesce() throws Exception {
+        Vostok.Web.init(0)
+                .websocket("/ws-tick", new VKWebSocketConfig().maxPendingFrames(16).maxPendingBytes(256 * 1024)
+                                .slowConsumerPolicy(VKWsSlowConsumerPolicy.COALESCE),
+                        new yueyang.vostok.web.websocket.VKWebSocketHandler() {
+                        })
+                .metrics();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        // 慢消费者：连接建立后不请求任何消息，客户端停止读 socket
+        BlockingQueue<Integer> seqs = new LinkedBlockingQueue<>();
+        java.io.ByteArrayOutputStream partial = new java.io.ByteArrayOutputStream();
+        WebSocket slow = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build()
+                .newWebSocketBuilder()
+                .buildAsync(new URI("ws://127.0.0.1:" + port + "/ws-tick"), new WebSocket.Listener() {
+                    @Override
+                    public void onOpen(WebSocket webSocket) {
+                    }
+
+                    @Override
+                    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+                        byte[] chunk = new byte[data.remaining()];
+                        data.get(chunk);
+                        partial.write(chunk, 0, chunk.length);
+                        if (last) {
+                            seqs.offer(ByteBuffer.wrap(partial.toByteArray()).getInt());
+                            partial.reset();
+                        }
+                        webSocket.request(1);
+                        return null;
+                    }
+                })
+                .get(3, TimeUnit.SECONDS);
+        Thread.sleep(200);
+
+        int messages = 400;
+        byte[] payload = new byte[64 * 1024];
+        for (int i = 0; i < messages; i++) {
+            ByteBuffer.wrap(payload).putInt(i);
+            assertEquals(1, Vostok.Web.websocketBroadcastBinary("/ws-tick", payload.clone()));
+        }
+        Thread.sleep(300);
+
+        slow.request(1);
+        int last = -1;
+        int received = 0;
+        Integer seq;
+        while ((seq = seqs.poll(2, TimeUnit.SECONDS)) != null) {
+            assertTrue(seq > last, "out of order: " + seq + " after " + last);
+            last = seq;
+            received++;
+            if (seq == messages - 1) {
+                break;
+            }
+        }
+        // 连接未被关闭，最新一帧一定送达，中间的积压帧被合并掉
+        assertEquals(messages - 1, last);
+        assertTrue(received < messages, "received " + received);
+
+        String metrics = HttpClient.newHttpClient().send(java.net.http.HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics")).GET().build(),
+                java.net.http.HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(metrics.contains("\"wsSlowConsumerCloses\":0"), metrics);
+        assertTrue(!metrics.contains("\"wsCoalescedFrames\":0,"), metrics);
+        slow.sendClose(WebSocket.NORMAL_CLOSURE, "bye").join();
+    }
+
+    @Test
+    void testPerMessageDeflateNegotiationAndRoundTrip() throws Exception {
+        Vostok.Web.init(0)
+                .websocket("/ws-deflate", new VKWebSocketConfig().perMessageDeflate(true).deflateThresholdBytes(64),
+                        new yueyang.vostok.web.websocket.VKWebSocketHandler() {
+                            @Override
+                            public void onText(VKWebSocketSession session, String text) {
+                                session.sendText("echo:" + text);
+                            }
+                        });
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(3000);
+            java.io.OutputStream out = socket.getOutputStream();
+            java.io.DataInputStream in = new java.io.DataInputStream(socket.getInputStream());
+            String req = "GET /ws-deflate HTTP/1.1\r\nHost: 127.0.0.1\r\nUpgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\nSec-WebSocket-Version: 13\r\n"
+                    + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n"
+                    + "Sec-WebSocket-Extensions: permessage-deflate; server_max_window_bits=10, "
+                    + "permessage-deflate; client_max_window_bits\r\n\r\n";
+            out.write(req.getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            String head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 101"), head);
+            // 第一个提议要求 10 位服务端窗口，不可接受；选择第二个提议
+            assertTrue(head.contains("Sec-WebSocket-Extensions: permessage-deflate\r\n"), head);
+
+            java.util.zip.Deflater clientDeflater = new java.util.zip.Deflater(java.util.zip.Deflater.DEFAULT_COMPRESSION, true);
+            java.util.zip.Inflater clientInflater = new java.util.zip.Inflater(true);
+            String big = "vostok-".repeat(300);
+            for (int round = 0; round < 2; round++) {
+                // 两轮压缩共用同一上下文，验证双方的上下文接管
+                writeMaskedFrame(out, 0x1, true, deflateMessage(clientDeflater, big.getBytes(StandardCharsets.UTF_8)));
+                int[] b0 = new int[1];
+                byte[] payload = readFrame(in, b0);
+                assertEquals(0x40, b0[0] & 0x40);
+                assertTrue(payload.length < big.length() / 4, "compressed length " + payload.length);
+                assertEquals("echo:" + big, new String(inflateMessage(clientInflater, payload), StandardCharsets.UTF_8));
+            }
+
+            // 低于阈值的消息不压缩
+            writeMaskedFrame(out, 0x1, false, "hi".getBytes(StandardCharsets.UTF_8));
+            int[] b0 = new int[1];
+            byte[] small = readFrame(in, b0);
+            assertEquals(0, b0[0] & 0x40);
+            assertEquals("echo:hi", new String(small, StandardCharsets.UTF_8));
+            clientDeflater.end();
+            clientInflater.end();
+        }
+    }
+
+    private static String readHead(java.io.DataInputStream in) throws java.io.IOException {
+        StringBuilder sb = new StringBuilder();
+        while (!sb.toString().endsWith("\r\n\r\n")) {
+            sb.append((char) in.readUnsignedByte());
+        }
+        return sb.toString();
+    }
+
+    private static void writeMaskedFrame(java.io.OutputStream out, int opcode, boolean rsv1, byte[] payload)
+            throws java.io.IOException {
+        java.io.ByteArrayOutputStream frame = new java.io.ByteArrayOutputStream();
+        frame.write(0x80 | (rsv1 ? 0x40 : 0) | opcode);
+        if (payload.length < 126) {
+            frame.write(0x80 | payload.length);
+        } else {
+            frame.write(0x80 | 126);
+            frame.write(payload.length >> 8);
+            frame.write(payload.length & 0xFF);
+        }
+        byte[] mask = {7, 13, 42, 99};
+        frame.write(mask, 0, 4);
+        for (int i = 0; i < payload.length; i++) {
+            frame.write(payload[i] ^ mask[i & 3]);
+        }
+        out.write(frame.toByteArray());
+        out.flush();
+    }
+
+    private static byte[] readFrame(java.io.DataInputStream in, int[] firstByte) throws java.io.IOException {
+        firstByte[0] = in.readUnsignedByte();
+        int len = in.readUnsignedByte() & 0x7F;
+        if (len == 126) {
+            len = in.readUnsignedShort();
+        } else if (len == 127) {
+            len = (int) in.readLong();
+        }
+        byte[] payload = new byte[len];
+        in.readFully(payload);
+        return payload;
+    }
+
+    private static byte[] deflateMessage(java.util.zip.Deflater deflater, byte[] data) {
+        deflater.setInput(data);
+        byte[] buf = new byte[data.length + 64];
+        int n = deflater.deflate(buf, 0, buf.length, java.util.zip.Deflater.SYNC_FLUSH);
+        return java.util.Arrays.copyOf(buf, n - 4);
+    }
+
+    private static byte[] inflateMessage(java.util.zip.Inflater inflater, byte[] data) throws Exception {
+        byte[] input = java.util.Arrays.copyOf(data, data.length + 4);
+        input[data.length + 2] = (byte) 0xFF;
+        input[data.length + 3] = (byte) 0xFF;
+        inflater.setInput(input);
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = inflater.inflate(buf)) > 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
     private static final class QueueBinaryListener implements WebSocket.Listener {
         private final BlockingQueue<byte[]> binaries = new LinkedBlockingQueue<>();
 
@@ -18,8 +18,17 @@ import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import yueyang.vostok.log.VKLogFsyncPolicy;
+import yueyang.vostok.log.VKLogSinkConfig;
+import yueyang.vostok.web.VKAccessLogFormat;
+import yueyang.vostok.web.VKReactorAssignment;
+import yueyang.vostok.web.VKWebConfig;
+import yueyang.vostok.web.VKWorkerMode;
+import yueyang.vostok.web.core.VKLatencyHistogram;
 import yueyang.vostok.web.middleware.VKCorsConfig;
 import yueyang.vostok.web.middleware.VKGzipConfig;
+import yueyang.vostok.web.middleware.VKResponseCacheConfig;
+import yueyang.vostok.web.middleware.VKResponseCacheRule;
 import yueyang.vostok.web.sse.VKSseEmitter;
 
 import java.util.ArrayList;
@@ -27,6 +36,7 @@ import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -234,6 +244,128 @@ public class VostokWebTest {
         }
     }
 
+    @Test
+    void testTimeoutsByTypeAndSseHeartbeat() throws Exception {
+        VKWebConfig cfg = new VKWebConfig()
+                .port(0)
+                .readTimeoutMs(1000)
+                .keepAliveTimeoutMs(1000)
+                .sseHeartbeatIntervalMs(1000);
+        Vostok.Web.init(cfg)
+                .get("/ping", (req, res) -> res.text("pong"))
+                .sse("/events", (req, emitter) -> {
+                })
+                .metrics()
+                .prometheus();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket idle = new Socket("127.0.0.1", port);
+             Socket slow = new Socket("127.0.0.1", port);
+             Socket sse = new Socket("127.0.0.1", port)) {
+            idle.setSoTimeout(5000);
+            slow.setSoTimeout(5000);
+            sse.setSoTimeout(5000);
+            idle.getOutputStream().write("GET /ping HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            slow.getOutputStream().write("POST /ping HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Length: 5\r\n\r\nhe"
+                    .getBytes(StandardCharsets.US_ASCII));
+            sse.getOutputStream().write("GET /events HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+
+            // keep-alive 连接读完响应后空闲，超时由服务端关闭
+            String first = readUntilClosed(idle.getInputStream());
+            assertTrue(first.contains("pong"), first);
+            // 请求体未到齐，读超时返回 408
+            assertTrue(readUntilClosed(slow.getInputStream()).contains("408"));
+
+            // SSE 连接无事件时收到注释心跳，且不受 keep-alive 超时影响
+            InputStream in = sse.getInputStream();
+            StringBuilder sb = new StringBuilder();
+            byte[] buf = new byte[1024];
+            long deadline = System.currentTimeMillis() + 4000;
+            while (!sb.toString().contains("\r\n\r\n:\n\n") && System.currentTimeMillis() < deadline) {
+                int n = in.read(buf);
+                if (n < 0) {
+                    break;
+                }
+                sb.append(new String(buf, 0, n, StandardCharsets.US_ASCII));
+            }
+            assertTrue(sb.toString().contains("\r\n\r\n:\n\n"), sb.toString());
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        String metrics = client.send(HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(metrics.contains("\"timeouts\":{\"read\":1,\"write\":0,\"keepAlive\":1,"), metrics);
+        String prom = client.send(HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/actuator/prometheus")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(prom.contains("vostok_web_timeouts_total{type=\"keep_alive\"} 1"), prom);
+    }
+
+    @Test
+    void testEmptyBodyResponseWithPartialHeadWrite() throws Exception {
+        // 响应头远大于 socket 发送缓冲，head 只能分多次写出；body 为空（204）时不得丢弃剩余 head
+        String big = "x".repeat(16 * 1024 * 1024);
+        Vostok.Web.init(0)
+                .get("/empty", (req, res) -> res.status(204).header("X-Big", big))
+                .get("/ping", (req, res) -> res.text("pong"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new java.net.InetSocketAddress("127.0.0.1", port));
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /empty HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            // 客户端先不读，让服务端写满发送缓冲
+            Thread.sleep(300);
+            InputStream in = socket.getInputStream();
+            String head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 204"), head.substring(0, Math.min(64, head.length())));
+            assertTrue(head.contains("X-Big: " + big + "\r\n"));
+            assertTrue(head.endsWith("\r\n\r\n"));
+
+            // 同一连接继续可用
+            out.write("GET /ping HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(readUntil(in, "pong").contains("pong"));
+        }
+    }
+
+    /** 读取到响应头结束（\r\n\r\n）为止，只在新读入的数据附近查找结束标记。 */
+    private static String readHead(InputStream in) throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] buf = new byte[64 * 1024];
+        byte[] tail = new byte[0];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+            byte[] window = new byte[tail.length + n];
+            System.arraycopy(tail, 0, window, 0, tail.length);
+            System.arraycopy(buf, 0, window, tail.length, n);
+            if (new String(window, StandardCharsets.US_ASCII).contains("\r\n\r\n")) {
+                break;
+            }
+            tail = java.util.Arrays.copyOfRange(window, Math.max(0, window.length - 3), window.length);
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static String readUntilClosed(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buf = new byte[1024];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            sb.append(new String(buf, 0, n, StandardCharsets.US_ASCII));
+        }
+        return sb.toString();
+    }
+
     @Test
     void testCookieReadWrite() throws Exception {
         Vostok.Web.init(0)
@@ -485,6 +617,234 @@ public class VostokWebTest {
         assertFalse(plainRes.headers().firstValue("Content-Encoding").isPresent());
     }
 
+    @Test
+    void testGzipNegotiationStreamingAndEtagVariant() throws Exception {
+        String largeBody = "hello world ".repeat(30);
+        Vostok.Web.init(0)
+                .gzip(new VKGzipConfig().minBytes(100))
+                .get("/big", (req, res) -> res.json("{\"data\":\"" + largeBody + "\"}"))
+                .get("/tagged", (req, res) -> res.header("ETag", "\"v1\"").text(largeBody))
+                .get("/stream", (req, res) -> res.header("Content-Type", "text/plain").stream(out -> {
+                    for (int i = 0; i < 200; i++) {
+                        out.print("line-" + i + "\n");
+                        if (i % 50 == 0) {
+                            out.flush();
+                        }
+                    }
+                }));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+        HttpClient client = HttpClient.newBuilder().build();
+
+        // gzip;q=0 明确拒绝
+        HttpResponse<byte[]> refused = client.send(HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/big"))
+                        .header("Accept-Encoding", "gzip;q=0, identity").GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertFalse(refused.headers().firstValue("Content-Encoding").isPresent());
+
+        // 未列出 gzip，但 * 的 q 值大于 0
+        HttpResponse<byte[]> wildcard = client.send(HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/big"))
+                        .header("Accept-Encoding", "br;q=1.0, *;q=0.5").GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", wildcard.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals("{\"data\":\"" + largeBody + "\"}", gunzip(wildcard.body()));
+
+        // 流式响应边写边压缩
+        HttpResponse<byte[]> streamed = client.send(HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/stream"))
+                        .header("Accept-Encoding", "gzip").GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", streamed.headers().firstValue("Content-Encoding").orElse(""));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            expected.append("line-").append(i).append('\n');
+        }
+        assertEquals(expected.toString(), gunzip(streamed.body()));
+
+        // 带 ETag 的响应：压缩变体使用弱 ETag，第二次命中缓存，字节一致
+        HttpRequest tagged = HttpRequest.newBuilder()
+                .uri(new URI("http://127.0.0.1:" + port + "/tagged"))
+                .header("Accept-Encoding", "gzip").GET().build();
+        HttpResponse<byte[]> t1 = client.send(tagged, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> t2 = client.send(tagged, HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("W/\"v1\"", t1.headers().firstValue("ETag").orElse(""));
+        assertTrue(java.util.Arrays.equals(t1.body(), t2.body()));
+        assertEquals(largeBody, gunzip(t2.body()));
+    }
+
+    @Test
+    void testStaticPrecompressedSibling() throws Exception {
+        Path dir = Files.createTempDirectory("vkgzstatic");
+        String content = "console.log('precompressed');\n".repeat(40);
+        Files.writeString(dir.resolve("app.js"), content);
+        java.io.ByteArrayOutputStream gz = new java.io.ByteArrayOutputStream();
+        try (java.util.zip.GZIPOutputStream out = new java.util.zip.GZIPOutputStream(gz)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(dir.resolve("app.js.gz"), gz.toByteArray());
+
+        Vostok.Web.init(0).staticDir("/static", dir.toString());
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = new URI("http://127.0.0.1:" + port + "/static/app.js");
+
+        HttpResponse<byte[]> encoded = client.send(HttpRequest.newBuilder().uri(uri)
+                        .header("Accept-Encoding", "br;q=0.9, gzip").GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, encoded.statusCode());
+        assertEquals("gzip", encoded.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals("Accept-Encoding", encoded.headers().firstValue("Vary").orElse(""));
+        assertEquals(content, gunzip(encoded.body()));
+        String weak = encoded.headers().firstValue("ETag").orElse("");
+        assertTrue(weak.startsWith("W/"), weak);
+
+        HttpResponse<String> identity = client.send(HttpRequest.newBuilder().uri(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertFalse(identity.headers().firstValue("Content-Encoding").isPresent());
+        assertEquals(content, identity.body());
+
+        // 压缩变体的弱 ETag 同样命中 304
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder().uri(uri)
+                        .header("Accept-Encoding", "gzip").header("If-None-Match", weak).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+
+        // Range 请求始终针对原文件
+        HttpResponse<String> range = client.send(HttpRequest.newBuilder().uri(uri)
+                        .header("Accept-Encoding", "gzip").header("Range", "bytes=0-6").GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(206, range.statusCode());
+        assertEquals("console", range.body());
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (java.util.zip.GZIPInputStream in = new java.util.zip.GZIPInputStream(new java.io.ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testResponseCacheTtlVaryConditionalCoalescingAndStale() throws Exception {
+        AtomicInteger itemCalls = new AtomicInteger();
+        AtomicInteger slowCalls = new AtomicInteger();
+        AtomicInteger swrCalls = new AtomicInteger();
+        AtomicInteger cookieCalls = new AtomicInteger();
+        AtomicInteger queryCalls = new AtomicInteger();
+        Vostok.Web.init(0)
+                .responseCache(new VKResponseCacheConfig()
+                        .route("/items/{id}", new VKResponseCacheRule().ttlMs(60_000)
+                                .varyQuery("lang").varyHeaders("X-Tenant"))
+                        .route("/slow", 60_000)
+                        .route("/swr/{name}", new VKResponseCacheRule().ttlMs(200).staleWhileRevalidateMs(60_000))
+                        .route("/cookie", 60_000)
+                        .route("/query", 60_000))
+                .get("/items/{id}", (req, res) -> res.text(req.param("id") + ":" + req.queryParam("lang") + ":"
+                        + req.header("X-Tenant") + ":" + itemCalls.incrementAndGet()))
+                .get("/slow", (req, res) -> {
+                    slowCalls.incrementAndGet();
+                    try {
+                        Thread.sleep(300);
+                    } catch (InterruptedException ignore) {
+                    }
+                    res.text("slow");
+                })
+                .get("/swr/{name}", (req, res) -> res.text("v" + swrCalls.incrementAndGet() + ":" + req.param("name")))
+                .get("/cookie", (req, res) -> res.cookie("sid", "x").text("c" + cookieCalls.incrementAndGet()))
+                .get("/query", (req, res) -> res.text(req.queryParams() + ":" + queryCalls.incrementAndGet()));
+        Vostok.Web.start();
+        String base = "http://127.0.0.1:" + Vostok.Web.port();
+        HttpClient client = HttpClient.newBuilder().build();
+
+        // 新鲜期内命中，不再执行 handler；未列入 varyQuery 的参数不影响命中
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder(new URI(base + "/items/1?lang=en&utm=a"))
+                .header("X-Tenant", "t1").GET().build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> hit = client.send(HttpRequest.newBuilder(new URI(base + "/items/1?lang=en&utm=b"))
+                .header("X-Tenant", "t1").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("1:en:t1:1", first.body());
+        assertEquals("MISS", first.headers().firstValue("X-Cache").orElse(""));
+        assertEquals("1:en:t1:1", hit.body());
+        assertEquals("HIT", hit.headers().firstValue("X-Cache").orElse(""));
+        assertEquals(1, itemCalls.get());
+
+        // vary 请求头与查询参数不同则是不同条目
+        HttpResponse<String> otherTenant = client.send(HttpRequest.newBuilder(new URI(base + "/items/1?lang=en"))
+                .header("X-Tenant", "t2").GET().build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> otherLang = client.send(HttpRequest.newBuilder(new URI(base + "/items/1?lang=fr"))
+                .header("X-Tenant", "t1").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("1:en:t2:2", otherTenant.body());
+        assertEquals("1:fr:t1:3", otherLang.body());
+
+        // 解码后含分隔符的参数值不能与另一组参数拼出相同的键
+        HttpResponse<String> split = client.send(HttpRequest.newBuilder(new URI(base + "/query?a=1&b=2"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> encoded = client.send(HttpRequest.newBuilder(new URI(base + "/query?a=1%26b%3D2"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("MISS", encoded.headers().firstValue("X-Cache").orElse(""));
+        assertNotEquals(split.body(), encoded.body());
+        assertEquals(2, queryCalls.get());
+
+        // 带 Authorization / Cookie 的请求不读写共享条目
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> authed = client.send(HttpRequest.newBuilder(new URI(base + "/query?a=1&b=2"))
+                    .header("Authorization", "Bearer u" + i).GET().build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(authed.headers().firstValue("X-Cache").isEmpty(), authed.body());
+        }
+        HttpResponse<String> withCookie = client.send(HttpRequest.newBuilder(new URI(base + "/query?a=1&b=2"))
+                .header("Cookie", "sid=u1").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(withCookie.headers().firstValue("X-Cache").isEmpty(), withCookie.body());
+        assertEquals(5, queryCalls.get());
+
+        // 生成的 ETag 支持条件请求
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+        HttpResponse<String> notModified = client.send(HttpRequest.newBuilder(new URI(base + "/items/1?lang=en"))
+                .header("X-Tenant", "t1").header("If-None-Match", etag).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals(etag, notModified.headers().firstValue("ETag").orElse(""));
+        assertEquals(3, itemCalls.get());
+
+        // 并发未命中合并为一次 handler 执行
+        List<java.util.concurrent.CompletableFuture<HttpResponse<String>>> concurrent = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            concurrent.add(client.sendAsync(HttpRequest.newBuilder(new URI(base + "/slow")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        for (java.util.concurrent.CompletableFuture<HttpResponse<String>> f : concurrent) {
+            assertEquals("slow", f.get(5, java.util.concurrent.TimeUnit.SECONDS).body());
+        }
+        assertEquals(1, slowCalls.get());
+
+        // 过期后在 stale 窗口内立即返回旧响应，后台刷新（刷新使用请求副本，路由参数随之保留）
+        HttpRequest swr = HttpRequest.newBuilder(new URI(base + "/swr/a")).GET().build();
+        assertEquals("v1:a", client.send(swr, HttpResponse.BodyHandlers.ofString()).body());
+        Thread.sleep(300);
+        HttpResponse<String> stale = client.send(swr, HttpResponse.BodyHandlers.ofString());
+        assertEquals("v1:a", stale.body());
+        assertEquals("STALE", stale.headers().firstValue("X-Cache").orElse(""));
+        String refreshed = null;
+        long deadline = System.currentTimeMillis() + 3000;
+        while (System.currentTimeMillis() < deadline) {
+            HttpResponse<String> r = client.send(swr, HttpResponse.BodyHandlers.ofString());
+            if ("HIT".equals(r.headers().firstValue("X-Cache").orElse(""))) {
+                refreshed = r.body();
+                break;
+            }
+            Thread.sleep(20);
+        }
+        assertEquals("v2:a", refreshed);
+        assertEquals(2, swrCalls.get());
+
+        // 带 Set-Cookie 的响应不缓存
+        client.send(HttpRequest.newBuilder(new URI(base + "/cookie")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> cookie = client.send(HttpRequest.newBuilder(new URI(base + "/cookie")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals("c2", cookie.body());
+    }
+
     @Test
     void testHealthEndpoint() throws Exception {
         Vostok.Web.init(0).health();
@@ -532,6 +892,270 @@ public class VostokWebTest {
         assertTrue(res.body().contains("\"avgResponseMs\""), res.body());
     }
 
+    @Test
+    void testWorkerModes() throws Exception {
+        for (VKWorkerMode mode : VKWorkerMode.values()) {
+            Vostok.Web.init(new VKWebConfig().port(0).workerMode(mode))
+                    .get("/ping", (req, res) -> res.text("pong-" + Thread.currentThread().getName().startsWith("vostok-web-reactor")))
+                    .postStream("/upload", (req, res) -> {
+                        try {
+                            res.text(String.valueOf(req.bodyStream().readAllBytes().length));
+                        } catch (IOException e) {
+                            res.status(500).text(e.getMessage());
+                        }
+                    })
+                    .get("/export", (req, res) -> res.stream(out -> {
+                        for (int i = 0; i < 50_000; i++) {
+                            out.print("line-" + i + "\n");
+                        }
+                    }))
+                    .metrics();
+            Vostok.Web.start();
+            int port = Vostok.Web.port();
+            HttpClient client = HttpClient.newHttpClient();
+
+            HttpResponse<String> ping = client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/ping")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(mode == VKWorkerMode.INLINE ? "pong-true" : "pong-false", ping.body(), mode.name());
+
+            // 流式请求/响应在 INLINE 模式下也必须转交线程池，否则会与 reactor 互相等待
+            HttpResponse<String> upload = client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/upload"))
+                    .timeout(Duration.ofSeconds(10))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(new byte[3 * 1024 * 1024])).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(String.valueOf(3 * 1024 * 1024), upload.body(), mode.name());
+            HttpResponse<String> export = client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/export"))
+                    .timeout(Duration.ofSeconds(10)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(export.body().endsWith("line-49999\n"), mode.name());
+
+            String metrics = client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            String expected = mode == VKWorkerMode.VIRTUAL && Runtime.version().feature() < 21 ? "POOL" : mode.name();
+            assertTrue(metrics.contains("\"workerMode\":\"" + expected + "\""), metrics);
+            assertTrue(metrics.contains("\"workerQueueWaitAvgMs\""), metrics);
+            Vostok.Web.stop();
+        }
+    }
+
+    @Test
+    void testResponseHeadEncoding() throws Exception {
+        String big = "v".repeat(4096);
+        Vostok.Web.init(0)
+                .get("/small", (req, res) -> res.header("X-A", "1").cookie("sid", "abc").text("hello"))
+                .get("/big", (req, res) -> res.header("X-Big", big).text("large-head"));
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            // 同一连接上先后走池化头部缓冲与超长头部的堆数组回退路径
+            for (String path : new String[]{"/small", "/big", "/small"}) {
+                out.write(("GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                String expectBody = path.equals("/big") ? "large-head" : "hello";
+                StringBuilder resp = new StringBuilder();
+                byte[] buf = new byte[8192];
+                while (!resp.toString().endsWith(expectBody)) {
+                    int n = in.read(buf);
+                    assertTrue(n > 0, resp.toString());
+                    resp.append(new String(buf, 0, n, StandardCharsets.US_ASCII));
+                }
+                String head = resp.substring(0, resp.indexOf("\r\n\r\n") + 2);
+                assertTrue(head.startsWith("HTTP/1.1 200 OK\r\n"), head);
+                assertTrue(head.contains("Content-Length: " + expectBody.length() + "\r\n"), head);
+                assertTrue(head.contains("Connection: keep-alive\r\n"), head);
+                assertTrue(head.matches("(?s).*\r\nDate: [A-Z][a-z]{2}, \\d{2} [A-Z][a-z]{2} \\d{4} \\d{2}:\\d{2}:\\d{2} GMT\r\n.*"),
+                        head);
+                if (path.equals("/big")) {
+                    assertTrue(head.contains("X-Big: " + big + "\r\n"));
+                } else {
+                    assertTrue(head.contains("X-A: 1\r\n"), head);
+                    assertTrue(head.contains("Set-Cookie: sid=abc"), head);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testReusePortAcceptorsAndLeastConnections() throws Exception {
+        Vostok.Web.init(new VKWebConfig().port(0).ioThreads(4).acceptorThreads(2)
+                        .reactorAssignment(VKReactorAssignment.LEAST_CONNECTIONS))
+                .get("/ping", (req, res) -> res.text("pong"))
+                .metrics()
+                .prometheus();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 24; i++) {
+                Socket socket = new Socket("127.0.0.1", port);
+                socket.setSoTimeout(5000);
+                sockets.add(socket);
+                socket.getOutputStream().write(("GET /ping HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                StringBuilder resp = new StringBuilder();
+                byte[] buf = new byte[512];
+                while (!resp.toString().endsWith("pong")) {
+                    int n = socket.getInputStream().read(buf);
+                    assertTrue(n > 0, resp.toString());
+                    resp.append(new String(buf, 0, n, StandardCharsets.US_ASCII));
+                }
+            }
+
+            HttpClient client = HttpClient.newHttpClient();
+            String body = client.send(HttpRequest.newBuilder()
+                            .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            boolean reusePort = java.nio.channels.ServerSocketChannel.open().supportedOptions()
+                    .contains(java.net.StandardSocketOptions.SO_REUSEPORT);
+            assertTrue(body.contains("\"acceptors\":" + (reusePort ? 2 : 1)), body);
+
+            java.util.regex.Matcher m = java.util.regex.Pattern
+                    .compile("\\{\"id\":(\\d+),\"connections\":(\\d+),\"accepted\":(\\d+)}").matcher(body);
+            int reactors = 0;
+            int totalConnections = 0;
+            while (m.find()) {
+                reactors++;
+                int c = Integer.parseInt(m.group(2));
+                totalConnections += c;
+                // 最少连接分配：每组内各 reactor 都分到了连接
+                assertTrue(c > 0, body);
+            }
+            assertEquals(4, reactors, body);
+            assertTrue(totalConnections >= 24, body);
+
+            String prom = client.send(HttpRequest.newBuilder()
+                            .uri(new URI("http://127.0.0.1:" + port + "/actuator/prometheus")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            assertTrue(prom.contains("vostok_web_reactor_connections{reactor=\"3\"}"), prom);
+            assertTrue(prom.contains("vostok_web_reactor_accepted_total{reactor=\"0\"}"), prom);
+        } finally {
+            for (Socket s : sockets) {
+                s.close();
+            }
+        }
+    }
+
+    @Test
+    void testRouteLatencyMetricsAndPrometheus() throws Exception {
+        Vostok.Web.init(0)
+                .get("/users/{id}", (req, res) -> res.text("u" + req.param("id")))
+                .get("/boom", (req, res) -> res.status(503).text("down"))
+                .metrics()
+                .prometheus();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < 5; i++) {
+            client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/users/" + i))
+                    .GET().build(), HttpResponse.BodyHandlers.discarding());
+        }
+        client.send(HttpRequest.newBuilder()
+                .uri(new URI("http://127.0.0.1:" + port + "/boom"))
+                .GET().build(), HttpResponse.BodyHandlers.discarding());
+        client.send(HttpRequest.newBuilder()
+                .uri(new URI("http://127.0.0.1:" + port + "/missing/1"))
+                .GET().build(), HttpResponse.BodyHandlers.discarding());
+
+        HttpResponse<String> json = client.send(
+                HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics"))
+                        .GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String body = json.body();
+        // 按路由模板聚合，而不是按具体路径
+        assertTrue(body.contains("{\"route\":\"/users/{id}\",\"method\":\"GET\",\"status\":\"2xx\","
+                + "\"latency\":{\"count\":5,"), body);
+        assertTrue(body.contains("{\"route\":\"/boom\",\"method\":\"GET\",\"status\":\"5xx\""), body);
+        assertTrue(body.contains("\"route\":\"<unmatched>\",\"method\":\"GET\",\"status\":\"4xx\""), body);
+        assertTrue(body.contains("\"p99Ms\""), body);
+        assertFalse(body.contains("\"bytesIn\":0,"), body);
+        assertFalse(body.contains("\"bytesOut\":0,"), body);
+
+        HttpResponse<String> prom = client.send(
+                HttpRequest.newBuilder()
+                        .uri(new URI("http://127.0.0.1:" + port + "/actuator/prometheus"))
+                        .GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, prom.statusCode());
+        assertTrue(prom.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        assertTrue(prom.body().contains("# TYPE vostok_web_request_duration_seconds summary"), prom.body());
+        assertTrue(prom.body().contains(
+                "vostok_web_request_duration_seconds_count{route=\"/users/{id}\",method=\"GET\",status=\"2xx\"} 5"),
+                prom.body());
+        assertTrue(prom.body().contains("vostok_web_bytes_out_total "), prom.body());
+    }
+
+    @Test
+    void testStructuredAccessLogJsonLines() throws Exception {
+        Path dir = Files.createTempDirectory("vostok-web-access");
+        VKWebConfig cfg = new VKWebConfig()
+                .port(0)
+                .accessLogStructured(true)
+                .accessLogFormat(VKAccessLogFormat.JSON)
+                .accessLogBatchSize(2)
+                .accessLogSink(new VKLogSinkConfig()
+                        .outputDir(dir.toString())
+                        .fsyncPolicy(VKLogFsyncPolicy.EVERY_FLUSH));
+        Vostok.Web.init(cfg)
+                .get("/users/{id}", (req, res) -> res.text("u" + req.param("id")))
+                .metrics();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        HttpClient client = HttpClient.newHttpClient();
+        for (int i = 0; i < 5; i++) {
+            client.send(HttpRequest.newBuilder()
+                    .uri(new URI("http://127.0.0.1:" + port + "/users/" + i))
+                    .header("X-Trace-Id", "t" + i)
+                    .GET().build(), HttpResponse.BodyHandlers.discarding());
+        }
+        HttpResponse<String> metrics = client.send(HttpRequest.newBuilder()
+                .uri(new URI("http://127.0.0.1:" + port + "/actuator/metrics"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(metrics.body().contains("\"accessLogDropped\":0"), metrics.body());
+
+        // 停止时日志线程排空环形缓冲
+        Vostok.Web.stop();
+        Vostok.Log.flush();
+
+        Path file = dir.resolve("access.log");
+        assertTrue(Files.exists(file));
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                .filter(l -> l.contains("\"route\":\"/users/{id}\"")).toList();
+        assertEquals(5, lines.size(), String.join("\n", lines));
+        for (int i = 0; i < 5; i++) {
+            String line = lines.get(i);
+            assertTrue(line.startsWith("{\"ts\":"), line);
+            assertTrue(line.contains("\"method\":\"GET\",\"path\":\"/users/" + i + "\""), line);
+            assertTrue(line.contains("\"status\":200,\"bytes\":"), line);
+            assertTrue(line.contains("\"trace\":\"t" + i + "\"}"), line);
+        }
+    }
+
+    @Test
+    void testLatencyHistogramPercentiles() {
+        VKLatencyHistogram h = new VKLatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            h.recordMicros(i * 1000L);
+        }
+        VKLatencyHistogram.Snapshot snap = h.snapshot();
+        assertEquals(1000, snap.count());
+        assertEquals(1_000_000L, snap.maxMicros());
+        // 对数-线性分桶的相对误差不超过 1/16
+        assertTrue(Math.abs(snap.p50Micros() - 500_000L) <= 500_000L / 16, String.valueOf(snap.p50Micros()));
+        assertTrue(Math.abs(snap.p99Micros() - 990_000L) <= 990_000L / 16, String.valueOf(snap.p99Micros()));
+    }
+
     @Test
     void testSse() throws Exception {
         List<VKSseEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
@@ -575,4 +1199,73 @@ public class VostokWebTest {
             emitters.get(0).close();
         }
     }
+
+    @Test
+    void testSseTopicFanoutReplayAndMetrics() throws Exception {
+        Vostok.Web.init(new VKWebConfig().port(0).sseReplayBufferSize(2))
+                .sseTopic("/news", "news")
+                .metrics();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        // 无订阅者时发布的事件进入重放缓冲，只保留最近 2 个
+        assertEquals(0, Vostok.Web.ssePublish("news", "a"));
+        assertEquals(0, Vostok.Web.ssePublish("news", "b"));
+        assertEquals(0, Vostok.Web.ssePublish("news", "tick", "c"));
+
+        try (Socket first = new Socket("127.0.0.1", port); Socket second = new Socket("127.0.0.1", port)) {
+            first.setSoTimeout(3000);
+            second.setSoTimeout(3000);
+            // 其他进程（或旧纪元）分配的 id：序号碰巧在缓冲范围内也不补发
+            first.getOutputStream().write(("GET /news HTTP/1.1\r\nHost: 127.0.0.1\r\nLast-Event-ID: 1\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            second.getOutputStream().write("GET /news HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (Vostok.Web.sseHub().subscribers("news") < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, Vostok.Web.ssePublish("news", "live"));
+            String stale = readUntil(first.getInputStream(), "data: live\n\n");
+            assertFalse(stale.contains("data: b") || stale.contains("data: c"), stale);
+            String fresh = readUntil(second.getInputStream(), "data: live\n\n");
+            assertFalse(fresh.contains("data: c"), fresh);
+            java.util.regex.Matcher m = java.util.regex.Pattern.compile("id: ([0-9a-z]+-)4\ndata: live").matcher(fresh);
+            assertTrue(m.find(), fresh);
+            String epoch = m.group(1);
+
+            // 重连：同纪元 Last-Event-ID 2 之后仍在缓冲中的是 3、4
+            try (Socket again = new Socket("127.0.0.1", port)) {
+                again.setSoTimeout(3000);
+                again.getOutputStream().write(("GET /news HTTP/1.1\r\nHost: 127.0.0.1\r\nLast-Event-ID: "
+                        + epoch + "2\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                String replay = readUntil(again.getInputStream(), "id: " + epoch + "4\ndata: live\n\n");
+                assertTrue(replay.contains("id: " + epoch + "3\nevent: tick\ndata: c\n\n"), replay);
+                assertFalse(replay.contains("data: b"), replay);
+            }
+        }
+
+        // 连接关闭后自动退订
+        long deadline = System.currentTimeMillis() + 2000;
+        while (Vostok.Web.sseHub().subscribers("news") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, Vostok.Web.sseHub().subscribers("news"));
+
+        HttpClient client = HttpClient.newBuilder().build();
+        String metrics = client.send(HttpRequest.newBuilder(new URI("http://127.0.0.1:" + port + "/actuator/metrics"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+        assertTrue(metrics.contains("\"sseTopics\":[{\"topic\":\"news\",\"subscribers\":0,\"published\":4,"
+                + "\"dropped\":0,\"replayed\":2}]"), metrics);
+    }
+
+    private static String readUntil(InputStream in, String marker) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buf = new byte[1024];
+        int n;
+        while (sb.indexOf(marker) < 0 && (n = in.read(buf)) > 0) {
+            sb.append(new String(buf, 0, n, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
 }
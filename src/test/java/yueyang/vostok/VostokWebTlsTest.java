@@ -157,4 +157,43 @@ public class VostokWebTlsTest {
             return null;
         }
     }
+
+    @Test
+    void testHttpsFileAndBufferPoolMetrics() throws Exception {
+        byte[] data = new byte[300 * 1024];
+        new java.util.Random(7).nextBytes(data);
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("vk_tls_file", ".bin");
+        java.nio.file.Files.write(file, data);
+
+        Vostok.Web.init(new VKWebConfig()
+                        .port(0)
+                        .tls(new VKTlsConfig()
+                                .keyStorePath(KEYSTORE_PATH)
+                                .keyStorePassword(KEYSTORE_PASS)))
+                .get("/file", (req, res) -> res.file(file, data.length))
+                .metrics();
+        Vostok.Web.start();
+        int port = Vostok.Web.port();
+
+        HttpClient client = HttpClient.newBuilder()
+                .sslContext(buildTrustingContext())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<byte[]> res = client.send(
+                    HttpRequest.newBuilder().uri(new URI("https://127.0.0.1:" + port + "/file")).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, res.statusCode());
+            assertTrue(java.util.Arrays.equals(data, res.body()), "TLS file body mismatch");
+        }
+
+        HttpResponse<String> metrics = client.send(
+                HttpRequest.newBuilder().uri(new URI("https://127.0.0.1:" + port + "/actuator/metrics")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        String body = metrics.body();
+        assertTrue(body.contains("\"tlsBufferPoolMisses\""), body);
+        long hits = Long.parseLong(body.replaceAll(".*\"tlsBufferPoolHits\":(\\d+).*", "$1"));
+        assertTrue(hits > 0, body);
+    }
 }